@@ -0,0 +1,110 @@
+
+package de.ncm.x3.iam.benchmark;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+
+import de.ncm.x3.iam.data.universe.UniverseMap;
+import de.ncm.x3.iam.parser.ParseEvent;
+import de.ncm.x3.iam.parser.ParseListener;
+import de.ncm.x3.iam.parser.xml.UniverseMapParser;
+
+/**
+ * The checked in log files the benchmarks run against. The universe exports come in three sizes: <code>small</code> with 20 sectors,
+ * <code>vanilla</code> with the about 170 sectors of X3TC and <code>mod</code> with 320 crowded sectors as written by the big mods. They are
+ * stored compressed.
+ */
+public final class Fixtures {
+	
+	public static final String SMALL = "small";
+	public static final String VANILLA = "vanilla";
+	public static final String MOD = "mod";
+	
+	private Fixtures() {}
+	
+	/**
+	 * @param size {@link #SMALL}, {@link #VANILLA} or {@link #MOD}
+	 */
+	public static byte[] universeExport(String size) throws IOException {
+		return load("log00903-" + size + ".txt.gz");
+	}
+	
+	public static byte[] playerPosition() throws IOException {
+		return load("log00902.txt");
+	}
+	
+	/**
+	 * @return The content in a direct buffer, like the one the parsers read files into
+	 */
+	public static ByteBuffer toBuffer(byte[] content) {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+		buffer.put(content).flip();
+		return buffer;
+	}
+	
+	/**
+	 * @return A temporary file with the content, deleted when the VM exits
+	 */
+	public static File toFile(byte[] content, String name) throws IOException {
+		File file = File.createTempFile(name, ".txt");
+		file.deleteOnExit();
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+	
+	/**
+	 * @return The export parsed like the application does, merged into a new map
+	 */
+	public static UniverseMap parseUniverseMap(byte[] export) throws IOException {
+		File file = toFile(export, "log00903");
+		UniverseMapParser parser = new UniverseMapParser(file);
+		parser.setSettleTime(0);
+		final UniverseMap map = new UniverseMap();
+		parser.addParseListener(new ParseListener() {
+			
+			@Override
+			public void onParseStart(ParseEvent e) {}
+			
+			@Override
+			public void onParseEnd(ParseEvent e) {
+				map.update((UniverseMap) e.getParsedValue());
+			}
+		});
+		parser.parse();
+		file.delete();
+		return map;
+	}
+	
+	private static byte[] load(String name) throws IOException {
+		InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name);
+		if (in == null) {
+			throw new IOException("Fixture " + name + " not found");
+		}
+		if (name.endsWith(".gz")) {
+			in = new GZIPInputStream(in);
+		}
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+	
+}
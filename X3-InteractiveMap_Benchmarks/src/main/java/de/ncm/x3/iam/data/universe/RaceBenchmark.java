@@ -0,0 +1,56 @@
+package de.ncm.x3.iam.data.universe;
+
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.ncm.x3.iam.benchmark.Fixtures;
+
+/**
+ * {@link Race#getIDFromRawString(String)} on the race IDs of all sectors of the vanilla export, in both the "A-1" and the plain "1" form. One
+ * operation converts every ID once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RaceBenchmark {
+	
+	private String[] rawIDs;
+	
+	@Setup
+	public void setUp() throws Exception {
+		String export = new String(Fixtures.universeExport(Fixtures.VANILLA), "UTF-8");
+		ArrayList<String> ids = new ArrayList<String>();
+		Matcher matcher = Pattern.compile("<(?:RaceID|ID)>([^<]*)<").matcher(export);
+		while (matcher.find()) {
+			ids.add(matcher.group(1));
+		}
+		rawIDs = ids.toArray(new String[ids.size()]);
+	}
+	
+	@Benchmark
+	public long getIDFromRawString() {
+		long sum = 0;
+		for (String rawID : rawIDs) {
+			sum += Race.getIDFromRawString(rawID);
+		}
+		return sum;
+	}
+	
+}
@@ -0,0 +1,74 @@
+package de.ncm.x3.iam.data.universe;
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.ncm.x3.iam.benchmark.Fixtures;
+
+/**
+ * The five nearest docks through the gates from every sector of the mod export, with the {@link StationIndex} and with a scan over all
+ * stations of all sectors and the precomputed jumps of the {@link RoutePlanner}. One operation searches from one sector.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StationIndexBenchmark {
+	
+	private UniverseMap map;
+	private StationIndex index;
+	private GridPos[] starts;
+	private int next;
+	
+	@Setup
+	public void setUp() throws Exception {
+		map = Fixtures.parseUniverseMap(Fixtures.universeExport(Fixtures.MOD));
+		index = map.getStationIndex();
+		map.getRoutePlanner();
+		starts = map.getSectors().keySet().toArray(new GridPos[0]);
+	}
+	
+	@Benchmark
+	public List<NearStation> index() {
+		GridPos start = starts[next++ % starts.length];
+		return index.findNearest(start, 0, 0, 0, SpaceStation.TYPE_Dock, 5);
+	}
+	
+	@Benchmark
+	public List<NearStation> scan() {
+		GridPos start = starts[next++ % starts.length];
+		RoutePlanner planner = map.getRoutePlanner();
+		ArrayList<NearStation> docks = new ArrayList<NearStation>();
+		for (Map.Entry<GridPos, Sector> entry : map.getSectors().entrySet()) {
+			int jumps = planner.getDistance(start, entry.getKey());
+			if (jumps == RoutePlanner.UNREACHABLE) {
+				continue;
+			}
+			for (SpaceStation station : entry.getValue().getSpaceStations()) {
+				if (station.isDock()) {
+					docks.add(new NearStation(station, entry.getKey(), jumps, StationTree.getDistanceSquared(station, 0, 0, 0)));
+				}
+			}
+		}
+		Collections.sort(docks);
+		return docks.subList(0, Math.min(5, docks.size()));
+	}
+	
+}
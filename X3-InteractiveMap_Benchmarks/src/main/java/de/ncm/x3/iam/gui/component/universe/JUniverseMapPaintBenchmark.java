@@ -0,0 +1,125 @@
+package de.ncm.x3.iam.gui.component.universe;
+
+
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JViewport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.ncm.x3.iam.benchmark.Fixtures;
+import de.ncm.x3.iam.generator.UniverseGenerator;
+
+/**
+ * Paints a screen full of the map, once with a {@link JSector} component for every sector and once with all sectors painted on the canvas.
+ * The heap the map holds after it was built is printed by the setup. <code>generated</code> is a 60x60 universe with about 1400
+ * sectors. Run it in the folder of the GUI module, so the images of the default color package are found.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Djava.awt.headless=true", "-DisDevRunMode=true" })
+public class JUniverseMapPaintBenchmark {
+	
+	private static final Dimension SCREEN = new Dimension(1600, 1000);
+	
+	@Param({ Fixtures.MOD, "generated" })
+	private String size;
+	
+	@Param({ "components", "canvas" })
+	private String mode;
+	
+	private JViewport viewport;
+	private BufferedImage image;
+	private Graphics2D g;
+	
+	@Setup
+	public void setUp() throws Exception {
+		byte[] export;
+		if ("generated".equals(size)) {
+			UniverseGenerator generator = new UniverseGenerator(0);
+			generator.setWidth(60);
+			generator.setHeight(60);
+			export = generator.createExport().getBytes("UTF-8");
+		} else {
+			export = Fixtures.universeExport(size);
+		}
+		
+		long heap = usedHeap();
+		JUniverseMap map = new JUniverseMap();
+		map.setRenderMode("canvas".equals(mode) ? JUniverseMap.RENDER_CANVAS : JUniverseMap.RENDER_COMPONENTS);
+		map.setUniverseMap(Fixtures.parseUniverseMap(export));
+		viewport = new JViewport();
+		viewport.setView(map);
+		viewport.setSize(SCREEN);
+		map.setSize(map.getPreferredSize());
+		layoutTree(map);
+		System.out.println();
+		System.out.println("Heap of " + map.getUniverseMap().getSectors().size() + " sectors as " + mode + ": " + (usedHeap() - heap) / 1024
+				+ " KB, " + countComponents(map) + " components");
+		
+		viewport.setViewPosition(new Point((map.getWidth() - SCREEN.width) / 2, (map.getHeight() - SCREEN.height) / 2));
+		image = new BufferedImage(SCREEN.width, SCREEN.height, BufferedImage.TYPE_INT_ARGB);
+		g = image.createGraphics();
+	}
+	
+	@TearDown
+	public void tearDown() {
+		g.dispose();
+	}
+	
+	@Benchmark
+	public BufferedImage paint() {
+		viewport.paint(g);
+		return image;
+	}
+	
+	/**
+	 * Containers which are not shown do not validate, so they are laid out by hand
+	 */
+	private static void layoutTree(Container container) {
+		container.doLayout();
+		for (Component child : container.getComponents()) {
+			if (child instanceof Container) {
+				layoutTree((Container) child);
+			}
+		}
+	}
+	
+	private static int countComponents(Container container) {
+		int count = 1;
+		for (Component child : container.getComponents()) {
+			count += child instanceof Container ? countComponents((Container) child) : 1;
+		}
+		return count;
+	}
+	
+	private static long usedHeap() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+}
@@ -0,0 +1,100 @@
+package de.ncm.x3.iam.gui.component.universe;
+
+
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JViewport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.ncm.x3.iam.benchmark.Fixtures;
+import de.ncm.x3.iam.generator.UniverseGenerator;
+
+/**
+ * Pans a screen over a synthetic universe of about 10000 sectors painted on the canvas, a step of the hand scrolling per call.
+ * <code>paintLayers</code> paints the visible part without the tile cache, <code>paintViewport</code> goes through the cache like the
+ * screen does. Run it in the folder of the GUI module, so the images of the default color package are found.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = { "-Djava.awt.headless=true", "-DisDevRunMode=true" })
+public class JUniverseMapPanBenchmark {
+	
+	private static final Dimension SCREEN = new Dimension(1600, 1000);
+	private static final int STEP = 37;
+	
+	private JUniverseMap map;
+	private JViewport viewport;
+	private BufferedImage image;
+	private Graphics2D g;
+	private int step = 0;
+	
+	@Setup
+	public void setUp() throws Exception {
+		UniverseGenerator generator = new UniverseGenerator(0);
+		generator.setWidth(160);
+		generator.setHeight(160);
+		generator.setStationsPerSector(0);
+		map = new JUniverseMap();
+		map.setUniverseMap(Fixtures.parseUniverseMap(generator.createExport().getBytes("UTF-8")));
+		viewport = new JViewport();
+		viewport.setView(map);
+		viewport.setSize(SCREEN);
+		map.setSize(map.getPreferredSize());
+		System.out.println();
+		System.out.println(map.getUniverseMap().getSectors().size() + " sectors, " + map.getGateGraph().getGateConnections().size()
+				+ " gate connections on " + map.getWidth() + "x" + map.getHeight() + " pixels");
+		
+		image = new BufferedImage(SCREEN.width, SCREEN.height, BufferedImage.TYPE_INT_RGB);
+		g = image.createGraphics();
+	}
+	
+	@TearDown
+	public void tearDown() {
+		g.dispose();
+	}
+	
+	/**
+	 * Scrolls diagonally and wraps around at the end of the map
+	 */
+	private Point nextViewPosition() {
+		step++;
+		return new Point(step * STEP % (map.getWidth() - SCREEN.width), step * STEP % (map.getHeight() - SCREEN.height));
+	}
+	
+	@Benchmark
+	public BufferedImage paintLayers() {
+		Point p = nextViewPosition();
+		Graphics2D view = (Graphics2D) g.create();
+		view.translate(-p.x, -p.y);
+		view.clipRect(p.x, p.y, SCREEN.width, SCREEN.height);
+		map.paintLayers(view);
+		view.dispose();
+		return image;
+	}
+	
+	@Benchmark
+	public BufferedImage paintViewport() {
+		viewport.setViewPosition(nextViewPosition());
+		viewport.paint(g);
+		return image;
+	}
+	
+}
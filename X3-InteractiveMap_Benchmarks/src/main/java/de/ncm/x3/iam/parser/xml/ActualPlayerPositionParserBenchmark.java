@@ -0,0 +1,81 @@
+package de.ncm.x3.iam.parser.xml;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.ncm.x3.iam.benchmark.Fixtures;
+import de.ncm.x3.iam.data.ActualPlayerInfo;
+
+/**
+ * Compares the scanning {@link ActualPlayerPositionParser} with the DOM based {@link ActualPlayerPositionDOMParser}, once on the document in
+ * memory and once including the read of the checked in position log.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActualPlayerPositionParserBenchmark {
+	
+	private File file;
+	private ByteBuffer content;
+	private ActualPlayerPositionParser parser;
+	private ActualPlayerPositionDOMParser domParser;
+	
+	@Setup
+	public void setUp() throws IOException {
+		byte[] bytes = Fixtures.playerPosition();
+		file = Fixtures.toFile(bytes, "log00902");
+		content = Fixtures.toBuffer(bytes);
+		
+		parser = new ActualPlayerPositionParser(file);
+		parser.setSettleTime(0);
+		domParser = new ActualPlayerPositionDOMParser(file);
+		domParser.setSettleTime(0);
+	}
+	
+	@TearDown
+	public void tearDown() {
+		file.delete();
+	}
+	
+	@Benchmark
+	public ActualPlayerInfo scanDocument() throws IOException {
+		return parser.parseDocument(content);
+	}
+	
+	@Benchmark
+	public ActualPlayerInfo domDocument() throws Exception {
+		content.rewind();
+		return domParser.parseDocument(content);
+	}
+	
+	@Benchmark
+	public void scanFile() {
+		parser.setFile(file); // Forget the checksum, else the unchanged content is skipped
+		parser.parse();
+	}
+	
+	@Benchmark
+	public void domFile() {
+		domParser.setFile(file);
+		domParser.parse();
+	}
+	
+}
@@ -0,0 +1,74 @@
+package de.ncm.x3.iam.parser.xml;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.ncm.x3.iam.benchmark.Fixtures;
+import de.ncm.x3.iam.data.universe.UniverseMap;
+
+/**
+ * Throughput of the {@link UniverseMapParser} and the {@link UniverseMapDOMParser} on the checked in exports, once on the document in memory and
+ * once including the read of the file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UniverseMapFixtureBenchmark {
+	
+	@Param({ Fixtures.SMALL, Fixtures.VANILLA, Fixtures.MOD })
+	private String export;
+	
+	private File file;
+	private ByteBuffer content;
+	private UniverseMapParser parser;
+	private UniverseMapDOMParser domParser;
+	
+	@Setup
+	public void setUp() throws IOException {
+		byte[] bytes = Fixtures.universeExport(export);
+		content = Fixtures.toBuffer(bytes);
+		file = Fixtures.toFile(bytes, "log00903");
+		parser = new UniverseMapParser(file);
+		parser.setSettleTime(0);
+		parser.setParallelThreshold(-1);
+		domParser = new UniverseMapDOMParser(file);
+		domParser.setSettleTime(0);
+	}
+	
+	@Benchmark
+	public UniverseMap staxDocument() throws Exception {
+		content.rewind();
+		return parser.parseDocument(content);
+	}
+	
+	@Benchmark
+	public UniverseMap domDocument() throws Exception {
+		content.rewind();
+		return domParser.parseDocument(content);
+	}
+	
+	@Benchmark
+	public void staxFile() {
+		parser.setFile(file); // Forget the checksum, else the unchanged content is skipped
+		parser.parse();
+	}
+	
+}
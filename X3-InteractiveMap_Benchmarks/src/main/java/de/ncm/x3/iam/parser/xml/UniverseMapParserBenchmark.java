@@ -0,0 +1,68 @@
+package de.ncm.x3.iam.parser.xml;
+
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.ncm.x3.iam.data.universe.UniverseMap;
+import de.ncm.x3.iam.generator.UniverseGenerator;
+
+/**
+ * Sequential against parallel decoding of synthetic universe exports with 100, 1000 and 10000 sectors. The speedup depends on the number of
+ * processors, on a single one the parallel mode only shows the overhead of the scan and the task split.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UniverseMapParserBenchmark {
+	
+	@Param({ "100", "1000", "10000" })
+	private int sectors;
+	
+	@Param({ "sequential", "parallel" })
+	private String mode;
+	
+	private ByteBuffer content;
+	private UniverseMapParser parser;
+	
+	@Setup
+	public void setUp() {
+		UniverseGenerator generator = new UniverseGenerator(sectors);
+		generator.setWidth((int) Math.ceil(Math.sqrt(sectors)));
+		generator.setHeight((int) Math.ceil((double) sectors / generator.getWidth()));
+		generator.setSectorDensity((double) sectors / (generator.getWidth() * generator.getHeight()));
+		generator.setStationsPerSector(10);
+		byte[] export = generator.createExport().getBytes();
+		content = ByteBuffer.allocateDirect(export.length);
+		content.put(export).flip();
+		parser = new UniverseMapParser(new File("log00903.txt"));
+		parser.setParallelThreshold("parallel".equals(mode) ? 0 : -1);
+		// At least two threads, so the parallel path is measured on a single processor too
+		parser.setParallelism(Math.max(2, Runtime.getRuntime().availableProcessors()));
+	}
+	
+	@Benchmark
+	public UniverseMap parse() throws XMLStreamException {
+		content.rewind();
+		return parser.parseDocument(content);
+	}
+	
+}
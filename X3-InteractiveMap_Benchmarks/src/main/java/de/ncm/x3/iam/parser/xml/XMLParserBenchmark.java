@@ -0,0 +1,76 @@
+package de.ncm.x3.iam.parser.xml;
+
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import de.ncm.x3.iam.benchmark.Fixtures;
+
+/**
+ * The DOM value helpers of the {@link XMLParser} on all coordinates and names of the vanilla export. One operation reads every node once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XMLParserBenchmark {
+	
+	private Node[] coordinates;
+	private Node[] names;
+	
+	@Setup
+	public void setUp() throws Exception {
+		Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(new ByteArrayInputStream(Fixtures.universeExport(Fixtures.VANILLA)));
+		NodeList x = document.getElementsByTagName("X");
+		NodeList y = document.getElementsByTagName("Y");
+		coordinates = new Node[x.getLength() + y.getLength()];
+		for (int i = 0; i < x.getLength(); i++) {
+			coordinates[i] = x.item(i);
+		}
+		for (int i = 0; i < y.getLength(); i++) {
+			coordinates[x.getLength() + i] = y.item(i);
+		}
+		NodeList nameList = document.getElementsByTagName("Name");
+		names = new Node[nameList.getLength()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = nameList.item(i);
+		}
+	}
+	
+	@Benchmark
+	public long getIntValueOf() {
+		long sum = 0;
+		for (Node node : coordinates) {
+			sum += XMLParser.getIntValueOf(node);
+		}
+		return sum;
+	}
+	
+	@Benchmark
+	public void getStringValueOf(Blackhole blackhole) {
+		for (Node node : names) {
+			blackhole.consume(XMLParser.getStringValueOf(node));
+		}
+	}
+	
+}
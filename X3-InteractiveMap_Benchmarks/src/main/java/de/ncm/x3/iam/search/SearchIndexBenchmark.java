@@ -0,0 +1,53 @@
+package de.ncm.x3.iam.search;
+
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.ncm.x3.iam.benchmark.Fixtures;
+import de.ncm.x3.iam.data.universe.UniverseMap;
+import de.ncm.x3.iam.generator.UniverseGenerator;
+
+/**
+ * One keystroke of the search field on a synthetic universe with about 10000 stations: a single letter, the start of a word, a whole name
+ * and a name with typos.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchIndexBenchmark {
+	
+	@Param({ "s", "sol", "solar power plant", "slar pwer plnt" })
+	private String query;
+	
+	private SearchIndex index;
+	
+	@Setup
+	public void setUp() throws Exception {
+		UniverseGenerator generator = new UniverseGenerator(0);
+		generator.setStationsPerSector(60);
+		UniverseMap map = Fixtures.parseUniverseMap(generator.createExport().getBytes("UTF-8"));
+		index = new SearchIndex(map);
+	}
+	
+	@Benchmark
+	public List<SearchHit> search() {
+		return index.search(query, 20);
+	}
+	
+}
@@ -6,7 +6,7 @@ import de.ncm.x3.iam.data.universe.GridPos;
 
 public class ActualPlayerInfo {
 	
-	private GridPos sectorPosition = new GridPos();
+	private GridPos sectorPosition = GridPos.NONE;
 	private String shipName = "";
 	private int x = 0;
 	private int y = 0;
@@ -0,0 +1,328 @@
+package de.ncm.x3.iam.data.universe;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Structure of the gate network of a {@link GateGraph}, with every {@link GateConnection} as an edge in both directions.
+ * <p>
+ * The connected components, articulation points and bridges (Tarjan) are computed with the analysis in linear time. The eccentricities need a
+ * breadth first search per sector and are computed on the first query, the regions of a race on the first query for the race. All results
+ * are kept, {@link UniverseMap#getGateAnalysis()} creates a new analysis when the gates changed.
+ */
+public class GateAnalysis {
+	
+	private final GateGraph graph;
+	private final int count;
+	private final int[] edgeStarts;
+	private final int[] edgeTargets;
+	private final int[] edgeConnections;
+	private final int[] components;
+	private final int[] componentSizes;
+	private final int largestComponent;
+	private final boolean[] articulationPoints;
+	private final boolean[] bridges;
+	private int[] eccentricities;
+	private final HashMap<Integer, int[]> raceRegions = new HashMap<Integer, int[]>();
+	
+	public GateAnalysis(GateGraph graph) {
+		this.graph = graph;
+		this.count = graph.getSectorCount();
+		List<GateConnection> connections = graph.getGateConnections();
+		int[] ends = new int[connections.size() * 2];
+		edgeStarts = new int[count + 1];
+		for (int i = 0; i < connections.size(); i++) {
+			ends[2 * i] = graph.indexOf(connections.get(i).getGate1().getTargetGridPos());
+			ends[2 * i + 1] = graph.indexOf(connections.get(i).getGate2().getTargetGridPos());
+			edgeStarts[ends[2 * i] + 1]++;
+			edgeStarts[ends[2 * i + 1] + 1]++;
+		}
+		for (int i = 0; i < count; i++) {
+			edgeStarts[i + 1] += edgeStarts[i];
+		}
+		edgeTargets = new int[ends.length];
+		edgeConnections = new int[ends.length];
+		int[] next = Arrays.copyOf(edgeStarts, count);
+		for (int i = 0; i < ends.length; i++) {
+			int edge = next[ends[i]]++;
+			edgeTargets[edge] = ends[i ^ 1];
+			edgeConnections[edge] = i / 2;
+		}
+		
+		components = new int[count];
+		Arrays.fill(components, -1);
+		int componentCount = 0;
+		int[] queue = new int[count];
+		for (int i = 0; i < count; i++) {
+			if (components[i] < 0) {
+				search(i, componentCount++, components, queue, null);
+			}
+		}
+		componentSizes = new int[componentCount];
+		for (int i = 0; i < count; i++) {
+			componentSizes[components[i]]++;
+		}
+		int largest = -1;
+		for (int i = 0; i < componentCount; i++) {
+			if (largest < 0 || componentSizes[i] > componentSizes[largest]) {
+				largest = i;
+			}
+		}
+		largestComponent = largest;
+		
+		articulationPoints = new boolean[count];
+		bridges = new boolean[connections.size()];
+		findCuts();
+	}
+	
+	public GateGraph getGateGraph() {
+		return graph;
+	}
+	
+	public int getComponentCount() {
+		return componentSizes.length;
+	}
+	
+	/**
+	 * @return Number of the component of the sector, the sectors of a component can reach each other through the gates
+	 */
+	public int getComponent(int sector) {
+		return components[sector];
+	}
+	
+	public int getComponentSize(int component) {
+		return componentSizes[component];
+	}
+	
+	/**
+	 * @return The component with the most sectors, -1 for an empty map
+	 */
+	public int getLargestComponent() {
+		return largestComponent;
+	}
+	
+	/**
+	 * @return Whether the sector is not in the largest component
+	 */
+	public boolean isCutOff(int sector) {
+		return components[sector] != largestComponent;
+	}
+	
+	/**
+	 * @return Whether the sector is a chokepoint: without it some other sectors of its component could not reach each other any more
+	 */
+	public boolean isArticulationPoint(int sector) {
+		return articulationPoints[sector];
+	}
+	
+	public List<GridPos> getArticulationPoints() {
+		ArrayList<GridPos> points = new ArrayList<GridPos>();
+		for (int i = 0; i < count; i++) {
+			if (articulationPoints[i]) {
+				points.add(graph.getGridPos(i));
+			}
+		}
+		return points;
+	}
+	
+	/**
+	 * @return Whether the connection of the sectors is a bridge: it is the only way between them
+	 */
+	public boolean isBridge(int sector, int target) {
+		for (int edge = edgeStarts[sector]; edge < edgeStarts[sector + 1]; edge++) {
+			if (edgeTargets[edge] == target) {
+				return bridges[edgeConnections[edge]];
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * @return The connections of {@link GateGraph#getGateConnections()} which are bridges
+	 */
+	public List<GateConnection> getBridges() {
+		ArrayList<GateConnection> list = new ArrayList<GateConnection>();
+		for (int i = 0; i < bridges.length; i++) {
+			if (bridges[i]) {
+				list.add(graph.getGateConnections().get(i));
+			}
+		}
+		return Collections.unmodifiableList(list);
+	}
+	
+	/**
+	 * @return The most jumps from the sector to another one of its component
+	 */
+	public int getEccentricity(int sector) {
+		return getEccentricities()[sector];
+	}
+	
+	/**
+	 * @return The most jumps between two sectors which can reach each other, 0 for a map without gates
+	 */
+	public int getDiameter() {
+		int diameter = 0;
+		for (int eccentricity : getEccentricities()) {
+			diameter = Math.max(diameter, eccentricity);
+		}
+		return diameter;
+	}
+	
+	/**
+	 * @return The most jumps between two sectors of the component
+	 */
+	public int getDiameter(int component) {
+		int diameter = 0;
+		int[] all = getEccentricities();
+		for (int i = 0; i < count; i++) {
+			if (components[i] == component) {
+				diameter = Math.max(diameter, all[i]);
+			}
+		}
+		return diameter;
+	}
+	
+	/**
+	 * @return For every sector the number of the region of the race it is in, -1 for the sectors of other races. The sectors of a region reach
+	 *         each other without leaving the sectors of the race. The array is shared and must not be changed.
+	 */
+	public synchronized int[] getRaceRegions(Race race) {
+		Integer id = race.getId();
+		int[] regions = raceRegions.get(id);
+		if (regions == null) {
+			regions = new int[count];
+			Arrays.fill(regions, -1);
+			boolean[] allowed = new boolean[count];
+			for (int i = 0; i < count; i++) {
+				Race sectorRace = graph.getSector(i).getRace();
+				allowed[i] = sectorRace != null && id.equals(sectorRace.getId());
+			}
+			int regionCount = 0;
+			int[] queue = new int[count];
+			for (int i = 0; i < count; i++) {
+				if (allowed[i] && regions[i] < 0) {
+					search(i, regionCount++, regions, queue, allowed);
+				}
+			}
+			raceRegions.put(id, regions);
+		}
+		return regions;
+	}
+	
+	public int getRaceRegionCount(Race race) {
+		int regionCount = 0;
+		for (int region : getRaceRegions(race)) {
+			regionCount = Math.max(regionCount, region + 1);
+		}
+		return regionCount;
+	}
+	
+	private synchronized int[] getEccentricities() {
+		if (eccentricities == null) {
+			int[] all = new int[count];
+			int[] jumps = new int[count];
+			int[] queue = new int[count];
+			for (int i = 0; i < count; i++) {
+				Arrays.fill(jumps, -1);
+				jumps[i] = 0;
+				queue[0] = i;
+				int tail = 1;
+				for (int head = 0; head < tail; head++) {
+					int sector = queue[head];
+					all[i] = jumps[sector];
+					for (int edge = edgeStarts[sector]; edge < edgeStarts[sector + 1]; edge++) {
+						if (jumps[edgeTargets[edge]] < 0) {
+							jumps[edgeTargets[edge]] = jumps[sector] + 1;
+							queue[tail++] = edgeTargets[edge];
+						}
+					}
+				}
+			}
+			eccentricities = all;
+		}
+		return eccentricities;
+	}
+	
+	/**
+	 * Marks all sectors reachable from the start with the mark, only through allowed sectors if given.
+	 */
+	private void search(int start, int mark, int[] marks, int[] queue, boolean[] allowed) {
+		marks[start] = mark;
+		queue[0] = start;
+		int tail = 1;
+		for (int head = 0; head < tail; head++) {
+			int sector = queue[head];
+			for (int edge = edgeStarts[sector]; edge < edgeStarts[sector + 1]; edge++) {
+				int target = edgeTargets[edge];
+				if (marks[target] < 0 && (allowed == null || allowed[target])) {
+					marks[target] = mark;
+					queue[tail++] = target;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Tarjan's search for articulation points and bridges, without recursion so large maps do not overflow the stack. The edge a sector was
+	 * entered by is skipped by its connection, so two gates between the same sectors count as one.
+	 */
+	private void findCuts() {
+		int[] order = new int[count];
+		int[] low = new int[count];
+		int[] parentConnection = new int[count];
+		int[] nextEdge = new int[count];
+		int[] stack = new int[count];
+		Arrays.fill(order, -1);
+		int time = 0;
+		for (int root = 0; root < count; root++) {
+			if (order[root] >= 0) {
+				continue;
+			}
+			int rootChildren = 0;
+			int depth = 0;
+			stack[depth++] = root;
+			order[root] = low[root] = time++;
+			parentConnection[root] = -1;
+			nextEdge[root] = edgeStarts[root];
+			while (depth > 0) {
+				int sector = stack[depth - 1];
+				if (nextEdge[sector] < edgeStarts[sector + 1]) {
+					int edge = nextEdge[sector]++;
+					int target = edgeTargets[edge];
+					if (edgeConnections[edge] == parentConnection[sector]) {
+						continue;
+					}
+					if (order[target] < 0) {
+						order[target] = low[target] = time++;
+						parentConnection[target] = edgeConnections[edge];
+						nextEdge[target] = edgeStarts[target];
+						stack[depth++] = target;
+						if (sector == root) {
+							rootChildren++;
+						}
+					} else {
+						low[sector] = Math.min(low[sector], order[target]);
+					}
+				} else {
+					depth--;
+					if (depth > 0) {
+						int parent = stack[depth - 1];
+						low[parent] = Math.min(low[parent], low[sector]);
+						if (low[sector] > order[parent]) {
+							bridges[parentConnection[sector]] = true;
+						}
+						if (parent != root && low[sector] >= order[parent]) {
+							articulationPoints[parent] = true;
+						}
+					}
+				}
+			}
+			articulationPoints[root] = rootChildren > 1;
+		}
+	}
+	
+}
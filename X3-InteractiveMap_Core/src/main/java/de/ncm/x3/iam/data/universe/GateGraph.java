@@ -0,0 +1,247 @@
+package de.ncm.x3.iam.data.universe;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The gate network of a {@link UniverseMap}, built once per change of the network and shared by the renderer and the analyses.
+ * <p>
+ * The sectors are numbered by their position, column by column (see {@link #getGridPos(int)}). The gates are kept as directed edges in
+ * compressed rows: the edges of sector <code>s</code> are <code>getEdgeStart(s)</code> to <code>getEdgeEnd(s) - 1</code>, each with the
+ * ordinal of its target sector and the gate it leaves through. Only gates to other sectors of the map are edges. The undirected
+ * {@link GateConnection}s are deduplicated while the edges are built.
+ * <p>
+ * The sector positions are also kept sorted row by row, so the number of sectors in a part of a row or column is the difference of two ranks
+ * for {@link #isDirectConnection(GridPos, GridPos)}. The graph is not changed after construction, the index by sector is built on the first
+ * query.
+ */
+public class GateGraph implements WarpGateConstants {
+	
+	private static final int GATES = WARPGATE_MAX_VALUE + 1;
+	private static final Comparator<GridPos> COLUMN_ORDER = new Comparator<GridPos>() {
+		
+		@Override
+		public int compare(GridPos pos1, GridPos pos2) {
+			return Long.compare(key(pos1.gridX, pos1.gridY), key(pos2.gridX, pos2.gridY));
+		}
+	};
+	
+	private final GridPos[] positions;
+	private final Sector[] sectors;
+	private final long[] columnKeys;
+	private final long[] rowKeys;
+	private final int[] edgeStarts;
+	private final int[] edgeTargets;
+	private final byte[] edgeGates;
+	private final List<GateConnection> gateConnections;
+	private IdentityHashMap<Sector, Integer> sectorIndex;
+	
+	public GateGraph(Map<GridPos, Sector> sectorMap) {
+		int count = sectorMap.size();
+		positions = sectorMap.keySet().toArray(new GridPos[count]);
+		Arrays.sort(positions, COLUMN_ORDER);
+		sectors = new Sector[count];
+		columnKeys = new long[count];
+		rowKeys = new long[count];
+		for (int i = 0; i < count; i++) {
+			sectors[i] = sectorMap.get(positions[i]);
+			columnKeys[i] = key(positions[i].gridX, positions[i].gridY);
+			rowKeys[i] = key(positions[i].gridY, positions[i].gridX);
+		}
+		Arrays.sort(rowKeys);
+		
+		int[] targets = new int[count * GATES];
+		edgeStarts = new int[count + 1];
+		for (int i = 0; i < count; i++) {
+			WarpGate[] warpGates = sectors[i].getWarpGates();
+			for (int gate = 0; gate < GATES; gate++) {
+				int target = -1;
+				if (warpGates != null && gate < warpGates.length && warpGates[gate] != null && warpGates[gate].exists()) {
+					target = indexOf(warpGates[gate].getTargetGridPos());
+				}
+				targets[i * GATES + gate] = target == i ? -1 : target; // sector connected with itself -> no edge
+				if (targets[i * GATES + gate] >= 0) {
+					edgeStarts[i + 1]++;
+				}
+			}
+			edgeStarts[i + 1] += edgeStarts[i];
+		}
+		edgeTargets = new int[edgeStarts[count]];
+		edgeGates = new byte[edgeStarts[count]];
+		for (int i = 0, edge = 0; i < targets.length; i++) {
+			if (targets[i] >= 0) {
+				edgeTargets[edge] = targets[i];
+				edgeGates[edge++] = (byte) (i % GATES);
+			}
+		}
+		
+		ArrayList<GateConnection> connections = new ArrayList<GateConnection>(edgeTargets.length / 2 + 1);
+		for (int i = 0; i < count; i++) {
+			WarpGate self = null;
+			for (int edge = edgeStarts[i]; edge < edgeStarts[i + 1]; edge++) {
+				int target = edgeTargets[edge];
+				if (hasEdge(target, edgeStarts[i], edge) || target < i && hasEdge(i, edgeStarts[target], edgeStarts[target + 1])) {
+					continue; // added with an earlier gate
+				}
+				if (self == null) {
+					self = new WarpGate(positions[i]);
+				}
+				connections.add(new GateConnection(self, sectors[i].getWarpGate(edgeGates[edge]), isDirectConnection(i, target)));
+			}
+		}
+		connections.trimToSize();
+		gateConnections = Collections.unmodifiableList(connections);
+	}
+	
+	/**
+	 * @return Ordinal of the sector at the position, -1 if there is none
+	 */
+	public int indexOf(int gridX, int gridY) {
+		int index = Arrays.binarySearch(columnKeys, key(gridX, gridY));
+		return index < 0 ? -1 : index;
+	}
+	
+	public int indexOf(GridPos gridPos) {
+		return indexOf(gridPos.gridX, gridPos.gridY);
+	}
+	
+	/**
+	 * @return Ordinal of the sector, -1 if it is not part of the graph
+	 */
+	public synchronized int indexOf(Sector sector) {
+		if (sectorIndex == null) {
+			sectorIndex = new IdentityHashMap<Sector, Integer>(sectors.length);
+			for (int i = 0; i < sectors.length; i++) {
+				sectorIndex.put(sectors[i], Integer.valueOf(i));
+			}
+		}
+		Integer index = sectorIndex.get(sector);
+		return index == null ? -1 : index.intValue();
+	}
+	
+	public int getSectorCount() {
+		return sectors.length;
+	}
+	
+	public GridPos getGridPos(int sector) {
+		return positions[sector];
+	}
+	
+	public Sector getSector(int sector) {
+		return sectors[sector];
+	}
+	
+	/**
+	 * @return Number of directed edges, every connection of two sectors with gates in both directions is counted twice
+	 */
+	public int getEdgeCount() {
+		return edgeTargets.length;
+	}
+	
+	public int getEdgeStart(int sector) {
+		return edgeStarts[sector];
+	}
+	
+	/**
+	 * @return The first edge not belonging to the sector any more
+	 */
+	public int getEdgeEnd(int sector) {
+		return edgeStarts[sector + 1];
+	}
+	
+	public int getDegree(int sector) {
+		return edgeStarts[sector + 1] - edgeStarts[sector];
+	}
+	
+	/**
+	 * @return Ordinal of the sector the edge leads to
+	 */
+	public int getEdgeTarget(int edge) {
+		return edgeTargets[edge];
+	}
+	
+	/**
+	 * @return The gate of the source sector the edge leaves through, one of the {@link WarpGateConstants}
+	 */
+	public byte getEdgeGate(int edge) {
+		return edgeGates[edge];
+	}
+	
+	/**
+	 * @return The connections of two sectors, each pair of sectors only once
+	 */
+	public List<GateConnection> getGateConnections() {
+		return gateConnections;
+	}
+	
+	/**
+	 * Whether the connection of the positions is drawn as a straight line between the sectors: they are neighbours, or are in the same row or
+	 * column and there is a sector from the lower one up to the higher one.
+	 */
+	public boolean isDirectConnection(GridPos sector1, GridPos sector2) {
+		int index1 = indexOf(sector1);
+		int index2 = indexOf(sector2);
+		if (index1 >= 0 && index2 >= 0) {
+			return isDirectConnection(index1, index2);
+		}
+		int dx = sector1.gridX - sector2.gridX;
+		int dy = sector1.gridY - sector2.gridY;
+		if (dx == 0 && Math.abs(dy) == 1 || dy == 0 && Math.abs(dx) == 1) {
+			return true;
+		}
+		if (dy == 0) {
+			int minX = Math.min(sector1.gridX, sector2.gridX);
+			int maxX = Math.max(sector1.gridX, sector2.gridX);
+			return rank(rowKeys, key(sector1.gridY, maxX)) > rank(rowKeys, key(sector1.gridY, minX));
+		}
+		if (dx == 0) {
+			int minY = Math.min(sector1.gridY, sector2.gridY);
+			int maxY = Math.max(sector1.gridY, sector2.gridY);
+			return rank(columnKeys, key(sector1.gridX, maxY)) > rank(columnKeys, key(sector1.gridX, minY));
+		}
+		return false;
+	}
+	
+	/**
+	 * The lower of two sectors is always counted, so two sectors of the map are directly connected if they are in the same row or column.
+	 *
+	 * @see #isDirectConnection(GridPos, GridPos)
+	 */
+	public boolean isDirectConnection(int sector1, int sector2) {
+		if (sector1 == sector2) {
+			return false;
+		}
+		return positions[sector1].gridX == positions[sector2].gridX || positions[sector1].gridY == positions[sector2].gridY;
+	}
+	
+	private boolean hasEdge(int target, int from, int to) {
+		for (int edge = from; edge < to; edge++) {
+			if (edgeTargets[edge] == target) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * @return Number of keys lower than the given one
+	 */
+	private static int rank(long[] keys, long key) {
+		int index = Arrays.binarySearch(keys, key);
+		return index < 0 ? -index - 1 : index;
+	}
+	
+	/**
+	 * @return A key ordered by the major coordinate first
+	 */
+	private static long key(int major, int minor) {
+		return ((long) major << 32) + minor;
+	}
+	
+}
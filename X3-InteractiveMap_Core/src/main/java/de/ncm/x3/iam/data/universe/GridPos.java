@@ -1,11 +1,25 @@
-
 package de.ncm.x3.iam.data.universe;
 
 
-public class GridPos {
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Position of a sector in the grid of the universe. Immutable, so it can be used as key and shared freely.
+ * <p>
+ * {@link #valueOf(int, int)} returns one interned instance per position, which should be preferred to the constructors. Positions within
+ * {@link #GRID_SIZE} are kept in an array, the others in a map keyed by {@link #pack(int, int)}.
+ */
+public final class GridPos {
+	
+	public static final int GRID_SIZE = 256;
+	public static final GridPos NONE = new GridPos();
 	
-	public int gridX;
-	public int gridY;
+	private static final AtomicReferenceArray<GridPos> grid = new AtomicReferenceArray<GridPos>(GRID_SIZE * GRID_SIZE);
+	private static final ConcurrentHashMap<Long, GridPos> outerGrid = new ConcurrentHashMap<Long, GridPos>();
+	
+	public final int gridX;
+	public final int gridY;
 	
 	public GridPos(int gridX, int gridY) {
 		this.gridX = gridX;
@@ -16,6 +30,45 @@ public class GridPos {
 		this(-1, -1);
 	}
 	
+	/**
+	 * @return The interned position, {@link #NONE} for -1/-1
+	 */
+	public static GridPos valueOf(int gridX, int gridY) {
+		if (gridX >= 0 && gridY >= 0 && gridX < GRID_SIZE && gridY < GRID_SIZE) {
+			int index = gridY * GRID_SIZE + gridX;
+			GridPos pos = grid.get(index);
+			if (pos == null) {
+				grid.compareAndSet(index, null, new GridPos(gridX, gridY));
+				pos = grid.get(index);
+			}
+			return pos;
+		}
+		if (gridX == -1 && gridY == -1) {
+			return NONE;
+		}
+		Long key = Long.valueOf(pack(gridX, gridY));
+		GridPos pos = outerGrid.get(key);
+		if (pos == null) {
+			pos = new GridPos(gridX, gridY);
+			GridPos added = outerGrid.putIfAbsent(key, pos);
+			if (added != null) {
+				pos = added;
+			}
+		}
+		return pos;
+	}
+	
+	/**
+	 * @return Both coordinates in one long, X in the upper half
+	 */
+	public static long pack(int gridX, int gridY) {
+		return (long) gridX << 32 | gridY & 0xFFFFFFFFL;
+	}
+	
+	public long pack() {
+		return pack(gridX, gridY);
+	}
+	
 	public int getGridX() {
 		return gridX;
 	}
@@ -59,12 +112,4 @@ public class GridPos {
 		return "GridPos [gridX=" + gridX + ", gridY=" + gridY + "]";
 	}
 	
-	public void setGridX(int gridX) {
-		this.gridX = gridX;
-	}
-	
-	public void setGridY(int gridY) {
-		this.gridY = gridY;
-	}
-	
 }
@@ -0,0 +1,59 @@
+package de.ncm.x3.iam.data.universe;
+
+
+/**
+ * A station found by {@link StationIndex#findNearest(GridPos, int, int, int, String, int)}, with the sector it is in and how far it is.
+ */
+public class NearStation implements Comparable<NearStation> {
+	
+	private final SpaceStation station;
+	private final GridPos gridPos;
+	private final int jumps;
+	private final long distanceSquared;
+	
+	public NearStation(SpaceStation station, GridPos gridPos, int jumps, long distanceSquared) {
+		this.station = station;
+		this.gridPos = gridPos;
+		this.jumps = jumps;
+		this.distanceSquared = distanceSquared;
+	}
+	
+	public SpaceStation getStation() {
+		return station;
+	}
+	
+	public GridPos getGridPos() {
+		return gridPos;
+	}
+	
+	/**
+	 * @return The jumps from the sector searched from, 0 if the station is in the same sector
+	 */
+	public int getJumps() {
+		return jumps;
+	}
+	
+	/**
+	 * @return The distance in the sector, to the position searched from or to the middle of the sector if it has to be entered by a gate
+	 */
+	public double getDistance() {
+		return Math.sqrt(distanceSquared);
+	}
+	
+	/**
+	 * Less jumps first, in the same sector the nearer station
+	 */
+	@Override
+	public int compareTo(NearStation near) {
+		if (jumps != near.jumps) {
+			return jumps < near.jumps ? -1 : 1;
+		}
+		return distanceSquared < near.distanceSquared ? -1 : distanceSquared == near.distanceSquared ? 0 : 1;
+	}
+	
+	@Override
+	public String toString() {
+		return "NearStation [station=" + station.getName() + ", gridPos=" + gridPos + ", jumps=" + jumps + ", distance=" + getDistance() + "]";
+	}
+	
+}
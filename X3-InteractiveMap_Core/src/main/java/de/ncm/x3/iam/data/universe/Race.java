@@ -21,8 +21,33 @@ public class Race {
 	}
 	
 	public static Integer getIDFromRawString(String rawID) {
-		String id = rawID.replaceAll("A", "").replaceAll("-", "");
-		return new Integer(id);
+		return Integer.valueOf(parseID(rawID));
+	}
+	
+	/**
+	 * Reads the number of an ID written by the game, e.g. "A-12" or "12". Every 'A' and '-' is ignored.
+	 * 
+	 * @throws NumberFormatException If there is no number
+	 */
+	public static int parseID(String rawID) {
+		int id = 0;
+		boolean digits = false;
+		for (int i = 0; i < rawID.length(); i++) {
+			char c = rawID.charAt(i);
+			if (c >= '0' && c <= '9') {
+				id = id * 10 + c - '0';
+				digits = true;
+				if (id < 0) {
+					throw new NumberFormatException("ID out of range: " + rawID);
+				}
+			} else if (c != 'A' && c != '-') {
+				throw new NumberFormatException("Invalid ID: " + rawID);
+			}
+		}
+		if (!digits) {
+			throw new NumberFormatException("Invalid ID: " + rawID);
+		}
+		return id;
 	}
 	
 }
@@ -0,0 +1,71 @@
+package de.ncm.x3.iam.data.universe;
+
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A way through the gates found by the {@link RoutePlanner}, from the first sector to the last one.
+ */
+public class Route {
+	
+	private final List<GridPos> sectors;
+	private final int cost;
+	
+	public Route(GridPos[] sectors, int cost) {
+		this.sectors = Collections.unmodifiableList(Arrays.asList(sectors.clone()));
+		this.cost = cost;
+	}
+	
+	/**
+	 * @return The sectors flown through, including start and target
+	 */
+	public List<GridPos> getSectors() {
+		return sectors;
+	}
+	
+	public GridPos getStart() {
+		return sectors.get(0);
+	}
+	
+	public GridPos getTarget() {
+		return sectors.get(sectors.size() - 1);
+	}
+	
+	public int getJumps() {
+		return sectors.size() - 1;
+	}
+	
+	/**
+	 * @return Sum of the costs of the sectors entered, the number of jumps if the route was planned without costs
+	 */
+	public int getCost() {
+		return cost;
+	}
+	
+	@Override
+	public int hashCode() {
+		return sectors.hashCode();
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		return sectors.equals(((Route) obj).sectors);
+	}
+	
+	@Override
+	public String toString() {
+		return "Route [jumps=" + getJumps() + ", cost=" + cost + ", sectors=" + sectors + "]";
+	}
+	
+}
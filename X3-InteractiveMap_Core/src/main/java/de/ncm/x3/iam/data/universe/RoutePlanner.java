@@ -0,0 +1,336 @@
+package de.ncm.x3.iam.data.universe;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Routes through the gates of a {@link GateGraph}.
+ * <p>
+ * For maps up to {@link #MATRIX_LIMIT} sectors the number of jumps between all sectors is computed once with a breadth first search per
+ * sector and kept in a <code>short</code> matrix, so {@link #getDistance(GridPos, GridPos)} and {@link #findRoute(GridPos, GridPos)} only
+ * walk along it. Larger maps are searched per query. Routes with a {@link SectorCost} and alternative routes are searched with Dijkstra's
+ * algorithm, the alternatives without loops after Yen.
+ * <p>
+ * The planner belongs to one graph, {@link UniverseMap#getRoutePlanner()} creates a new one when the gates changed.
+ */
+public class RoutePlanner {
+	
+	public static final int MATRIX_LIMIT = 2048;
+	public static final int UNREACHABLE = -1;
+	
+	private final GateGraph graph;
+	private final int count;
+	private final short[] distances;
+	private int lastSource = -1;
+	private int[] lastDistances;
+	
+	public RoutePlanner(GateGraph graph) {
+		this.graph = graph;
+		this.count = graph.getSectorCount();
+		if (count <= MATRIX_LIMIT) {
+			distances = new short[count * count];
+			int[] row = new int[count];
+			int[] queue = new int[count];
+			for (int source = 0; source < count; source++) {
+				searchJumps(source, row, queue);
+				for (int target = 0; target < count; target++) {
+					distances[source * count + target] = (short) row[target];
+				}
+			}
+		} else {
+			distances = null;
+		}
+	}
+	
+	/**
+	 * @return A cost which does not enter the sectors of the given races, the others count one jump
+	 */
+	public static SectorCost avoidRaces(Collection<Race> races) {
+		final Set<Integer> ids = new HashSet<Integer>();
+		for (Race race : races) {
+			ids.add(race.getId());
+		}
+		return new SectorCost() {
+			
+			@Override
+			public int getCost(Sector sector) {
+				return sector.getRace() != null && ids.contains(sector.getRace().getId()) ? -1 : 1;
+			}
+		};
+	}
+	
+	public GateGraph getGateGraph() {
+		return graph;
+	}
+	
+	/**
+	 * @return Whether the distances of all sectors were computed in advance
+	 */
+	public boolean isPrecomputed() {
+		return distances != null;
+	}
+	
+	/**
+	 * @return Number of jumps from one sector to the other, {@link #UNREACHABLE} if there is no way or one of them is no sector
+	 */
+	public int getDistance(GridPos from, GridPos to) {
+		int source = graph.indexOf(from);
+		int target = graph.indexOf(to);
+		if (source < 0 || target < 0) {
+			return UNREACHABLE;
+		}
+		return getDistance(source, target);
+	}
+	
+	/**
+	 * @see #getDistance(GridPos, GridPos)
+	 */
+	public int getDistance(int source, int target) {
+		if (distances != null) {
+			return distances[source * count + target];
+		}
+		synchronized (this) {
+			if (lastSource != source) {
+				if (lastDistances == null) {
+					lastDistances = new int[count];
+				}
+				searchJumps(source, lastDistances, new int[count]);
+				lastSource = source;
+			}
+			return lastDistances[target];
+		}
+	}
+	
+	/**
+	 * @return A route with the fewest jumps, <code>null</code> if there is none
+	 */
+	public Route findRoute(GridPos from, GridPos to) {
+		int source = graph.indexOf(from);
+		int target = graph.indexOf(to);
+		if (source < 0 || target < 0) {
+			return null;
+		}
+		if (distances == null) {
+			return toRoute(search(source, target, null, null, null), null);
+		}
+		int jumps = distances[source * count + target];
+		if (jumps == UNREACHABLE) {
+			return null;
+		}
+		int[] path = new int[jumps + 1];
+		path[0] = source;
+		for (int i = 1; i <= jumps; i++) {
+			for (int edge = graph.getEdgeStart(path[i - 1]); edge < graph.getEdgeEnd(path[i - 1]); edge++) {
+				int next = graph.getEdgeTarget(edge);
+				if (distances[next * count + target] == jumps - i) {
+					path[i] = next;
+					break;
+				}
+			}
+		}
+		return toRoute(path, null);
+	}
+	
+	/**
+	 * @param cost Cost of the sectors, <code>null</code> to count the jumps. Start and target are never avoided.
+	 * @return The cheapest route, <code>null</code> if there is none
+	 */
+	public Route findRoute(GridPos from, GridPos to, SectorCost cost) {
+		if (cost == null) {
+			return findRoute(from, to);
+		}
+		int source = graph.indexOf(from);
+		int target = graph.indexOf(to);
+		if (source < 0 || target < 0) {
+			return null;
+		}
+		return toRoute(search(source, target, cost, null, null), cost);
+	}
+	
+	/**
+	 * @param cost Cost of the sectors, <code>null</code> to count the jumps
+	 * @return Up to <code>routeCount</code> routes without loops, the cheapest first
+	 */
+	public List<Route> findRoutes(GridPos from, GridPos to, int routeCount, SectorCost cost) {
+		ArrayList<Route> routes = new ArrayList<Route>();
+		int source = graph.indexOf(from);
+		int target = graph.indexOf(to);
+		if (source < 0 || target < 0 || routeCount <= 0) {
+			return routes;
+		}
+		int[] first = search(source, target, cost, null, null);
+		if (first == null) {
+			return routes;
+		}
+		ArrayList<int[]> found = new ArrayList<int[]>();
+		ArrayList<int[]> candidates = new ArrayList<int[]>();
+		found.add(first);
+		while (found.size() < routeCount) {
+			int[] last = found.get(found.size() - 1);
+			for (int i = 0; i < last.length - 1; i++) {
+				boolean[] blockedSectors = new boolean[count];
+				for (int j = 0; j < i; j++) {
+					blockedSectors[last[j]] = true;
+				}
+				boolean[] blockedEdges = new boolean[graph.getEdgeCount()];
+				for (int[] path : found) {
+					if (path.length > i + 1 && isPrefix(last, path, i + 1)) {
+						for (int edge = graph.getEdgeStart(last[i]); edge < graph.getEdgeEnd(last[i]); edge++) {
+							if (graph.getEdgeTarget(edge) == path[i + 1]) {
+								blockedEdges[edge] = true;
+							}
+						}
+					}
+				}
+				int[] spur = search(last[i], target, cost, blockedSectors, blockedEdges);
+				if (spur != null) {
+					int[] path = new int[i + spur.length];
+					System.arraycopy(last, 0, path, 0, i);
+					System.arraycopy(spur, 0, path, i, spur.length);
+					if (!contains(found, path) && !contains(candidates, path)) {
+						candidates.add(path);
+					}
+				}
+			}
+			if (candidates.isEmpty()) {
+				break;
+			}
+			int best = 0;
+			for (int i = 1; i < candidates.size(); i++) {
+				long bestCost = getCost(candidates.get(best), cost);
+				long candidateCost = getCost(candidates.get(i), cost);
+				if (candidateCost < bestCost || candidateCost == bestCost && candidates.get(i).length < candidates.get(best).length) {
+					best = i;
+				}
+			}
+			found.add(candidates.remove(best));
+		}
+		for (int[] path : found) {
+			routes.add(toRoute(path, cost));
+		}
+		return routes;
+	}
+	
+	private void searchJumps(int source, int[] jumps, int[] queue) {
+		Arrays.fill(jumps, UNREACHABLE);
+		jumps[source] = 0;
+		queue[0] = source;
+		for (int head = 0, tail = 1; head < tail; head++) {
+			int sector = queue[head];
+			for (int edge = graph.getEdgeStart(sector); edge < graph.getEdgeEnd(sector); edge++) {
+				int next = graph.getEdgeTarget(edge);
+				if (jumps[next] == UNREACHABLE) {
+					jumps[next] = jumps[sector] + 1;
+					queue[tail++] = next;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Dijkstra from the source to the target, the queue holds the cost in the upper and the sector in the lower half of a long.
+	 *
+	 * @return The sectors of the cheapest path, <code>null</code> if there is none
+	 */
+	private int[] search(int source, int target, SectorCost cost, boolean[] blockedSectors, boolean[] blockedEdges) {
+		int[] costs = new int[count];
+		int[] previous = new int[count];
+		Arrays.fill(costs, Integer.MAX_VALUE);
+		costs[source] = 0;
+		previous[source] = -1;
+		PriorityQueue<Long> queue = new PriorityQueue<Long>();
+		queue.add(Long.valueOf(source));
+		while (!queue.isEmpty()) {
+			long entry = queue.poll().longValue();
+			int sector = (int) entry;
+			if (entry >>> 32 > costs[sector]) {
+				continue;
+			}
+			if (sector == target) {
+				break;
+			}
+			for (int edge = graph.getEdgeStart(sector); edge < graph.getEdgeEnd(sector); edge++) {
+				int next = graph.getEdgeTarget(edge);
+				if (blockedEdges != null && blockedEdges[edge] || blockedSectors != null && blockedSectors[next]) {
+					continue;
+				}
+				int step = getCost(next, target, cost);
+				if (step < 0) {
+					continue;
+				}
+				int nextCost = (int) Math.min((long) costs[sector] + step, Integer.MAX_VALUE - 1);
+				if (nextCost < costs[next]) {
+					costs[next] = nextCost;
+					previous[next] = sector;
+					queue.add(Long.valueOf((long) nextCost << 32 | next));
+				}
+			}
+		}
+		if (costs[target] == Integer.MAX_VALUE) {
+			return null;
+		}
+		int length = 1;
+		for (int sector = target; sector != source; sector = previous[sector]) {
+			length++;
+		}
+		int[] path = new int[length];
+		int sector = target;
+		for (int i = length - 1; i >= 0; i--) {
+			path[i] = sector;
+			sector = previous[sector];
+		}
+		return path;
+	}
+	
+	private int getCost(int sector, int target, SectorCost cost) {
+		if (cost == null) {
+			return 1;
+		}
+		int step = cost.getCost(graph.getSector(sector));
+		return sector == target ? Math.max(step, 0) : step;
+	}
+	
+	private long getCost(int[] path, SectorCost cost) {
+		long sum = 0;
+		for (int i = 1; i < path.length; i++) {
+			sum += getCost(path[i], path[path.length - 1], cost);
+		}
+		return sum;
+	}
+	
+	private Route toRoute(int[] path, SectorCost cost) {
+		if (path == null) {
+			return null;
+		}
+		GridPos[] sectors = new GridPos[path.length];
+		for (int i = 0; i < path.length; i++) {
+			sectors[i] = graph.getGridPos(path[i]);
+		}
+		return new Route(sectors, (int) Math.min(getCost(path, cost), Integer.MAX_VALUE));
+	}
+	
+	private static boolean isPrefix(int[] path, int[] other, int length) {
+		for (int i = 0; i < length; i++) {
+			if (path[i] != other[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private static boolean contains(List<int[]> paths, int[] path) {
+		for (int[] other : paths) {
+			if (Arrays.equals(other, path)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+}
@@ -0,0 +1,14 @@
+package de.ncm.x3.iam.data.universe;
+
+
+/**
+ * Weight of the sectors for the {@link RoutePlanner}.
+ */
+public interface SectorCost {
+	
+	/**
+	 * @return The cost of flying into the sector, a negative value if the route must not pass it
+	 */
+	public int getCost(Sector sector);
+	
+}
@@ -0,0 +1,209 @@
+
+package de.ncm.x3.iam.data.universe;
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Changes of one sector which exists in both maps compared by the {@link UniverseMapDiff}.
+ * <p>
+ * Stations have no id in the export, so they are matched by type and name. A station of the same type and name at another position counts as moved.
+ */
+public class SectorDiff {
+	
+	private final GridPos gridPos;
+	private final Sector sector;
+	private final Sector update;
+	private boolean nameChanged = false;
+	private boolean raceChanged = false;
+	private boolean[] gatesChanged = new boolean[WarpGateConstants.WARPGATE_MAX_VALUE + 1];
+	private ArrayList<SpaceStation> addedStations = new ArrayList<SpaceStation>();
+	private ArrayList<SpaceStation> removedStations = new ArrayList<SpaceStation>();
+	private LinkedHashMap<SpaceStation, SpaceStation> movedStations = new LinkedHashMap<SpaceStation, SpaceStation>(); // Old, New
+	
+	SectorDiff(GridPos gridPos, Sector sector, Sector update) {
+		this.gridPos = gridPos;
+		this.sector = sector;
+		this.update = update;
+		compare();
+	}
+	
+	private void compare() {
+		nameChanged = !sector.getName().equals(update.getName());
+		raceChanged = !isSameRace(sector.getRace(), update.getRace());
+		for (byte i = 0; i < gatesChanged.length; i++) {
+			gatesChanged[i] = !isSameGate(sector.getWarpGate(i), update.getWarpGate(i));
+		}
+		compareStations();
+	}
+	
+	private void compareStations() {
+		HashMap<String, ArrayList<SpaceStation>> oldStations = new HashMap<String, ArrayList<SpaceStation>>();
+		for (SpaceStation station : sector.getSpaceStations()) {
+			String key = getKey(station);
+			ArrayList<SpaceStation> list = oldStations.get(key);
+			if (list == null) {
+				list = new ArrayList<SpaceStation>(1);
+				oldStations.put(key, list);
+			}
+			list.add(station);
+		}
+		
+		// First take the stations which did not move, so equally named ones are not mixed up
+		ArrayList<SpaceStation> unmatched = new ArrayList<SpaceStation>();
+		for (SpaceStation station : update.getSpaceStations()) {
+			ArrayList<SpaceStation> candidates = oldStations.get(getKey(station));
+			SpaceStation match = null;
+			if (candidates != null) {
+				for (SpaceStation candidate : candidates) {
+					if (isSamePosition(candidate, station)) {
+						match = candidate;
+						break;
+					}
+				}
+			}
+			if (match != null) {
+				candidates.remove(match);
+			} else {
+				unmatched.add(station);
+			}
+		}
+		
+		for (SpaceStation station : unmatched) {
+			ArrayList<SpaceStation> candidates = oldStations.get(getKey(station));
+			if (candidates != null && !candidates.isEmpty()) {
+				movedStations.put(candidates.remove(0), station);
+			} else {
+				addedStations.add(station);
+			}
+		}
+		for (ArrayList<SpaceStation> list : oldStations.values()) {
+			removedStations.addAll(list);
+		}
+	}
+	
+	/**
+	 * Applies the changes to the sector of the base map. The races are taken from the given race table, so all sectors share the same instances.
+	 */
+	void applyTo(Map<Integer, Race> races) {
+		if (nameChanged) {
+			sector.setName(update.getName());
+		}
+		if (raceChanged) {
+			sector.setRace(UniverseMapDiff.resolveRace(update.getRace(), races));
+		}
+		for (byte i = 0; i < gatesChanged.length; i++) {
+			if (gatesChanged[i]) {
+				sector.setWarpGate(i, update.getWarpGate(i));
+			}
+		}
+		for (SpaceStation station : removedStations) {
+			sector.getSpaceStations().remove(station);
+		}
+		for (Map.Entry<SpaceStation, SpaceStation> entry : movedStations.entrySet()) {
+			SpaceStation station = entry.getKey();
+			station.setPosX(entry.getValue().getPosX());
+			station.setPosY(entry.getValue().getPosY());
+			station.setPosZ(entry.getValue().getPosZ());
+			int index = sector.getSpaceStations().indexOf(station);
+			if (index >= 0) {
+				sector.getSpaceStations().fireContentsChanged(index);
+			}
+		}
+		for (SpaceStation station : addedStations) {
+			sector.addSpaceStation(station);
+		}
+	}
+	
+	public GridPos getGridPos() {
+		return gridPos;
+	}
+	
+	/**
+	 * @return The sector of the base map
+	 */
+	public Sector getSector() {
+		return sector;
+	}
+	
+	public boolean isNameChanged() {
+		return nameChanged;
+	}
+	
+	public boolean isRaceChanged() {
+		return raceChanged;
+	}
+	
+	public boolean isGateChanged(byte id) {
+		return gatesChanged[id];
+	}
+	
+	public boolean isGatesChanged() {
+		for (boolean changed : gatesChanged) {
+			if (changed) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	public boolean isStationsChanged() {
+		return !addedStations.isEmpty() || !removedStations.isEmpty() || !movedStations.isEmpty();
+	}
+	
+	public List<SpaceStation> getAddedStations() {
+		return addedStations;
+	}
+	
+	/**
+	 * @return The removed stations of the base map
+	 */
+	public List<SpaceStation> getRemovedStations() {
+		return removedStations;
+	}
+	
+	/**
+	 * @return The moved stations of the base map mapped to their updated counterparts
+	 */
+	public Map<SpaceStation, SpaceStation> getMovedStations() {
+		return movedStations;
+	}
+	
+	public boolean isEmpty() {
+		return !nameChanged && !raceChanged && !isGatesChanged() && !isStationsChanged();
+	}
+	
+	@Override
+	public String toString() {
+		return "SectorDiff [gridPos=" + gridPos + ", nameChanged=" + nameChanged + ", raceChanged=" + raceChanged + ", gatesChanged="
+				+ isGatesChanged() + ", addedStations=" + addedStations.size() + ", removedStations=" + removedStations.size() + ", movedStations="
+				+ movedStations.size() + "]";
+	}
+	
+	private static String getKey(SpaceStation station) {
+		return station.getType() + '\u0000' + station.getName();
+	}
+	
+	private static boolean isSamePosition(SpaceStation s1, SpaceStation s2) {
+		return s1.getPosX() == s2.getPosX() && s1.getPosY() == s2.getPosY() && s1.getPosZ() == s2.getPosZ();
+	}
+	
+	private static boolean isSameGate(WarpGate g1, WarpGate g2) {
+		if (g1 == null) {
+			return g2 == null;
+		}
+		return g1.equals(g2);
+	}
+	
+	static boolean isSameRace(Race r1, Race r2) {
+		if (r1 == null || r2 == null) {
+			return r1 == r2;
+		}
+		return r1.getId().equals(r2.getId()) && r1.getName().equals(r2.getName());
+	}
+	
+}
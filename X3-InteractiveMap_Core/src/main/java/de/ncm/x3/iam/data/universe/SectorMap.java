@@ -0,0 +1,191 @@
+
+package de.ncm.x3.iam.data.universe;
+
+
+import java.util.Arrays;
+import java.util.Map;
+
+import de.ncm.jgoodies.model.HashMapModel;
+
+/**
+ * The sectors of a {@link UniverseMap} by {@link GridPos}, which can also be looked up by the coordinates without creating a key.
+ * <p>
+ * Besides the hash map the sectors are kept in a dense array covering the grid from 0/0 to the largest position put so far (at most
+ * {@link #DENSE_LIMIT} in both directions), and all others in an open addressing table keyed by {@link GridPos#pack(int, int)}, for mods with
+ * unusual coordinates. The index is kept up to date by {@link #put(GridPos, Sector)}, {@link #putAll(Map)}, {@link #remove(Object)} and
+ * {@link #clear()}, changes through the views of the map are not supported.
+ */
+public class SectorMap extends HashMapModel<GridPos, Sector> {
+	
+	private static final long serialVersionUID = 1L;
+	public static final int DENSE_LIMIT = 256;
+	private static final long EMPTY = Long.MIN_VALUE;
+	
+	private Sector[] dense = new Sector[0];
+	private int width = 0;
+	private int height = 0;
+	private long[] sparseKeys = null;
+	private Sector[] sparseValues = null;
+	private int sparseSize = 0;
+	
+	public SectorMap() {
+		super();
+	}
+	
+	/**
+	 * @return The sector at the position, <code>null</code> if there is none
+	 */
+	public Sector get(int gridX, int gridY) {
+		if (gridX >= 0 && gridY >= 0 && gridX < DENSE_LIMIT && gridY < DENSE_LIMIT) {
+			return gridX < width && gridY < height ? dense[gridY * width + gridX] : null;
+		}
+		if (sparseKeys == null) {
+			return null;
+		}
+		long key = GridPos.pack(gridX, gridY);
+		for (int i = slot(key);; i = i + 1 & sparseKeys.length - 1) {
+			if (sparseKeys[i] == key) {
+				return sparseValues[i];
+			}
+			if (sparseKeys[i] == EMPTY) {
+				return null;
+			}
+		}
+	}
+	
+	public boolean contains(int gridX, int gridY) {
+		return get(gridX, gridY) != null;
+	}
+	
+	@Override
+	public Sector put(GridPos key, Sector value) {
+		index(key.gridX, key.gridY, value);
+		return super.put(key, value);
+	}
+	
+	@Override
+	public void putAll(Map<? extends GridPos, ? extends Sector> map) {
+		for (Map.Entry<? extends GridPos, ? extends Sector> entry : map.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+	
+	@Override
+	public Sector remove(Object key) {
+		if (key instanceof GridPos && super.containsKey(key)) {
+			index(((GridPos) key).gridX, ((GridPos) key).gridY, null);
+		}
+		return super.remove(key);
+	}
+	
+	@Override
+	public void clear() {
+		super.clear();
+		dense = new Sector[0];
+		width = 0;
+		height = 0;
+		sparseKeys = null;
+		sparseValues = null;
+		sparseSize = 0;
+	}
+	
+	/**
+	 * @return Width of the dense part of the index, the largest X put so far + 1
+	 */
+	public int getGridWidth() {
+		return width;
+	}
+	
+	/**
+	 * @return Height of the dense part of the index, the largest Y put so far + 1
+	 */
+	public int getGridHeight() {
+		return height;
+	}
+	
+	private void index(int gridX, int gridY, Sector sector) {
+		if (gridX >= 0 && gridY >= 0 && gridX < DENSE_LIMIT && gridY < DENSE_LIMIT) {
+			if (gridX >= width || gridY >= height) {
+				if (sector == null) {
+					return;
+				}
+				grow(Math.max(width, gridX + 1), Math.max(height, gridY + 1));
+			}
+			dense[gridY * width + gridX] = sector;
+		} else if (sector != null) {
+			putSparse(GridPos.pack(gridX, gridY), sector);
+		} else if (sparseKeys != null) {
+			removeSparse(GridPos.pack(gridX, gridY));
+		}
+	}
+	
+	private void grow(int newWidth, int newHeight) {
+		Sector[] grown = new Sector[newWidth * newHeight];
+		for (int y = 0; y < height; y++) {
+			System.arraycopy(dense, y * width, grown, y * newWidth, width);
+		}
+		dense = grown;
+		width = newWidth;
+		height = newHeight;
+	}
+	
+	private void putSparse(long key, Sector sector) {
+		if (sparseKeys == null || (sparseSize + 1) * 2 > sparseKeys.length) {
+			rehash(sparseKeys == null ? 16 : sparseKeys.length * 2);
+		}
+		int i = slot(key);
+		while (sparseKeys[i] != EMPTY && sparseKeys[i] != key) {
+			i = i + 1 & sparseKeys.length - 1;
+		}
+		if (sparseKeys[i] == EMPTY) {
+			sparseKeys[i] = key;
+			sparseSize++;
+		}
+		sparseValues[i] = sector;
+	}
+	
+	private void removeSparse(long key) {
+		int i = slot(key);
+		while (sparseKeys[i] != key) {
+			if (sparseKeys[i] == EMPTY) {
+				return;
+			}
+			i = i + 1 & sparseKeys.length - 1;
+		}
+		// Moves the following entries of the cluster back, so no lookup stops at the gap
+		int gap = i;
+		for (int j = gap + 1 & sparseKeys.length - 1; sparseKeys[j] != EMPTY; j = j + 1 & sparseKeys.length - 1) {
+			int home = slot(sparseKeys[j]);
+			if ((j - home & sparseKeys.length - 1) >= (j - gap & sparseKeys.length - 1)) {
+				sparseKeys[gap] = sparseKeys[j];
+				sparseValues[gap] = sparseValues[j];
+				gap = j;
+			}
+		}
+		sparseKeys[gap] = EMPTY;
+		sparseValues[gap] = null;
+		sparseSize--;
+	}
+	
+	private void rehash(int capacity) {
+		long[] keys = sparseKeys;
+		Sector[] values = sparseValues;
+		sparseKeys = new long[capacity];
+		sparseValues = new Sector[capacity];
+		Arrays.fill(sparseKeys, EMPTY);
+		sparseSize = 0;
+		if (keys != null) {
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] != EMPTY) {
+					putSparse(keys[i], values[i]);
+				}
+			}
+		}
+	}
+	
+	private int slot(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash >>> 40) & sparseKeys.length - 1;
+	}
+	
+}
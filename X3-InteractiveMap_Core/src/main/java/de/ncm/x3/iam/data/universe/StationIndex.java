@@ -0,0 +1,152 @@
+package de.ncm.x3.iam.data.universe;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+/**
+ * Nearest stations of a type, in a sector or through the gates.
+ * <p>
+ * Every sector has a {@link StationTree}, built when the index is created and again on the next query after its station list fired a
+ * change, as {@link SectorDiff} does for added, removed and moved stations. A search through the gates goes breadth first over the
+ * {@link GateGraph} and only looks into sectors whose tree has stations of the type. It stops after the jump count at which enough stations
+ * were found, so stations are ordered by jumps first and then by their distance: to the given position in the start sector, to the middle of
+ * the sector in the others, as the gates have no position in the export.
+ */
+public class StationIndex {
+	
+	private final UniverseMap map;
+	private final IdentityHashMap<Sector, SectorStations> sectors = new IdentityHashMap<Sector, SectorStations>();
+	
+	public StationIndex(UniverseMap map) {
+		this.map = map;
+		for (Sector sector : map.getSectors().values()) {
+			getTree(sector);
+		}
+	}
+	
+	/**
+	 * @return The tree of the current stations of the sector
+	 */
+	public synchronized StationTree getTree(Sector sector) {
+		SectorStations entry = sectors.get(sector);
+		if (entry == null) {
+			entry = new SectorStations(sector);
+			sector.getSpaceStations().addListDataListener(entry);
+			sectors.put(sector, entry);
+		}
+		if (entry.tree == null) {
+			entry.tree = new StationTree(sector.getSpaceStations());
+		}
+		return entry.tree;
+	}
+	
+	/**
+	 * Forgets the sector, called by the {@link UniverseMap} when it is removed or replaced
+	 */
+	public synchronized void removeSector(Sector sector) {
+		SectorStations entry = sectors.remove(sector);
+		if (entry != null) {
+			sector.getSpaceStations().removeListDataListener(entry);
+		}
+	}
+	
+	/**
+	 * @param type The type as in {@link SpaceStation#getType()}, case is ignored. <code>null</code> for all stations.
+	 * @return Up to <code>count</code> stations of the type in the sector, nearest to the position first
+	 */
+	public List<SpaceStation> findNearest(Sector sector, int x, int y, int z, String type, int count) {
+		return getTree(sector).findNearest(x, y, z, type, count);
+	}
+	
+	/**
+	 * @param type The type as in {@link SpaceStation#getType()}, case is ignored. <code>null</code> for all stations.
+	 * @return Up to <code>count</code> stations of the type which can be reached through the gates from the position in the sector, sorted
+	 *         by {@link NearStation#compareTo(NearStation)}. Empty if the sector is not in the map.
+	 */
+	public List<NearStation> findNearest(GridPos gridPos, int x, int y, int z, String type, int count) {
+		GateGraph graph = map.getGateGraph();
+		int start = graph.indexOf(gridPos);
+		if (start < 0 || count <= 0) {
+			return Collections.emptyList();
+		}
+		ArrayList<NearStation> found = new ArrayList<NearStation>();
+		boolean[] visited = new boolean[graph.getSectorCount()];
+		int[] queue = new int[graph.getSectorCount()];
+		visited[start] = true;
+		queue[0] = start;
+		int tail = 1;
+		int head = 0;
+		for (int jumps = 0; head < tail && found.size() < count; jumps++) {
+			int levelEnd = tail;
+			for (; head < levelEnd; head++) {
+				int sector = queue[head];
+				StationTree tree = getTree(graph.getSector(sector));
+				if (tree.getTypeCount(type) > 0) {
+					int px = sector == start ? x : 0;
+					int py = sector == start ? y : 0;
+					int pz = sector == start ? z : 0;
+					for (SpaceStation station : tree.findNearest(px, py, pz, type, count)) {
+						found.add(new NearStation(station, graph.getGridPos(sector), jumps, StationTree.getDistanceSquared(station, px, py, pz)));
+					}
+				}
+				for (int edge = graph.getEdgeStart(sector); edge < graph.getEdgeEnd(sector); edge++) {
+					int target = graph.getEdgeTarget(edge);
+					if (!visited[target]) {
+						visited[target] = true;
+						queue[tail++] = target;
+					}
+				}
+			}
+		}
+		NearStation[] sorted = found.toArray(new NearStation[found.size()]);
+		Arrays.sort(sorted);
+		return Arrays.asList(sorted).subList(0, Math.min(count, sorted.length));
+	}
+	
+	/**
+	 * The tree of a sector, dropped when its stations change
+	 */
+	private class SectorStations implements ListDataListener {
+		
+		private final Sector sector;
+		private StationTree tree;
+		
+		private SectorStations(Sector sector) {
+			this.sector = sector;
+		}
+		
+		@Override
+		public void intervalAdded(ListDataEvent e) {
+			stationsChanged();
+		}
+		
+		@Override
+		public void intervalRemoved(ListDataEvent e) {
+			stationsChanged();
+		}
+		
+		@Override
+		public void contentsChanged(ListDataEvent e) {
+			stationsChanged();
+		}
+		
+		private void stationsChanged() {
+			synchronized (StationIndex.this) {
+				tree = null;
+			}
+		}
+		
+		@Override
+		public String toString() {
+			return "SectorStations [sector=" + sector.getName() + ", tree=" + (tree == null ? "-" : tree.size()) + "]";
+		}
+	}
+	
+}
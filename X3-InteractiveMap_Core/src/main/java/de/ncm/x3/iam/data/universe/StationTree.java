@@ -0,0 +1,177 @@
+package de.ncm.x3.iam.data.universe;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The stations of one sector in a k-d tree over their positions, for the nearest stations to a point of the sector.
+ * <p>
+ * The tree is kept in arrays: the station in the middle of a range splits it, by x, y and z in turn. It is built once and not changed, the
+ * {@link StationIndex} builds a new one when the stations of the sector changed. The positions are copied, so moving a station without
+ * building the tree again is not noticed.
+ */
+public class StationTree {
+	
+	private final SpaceStation[] stations;
+	private final int[] coordinates;
+	private final String[] types;
+	private final HashMap<String, Integer> typeCounts = new HashMap<String, Integer>();
+	
+	public StationTree(Collection<SpaceStation> stations) {
+		this.stations = stations.toArray(new SpaceStation[stations.size()]);
+		this.coordinates = new int[this.stations.length * 3];
+		this.types = new String[this.stations.length];
+		build(0, this.stations.length, 0);
+		for (int i = 0; i < this.stations.length; i++) {
+			SpaceStation station = this.stations[i];
+			coordinates[3 * i] = station.getPosX();
+			coordinates[3 * i + 1] = station.getPosY();
+			coordinates[3 * i + 2] = station.getPosZ();
+			types[i] = normalize(station.getType());
+			Integer typeCount = typeCounts.get(types[i]);
+			typeCounts.put(types[i], typeCount == null ? 1 : typeCount + 1);
+		}
+	}
+	
+	public int size() {
+		return stations.length;
+	}
+	
+	/**
+	 * @param type The type as in {@link SpaceStation#getType()}, case is ignored. <code>null</code> counts all stations.
+	 */
+	public int getTypeCount(String type) {
+		if (type == null) {
+			return stations.length;
+		}
+		Integer typeCount = typeCounts.get(normalize(type));
+		return typeCount == null ? 0 : typeCount;
+	}
+	
+	/**
+	 * @param type The type as in {@link SpaceStation#getType()}, case is ignored. <code>null</code> for all stations.
+	 * @return Up to <code>count</code> stations of the type, nearest first
+	 */
+	public List<SpaceStation> findNearest(int x, int y, int z, String type, int count) {
+		Nearest nearest = new Nearest(Math.min(count, getTypeCount(type)));
+		if (nearest.count > 0) {
+			search(0, stations.length, 0, x, y, z, type == null ? null : normalize(type), nearest);
+		}
+		ArrayList<SpaceStation> list = new ArrayList<SpaceStation>(nearest.size);
+		for (int i = 0; i < nearest.size; i++) {
+			list.add(stations[nearest.indices[i]]);
+		}
+		return list;
+	}
+	
+	/**
+	 * @return The squared distance of the station to the point, as long because it does not fit into an int for far away stations
+	 */
+	public static long getDistanceSquared(SpaceStation station, int x, int y, int z) {
+		long dx = station.getPosX() - x;
+		long dy = station.getPosY() - y;
+		long dz = station.getPosZ() - z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+	
+	private static String normalize(String type) {
+		return type.toLowerCase(Locale.ENGLISH);
+	}
+	
+	private static int getPos(SpaceStation station, int axis) {
+		return axis == 0 ? station.getPosX() : axis == 1 ? station.getPosY() : station.getPosZ();
+	}
+	
+	/**
+	 * Sorts the range by the axis and builds the halves left and right of the middle by the next one.
+	 */
+	private void build(int from, int to, final int axis) {
+		if (to - from < 2) {
+			return;
+		}
+		Arrays.sort(stations, from, to, new Comparator<SpaceStation>() {
+			
+			@Override
+			public int compare(SpaceStation s1, SpaceStation s2) {
+				int p1 = getPos(s1, axis);
+				int p2 = getPos(s2, axis);
+				return p1 < p2 ? -1 : p1 == p2 ? 0 : 1;
+			}
+		});
+		int middle = (from + to) >>> 1;
+		build(from, middle, (axis + 1) % 3);
+		build(middle + 1, to, (axis + 1) % 3);
+	}
+	
+	private void search(int from, int to, int axis, int x, int y, int z, String type, Nearest nearest) {
+		if (from >= to) {
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		long dx = coordinates[3 * middle] - x;
+		long dy = coordinates[3 * middle + 1] - y;
+		long dz = coordinates[3 * middle + 2] - z;
+		if (type == null || type.equals(types[middle])) {
+			nearest.offer(middle, dx * dx + dy * dy + dz * dz);
+		}
+		long split = axis == 0 ? dx : axis == 1 ? dy : dz; // Station minus point
+		int next = (axis + 1) % 3;
+		if (split > 0) {
+			search(from, middle, next, x, y, z, type, nearest);
+			if (!nearest.isFull() || split * split < nearest.getWorst()) {
+				search(middle + 1, to, next, x, y, z, type, nearest);
+			}
+		} else {
+			search(middle + 1, to, next, x, y, z, type, nearest);
+			if (!nearest.isFull() || split * split < nearest.getWorst()) {
+				search(from, middle, next, x, y, z, type, nearest);
+			}
+		}
+	}
+	
+	/**
+	 * The best stations found so far, sorted by distance. The counts asked for are small, so inserting is cheaper than a heap.
+	 */
+	private static class Nearest {
+		
+		private final int count;
+		private final int[] indices;
+		private final long[] distances;
+		private int size;
+		
+		private Nearest(int count) {
+			this.count = Math.max(count, 0);
+			this.indices = new int[this.count];
+			this.distances = new long[this.count];
+		}
+		
+		private boolean isFull() {
+			return size == count;
+		}
+		
+		private long getWorst() {
+			return distances[size - 1];
+		}
+		
+		private void offer(int index, long distance) {
+			if (isFull() && distance >= getWorst()) {
+				return;
+			}
+			int i = isFull() ? size - 1 : size++;
+			while (i > 0 && distances[i - 1] > distance) {
+				indices[i] = indices[i - 1];
+				distances[i] = distances[i - 1];
+				i--;
+			}
+			indices[i] = index;
+			distances[i] = distance;
+		}
+	}
+	
+}
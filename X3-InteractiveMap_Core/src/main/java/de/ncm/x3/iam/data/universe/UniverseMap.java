@@ -13,23 +13,112 @@ public class UniverseMap extends Model {
 	private static Logger logger = Logger.getLogger(UniverseMap.class);
 	public static final String UNIVERSEMAP_SECTOR_CHANGE = "UniverseMap_Sector_Change";
 	public static final String UNIVERSEMAP_ALL_SECTORS_CHANGE = "UniverseMap_All_Sectors_Change";
-	private HashMapModel<GridPos, Sector> sectors = new HashMapModel<GridPos, Sector>();
+	public static final String UNIVERSEMAP_UPDATE = "UniverseMap_Update";
+	private SectorMap sectors = new SectorMap();
 	private HashMapModel<Integer, Race> races;
+	private GateGraph gateGraph;
+	private RoutePlanner routePlanner;
+	private GateAnalysis gateAnalysis;
+	private StationIndex stationIndex;
 	
 	public UniverseMap() {}
 	
 	public void putSector(GridPos gridPos, Sector sec) {
 		Sector ret = sectors.put(gridPos, sec);
+		resetGateGraph();
+		if (ret != null && ret != sec && stationIndex != null) {
+			stationIndex.removeSector(ret);
+		}
 		if (ret != null) {
 			logger.warn("Map value at " + gridPos + " has been replaced");
 		}
 		firePropertyChange(UNIVERSEMAP_SECTOR_CHANGE, ret, sec);
 	}
 	
-	public HashMapModel<GridPos, Sector> getSectors() {
+	public Sector removeSector(GridPos gridPos) {
+		Sector ret = sectors.remove(gridPos);
+		resetGateGraph();
+		if (ret != null && stationIndex != null) {
+			stationIndex.removeSector(ret);
+		}
+		firePropertyChange(UNIVERSEMAP_SECTOR_CHANGE, ret, null);
+		return ret;
+	}
+	
+	/**
+	 * Takes over the changes of the given map, so this map can be kept while the export is parsed again and again. Fires
+	 * {@link #UNIVERSEMAP_UPDATE} with the {@link UniverseMapDiff} as new value, if anything changed.
+	 */
+	public UniverseMapDiff update(UniverseMap map) {
+		UniverseMapDiff diff = UniverseMapDiff.compare(this, map);
+		if (!diff.isEmpty()) {
+			diff.applyTo(this);
+			if (diff.isGateNetworkChanged()) {
+				resetGateGraph();
+			}
+			firePropertyChange(UNIVERSEMAP_UPDATE, null, diff);
+		}
+		return diff;
+	}
+	
+	public SectorMap getSectors() {
 		return sectors;
 	}
 	
+	/**
+	 * @return The sector at the position, <code>null</code> if there is none. Does not create a {@link GridPos}.
+	 */
+	public Sector getSector(int gridX, int gridY) {
+		return sectors.get(gridX, gridY);
+	}
+	
+	/**
+	 * @return The gate network, built again after sectors were put or removed or an update changed gates. Changes made through
+	 *         {@link #getSectors()} or to the sectors directly are not noticed.
+	 */
+	public GateGraph getGateGraph() {
+		if (gateGraph == null) {
+			gateGraph = new GateGraph(sectors);
+		}
+		return gateGraph;
+	}
+	
+	/**
+	 * @return The planner for the current {@link #getGateGraph()}, created again together with it
+	 */
+	public RoutePlanner getRoutePlanner() {
+		if (routePlanner == null || routePlanner.getGateGraph() != getGateGraph()) {
+			routePlanner = new RoutePlanner(getGateGraph());
+		}
+		return routePlanner;
+	}
+	
+	/**
+	 * @return The analysis of the current {@link #getGateGraph()}, created again together with it
+	 */
+	public GateAnalysis getGateAnalysis() {
+		if (gateAnalysis == null || gateAnalysis.getGateGraph() != getGateGraph()) {
+			gateAnalysis = new GateAnalysis(getGateGraph());
+		}
+		return gateAnalysis;
+	}
+	
+	/**
+	 * @return The index of the stations, built over all sectors on the first call and kept up to date with the sectors and their station lists
+	 */
+	public synchronized StationIndex getStationIndex() {
+		if (stationIndex == null) {
+			stationIndex = new StationIndex(this);
+		}
+		return stationIndex;
+	}
+	
+	private void resetGateGraph() {
+		gateGraph = null;
+		routePlanner = null;
+		gateAnalysis = null;
+	}
+	
 	public void setRaces(HashMapModel<Integer, Race> raceMap) {
 		this.races = raceMap;
 		
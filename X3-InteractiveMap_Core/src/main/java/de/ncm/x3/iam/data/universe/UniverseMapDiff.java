@@ -0,0 +1,160 @@
+
+package de.ncm.x3.iam.data.universe;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import de.ncm.jgoodies.model.HashMapModel;
+
+/**
+ * Change set between two {@link UniverseMap}s, compared by {@link GridPos}.
+ * <p>
+ * The diff is applied to the base map with {@link #applyTo(UniverseMap)}, so a long-lived map only fires events for what really changed. Use
+ * {@link UniverseMap#update(UniverseMap)} for both in one step.
+ */
+public class UniverseMapDiff {
+	
+	private final UniverseMap update;
+	private ArrayList<GridPos> addedSectors = new ArrayList<GridPos>();
+	private ArrayList<GridPos> removedSectors = new ArrayList<GridPos>();
+	private ArrayList<SectorDiff> changedSectors = new ArrayList<SectorDiff>();
+	private boolean racesChanged = false;
+	
+	private UniverseMapDiff(UniverseMap update) {
+		this.update = update;
+	}
+	
+	public static UniverseMapDiff compare(UniverseMap base, UniverseMap update) {
+		UniverseMapDiff diff = new UniverseMapDiff(update);
+		diff.compareRaces(base.getRaces(), update.getRaces());
+		
+		HashMapModel<GridPos, Sector> baseSectors = base.getSectors();
+		HashMapModel<GridPos, Sector> updateSectors = update.getSectors();
+		for (Map.Entry<GridPos, Sector> entry : updateSectors.entrySet()) {
+			Sector sector = baseSectors.get(entry.getKey());
+			if (sector == null) {
+				diff.addedSectors.add(entry.getKey());
+			} else {
+				SectorDiff sectorDiff = new SectorDiff(entry.getKey(), sector, entry.getValue());
+				if (!sectorDiff.isEmpty()) {
+					diff.changedSectors.add(sectorDiff);
+				}
+			}
+		}
+		for (GridPos gridPos : baseSectors.keySet()) {
+			if (!updateSectors.containsKey(gridPos)) {
+				diff.removedSectors.add(gridPos);
+			}
+		}
+		return diff;
+	}
+	
+	private void compareRaces(Map<Integer, Race> baseRaces, Map<Integer, Race> updateRaces) {
+		int baseSize = baseRaces == null ? 0 : baseRaces.size();
+		int updateSize = updateRaces == null ? 0 : updateRaces.size();
+		if (baseSize != updateSize) {
+			racesChanged = true;
+		} else if (updateRaces != null) {
+			for (Race race : updateRaces.values()) {
+				if (!SectorDiff.isSameRace(baseRaces.get(race.getId()), race)) {
+					racesChanged = true;
+					return;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Applies this diff to the map it was computed against. Unchanged sectors, stations and races keep their instances.
+	 */
+	public void applyTo(UniverseMap map) {
+		if (racesChanged) {
+			applyRaces(map);
+		}
+		for (GridPos gridPos : removedSectors) {
+			map.removeSector(gridPos);
+		}
+		for (SectorDiff sectorDiff : changedSectors) {
+			sectorDiff.applyTo(map.getRaces());
+		}
+		for (GridPos gridPos : addedSectors) {
+			Sector sector = update.getSectors().get(gridPos);
+			sector.setRace(resolveRace(sector.getRace(), map.getRaces()));
+			map.putSector(gridPos, sector);
+		}
+	}
+	
+	private void applyRaces(UniverseMap map) {
+		HashMapModel<Integer, Race> races = map.getRaces();
+		if (races == null) {
+			races = new HashMapModel<Integer, Race>();
+			map.setRaces(races);
+		}
+		HashMapModel<Integer, Race> updateRaces = update.getRaces();
+		if (updateRaces == null) {
+			updateRaces = new HashMapModel<Integer, Race>();
+		}
+		for (Race race : updateRaces.values()) {
+			if (!SectorDiff.isSameRace(races.get(race.getId()), race)) {
+				races.put(race.getId(), race);
+			}
+		}
+		for (Integer id : new ArrayList<Integer>(races.keySet())) {
+			if (!updateRaces.containsKey(id)) {
+				races.remove(id);
+			}
+		}
+	}
+	
+	static Race resolveRace(Race race, Map<Integer, Race> races) {
+		if (race == null || races == null) {
+			return race;
+		}
+		Race ret = races.get(race.getId());
+		return ret == null ? race : ret;
+	}
+	
+	public List<GridPos> getAddedSectors() {
+		return addedSectors;
+	}
+	
+	public List<GridPos> getRemovedSectors() {
+		return removedSectors;
+	}
+	
+	public List<SectorDiff> getChangedSectors() {
+		return changedSectors;
+	}
+	
+	public boolean isRacesChanged() {
+		return racesChanged;
+	}
+	
+	/**
+	 * @return <code>true</code> if the gate network changed, i.e. sectors were added, removed or have other gates
+	 */
+	public boolean isGateNetworkChanged() {
+		if (!addedSectors.isEmpty() || !removedSectors.isEmpty()) {
+			return true;
+		}
+		for (SectorDiff sectorDiff : changedSectors) {
+			if (sectorDiff.isGatesChanged()) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	public boolean isEmpty() {
+		return !racesChanged && addedSectors.isEmpty() && removedSectors.isEmpty() && changedSectors.isEmpty();
+	}
+	
+	@Override
+	public String toString() {
+		return "UniverseMapDiff [addedSectors=" + addedSectors.size() + ", removedSectors=" + removedSectors.size() + ", changedSectors="
+				+ changedSectors.size() + ", racesChanged=" + racesChanged + "]";
+	}
+	
+}
@@ -51,7 +51,7 @@ public class WarpGate implements WarpGateConstants {
 	}
 	
 	public boolean exists() {
-		return targetGridPos != null && !targetGridPos.equals(new GridPos());
+		return targetGridPos != null && !targetGridPos.equals(GridPos.NONE);
 	}
 	
 }
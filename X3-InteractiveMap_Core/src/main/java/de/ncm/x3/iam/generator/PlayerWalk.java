@@ -0,0 +1,99 @@
+
+package de.ncm.x3.iam.generator;
+
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+import de.ncm.x3.iam.data.universe.WarpGateConstants;
+
+/**
+ * Flight of the player through a universe of a {@link UniverseGenerator}, written like the game script <code>al.ncm.map.timer.fast</code> writes
+ * the player position (log00902). The player stays in a sector for some positions and then leaves it through one of its gates, so every change of
+ * the sector follows a gate.
+ */
+public class PlayerWalk implements WarpGateConstants {
+	
+	private static final String SHIP = "Discoverer";
+	
+	private final UniverseGenerator generator;
+	private final Random random;
+	private int x;
+	private int y;
+	private double jumpRate = 0.3;
+	
+	PlayerWalk(UniverseGenerator generator, long seed) {
+		this.generator = generator;
+		this.random = new Random(seed);
+		int start = random.nextInt(generator.getWidth() * generator.getHeight());
+		for (int i = 0; i < generator.getWidth() * generator.getHeight(); i++) {
+			int cell = (start + i) % (generator.getWidth() * generator.getHeight());
+			if (generator.hasSector(cell % generator.getWidth(), cell / generator.getWidth())) {
+				x = cell % generator.getWidth();
+				y = cell / generator.getWidth();
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Moves the player on, possibly through a gate.
+	 *
+	 * @return The position file written by the game
+	 */
+	public String next() {
+		if (random.nextDouble() < jumpRate) {
+			int gate = random.nextInt(WARPGATE_MAX_VALUE + 1);
+			for (int i = 0; i <= WARPGATE_MAX_VALUE; i++) {
+				int target = generator.getGateTarget(x, y, (gate + i) % (WARPGATE_MAX_VALUE + 1));
+				if (target >= 0) {
+					x = target % generator.getWidth();
+					y = target / generator.getWidth();
+					break;
+				}
+			}
+		}
+		int shipX = random.nextInt(120001) - 60000;
+		int shipY = random.nextInt(40001) - 20000;
+		int shipZ = random.nextInt(120001) - 60000;
+		return "<Data><Sector><Name>Sector</Name><X>" + x + "</X><Y>" + y + "</Y></Sector><Ship><Name>" + SHIP + "</Name><X>" + shipX + "</X><Y>"
+				+ shipY + "</Y><Z>" + shipZ + "</Z></Ship></Data>";
+	}
+	
+	/**
+	 * Moves the player on and replaces the file with the new position.
+	 */
+	public void writeNext(File file) throws IOException {
+		String position = next();
+		Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			out.write(position);
+		} finally {
+			out.close();
+		}
+	}
+	
+	public int getX() {
+		return x;
+	}
+	
+	public int getY() {
+		return y;
+	}
+	
+	public double getJumpRate() {
+		return jumpRate;
+	}
+	
+	/**
+	 * @param jumpRate Probability of leaving the sector with the next position
+	 */
+	public void setJumpRate(double jumpRate) {
+		this.jumpRate = jumpRate;
+	}
+	
+}
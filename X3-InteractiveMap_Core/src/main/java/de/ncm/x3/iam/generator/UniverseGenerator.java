@@ -0,0 +1,457 @@
+
+package de.ncm.x3.iam.generator;
+
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Random;
+
+import de.ncm.x3.iam.data.universe.WarpGateConstants;
+
+/**
+ * Creates random universes and writes them exactly like the game script <code>al.ncm.map.LogWriterMapExport</code> writes the universe export
+ * (log00903), so the parsers, the benchmarks and the GUI can be run at any scale without the game. The same seed and settings always give the same
+ * universe.
+ * <p>
+ * Of the {@link #getWidth()} x {@link #getHeight()} grid the part {@link #getSectorDensity()} is used by sectors. Every race owns the sectors
+ * nearest to a randomly placed home sector. Gates connect neighbouring sectors: if the universe is {@link #isConnected()} a random spanning tree
+ * comes first, then every other pair of neighbours gets a gate with the probability {@link #getGateDensity()}. Gates still unused may lead to a far
+ * sector with the probability {@link #getJumpGateRate()}, like the few long distance gates of the game. Each sector has 0 to twice
+ * {@link #getStationsPerSector()} stations, so large universes are written in a stream and never held in memory.
+ * <p>
+ * {@link #createWalk(long)} creates player position logs (log00902) of a flight along the gates.
+ */
+public class UniverseGenerator implements WarpGateConstants {
+	
+	private static final String[] RACES = { "Argon", "Boron", "Split", "Paranid", "Teladi", "Xenon", "Kha'ak", "Pirates", "Goner", "Terran",
+			"ATF", "Yaki" };
+	private static final String[] NAME_PARTS = { "Prime", "Light", "Fortune", "Cloud", "Desert", "Harmony", "Profit", "Hatikvah", "Danna", "Empire",
+			"Sun", "Rift", "Haven", "Vein", "Hope", "Glory" };
+	private static final String[] FACTORIES = { "Cattle Ranch", "Solar Power Plant", "Crystal Fab", "Wheat Farm", "Silicon Mine", "Ore Mine",
+			"Cahoona Bakery", "Space Fuel Distillery", "Bio Gas Factory", "Quantum Tube Fab", "Computer Plant", "Missile Factory" };
+	private static final String[] SIZES = { "S", "M", "L", "XL" };
+	private static final int[] DX = { 0, 0, 1, -1 };
+	private static final int[] DY = { -1, 1, 0, 0 };
+	private static final String[] GATE_NAMES = { "NorthGate", "SouthGate", "EastGate", "WestGate" };
+	
+	private final long seed;
+	private int width = 24;
+	private int height = 18;
+	private double sectorDensity = 0.4;
+	private double gateDensity = 0.5;
+	private double jumpGateRate = 0.01;
+	private boolean connected = true;
+	private int raceCount = 10;
+	private int stationsPerSector = 20;
+	
+	private boolean[] present;
+	private int[] gates;
+	private int[] races;
+	
+	/**
+	 * Creates a generator with settings giving a universe of about the size of X3TC.
+	 */
+	public UniverseGenerator(long seed) {
+		this.seed = seed;
+	}
+	
+	/**
+	 * Writes the universe export. The game writes it without any line break.
+	 */
+	public void writeExport(Writer out) throws IOException {
+		generate();
+		Random random = new Random(seed);
+		out.write("<?xml version=\"1.0\"?><Data><Map>");
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				int cell = y * width + x;
+				if (!present[cell]) {
+					continue;
+				}
+				random.setSeed(seed * 31 + cell); // Stations of a sector do not depend on the others
+				out.write("<Sector><Name>");
+				out.write(getSectorName(x, y));
+				out.write("</Name><X>" + x + "</X><Y>" + y + "</Y><RaceID>" + getRaceID(races[cell]) + "</RaceID><GateConnections>");
+				for (int gate = 0; gate <= WARPGATE_MAX_VALUE; gate++) {
+					int target = gates[cell * 4 + gate];
+					int targetX = target < 0 ? -1 : target % width;
+					int targetY = target < 0 ? -1 : target / width;
+					out.write("<Sector><Name>" + GATE_NAMES[gate] + "</Name><X>" + targetX + "</X><Y>" + targetY + "</Y></Sector>");
+				}
+				out.write("</GateConnections><Stations>");
+				String race = getRaceName(races[cell]);
+				int stations = random.nextInt(2 * stationsPerSector + 1);
+				int docks = stations == 0 ? 0 : 1 + random.nextInt(1 + stations / 8);
+				out.write(' ');
+				for (int i = 0; i < docks; i++) {
+					String name = i == 0 ? race + " Equipment Dock" : race + " Trading Station";
+					writeStation(out, random, escape(name), "Dock", "SS_DOCK_" + race.charAt(0) + "_" + (i + 1));
+				}
+				out.write(' ');
+				for (int i = docks; i < stations; i++) {
+					String name = FACTORIES[random.nextInt(FACTORIES.length)] + " " + SIZES[random.nextInt(SIZES.length)];
+					writeStation(out, random, escape(name), "Factory", "SS_FACTORY_" + race.charAt(0) + "_" + random.nextInt(10));
+				}
+				out.write("</Stations></Sector>");
+			}
+		}
+		out.write("</Map><Races>");
+		for (int race = 1; race <= raceCount; race++) {
+			out.write("<Race><ID>" + getRaceID(race) + "</ID><Name>" + escape(getRaceName(race)) + "</Name></Race>");
+		}
+		out.write("</Races></Data>");
+	}
+	
+	public void writeExport(File file) throws IOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 64 * 1024);
+		try {
+			writeExport(out);
+		} finally {
+			out.close();
+		}
+	}
+	
+	public String createExport() {
+		StringWriter out = new StringWriter();
+		try {
+			writeExport(out);
+		} catch (IOException e) {
+			throw new IllegalStateException(e); // Not thrown by a StringWriter
+		}
+		return out.toString();
+	}
+	
+	/**
+	 * @return A flight through the universe starting in a random sector
+	 */
+	public PlayerWalk createWalk(long walkSeed) {
+		generate();
+		return new PlayerWalk(this, walkSeed);
+	}
+	
+	/**
+	 * @return Number of sectors of the universe
+	 */
+	public int getSectorCount() {
+		generate();
+		int count = 0;
+		for (boolean sector : present) {
+			if (sector) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * @return Cell (y * width + x) behind the gate, -1 if there is no gate or no sector
+	 */
+	public int getGateTarget(int x, int y, int gate) {
+		generate();
+		if (!present[y * width + x]) {
+			return -1;
+		}
+		return gates[(y * width + x) * 4 + gate];
+	}
+	
+	public boolean hasSector(int x, int y) {
+		generate();
+		return x >= 0 && y >= 0 && x < width && y < height && present[y * width + x];
+	}
+	
+	String getSectorName(int x, int y) {
+		int cell = y * width + x;
+		return escape(getRaceName(races[cell]) + " " + NAME_PARTS[(x * 7 + y * 13) % NAME_PARTS.length] + " " + x + "-" + y);
+	}
+	
+	private void writeStation(Writer out, Random random, String name, String type, String stationClass) throws IOException {
+		out.write("<Station><Name>" + name + "</Name><X>" + (random.nextInt(120001) - 60000) + "</X><Y>" + (random.nextInt(40001) - 20000)
+				+ "</Y><Z>" + (random.nextInt(120001) - 60000) + "</Z><Type>" + type + "</Type><StationClass>" + stationClass
+				+ "</StationClass></Station>");
+	}
+	
+	private String getRaceName(int race) {
+		return race <= RACES.length ? RACES[race - 1] : "Race " + race;
+	}
+	
+	private static String getRaceID(int race) {
+		return "A-" + race;
+	}
+	
+	static String escape(String text) {
+		return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+	}
+	
+	/**
+	 * Lays out the sectors, races and gates, once for the current settings.
+	 */
+	private void generate() {
+		if (present != null) {
+			return;
+		}
+		Random random = new Random(seed);
+		int cells = width * height;
+		present = new boolean[cells];
+		gates = new int[cells * 4];
+		races = new int[cells];
+		Arrays.fill(gates, -1);
+		
+		int[] order = shuffle(cells, random);
+		int sectors = (int) Math.round(sectorDensity * cells);
+		for (int i = 0; i < sectors; i++) {
+			present[order[i]] = true;
+		}
+		
+		int[] homes = new int[Math.max(1, Math.min(raceCount, sectors))];
+		for (int i = 0; i < homes.length; i++) {
+			homes[i] = order[random.nextInt(Math.max(1, sectors))];
+		}
+		for (int cell = 0; cell < cells; cell++) {
+			int nearest = 0;
+			for (int i = 1; i < homes.length; i++) {
+				if (distance(cell, homes[i]) < distance(cell, homes[nearest])) {
+					nearest = i;
+				}
+			}
+			races[cell] = nearest % Math.max(1, raceCount) + 1;
+		}
+		
+		// Pairs of neighbours as cell * 2 + (0 for south, 1 for east), in random order
+		int[] pairs = shuffle(cells * 2, random);
+		int[] components = new int[cells];
+		for (int cell = 0; cell < cells; cell++) {
+			components[cell] = cell;
+		}
+		if (connected) {
+			for (int pair : pairs) {
+				int cell = pair / 2;
+				int gate = pair % 2 == 0 ? WARPGATE_SOUTH : WARPGATE_EAST;
+				int target = neighbour(cell, gate);
+				if (target >= 0 && find(components, cell) != find(components, target)) {
+					connect(cell, gate, target);
+					components[find(components, cell)] = find(components, target);
+				}
+			}
+		}
+		for (int pair : pairs) {
+			int cell = pair / 2;
+			int gate = pair % 2 == 0 ? WARPGATE_SOUTH : WARPGATE_EAST;
+			int target = neighbour(cell, gate);
+			if (target >= 0 && gates[cell * 4 + gate] < 0 && random.nextDouble() < gateDensity) {
+				connect(cell, gate, target);
+				components[find(components, cell)] = find(components, target);
+			}
+		}
+		
+		if (connected) {
+			// Islands of sectors without neighbours are reached through far gates into the component of the first sector
+			for (int cell : order) {
+				if (present[cell] && find(components, cell) != find(components, order[0])) {
+					int target = jump(cell, order, random, components, find(components, order[0]));
+					if (target >= 0) {
+						components[find(components, cell)] = find(components, target);
+					}
+				}
+			}
+		}
+		for (int cell : order) {
+			if (present[cell] && random.nextDouble() < jumpGateRate) {
+				jump(cell, order, random, components, -1);
+			}
+		}
+	}
+	
+	/**
+	 * Connects a free gate of the cell with the opposite free gate of a random far sector.
+	 *
+	 * @param component Root of the component the far sector has to be in, -1 for any
+	 * @return The far sector, -1 if no gate was free
+	 */
+	private int jump(int cell, int[] order, Random random, int[] components, int component) {
+		for (int gate = 0; gate <= WARPGATE_MAX_VALUE; gate++) {
+			if (gates[cell * 4 + gate] >= 0) {
+				continue;
+			}
+			int start = random.nextInt(order.length);
+			for (int i = 0; i < order.length; i++) {
+				int target = order[(start + i) % order.length];
+				if (target != cell && present[target] && gates[target * 4 + (gate ^ 1)] < 0
+						&& (component < 0 || find(components, target) == component)) {
+					connect(cell, gate, target);
+					return target;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	private void connect(int cell, int gate, int target) {
+		gates[cell * 4 + gate] = target;
+		gates[target * 4 + (gate ^ 1)] = cell; // North and south, east and west differ in the lowest bit
+	}
+	
+	private int neighbour(int cell, int gate) {
+		int x = cell % width + DX[gate];
+		int y = cell / width + DY[gate];
+		if (!present[cell] || x < 0 || y < 0 || x >= width || y >= height || !present[y * width + x]) {
+			return -1;
+		}
+		return y * width + x;
+	}
+	
+	private int distance(int a, int b) {
+		return Math.abs(a % width - b % width) + Math.abs(a / width - b / width);
+	}
+	
+	private static int find(int[] components, int cell) {
+		while (components[cell] != cell) {
+			components[cell] = components[components[cell]];
+			cell = components[cell];
+		}
+		return cell;
+	}
+	
+	private static int[] shuffle(int length, Random random) {
+		int[] values = new int[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = i;
+		}
+		for (int i = length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int value = values[i];
+			values[i] = values[j];
+			values[j] = value;
+		}
+		return values;
+	}
+	
+	public long getSeed() {
+		return seed;
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	
+	public void setWidth(int width) {
+		this.width = width;
+		present = null;
+	}
+	
+	public int getHeight() {
+		return height;
+	}
+	
+	public void setHeight(int height) {
+		this.height = height;
+		present = null;
+	}
+	
+	public double getSectorDensity() {
+		return sectorDensity;
+	}
+	
+	/**
+	 * @param sectorDensity Part of the grid used by sectors, from 0 to 1
+	 */
+	public void setSectorDensity(double sectorDensity) {
+		this.sectorDensity = sectorDensity;
+		present = null;
+	}
+	
+	public double getGateDensity() {
+		return gateDensity;
+	}
+	
+	/**
+	 * @param gateDensity Probability of a gate between two neighbouring sectors, besides the ones needed to connect the universe
+	 */
+	public void setGateDensity(double gateDensity) {
+		this.gateDensity = gateDensity;
+		present = null;
+	}
+	
+	public double getJumpGateRate() {
+		return jumpGateRate;
+	}
+	
+	/**
+	 * @param jumpGateRate Probability of a sector to get a gate to a far sector
+	 */
+	public void setJumpGateRate(double jumpGateRate) {
+		this.jumpGateRate = jumpGateRate;
+		present = null;
+	}
+	
+	public boolean isConnected() {
+		return connected;
+	}
+	
+	/**
+	 * @param connected <code>true</code> if every sector is to be reached from every other one through the gates
+	 */
+	public void setConnected(boolean connected) {
+		this.connected = connected;
+		present = null;
+	}
+	
+	public int getRaceCount() {
+		return raceCount;
+	}
+	
+	public void setRaceCount(int raceCount) {
+		this.raceCount = raceCount;
+		present = null;
+	}
+	
+	public int getStationsPerSector() {
+		return stationsPerSector;
+	}
+	
+	/**
+	 * @param stationsPerSector Average number of stations of a sector
+	 */
+	public void setStationsPerSector(int stationsPerSector) {
+		this.stationsPerSector = stationsPerSector;
+	}
+	
+	/**
+	 * Writes a universe export to the given directory and a new player position every interval, until it is stopped. For load tests of the GUI.
+	 * <p>
+	 * Arguments: directory [width height sectorDensity stationsPerSector seed intervalMs]
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 1) {
+			System.err.println("Usage: UniverseGenerator directory [width height sectorDensity stationsPerSector seed intervalMs]");
+			System.exit(1);
+		}
+		File directory = new File(args[0]);
+		UniverseGenerator generator = new UniverseGenerator(args.length > 5 ? Long.parseLong(args[5]) : 0);
+		if (args.length > 2) {
+			generator.setWidth(Integer.parseInt(args[1]));
+			generator.setHeight(Integer.parseInt(args[2]));
+		}
+		if (args.length > 3) {
+			generator.setSectorDensity(Double.parseDouble(args[3]));
+		}
+		if (args.length > 4) {
+			generator.setStationsPerSector(Integer.parseInt(args[4]));
+		}
+		long interval = args.length > 6 ? Long.parseLong(args[6]) : 1000;
+		
+		generator.writeExport(new File(directory, "log00903.txt"));
+		System.out.println("Wrote " + generator.getSectorCount() + " sectors to " + directory);
+		PlayerWalk walk = generator.createWalk(generator.getSeed());
+		while (true) {
+			walk.writeNext(new File(directory, "log00902.txt"));
+			Thread.sleep(interval);
+		}
+	}
+	
+}
@@ -2,16 +2,55 @@
 package de.ncm.x3.iam.parser;
 
 
+import java.io.File;
 import java.util.ArrayList;
 
+import de.ncm.x3.iam.parser.metrics.ParserMetrics;
+
 public abstract class Parser {
 	
+	public static final long DEFAULT_UPDATE_INTERVAL = 100;
+	
 	protected ArrayList<ParseListener>	listener	= new ArrayList<ParseListener>();
+	private volatile long updateInterval = DEFAULT_UPDATE_INTERVAL;
+	private final ParserMetrics metrics = new ParserMetrics();
 	
 	public abstract void parse();
 	
 	public abstract boolean needUpdate(long timeGone);
 	
+	/**
+	 * @return Time in ms between two checks of {@link #needUpdate(long)} by the {@link ParserControl}
+	 */
+	public long getUpdateInterval() {
+		return updateInterval;
+	}
+	
+	public void setUpdateInterval(long updateInterval) {
+		this.updateInterval = updateInterval;
+	}
+	
+	/**
+	 * Called by the {@link ParserControl} before the first parse, so a parser can publish a cached result. Does nothing by default.
+	 */
+	public void restore() {}
+	
+	/**
+	 * Asks a running parse to stop as soon as possible, its result is dropped. Does nothing by default.
+	 */
+	public void cancel() {}
+	
+	/**
+	 * @return The file this parser reads, <code>null</code> if it does not read a file. Used by the {@link ParserControl} to watch for changes.
+	 */
+	public File getFile() {
+		return null;
+	}
+	
+	public ParserMetrics getMetrics() {
+		return metrics;
+	}
+	
 	public boolean addParseListener(ParseListener listener) {
 		return this.listener.add(listener);
 	}
@@ -21,9 +60,11 @@ public abstract class Parser {
 	}
 	
 	public void fireParseEndEvent(ParseEvent e) {
+		long start = System.nanoTime();
 		for (ParseListener l : listener) {
 			l.onParseEnd(e);
 		}
+		metrics.recordDispatch(System.nanoTime() - start);
 	}
 	
 	public void fireParseStartEvent(ParseEvent e) {
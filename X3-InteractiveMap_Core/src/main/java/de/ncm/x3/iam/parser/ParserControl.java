@@ -2,80 +2,311 @@
 package de.ncm.x3.iam.parser;
 
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.log4j.Logger;
 
+import de.ncm.x3.iam.parser.replay.LogRecorder;
+import de.ncm.x3.iam.settings.PropertyManager;
+
+/**
+ * Runs the registered {@link Parser}s whenever their log files change.
+ * <p>
+ * Every parser has its own task on a {@link ScheduledThreadPoolExecutor} with a thread for each parser, so a long parse of the universe export
+ * never delays the player position. In {@link #MODE_POLLING} a parser is asked for {@link Parser#needUpdate(long)} each
+ * {@link Parser#getUpdateInterval()} ms. In {@link #MODE_WATCH} the directories of the log files (the log path) are registered with a
+ * {@link WatchService} and the parser of the changed file is triggered at once. As not every file system delivers events, the watch mode still polls
+ * in between, backing off from the interval of the parser to {@link #maxWaitTime} as long as nothing changes unnoticed.
+ * <p>
+ * If a {@link LogRecorder} is set, the log files are recorded while the parsers run.
+ */
 public class ParserControl {
 	
+	public static final String MODE_POLLING = "polling";
+	public static final String MODE_WATCH = "watch";
+	public static final long STOP_TIMEOUT = 2000;
+	
 	private static Logger logger = Logger.getLogger(ParserControl.class);
 	private static ParserControl instance;
-	protected HashMap<Parser, Long> parserMap = new LinkedHashMap<Parser, Long>(); // Parser, LastTimeInvoked
-	protected Thread parseThread = null;
-	protected long waitTime = 100;
-	protected boolean active = false;
+	protected CopyOnWriteArrayList<ParserTask> tasks = new CopyOnWriteArrayList<ParserTask>();
+	protected ScheduledThreadPoolExecutor executor = null;
+	protected long maxWaitTime = 3200;
+	protected long metricsLogInterval = 0;
+	protected LogRecorder recorder = null;
+	protected volatile boolean active = false;
+	protected String mode;
+	private volatile WatchService watchService = null;
+	private HashMap<Path, WatchKey> watchKeys = new HashMap<Path, WatchKey>();
 	
 	private ParserControl() {
-		addParser(ParserFactory.getUniverseMapParser());
-		addParser(ParserFactory.getActualPlayerPositionParser());
+		this(PropertyManager.get().getParserMode(), ParserFactory.getUniverseMapParser(), ParserFactory.getActualPlayerPositionParser());
+		metricsLogInterval = PropertyManager.get().getParserMetricsLogInterval() * 1000L;
+		String recordFile = PropertyManager.get().getParserRecordFile();
+		if (recordFile != null && recordFile.length() > 0) {
+			recorder = new LogRecorder(new File(recordFile));
+		}
 	}
 	
-	public void addParser(Parser parser) {
-		parserMap.put(parser, System.currentTimeMillis());
-		
+	ParserControl(String mode, Parser... parsers) {
+		this.mode = mode;
+		for (Parser parser : parsers) {
+			addParser(parser);
+		}
 	}
 	
-	public void reParse() {
-		long actualTime = System.currentTimeMillis();
-		for (Parser p : parserMap.keySet()) {
-			if (p.needUpdate(actualTime - parserMap.get(p))) {
-				p.parse();
-				parserMap.put(p, actualTime);
-			}
+	public synchronized void addParser(Parser parser) {
+		ParserTask task = new ParserTask(parser);
+		tasks.add(task);
+		if (active) {
+			executor.setCorePoolSize(getPoolSize());
+			task.schedule(0);
 		}
 	}
 	
-	public void startParsing() {
-		logger.info("Staring parse Thread");
+	/**
+	 * Runs every parser which needs an update in the calling thread. Parsers which are running already are skipped.
+	 *
+	 * @return <code>true</code> if at least one parser was updated
+	 */
+	public boolean reParse() {
+		boolean parsed = false;
+		for (ParserTask task : tasks) {
+			parsed |= task.reParse();
+		}
+		return parsed;
+	}
+	
+	public synchronized void startParsing() {
+		logger.info("Starting parser tasks");
 		if (!active) {
-			createThread();
-			parseThread.start();
-			logger.info("Parse Thread started");
+			active = true;
+			executor = new ScheduledThreadPoolExecutor(getPoolSize(), new ParserThreadFactory());
+			for (ParserTask task : tasks) {
+				task.schedule(0);
+			}
+			if (isWatchMode()) {
+				executor.execute(new Runnable() {
+					
+					@Override
+					public void run() {
+						watch();
+					}
+				});
+			}
+			if (metricsLogInterval > 0) {
+				executor.scheduleWithFixedDelay(new Runnable() {
+					
+					@Override
+					public void run() {
+						logMetrics();
+					}
+				}, metricsLogInterval, metricsLogInterval, TimeUnit.MILLISECONDS);
+			}
+			if (recorder != null) {
+				recorder.setFiles(getFiles());
+				recorder.start();
+			}
+			logger.info("Parser tasks started");
 		}
 	}
 	
+	/**
+	 * Cancels the running parses, interrupts the parser threads and waits at most {@link #STOP_TIMEOUT} ms for them to end.
+	 */
 	public void stopParsing() {
-		logger.info("Stopping parse Thread");
-		active = false;
-		logger.debug("Waiting for thread to stop");
-		if (parseThread != null) {
-			while (parseThread.isAlive()) {
-				
-			}
-		}
-		logger.debug("Thread stoped");
-	}
-	
-	private void createThread() {
-		active = true;
-		parseThread = new Thread(new Runnable() {
-			
-			@Override
-			public void run() {
-				parseThread.setPriority(3);
-				while (active) {
-					reParse();
-					try {
-						Thread.sleep(waitTime);
-					} catch (InterruptedException e) {
-						e.printStackTrace();
-					}
-				}
-				
+		ScheduledThreadPoolExecutor executor;
+		synchronized (this) {
+			logger.info("Stopping parser tasks");
+			active = false;
+			executor = this.executor;
+			this.executor = null;
+		}
+		if (executor == null) {
+			return;
+		}
+		if (recorder != null) {
+			recorder.stop();
+		}
+		for (ParserTask task : tasks) {
+			task.parser.cancel();
+		}
+		executor.shutdownNow();
+		closeWatchService(); // Wakes the watch thread up, too
+		try {
+			if (executor.awaitTermination(STOP_TIMEOUT, TimeUnit.MILLISECONDS)) {
+				logger.debug("Parser tasks stopped");
+			} else {
+				logger.warn("Parser tasks did not stop within " + STOP_TIMEOUT + " ms");
 			}
-		});
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	public boolean isWatchMode() {
+		return MODE_WATCH.equalsIgnoreCase(mode);
+	}
+	
+	/**
+	 * Registers the directories of the parser files with the watch service and drops the ones no longer needed, and records the new files.
+	 * Has to be called after the files of the parsers changed, e.g. by {@link ParserFactory#updateXMLParserPath()}.
+	 */
+	public synchronized void updateWatchedDirectories() {
+		if (recorder != null) {
+			recorder.setFiles(getFiles());
+		}
+		if (watchService == null) {
+			return;
+		}
+		HashSet<Path> directories = new HashSet<Path>();
+		for (File file : getFiles()) {
+			directories.add(file.getAbsoluteFile().getParentFile().toPath());
+		}
 		
+		Iterator<Entry<Path, WatchKey>> it = watchKeys.entrySet().iterator();
+		while (it.hasNext()) {
+			Entry<Path, WatchKey> entry = it.next();
+			if (!directories.contains(entry.getKey())) {
+				logger.info("Stop watching " + entry.getKey());
+				entry.getValue().cancel();
+				it.remove();
+			}
+		}
+		for (Path dir : directories) {
+			if (!watchKeys.containsKey(dir) && dir.toFile().isDirectory()) {
+				try {
+					watchKeys.put(dir, dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+					logger.info("Watching " + dir);
+				} catch (IOException e) {
+					logger.warn("Could not watch " + dir + " - falling back to polling", e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Writes the summary of the {@link Parser#getMetrics()} of every parser to the log.
+	 */
+	public void logMetrics() {
+		for (ParserTask task : tasks) {
+			Parser parser = task.parser;
+			String name = parser.getFile() != null ? parser.getFile().getName() : parser.getClass().getSimpleName();
+			logger.info("Metrics of " + name + ": " + parser.getMetrics().getSummary());
+		}
+	}
+	
+	public LogRecorder getRecorder() {
+		return recorder;
+	}
+	
+	/**
+	 * @param recorder Records the log files from the next start on, <code>null</code> to record nothing
+	 */
+	public synchronized void setRecorder(LogRecorder recorder) {
+		this.recorder = recorder;
+	}
+	
+	private ArrayList<File> getFiles() {
+		ArrayList<File> files = new ArrayList<File>();
+		for (ParserTask task : tasks) {
+			if (task.parser.getFile() != null) {
+				files.add(task.parser.getFile());
+			}
+		}
+		return files;
+	}
+	
+	/**
+	 * One thread for every parser and one for the watch service, the metrics log shares them.
+	 */
+	private int getPoolSize() {
+		return tasks.size() + 1;
+	}
+	
+	private void watch() {
+		WatchService watchService = openWatchService();
+		if (watchService == null) {
+			return;
+		}
+		try {
+			while (active) {
+				WatchKey key = watchService.poll(maxWaitTime, TimeUnit.MILLISECONDS);
+				if (key != null) {
+					trigger(key);
+				} else {
+					updateWatchedDirectories(); // Log path may not have existed before
+				}
+			}
+		} catch (InterruptedException e) {
+			// Stopped
+		} catch (ClosedWatchServiceException e) {
+			// Stopped
+		} finally {
+			closeWatchService();
+		}
+	}
+	
+	private void trigger(WatchKey key) {
+		Path dir = (Path) key.watchable();
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				for (ParserTask task : tasks) {
+					task.trigger();
+				}
+				continue;
+			}
+			Path changed = dir.resolve((Path) event.context());
+			for (ParserTask task : tasks) {
+				File file = task.parser.getFile();
+				if (file != null && file.getAbsoluteFile().toPath().equals(changed)) {
+					task.trigger();
+				}
+			}
+		}
+		key.reset();
+	}
+	
+	private synchronized WatchService openWatchService() {
+		try {
+			watchService = FileSystems.getDefault().newWatchService();
+			updateWatchedDirectories();
+		} catch (IOException e) {
+			logger.warn("No watch service available - falling back to polling", e);
+		}
+		return watchService;
+	}
+	
+	private synchronized void closeWatchService() {
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (IOException e) {
+				logger.warn("Could not close the watch service", e);
+			}
+			watchService = null;
+			watchKeys.clear();
+		}
 	}
 	
 	public static ParserControl get() {
@@ -85,4 +316,121 @@ public class ParserControl {
 		return instance;
 	}
 	
+	/**
+	 * Schedules one parser. The task reschedules itself after every run, a trigger of the watch service runs it at once in between. A parser is never
+	 * run by two threads at the same time, a run finding it busy is dropped, as the busy one cancels itself if the file changed meanwhile.
+	 */
+	protected class ParserTask implements Runnable {
+		
+		private final Parser parser;
+		private final ReentrantLock lock = new ReentrantLock();
+		private long lastInvoked = System.currentTimeMillis();
+		private volatile long delay;
+		private boolean restored = false;
+		private ScheduledFuture<?> next;
+		
+		private ParserTask(Parser parser) {
+			this.parser = parser;
+			this.delay = parser.getUpdateInterval();
+		}
+		
+		public Parser getParser() {
+			return parser;
+		}
+		
+		@Override
+		public void run() {
+			try {
+				if (reParse() || !isWatchMode() || watchService == null) {
+					delay = parser.getUpdateInterval();
+				} else {
+					// The file system did not report a change, so the watch service works and polling can slow down
+					delay = Math.min(delay * 2, Math.max(maxWaitTime, parser.getUpdateInterval()));
+				}
+			} finally {
+				schedule(delay);
+			}
+		}
+		
+		private void trigger() {
+			ScheduledThreadPoolExecutor executor = ParserControl.this.executor;
+			if (executor == null) {
+				return;
+			}
+			try {
+				executor.execute(new Runnable() {
+					
+					@Override
+					public void run() {
+						if (reParse()) {
+							// A parser may have postponed a file which is still written, so have a look again soon
+							delay = parser.getUpdateInterval();
+							schedule(delay);
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// Stopped
+			}
+		}
+		
+		/**
+		 * @return <code>true</code> if the parser was run, <code>false</code> if it needed no update, is busy or failed
+		 */
+		private boolean reParse() {
+			if (!lock.tryLock()) {
+				return false;
+			}
+			try {
+				if (!restored) {
+					restored = true;
+					parser.restore();
+				}
+				long actualTime = System.currentTimeMillis();
+				if (parser.needUpdate(actualTime - lastInvoked)) {
+					long start = System.nanoTime();
+					parser.parse();
+					parser.getMetrics().recordRun(System.nanoTime() - start);
+					lastInvoked = actualTime;
+					return true;
+				}
+				return false;
+			} catch (RuntimeException e) {
+				// The task must go on, the next run may find a complete file
+				logger.error("Parser " + parser.getClass().getSimpleName() + " failed", e);
+				return false;
+			} finally {
+				lock.unlock();
+			}
+		}
+		
+		private synchronized void schedule(long delay) {
+			ScheduledThreadPoolExecutor executor = ParserControl.this.executor;
+			if (!active || executor == null) {
+				return;
+			}
+			if (next != null) {
+				next.cancel(false);
+			}
+			try {
+				next = executor.schedule(this, delay, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				// Stopped
+			}
+		}
+	}
+	
+	private static class ParserThreadFactory implements ThreadFactory {
+		
+		private static final AtomicInteger count = new AtomicInteger();
+		
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "Parser-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setPriority(3);
+			return thread;
+		}
+	}
+	
 }
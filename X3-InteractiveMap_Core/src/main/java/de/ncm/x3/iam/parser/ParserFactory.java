@@ -17,6 +17,15 @@ public abstract class ParserFactory {
 		if (universeMapParser == null) {
 			File file = new File(PropertyManager.get().getLogpath(), PropertyManager.get().getUniverseMapLogFile());
 			universeMapParser = new UniverseMapParser(file);
+			String snapshotFile = PropertyManager.get().getParserSnapshotFile();
+			if (snapshotFile != null && snapshotFile.length() > 0) {
+				universeMapParser.setSnapshotFile(new File(snapshotFile));
+			}
+			Integer parallelThreshold = PropertyManager.get().getParserParallelThreshold();
+			if (parallelThreshold != null) {
+				universeMapParser.setParallelThreshold(parallelThreshold);
+			}
+			universeMapParser.getMetrics().register("UniverseMapParser");
 		}
 		return universeMapParser;
 		
@@ -26,15 +35,21 @@ public abstract class ParserFactory {
 		if (actualPlayerPositionParser == null) {
 			File file = new File(PropertyManager.get().getLogpath(), PropertyManager.get().getUniverseMapPlayerPositionFile());
 			actualPlayerPositionParser = new ActualPlayerPositionParser(file);
+			actualPlayerPositionParser.getMetrics().register("ActualPlayerPositionParser");
 		}
 		return actualPlayerPositionParser;
 	}
 	
 	public static void updateXMLParserPath() {
 		File file = new File(PropertyManager.get().getLogpath(), PropertyManager.get().getUniverseMapLogFile());
-		universeMapParser.setFile(file);
+		if (universeMapParser != null) {
+			universeMapParser.setFile(file);
+		}
 		
 		file = new File(PropertyManager.get().getLogpath(), PropertyManager.get().getUniverseMapPlayerPositionFile());
-		actualPlayerPositionParser.setFile(file);
+		if (actualPlayerPositionParser != null) {
+			actualPlayerPositionParser.setFile(file);
+		}
+		ParserControl.get().updateWatchedDirectories();
 	}
 }
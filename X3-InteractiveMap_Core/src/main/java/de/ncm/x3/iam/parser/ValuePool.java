@@ -0,0 +1,147 @@
+
+package de.ncm.x3.iam.parser;
+
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import de.ncm.x3.iam.data.universe.GridPos;
+import de.ncm.x3.iam.data.universe.Race;
+import de.ncm.x3.iam.data.universe.WarpGate;
+
+/**
+ * Canonical instances of the values the parsers create again and again, shared across parses: names and types, race IDs, races, the interned
+ * grid positions and the warp gates to them. A value which did not change between two parses is the same object in both maps, so the new map
+ * does not retain copies of it and the GUI may compare by identity.
+ * <p>
+ * The string table is bounded by {@link #getMaxStrings()}, once it is full new strings are returned as they are. Gates to positions within
+ * {@link GridPos#GRID_SIZE} are kept in an array, the others in a map. The pooled instances must never be modified. Thread safe, the parallel
+ * decoding tasks use it at the same time.
+ */
+public class ValuePool {
+	
+	public static final int DEFAULT_MAX_STRINGS = 64 * 1024;
+	private static final int CACHED_INTEGERS = 4096;
+	private static final Integer[] INTEGERS = new Integer[CACHED_INTEGERS];
+	
+	private static ValuePool instance;
+	
+	private final ConcurrentHashMap<String, String> strings = new ConcurrentHashMap<String, String>();
+	private final ConcurrentHashMap<Integer, Race> races = new ConcurrentHashMap<Integer, Race>();
+	private final AtomicReferenceArray<WarpGate> gates = new AtomicReferenceArray<WarpGate>(GridPos.GRID_SIZE * GridPos.GRID_SIZE);
+	private final ConcurrentHashMap<GridPos, WarpGate> outerGates = new ConcurrentHashMap<GridPos, WarpGate>();
+	private volatile int maxStrings = DEFAULT_MAX_STRINGS;
+	
+	static {
+		for (int i = 0; i < CACHED_INTEGERS; i++) {
+			INTEGERS[i] = Integer.valueOf(i);
+		}
+	}
+	
+	/**
+	 * @return The pool shared by the parsers of the application
+	 */
+	public static synchronized ValuePool get() {
+		if (instance == null) {
+			instance = new ValuePool();
+		}
+		return instance;
+	}
+	
+	/**
+	 * @return The pooled instance equal to the string, <code>null</code> for <code>null</code>
+	 */
+	public String string(String value) {
+		if (value == null) {
+			return null;
+		}
+		String pooled = strings.get(value);
+		if (pooled != null) {
+			return pooled;
+		}
+		if (strings.size() >= maxStrings) {
+			return value;
+		}
+		pooled = strings.putIfAbsent(value, value);
+		return pooled != null ? pooled : value;
+	}
+	
+	/**
+	 * @return The same instance for every small, non negative value
+	 */
+	public static Integer integer(int value) {
+		if (value >= 0 && value < CACHED_INTEGERS) {
+			return INTEGERS[value];
+		}
+		return Integer.valueOf(value);
+	}
+	
+	/**
+	 * @return The race of the last parse if its name did not change, a new one otherwise
+	 */
+	public Race race(int id, String name) {
+		Integer key = integer(id);
+		Race race = races.get(key);
+		if (race != null && race.getName().equals(name)) {
+			return race;
+		}
+		race = new Race(key, string(name));
+		races.put(key, race);
+		return race;
+	}
+	
+	/**
+	 * @see GridPos#valueOf(int, int)
+	 */
+	public GridPos gridPos(int x, int y) {
+		return GridPos.valueOf(x, y);
+	}
+	
+	/**
+	 * @return The gate to the given sector
+	 */
+	public WarpGate warpGate(int x, int y) {
+		GridPos target = GridPos.valueOf(x, y);
+		if (x >= 0 && y >= 0 && x < GridPos.GRID_SIZE && y < GridPos.GRID_SIZE) {
+			int index = y * GridPos.GRID_SIZE + x;
+			WarpGate gate = gates.get(index);
+			if (gate == null) {
+				gates.compareAndSet(index, null, new WarpGate(target));
+				gate = gates.get(index);
+			}
+			return gate;
+		}
+		WarpGate gate = outerGates.get(target);
+		if (gate == null) {
+			WarpGate added = outerGates.putIfAbsent(target, gate = new WarpGate(target));
+			if (added != null) {
+				gate = added;
+			}
+		}
+		return gate;
+	}
+	
+	public int getStringCount() {
+		return strings.size();
+	}
+	
+	public int getMaxStrings() {
+		return maxStrings;
+	}
+	
+	/**
+	 * @param maxStrings Number of strings from which on no more are pooled
+	 */
+	public void setMaxStrings(int maxStrings) {
+		this.maxStrings = maxStrings;
+	}
+	
+	/**
+	 * Drops the pooled strings and races, e.g. when another game is loaded. Gates are kept, there is at most one per sector.
+	 */
+	public void clear() {
+		strings.clear();
+		races.clear();
+	}
+	
+}
@@ -0,0 +1,105 @@
+
+package de.ncm.x3.iam.parser.metrics;
+
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of values in fixed memory, in the manner of the HdrHistogram: values below {@link #SUB_BUCKETS} are counted exactly, above every
+ * doubling of the value is split into half as many buckets, so a bucket is at most 1/32 of its values wide and every value is known to about 3
+ * percent. Negative values are counted as 0. Recording never allocates and may happen from any thread.
+ */
+public class Histogram {
+	
+	private static final int SUB_BUCKET_BITS = 6;
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF = SUB_BUCKETS / 2;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * HALF + HALF;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+	
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(index(value));
+		sum.addAndGet(value);
+		long current = min.get();
+		while (value < current && !min.compareAndSet(current, value)) {
+			current = min.get();
+		}
+		current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+		count.incrementAndGet();
+	}
+	
+	public long getCount() {
+		return count.get();
+	}
+	
+	public long getSum() {
+		return sum.get();
+	}
+	
+	/**
+	 * @return The highest value equivalent to the value at the given percentile, 0 if nothing was recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += counts.get(i);
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= target) {
+				return Math.min(lowest(i) + width(i) - 1, max.get());
+			}
+		}
+		return max.get();
+	}
+	
+	public HistogramSnapshot getSnapshot() {
+		long count = this.count.get();
+		if (count == 0) {
+			return new HistogramSnapshot(0, 0, 0, 0, 0, 0, 0);
+		}
+		return new HistogramSnapshot(count, min.get(), max.get(), (double) sum.get() / count, getValueAtPercentile(50), getValueAtPercentile(90),
+				getValueAtPercentile(99));
+	}
+	
+	static int index(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int bucket = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return bucket * HALF + (int) (value >>> bucket);
+	}
+	
+	static long lowest(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int bucket = index / HALF - 1;
+		return (long) (index - bucket * HALF) << bucket;
+	}
+	
+	static long width(int index) {
+		if (index < SUB_BUCKETS) {
+			return 1;
+		}
+		return 1L << (index / HALF - 1);
+	}
+	
+}
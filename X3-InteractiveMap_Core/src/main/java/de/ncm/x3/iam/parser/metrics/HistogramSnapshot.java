@@ -0,0 +1,64 @@
+
+package de.ncm.x3.iam.parser.metrics;
+
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Values of a {@link Histogram} at one point in time. Shown as composite data by JMX clients.
+ */
+public class HistogramSnapshot {
+	
+	private final long count;
+	private final long min;
+	private final long max;
+	private final double mean;
+	private final long p50;
+	private final long p90;
+	private final long p99;
+	
+	@ConstructorProperties({ "count", "min", "max", "mean", "p50", "p90", "p99" })
+	public HistogramSnapshot(long count, long min, long max, double mean, long p50, long p90, long p99) {
+		this.count = count;
+		this.min = min;
+		this.max = max;
+		this.mean = mean;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+	}
+	
+	public long getCount() {
+		return count;
+	}
+	
+	public long getMin() {
+		return min;
+	}
+	
+	public long getMax() {
+		return max;
+	}
+	
+	public double getMean() {
+		return mean;
+	}
+	
+	public long getP50() {
+		return p50;
+	}
+	
+	public long getP90() {
+		return p90;
+	}
+	
+	public long getP99() {
+		return p99;
+	}
+	
+	@Override
+	public String toString() {
+		return "n=" + count + " min=" + min + " p50=" + p50 + " p90=" + p90 + " p99=" + p99 + " max=" + max;
+	}
+	
+}
@@ -0,0 +1,222 @@
+
+package de.ncm.x3.iam.parser.metrics;
+
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+import de.ncm.x3.iam.parser.Parser;
+
+/**
+ * Counters and histograms of one {@link Parser}. A run is one call of {@link Parser#parse()}, it is split into the phases read (file to buffer),
+ * parse (document to values), build (values to model, only where the engine does it in a step of its own) and dispatch (the listeners of the
+ * result). Recording is cheap and may happen from any thread.
+ */
+public class ParserMetrics implements ParserMetricsMXBean {
+	
+	public static final String DOMAIN = "de.ncm.x3.iam";
+	
+	private static Logger logger = Logger.getLogger(ParserMetrics.class);
+	
+	private final AtomicLong parsedCount = new AtomicLong();
+	private final AtomicLong skippedCount = new AtomicLong();
+	private final AtomicLong retriedCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private final AtomicLong cancelledCount = new AtomicLong();
+	private final AtomicLong bytesRead = new AtomicLong();
+	private volatile int sectorCount = 0;
+	private volatile int stationCount = 0;
+	private volatile int raceCount = 0;
+	private volatile long lastRun = -1;
+	
+	private final Histogram runTime = new Histogram();
+	private final Histogram runInterval = new Histogram();
+	private final Histogram readTime = new Histogram();
+	private final Histogram readSize = new Histogram();
+	private final Histogram parseTime = new Histogram();
+	private final Histogram buildTime = new Histogram();
+	private final Histogram dispatchTime = new Histogram();
+	
+	/**
+	 * Registers these metrics with the platform MBean server as <code>de.ncm.x3.iam:type=ParserMetrics,name=</code><i>name</i>.
+	 *
+	 * @return The name registered with, <code>null</code> if the registration failed
+	 */
+	public ObjectName register(String name) {
+		try {
+			ObjectName objectName = new ObjectName(DOMAIN + ":type=ParserMetrics,name=" + ObjectName.quote(name));
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+			server.registerMBean(this, objectName);
+			return objectName;
+		} catch (JMException e) {
+			logger.warn("Could not register the metrics of " + name, e);
+			return null;
+		}
+	}
+	
+	/**
+	 * @param nanos Duration of a whole run, the interval is measured from the start of the last one
+	 */
+	public void recordRun(long nanos) {
+		runTime.record(nanos / 1000);
+		long start = System.currentTimeMillis() - nanos / 1000000;
+		if (lastRun >= 0) {
+			runInterval.record(start - lastRun);
+		}
+		lastRun = start;
+	}
+	
+	public void recordRead(long nanos, int bytes) {
+		readTime.record(nanos / 1000);
+		readSize.record(bytes);
+		bytesRead.addAndGet(bytes);
+	}
+	
+	public void recordParse(long nanos) {
+		parseTime.record(nanos / 1000);
+	}
+	
+	public void recordBuild(long nanos) {
+		buildTime.record(nanos / 1000);
+	}
+	
+	public void recordDispatch(long nanos) {
+		dispatchTime.record(nanos / 1000);
+	}
+	
+	public void recordModel(int sectors, int stations, int races) {
+		sectorCount = sectors;
+		stationCount = stations;
+		raceCount = races;
+	}
+	
+	public void parsed() {
+		parsedCount.incrementAndGet();
+	}
+	
+	public void skipped() {
+		skippedCount.incrementAndGet();
+	}
+	
+	public void retried() {
+		retriedCount.incrementAndGet();
+	}
+	
+	public void failed() {
+		failedCount.incrementAndGet();
+	}
+	
+	public void cancelled() {
+		cancelledCount.incrementAndGet();
+	}
+	
+	@Override
+	public long getParsedCount() {
+		return parsedCount.get();
+	}
+	
+	@Override
+	public long getSkippedCount() {
+		return skippedCount.get();
+	}
+	
+	@Override
+	public long getRetriedCount() {
+		return retriedCount.get();
+	}
+	
+	@Override
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+	
+	@Override
+	public long getCancelledCount() {
+		return cancelledCount.get();
+	}
+	
+	@Override
+	public long getBytesRead() {
+		return bytesRead.get();
+	}
+	
+	@Override
+	public int getSectorCount() {
+		return sectorCount;
+	}
+	
+	@Override
+	public int getStationCount() {
+		return stationCount;
+	}
+	
+	@Override
+	public int getRaceCount() {
+		return raceCount;
+	}
+	
+	@Override
+	public HistogramSnapshot getRunTime() {
+		return runTime.getSnapshot();
+	}
+	
+	@Override
+	public HistogramSnapshot getRunInterval() {
+		return runInterval.getSnapshot();
+	}
+	
+	@Override
+	public HistogramSnapshot getReadTime() {
+		return readTime.getSnapshot();
+	}
+	
+	@Override
+	public HistogramSnapshot getReadSize() {
+		return readSize.getSnapshot();
+	}
+	
+	@Override
+	public HistogramSnapshot getParseTime() {
+		return parseTime.getSnapshot();
+	}
+	
+	@Override
+	public HistogramSnapshot getBuildTime() {
+		return buildTime.getSnapshot();
+	}
+	
+	@Override
+	public HistogramSnapshot getDispatchTime() {
+		return dispatchTime.getSnapshot();
+	}
+	
+	@Override
+	public String getSummary() {
+		StringBuilder out = new StringBuilder();
+		out.append("parsed=").append(getParsedCount()).append(" skipped=").append(getSkippedCount());
+		out.append(" retried=").append(getRetriedCount()).append(" failed=").append(getFailedCount());
+		out.append(" cancelled=").append(getCancelledCount()).append(" bytes=").append(getBytesRead());
+		if (sectorCount > 0) {
+			out.append(" sectors=").append(sectorCount).append(" stations=").append(stationCount).append(" races=").append(raceCount);
+		}
+		out.append("\n\trun [us]: ").append(getRunTime());
+		out.append("\n\tinterval [ms]: ").append(getRunInterval());
+		out.append("\n\tread [us]: ").append(getReadTime());
+		out.append("\n\tparse [us]: ").append(getParseTime());
+		if (buildTime.getCount() > 0) {
+			out.append("\n\tbuild [us]: ").append(getBuildTime());
+		}
+		out.append("\n\tdispatch [us]: ").append(getDispatchTime());
+		return out.toString();
+	}
+	
+}
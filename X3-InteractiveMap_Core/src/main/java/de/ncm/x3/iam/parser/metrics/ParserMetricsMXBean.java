@@ -0,0 +1,45 @@
+
+package de.ncm.x3.iam.parser.metrics;
+
+
+/**
+ * Management interface of the {@link ParserMetrics}. Times are in microseconds, the interval between two runs in milliseconds and sizes in bytes.
+ * The model counts are the ones of the last parse.
+ */
+public interface ParserMetricsMXBean {
+	
+	long getParsedCount();
+	
+	long getSkippedCount();
+	
+	long getRetriedCount();
+	
+	long getFailedCount();
+	
+	long getCancelledCount();
+	
+	long getBytesRead();
+	
+	int getSectorCount();
+	
+	int getStationCount();
+	
+	int getRaceCount();
+	
+	HistogramSnapshot getRunTime();
+	
+	HistogramSnapshot getRunInterval();
+	
+	HistogramSnapshot getReadTime();
+	
+	HistogramSnapshot getReadSize();
+	
+	HistogramSnapshot getParseTime();
+	
+	HistogramSnapshot getBuildTime();
+	
+	HistogramSnapshot getDispatchTime();
+	
+	String getSummary();
+	
+}
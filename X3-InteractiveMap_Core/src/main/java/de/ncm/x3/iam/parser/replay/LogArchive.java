@@ -0,0 +1,189 @@
+
+package de.ncm.x3.iam.parser.replay;
+
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append only file of {@link LogRecord}s. Every record is compressed on its own and written at once, so an archive stays readable up to the last
+ * complete record if the program is killed, and a recording may be continued later. After {@link #close()} the next record opens the file again,
+ * cutting off a record only partly written.
+ * <p>
+ * Format: the header <code>X3IAMLOG</code> and the version as int, then per record the time as long, the name as modified UTF-8, the length of the
+ * content and the length of the deflated content as int, and the deflated content.
+ */
+public class LogArchive implements Closeable {
+	
+	private static final byte[] MAGIC = { 'X', '3', 'I', 'A', 'M', 'L', 'O', 'G' };
+	private static final int VERSION = 1;
+	
+	private final File file;
+	private Deflater deflater = null;
+	private DataOutputStream out = null;
+	private byte[] buffer = new byte[0];
+	
+	public LogArchive(File file) {
+		this.file = file;
+	}
+	
+	public synchronized void append(LogRecord record) throws IOException {
+		if (out == null) {
+			boolean exists = file.length() > 0;
+			if (exists) {
+				truncateIncomplete(file);
+			}
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+			if (!exists) {
+				out.write(MAGIC);
+				out.writeInt(VERSION);
+			}
+			deflater = new Deflater(Deflater.BEST_SPEED);
+		}
+		byte[] content = record.getContent();
+		if (buffer.length < content.length + 64) {
+			buffer = new byte[content.length + content.length / 8 + 64];
+		}
+		deflater.reset();
+		deflater.setInput(content);
+		deflater.finish();
+		int length = deflater.deflate(buffer);
+		if (!deflater.finished()) {
+			throw new IOException("Could not compress " + record);
+		}
+		out.writeLong(record.getTime());
+		out.writeUTF(record.getName());
+		out.writeInt(content.length);
+		out.writeInt(length);
+		out.write(buffer, 0, length);
+		out.flush();
+	}
+	
+	@Override
+	public synchronized void close() throws IOException {
+		if (out != null) {
+			out.close();
+			out = null;
+			deflater.end();
+		}
+	}
+	
+	public File getFile() {
+		return file;
+	}
+	
+	/**
+	 * @return Reader of the records from the first one on
+	 */
+	public Reader openReader() throws IOException {
+		return new Reader(file);
+	}
+	
+	/**
+	 * Checks the header and cuts the file after its last complete record, so new records are not appended to a partly written one.
+	 */
+	private static void truncateIncomplete(File file) throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "rw");
+		try {
+			readHeader(in, file);
+			long length = in.length();
+			long end = in.getFilePointer();
+			try {
+				while (end < length) {
+					in.readLong();
+					in.skipBytes(in.readUnsignedShort());
+					in.readInt();
+					int deflated = in.readInt();
+					if (deflated < 0 || in.getFilePointer() + deflated > length) {
+						break;
+					}
+					end = in.getFilePointer() + deflated;
+					in.seek(end);
+				}
+			} catch (EOFException e) {
+				// Killed while writing the head of the last record
+			}
+			if (end < length) {
+				in.getChannel().truncate(end);
+			}
+		} finally {
+			in.close();
+		}
+	}
+	
+	private static void readHeader(DataInput in, File file) throws IOException {
+		byte[] magic = new byte[MAGIC.length];
+		in.readFully(magic);
+		if (!Arrays.equals(MAGIC, magic)) {
+			throw new IOException(file + " is no log archive");
+		}
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Version " + version + " of " + file + " is not supported");
+		}
+	}
+	
+	public static class Reader implements Closeable {
+		
+		private final DataInputStream in;
+		private final Inflater inflater = new Inflater();
+		private byte[] buffer = new byte[0];
+		
+		private Reader(File file) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				readHeader(in, file);
+			} catch (IOException e) {
+				in.close();
+				throw e;
+			}
+		}
+		
+		/**
+		 * @return The next record, <code>null</code> at the end of the archive or of its last complete record
+		 */
+		public LogRecord next() throws IOException {
+			try {
+				long time = in.readLong();
+				String name = in.readUTF();
+				byte[] content = new byte[in.readInt()];
+				int length = in.readInt();
+				if (buffer.length < length) {
+					buffer = new byte[length];
+				}
+				in.readFully(buffer, 0, length);
+				inflater.reset();
+				inflater.setInput(buffer, 0, length);
+				if (inflater.inflate(content) != content.length) {
+					throw new IOException("Record " + name + "@" + time + " is corrupt");
+				}
+				return new LogRecord(time, name, content);
+			} catch (EOFException e) {
+				return null; // Killed while writing the last record
+			} catch (DataFormatException e) {
+				throw new IOException(e);
+			}
+		}
+		
+		@Override
+		public void close() throws IOException {
+			in.close();
+			inflater.end();
+		}
+	}
+	
+}
@@ -0,0 +1,126 @@
+
+package de.ncm.x3.iam.parser.replay;
+
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Writes the records of a {@link LogArchive} into a directory in the order and at the pace they were recorded, so a session of the game can be
+ * repeated against the parsers and the GUI. Point the log path at the directory to replay. The speed is a factor of the recorded pace, at
+ * {@link #MAXIMUM_SPEED} every record is written as soon as the last one is.
+ * <p>
+ * The files are overwritten in place like the game does, so the parsers may see them half written as in the game.
+ */
+public class LogPlayer {
+	
+	public static final double MAXIMUM_SPEED = 0;
+	
+	private static Logger logger = Logger.getLogger(LogPlayer.class);
+	
+	private final LogArchive archive;
+	private final File directory;
+	private double speed = 1;
+	private volatile long playedCount = 0;
+	private volatile long maxLag = 0;
+	
+	public LogPlayer(File archive, File directory) {
+		this.archive = new LogArchive(archive);
+		this.directory = directory;
+	}
+	
+	/**
+	 * Plays the whole archive in the calling thread. Stops early if the thread is interrupted.
+	 *
+	 * @return Number of records written
+	 */
+	public long play() throws IOException, InterruptedException {
+		playedCount = 0;
+		maxLag = 0;
+		LogArchive.Reader reader = archive.openReader();
+		try {
+			long firstTime = -1;
+			long start = System.currentTimeMillis();
+			LogRecord record;
+			while ((record = reader.next()) != null) {
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+				if (firstTime < 0) {
+					firstTime = record.getTime();
+				}
+				if (speed > MAXIMUM_SPEED) {
+					long due = start + (long) ((record.getTime() - firstTime) / speed);
+					long wait = due - System.currentTimeMillis();
+					if (wait > 0) {
+						Thread.sleep(wait);
+					} else {
+						maxLag = Math.max(maxLag, -wait);
+					}
+				}
+				write(record);
+				playedCount++;
+			}
+		} finally {
+			reader.close();
+		}
+		logger.info("Played " + playedCount + " records of " + archive.getFile() + ", at most " + maxLag + " ms late");
+		return playedCount;
+	}
+	
+	public double getSpeed() {
+		return speed;
+	}
+	
+	/**
+	 * @param speed 1 for the recorded pace, 10 for ten times as fast, {@link #MAXIMUM_SPEED} for as fast as possible
+	 */
+	public void setSpeed(double speed) {
+		this.speed = speed;
+	}
+	
+	public long getPlayedCount() {
+		return playedCount;
+	}
+	
+	/**
+	 * @return The most a record was written after its time, in ms. High if the disk or the CPU cannot keep the speed.
+	 */
+	public long getMaxLag() {
+		return maxLag;
+	}
+	
+	private void write(LogRecord record) throws IOException {
+		OutputStream out = new FileOutputStream(new File(directory, record.getName()));
+		try {
+			out.write(record.getContent());
+		} finally {
+			out.close();
+		}
+	}
+	
+	/**
+	 * Plays an archive into a directory.
+	 * <p>
+	 * Arguments: archive directory [speed, 0 for maximum]
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length < 2) {
+			System.err.println("Usage: LogPlayer archive directory [speed]");
+			System.exit(1);
+		}
+		LogPlayer player = new LogPlayer(new File(args[0]), new File(args[1]));
+		if (args.length > 2) {
+			player.setSpeed(Double.parseDouble(args[2]));
+		}
+		long start = System.currentTimeMillis();
+		long count = player.play();
+		System.out.println("Played " + count + " records in " + (System.currentTimeMillis() - start) + " ms, at most " + player.getMaxLag()
+				+ " ms late");
+	}
+	
+}
@@ -0,0 +1,41 @@
+
+package de.ncm.x3.iam.parser.replay;
+
+
+/**
+ * One version of a log file in a {@link LogArchive}.
+ */
+public class LogRecord {
+	
+	private final long time;
+	private final String name;
+	private final byte[] content;
+	
+	/**
+	 * @param time Time the version was seen, in ms since 1970
+	 * @param name Name of the log file without its directory
+	 */
+	public LogRecord(long time, String name, byte[] content) {
+		this.time = time;
+		this.name = name;
+		this.content = content;
+	}
+	
+	public long getTime() {
+		return time;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public byte[] getContent() {
+		return content;
+	}
+	
+	@Override
+	public String toString() {
+		return name + "@" + time + " (" + content.length + " bytes)";
+	}
+	
+}
@@ -0,0 +1,188 @@
+
+package de.ncm.x3.iam.parser.replay;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Records every new version of some log files with the time it was seen into a {@link LogArchive}, so a session of the game can be replayed by the
+ * {@link LogPlayer}. The files are polled, a version is recorded if the modification time or the size changed and the content differs from the
+ * last recorded one. Versions the game had not finished writing are recorded as well, as the parsers see them too.
+ */
+public class LogRecorder {
+	
+	public static final long DEFAULT_INTERVAL = 50;
+	
+	private static Logger logger = Logger.getLogger(LogRecorder.class);
+	
+	private final LogArchive archive;
+	private final CopyOnWriteArrayList<File> files = new CopyOnWriteArrayList<File>();
+	private final HashMap<File, State> states = new HashMap<File, State>();
+	private long interval = DEFAULT_INTERVAL;
+	private long recordedCount = 0;
+	private volatile Thread thread = null;
+	
+	public LogRecorder(File archive) {
+		this.archive = new LogArchive(archive);
+	}
+	
+	/**
+	 * Replaces the recorded files. Files are recorded by name only, so they should differ in it.
+	 */
+	public void setFiles(Collection<File> files) {
+		this.files.clear();
+		this.files.addAll(files);
+	}
+	
+	public synchronized void start() {
+		if (thread != null) {
+			return;
+		}
+		logger.info("Recording " + files + " to " + archive.getFile());
+		thread = new Thread(new Runnable() {
+			
+			@Override
+			public void run() {
+				record();
+			}
+		}, "LogRecorder");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Stops the recording and closes the archive.
+	 */
+	public void stop() {
+		Thread thread;
+		synchronized (this) {
+			thread = this.thread;
+			this.thread = null;
+		}
+		if (thread != null) {
+			thread.interrupt();
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		try {
+			archive.close();
+		} catch (IOException e) {
+			logger.warn("Could not close " + archive.getFile(), e);
+		}
+		logger.info("Recorded " + getRecordedCount() + " versions to " + archive.getFile());
+	}
+	
+	/**
+	 * Looks at every file once and records the new versions.
+	 *
+	 * @return Number of versions recorded
+	 */
+	public synchronized int poll() throws IOException {
+		int recorded = 0;
+		for (File file : files) {
+			long lastModified = file.lastModified();
+			long length = file.length();
+			State state = states.get(file);
+			if (lastModified == 0 || state != null && state.lastModified == lastModified && state.length == length) {
+				continue;
+			}
+			byte[] content;
+			try {
+				content = Files.readAllBytes(file.toPath());
+			} catch (IOException e) {
+				continue; // Locked or deleted meanwhile, seen again with the next poll
+			}
+			if (state == null) {
+				state = new State();
+				states.put(file, state);
+			}
+			state.lastModified = lastModified;
+			state.length = length;
+			if (!Arrays.equals(state.content, content)) {
+				state.content = content;
+				archive.append(new LogRecord(System.currentTimeMillis(), file.getName(), content));
+				recorded++;
+			}
+		}
+		recordedCount += recorded;
+		return recorded;
+	}
+	
+	public synchronized long getRecordedCount() {
+		return recordedCount;
+	}
+	
+	public long getInterval() {
+		return interval;
+	}
+	
+	/**
+	 * @param interval Time between two polls in ms
+	 */
+	public void setInterval(long interval) {
+		this.interval = interval;
+	}
+	
+	public boolean isRecording() {
+		return thread != null;
+	}
+	
+	private void record() {
+		try {
+			while (thread == Thread.currentThread()) {
+				poll();
+				Thread.sleep(interval);
+			}
+		} catch (InterruptedException e) {
+			// Stopped
+		} catch (IOException e) {
+			logger.error("Recording to " + archive.getFile() + " failed", e);
+		}
+	}
+	
+	/**
+	 * Records the given log files until the program is ended.
+	 * <p>
+	 * Arguments: archive file...
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		if (args.length < 2) {
+			System.err.println("Usage: LogRecorder archive file...");
+			System.exit(1);
+		}
+		final LogRecorder recorder = new LogRecorder(new File(args[0]));
+		File[] files = new File[args.length - 1];
+		for (int i = 1; i < args.length; i++) {
+			files[i - 1] = new File(args[i]);
+		}
+		recorder.setFiles(Arrays.asList(files));
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			
+			@Override
+			public void run() {
+				recorder.stop();
+			}
+		});
+		recorder.start();
+		Thread.sleep(Long.MAX_VALUE);
+	}
+	
+	private static class State {
+		
+		private long lastModified;
+		private long length;
+		private byte[] content;
+	}
+	
+}
@@ -3,18 +3,43 @@ package de.ncm.x3.iam.parser.xml;
 
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 
 import org.apache.log4j.Logger;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import de.ncm.x3.iam.data.ActualPlayerInfo;
 import de.ncm.x3.iam.data.universe.GridPos;
+import de.ncm.x3.iam.parser.ValuePool;
 
+/**
+ * Parser of the player position log (log00902), which the game rewrites on every timer tick.
+ * <p>
+ * The tiny document is scanned directly in the buffer of the {@link XMLParser}, without a DOM and without Strings for the tags and numbers. Every
+ * parse returns a new {@link ActualPlayerInfo}, which is handed to the event dispatch thread while the next file is parsed. The {@link GridPos}
+ * is the one of the {@link ValuePool}, a new ship name is only created when it changed.
+ */
 public class ActualPlayerPositionParser extends XMLParser<ActualPlayerInfo> {
 	
 	private static final Logger logger = Logger.getLogger(ActualPlayerPositionParser.class);
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	
+	private static final byte[] SECTOR = "sector".getBytes();
+	private static final byte[] SHIP = "ship".getBytes();
+	private static final byte[] NAME = "name".getBytes();
+	private static final byte[] X = "x".getBytes();
+	private static final byte[] Y = "y".getBytes();
+	private static final byte[] Z = "z".getBytes();
+	
+	private static final int CONTEXT_NONE = 0;
+	private static final int CONTEXT_SECTOR = 1;
+	private static final int CONTEXT_SHIP = 2;
+	
+	// The ship name of the last parse, only known to the parser thread
+	private byte[] shipName = new byte[64];
+	private int shipNameLength = -1;
+	private String lastShipName = "";
 	
 	public ActualPlayerPositionParser(File logFile) {
 		super(logFile);
@@ -22,51 +47,135 @@ public class ActualPlayerPositionParser extends XMLParser<ActualPlayerInfo> {
 	}
 	
 	@Override
-	protected ActualPlayerInfo parseXML(Element rootElement) {
-		ActualPlayerInfo ret = new ActualPlayerInfo();
+	protected ActualPlayerInfo parseDocument(ByteBuffer content) throws IOException {
+		int sectorX = -1;
+		int sectorY = -1;
+		int x = 0;
+		int y = 0;
+		int z = 0;
+		int nameStart = -1;
+		int nameEnd = -1;
 		
-		NodeList children = rootElement.getChildNodes();
-		for (int i = 0; i < children.getLength(); i++) {
-			if (children.item(i).getNodeName().equalsIgnoreCase("Sector")) {
-				ret.setSectorPosition(parseSectorPosition(children.item(i)));
-			} else if (children.item(i).getNodeName().equalsIgnoreCase("Ship")) {
-				parseShip(ret, children.item(i));
+		int context = CONTEXT_NONE;
+		int limit = content.limit();
+		int i = content.position();
+		while (i < limit) {
+			if (content.get(i++) != '<' || i == limit) {
+				continue;
+			}
+			byte b = content.get(i);
+			if (b == '?' || b == '!') {
+				i = indexOf(content, '>', i, limit);
+				continue;
+			}
+			if (b == '/') { // End tag
+				int tagEnd = scanName(content, i + 1, limit);
+				if (matchesName(content, i + 1, tagEnd, SECTOR) || matchesName(content, i + 1, tagEnd, SHIP)) {
+					context = CONTEXT_NONE;
+				}
+				i = tagEnd;
+				continue;
+			}
+			
+			int tagEnd = scanName(content, i, limit);
+			int tagClose = indexOf(content, '>', tagEnd, limit);
+			if (tagClose == limit) {
+				throw new IOException("Unclosed tag at " + i);
 			}
+			boolean empty = content.get(tagClose - 1) == '/';
+			int valueStart = tagClose + 1;
+			
+			if (matchesName(content, i, tagEnd, SECTOR)) {
+				context = empty ? CONTEXT_NONE : CONTEXT_SECTOR;
+			} else if (matchesName(content, i, tagEnd, SHIP)) {
+				context = empty ? CONTEXT_NONE : CONTEXT_SHIP;
+			} else if (context != CONTEXT_NONE && !empty) {
+				int valueEnd = indexOf(content, '<', valueStart, limit);
+				if (matchesName(content, i, tagEnd, NAME)) {
+					if (context == CONTEXT_SHIP) {
+						nameStart = valueStart;
+						nameEnd = valueEnd;
+					}
+				} else if (matchesName(content, i, tagEnd, X)) {
+					if (context == CONTEXT_SECTOR) {
+						sectorX = parseInt(content, valueStart, valueEnd);
+					} else {
+						x = parseInt(content, valueStart, valueEnd);
+					}
+				} else if (matchesName(content, i, tagEnd, Y)) {
+					if (context == CONTEXT_SECTOR) {
+						sectorY = parseInt(content, valueStart, valueEnd);
+					} else {
+						y = parseInt(content, valueStart, valueEnd);
+					}
+				} else if (matchesName(content, i, tagEnd, Z)) {
+					if (context == CONTEXT_SHIP) {
+						z = parseInt(content, valueStart, valueEnd);
+					}
+				}
+				i = valueEnd;
+				continue;
+			}
+			i = valueStart;
+		}
+		
+		if (nameStart >= 0) {
+			updateShipName(content, nameStart, nameEnd);
 		}
-		return ret;
+		return new ActualPlayerInfo(ValuePool.get().gridPos(sectorX, sectorY), lastShipName, x, y, z);
 	}
 	
-	private void parseShip(ActualPlayerInfo ret, Node item) {
-		
-		NodeList children = item.getChildNodes();
-		for (int i = 0; i < children.getLength(); i++) {
-			if (children.item(i).getNodeName().equalsIgnoreCase("Name")) {
-				ret.setShipName(getStringValueOf(children.item(i)));
-			} else if (children.item(i).getNodeName().equalsIgnoreCase("X")) {
-				ret.setX(getIntValueOf(children.item(i)));
-			} else if (children.item(i).getNodeName().equalsIgnoreCase("Y")) {
-				ret.setY(getIntValueOf(children.item(i)));
-			} else if (children.item(i).getNodeName().equalsIgnoreCase("Z")) {
-				ret.setZ(getIntValueOf(children.item(i)));
-			}
+	private void updateShipName(ByteBuffer content, int start, int end) {
+		int length = end - start;
+		boolean equal = length == shipNameLength;
+		for (int i = 0; equal && i < length; i++) {
+			equal = shipName[i] == content.get(start + i);
+		}
+		if (equal) {
+			return;
 		}
 		
+		if (shipName.length < length) {
+			shipName = new byte[length];
+		}
+		for (int i = 0; i < length; i++) {
+			shipName[i] = content.get(start + i);
+		}
+		shipNameLength = length;
+		lastShipName = decodeEntities(new String(shipName, 0, length, UTF8));
 	}
 	
-	private GridPos parseSectorPosition(Node item) {
-		
-		NodeList children = item.getChildNodes();
-		GridPos gc = new GridPos();
-		
-		for (int i = 0; i < children.getLength(); i++) {
-			if (children.item(i).getNodeName().equalsIgnoreCase("X")) {
-				gc.setGridX(getIntValueOf(children.item(i)));
-			} else if (children.item(i).getNodeName().equalsIgnoreCase("Y")) {
-				gc.setGridY(getIntValueOf(children.item(i)));
+	private static String decodeEntities(String text) {
+		if (text.indexOf('&') < 0) {
+			return text;
+		}
+		return text.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&apos;", "'").replace("&amp;", "&");
+	}
+	
+	private static int parseInt(ByteBuffer content, int start, int end) throws IOException {
+		while (start < end && content.get(start) <= ' ') {
+			start++;
+		}
+		while (end > start && content.get(end - 1) <= ' ') {
+			end--;
+		}
+		boolean negative = false;
+		if (start < end && (content.get(start) == '-' || content.get(start) == '+')) {
+			negative = content.get(start) == '-';
+			start++;
+		}
+		if (start == end) {
+			throw new IOException("Number expected at " + start);
+		}
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			int digit = content.get(i) - '0';
+			if (digit < 0 || digit > 9 || value > Integer.MAX_VALUE) {
+				throw new IOException("Invalid number at " + start);
 			}
+			value = value * 10 + digit;
 		}
-		
-		return gc;
+		return (int) (negative ? -value : value);
 	}
 	
 }
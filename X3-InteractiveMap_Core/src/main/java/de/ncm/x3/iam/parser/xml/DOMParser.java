@@ -0,0 +1,51 @@
+
+package de.ncm.x3.iam.parser.xml;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.log4j.Logger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+/**
+ * XML engine which materializes the whole document as W3C DOM before it is handed to {@link #parseXML(Element)}. The time spent in
+ * {@link #parseXML(Element)} is recorded as build time.
+ */
+public abstract class DOMParser<E> extends XMLParser<E> {
+	
+	private static Logger logger = Logger.getLogger(DOMParser.class);
+	private DocumentBuilder dBuilder;
+	private DocumentBuilderFactory dbFactory;
+	
+	public DOMParser(File logFile) {
+		super(logFile);
+		dbFactory = DocumentBuilderFactory.newInstance();
+		try {
+			dBuilder = dbFactory.newDocumentBuilder();
+		} catch (ParserConfigurationException e) {
+			logger.error("No document builder available", e);
+		}
+	}
+	
+	@Override
+	protected final E parseDocument(ByteBuffer content) throws IOException, SAXException {
+		Document doc = dBuilder.parse(new ByteBufferInputStream(content));
+		doc.getDocumentElement().normalize();
+		Element rootNode = doc.getDocumentElement();
+		long start = System.nanoTime();
+		E value = parseXML(rootNode);
+		addBuildTime(System.nanoTime() - start);
+		return value;
+	}
+	
+	protected abstract E parseXML(Element rootElement);
+	
+}
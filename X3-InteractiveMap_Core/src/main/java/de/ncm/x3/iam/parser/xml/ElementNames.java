@@ -0,0 +1,62 @@
+
+package de.ncm.x3.iam.parser.xml;
+
+
+import java.util.IdentityHashMap;
+
+/**
+ * Maps the element names of the log files to int codes, so the streaming parsers can {@code switch} over them.
+ * <p>
+ * The stream readers hand out the element names from their symbol table, so the same name is nearly always the same String instance. The codes are
+ * cached by identity and only unknown instances are compared (case insensitive, like the DOM parsers do).
+ * <p>
+ * Not thread safe, every parser and every parallel decoding task has to use its own instance.
+ */
+final class ElementNames {
+	
+	public static final int UNKNOWN = 0;
+	public static final int DATA = 1;
+	public static final int MAP = 2;
+	public static final int RACES = 3;
+	public static final int RACE = 4;
+	public static final int SECTOR = 5;
+	public static final int NAME = 6;
+	public static final int X = 7;
+	public static final int Y = 8;
+	public static final int Z = 9;
+	public static final int ID = 10;
+	public static final int RACE_ID = 11;
+	public static final int GATE_CONNECTIONS = 12;
+	public static final int STATIONS = 13;
+	public static final int STATION = 14;
+	public static final int TYPE = 15;
+	public static final int STATION_CLASS = 16;
+	public static final int SHIP = 17;
+	
+	private static final String[] NAMES = { null, "Data", "Map", "Races", "Race", "Sector", "Name", "X", "Y", "Z", "ID", "RaceID", "GateConnections",
+			"Stations", "Station", "Type", "StationClass", "Ship" };
+	private static final int MAX_CACHED_NAMES = 256;
+	
+	private final IdentityHashMap<String, Integer> codes = new IdentityHashMap<String, Integer>();
+	
+	public int resolve(String name) {
+		Integer code = codes.get(name);
+		if (code == null) {
+			code = lookup(name);
+			if (codes.size() < MAX_CACHED_NAMES) {
+				codes.put(name, code);
+			}
+		}
+		return code;
+	}
+	
+	private static int lookup(String name) {
+		for (int i = 1; i < NAMES.length; i++) {
+			if (NAMES[i].equalsIgnoreCase(name)) {
+				return i;
+			}
+		}
+		return UNKNOWN;
+	}
+	
+}
@@ -0,0 +1,163 @@
+
+package de.ncm.x3.iam.parser.xml;
+
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Byte ranges of the sector elements inside the map and of the races element of a universe export, found by a quick scan over the tags. Used to
+ * decode the sectors in parallel.
+ * <p>
+ * The scan only understands what the game scripts write: plain elements, the XML declaration and UTF-8. For anything else like comments, CDATA or
+ * another encoding {@link #scan(ByteBuffer)} gives up, and the document has to be parsed sequentially.
+ */
+final class SectorRanges {
+	
+	private static final byte[] MAP = "map".getBytes();
+	private static final byte[] SECTOR = "sector".getBytes();
+	private static final byte[] RACES = "races".getBytes();
+	
+	private int[] starts = new int[256];
+	private int[] ends = new int[256];
+	private int count = 0;
+	private int racesStart = -1;
+	private int racesEnd = -1;
+	
+	private SectorRanges() {}
+	
+	/**
+	 * @return The ranges as absolute indices into the buffer, <code>null</code> if the document can not be split
+	 */
+	static SectorRanges scan(ByteBuffer content) {
+		SectorRanges ranges = new SectorRanges();
+		int limit = content.limit();
+		int depth = 0;
+		boolean inMap = false;
+		int sectorStart = -1;
+		
+		int i = XMLParser.indexOf(content, '<', content.position(), limit);
+		while (i < limit) {
+			int tagStart = i;
+			if (i + 1 == limit) {
+				return null;
+			}
+			byte b = content.get(i + 1);
+			if (b == '!') { // Comment, CDATA or DOCTYPE
+				return null;
+			}
+			
+			if (b == '/') {
+				// Only the names of the tags closing a sector, the map or the races are of interest
+				depth--;
+				if (depth <= 2) {
+					int nameEnd = XMLParser.scanName(content, i + 2, limit);
+					if (depth == 2 && inMap && sectorStart >= 0 && XMLParser.matchesName(content, i + 2, nameEnd, SECTOR)) {
+						int close = XMLParser.indexOf(content, '>', nameEnd, limit);
+						ranges.add(sectorStart, close + 1);
+						sectorStart = -1;
+					} else if (depth == 1 && inMap && XMLParser.matchesName(content, i + 2, nameEnd, MAP)) {
+						inMap = false;
+					} else if (depth == 1 && ranges.racesStart >= 0 && ranges.racesEnd < 0
+							&& XMLParser.matchesName(content, i + 2, nameEnd, RACES)) {
+						ranges.racesEnd = XMLParser.indexOf(content, '>', nameEnd, limit) + 1;
+					}
+				}
+				i = XMLParser.indexOf(content, '<', i + 2, limit);
+				continue;
+			}
+			
+			int close = XMLParser.indexOf(content, '>', i + 1, limit);
+			if (close == limit) {
+				return null;
+			}
+			if (b == '?') {
+				if (depth != 0 || !isUTF8Declaration(content, i, close)) {
+					return null;
+				}
+			} else {
+				boolean empty = content.get(close - 1) == '/';
+				if (depth <= 2) {
+					int nameEnd = XMLParser.scanName(content, i + 1, close);
+					if (depth == 1 && XMLParser.matchesName(content, i + 1, nameEnd, MAP)) {
+						inMap = !empty;
+					} else if (depth == 1 && XMLParser.matchesName(content, i + 1, nameEnd, RACES)) {
+						if (ranges.racesStart >= 0) { // More than one, leave it to the sequential parser
+							return null;
+						}
+						ranges.racesStart = tagStart;
+						if (empty) {
+							ranges.racesEnd = close + 1;
+						}
+					} else if (depth == 2 && inMap && XMLParser.matchesName(content, i + 1, nameEnd, SECTOR)) {
+						if (empty) {
+							ranges.add(tagStart, close + 1);
+						} else {
+							sectorStart = tagStart;
+						}
+					}
+				}
+				if (!empty) {
+					depth++;
+				}
+			}
+			i = XMLParser.indexOf(content, '<', close + 1, limit);
+		}
+		
+		if (depth != 0 || ranges.racesStart >= 0 && ranges.racesEnd < 0) {
+			return null;
+		}
+		return ranges;
+	}
+	
+	private void add(int start, int end) {
+		if (count == starts.length) {
+			starts = Arrays.copyOf(starts, count * 2);
+			ends = Arrays.copyOf(ends, count * 2);
+		}
+		starts[count] = start;
+		ends[count] = end;
+		count++;
+	}
+	
+	int getCount() {
+		return count;
+	}
+	
+	int getStart(int index) {
+		return starts[index];
+	}
+	
+	int getEnd(int index) {
+		return ends[index];
+	}
+	
+	/**
+	 * @return Start of the races element, -1 if there is none
+	 */
+	int getRacesStart() {
+		return racesStart;
+	}
+	
+	int getRacesEnd() {
+		return racesEnd;
+	}
+	
+	private static boolean isUTF8Declaration(ByteBuffer content, int start, int end) {
+		byte[] declaration = new byte[end - start];
+		for (int i = 0; i < declaration.length; i++) {
+			declaration[i] = content.get(start + i);
+		}
+		String text = new String(declaration).toLowerCase();
+		if (!text.startsWith("<?xml ")) {
+			return false;
+		}
+		int encoding = text.indexOf("encoding");
+		if (encoding < 0) {
+			return true;
+		}
+		String value = text.substring(encoding + "encoding".length()).replace('=', ' ').replace('"', ' ').replace('\'', ' ').trim();
+		return value.startsWith("utf-8") || value.startsWith("utf8");
+	}
+	
+}
@@ -0,0 +1,98 @@
+
+package de.ncm.x3.iam.parser.xml;
+
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * XML engine which reads the document as stream of {@link XMLStreamReader} events. Nothing but the parsed value is kept in memory, so it should be
+ * used for the big exports.
+ */
+public abstract class StAXParser<E> extends XMLParser<E> implements XMLStreamConstants {
+	
+	private final XMLInputFactory inputFactory;
+	
+	public StAXParser(File logFile) {
+		super(logFile);
+		inputFactory = XMLInputFactory.newInstance();
+		inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		inputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.FALSE);
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+	}
+	
+	@Override
+	protected E parseDocument(ByteBuffer content) throws XMLStreamException {
+		XMLStreamReader reader = createReader(new ByteBufferInputStream(content), null);
+		try {
+			nextTag(reader); // Root element
+			return parseXML(reader);
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * Creates a reader with the settings of this parser. May be called from several threads.
+	 * 
+	 * @param encoding Encoding of the stream, <code>null</code> to detect it
+	 */
+	protected XMLStreamReader createReader(InputStream in, String encoding) throws XMLStreamException {
+		synchronized (inputFactory) {
+			if (encoding == null) {
+				return inputFactory.createXMLStreamReader(in);
+			}
+			return inputFactory.createXMLStreamReader(in, encoding);
+		}
+	}
+	
+	/**
+	 * Called with the reader positioned at the start tag of the root element.
+	 */
+	protected abstract E parseXML(XMLStreamReader reader) throws XMLStreamException;
+	
+	/**
+	 * Moves the reader to the next start or end tag. Other than {@link XMLStreamReader#nextTag()} it skips text between the tags, the game scripts
+	 * write some blanks in between.
+	 *
+	 * @return {@link #START_ELEMENT} or {@link #END_ELEMENT}
+	 */
+	public static int nextTag(XMLStreamReader reader) throws XMLStreamException {
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == START_ELEMENT || event == END_ELEMENT) {
+				return event;
+			}
+		}
+		throw new XMLStreamException("Unexpected end of document", reader.getLocation());
+	}
+	
+	/**
+	 * Skips the element the reader is positioned at, including all of its children.
+	 */
+	public static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			if (nextTag(reader) == START_ELEMENT) {
+				depth++;
+			} else {
+				depth--;
+			}
+		}
+	}
+	
+	public static String getStringValueOf(XMLStreamReader reader) throws XMLStreamException {
+		return reader.getElementText();
+	}
+	
+	public static int getIntValueOf(XMLStreamReader reader) throws XMLStreamException {
+		return Integer.parseInt(getStringValueOf(reader));
+	}
+	
+}
@@ -2,12 +2,25 @@
 package de.ncm.x3.iam.parser.xml;
 
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.log4j.Logger;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import de.ncm.jgoodies.model.HashMapModel;
 import de.ncm.x3.iam.data.universe.GridPos;
@@ -17,170 +30,455 @@ import de.ncm.x3.iam.data.universe.SpaceStation;
 import de.ncm.x3.iam.data.universe.UniverseMap;
 import de.ncm.x3.iam.data.universe.WarpGate;
 import de.ncm.x3.iam.data.universe.WarpGateConstants;
+import de.ncm.x3.iam.parser.ParseEvent;
+import de.ncm.x3.iam.parser.ValuePool;
 
-public class UniverseMapParser extends XMLParser<UniverseMap> {
+/**
+ * Streaming parser of the universe export (log00903). Builds the {@link UniverseMap} directly from the StAX events and produces the same map as the
+ * {@link UniverseMapDOMParser}.
+ * <p>
+ * If a snapshot file is set, every parsed map is written to it as {@link UniverseMapSnapshot}. On {@link #restore()} the snapshot is published
+ * before the export is parsed, which is skipped completely if the export did not change since.
+ * <p>
+ * Exports of at least {@link #getParallelThreshold()} bytes are split into the byte ranges of the sectors by {@link SectorRanges}, which are
+ * decoded in parallel on a {@link ForkJoinPool} with {@link #getParallelism()} threads.
+ * <p>
+ * Names, races, positions and gates are taken from the {@link ValuePool}, so the values which did not change are shared with the last map.
+ */
+public class UniverseMapParser extends StAXParser<UniverseMap> {
 	
 	private static Logger logger = Logger.getLogger(UniverseMapParser.class);
-	private Node mapNode;
-	private Node racesNode;
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 1024 * 1024;
+	public static final long UPDATE_INTERVAL = 500;
+	private static final int SECTORS_PER_TASK = 64;
+	private static final byte[] MAP_START = "<Map>".getBytes();
+	private static final byte[] MAP_END = "</Map>".getBytes();
+	
+	private final ElementNames names = new ElementNames();
+	private int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private ForkJoinPool pool = null;
+	private File snapshotFile = null;
+	private ValuePool values = ValuePool.get();
+	private boolean restored = false;
 	
 	public UniverseMapParser(File logFile) {
 		super(logFile);
+		setUpdateInterval(UPDATE_INTERVAL); // Written far less often than the player position
 		logger.info("LogFile: " + logFile);
 	}
 	
 	@Override
-	public UniverseMap parseXML(Element rootElement) {
-		NodeList children = rootElement.getChildNodes();
-		for (int i = 0; i < children.getLength(); i++) {
-			if (children.item(i).getNodeName().equalsIgnoreCase("Map")) {
-				this.mapNode = children.item(i);
-			} else if (children.item(i).getNodeName().equalsIgnoreCase("Races")) {
-				this.racesNode = children.item(i);
-			}
+	public void restore() {
+		if (restored || snapshotFile == null || !snapshotFile.exists()) {
+			return;
 		}
-		
-		HashMapModel<Integer, Race> raceMap = parseRaces(racesNode);
-		return parseMap(raceMap, mapNode);
+		restored = true;
+		UniverseMapSnapshot snapshot;
+		try {
+			snapshot = UniverseMapSnapshot.read(snapshotFile, values);
+		} catch (IOException e) {
+			logger.warn("Could not read snapshot " + snapshotFile + " - waiting for the export", e);
+			return;
+		}
+		logger.info("Restored " + snapshot.getMap().getSectors().size() + " sectors from " + snapshotFile);
+		restoreState(snapshot.getSourceLength(), snapshot.getSourceModified(), snapshot.getSourceChecksum());
+		fireParseStartEvent(new ParseEvent(this, null));
+		fireParseEndEvent(new ParseEvent(this, snapshot.getMap()));
 	}
 	
-	private HashMapModel<Integer, Race> parseRaces(Node item) {
+	@Override
+	protected void parsed(UniverseMap map, int length, long lastModified, long checksum) {
+		int stations = 0;
+		for (Sector sector : map.getSectors().values()) {
+			stations += sector.getSpaceStations().size();
+		}
+		getMetrics().recordModel(map.getSectors().size(), stations, map.getRaces() == null ? 0 : map.getRaces().size());
 		
+		if (snapshotFile == null) {
+			return;
+		}
+		try {
+			new UniverseMapSnapshot(map, length, lastModified, checksum).write(snapshotFile);
+		} catch (IOException e) {
+			logger.warn("Could not write snapshot " + snapshotFile, e);
+		}
+	}
+	
+	public File getSnapshotFile() {
+		return snapshotFile;
+	}
+	
+	/**
+	 * @param snapshotFile File the parsed maps are cached in, <code>null</code> to disable the cache
+	 */
+	public void setSnapshotFile(File snapshotFile) {
+		this.snapshotFile = snapshotFile;
+	}
+	
+	public ValuePool getValuePool() {
+		return values;
+	}
+	
+	public void setValuePool(ValuePool values) {
+		this.values = values;
+	}
+	
+	@Override
+	protected UniverseMap parseDocument(ByteBuffer content) throws XMLStreamException {
+		if (parallelThreshold >= 0 && parallelism > 1 && content.remaining() >= parallelThreshold) {
+			SectorRanges ranges = SectorRanges.scan(content);
+			if (ranges != null) {
+				return parseParallel(content, ranges);
+			}
+			logger.debug("Export can not be split - parsing sequentially");
+		}
+		return super.parseDocument(content);
+	}
+	
+	@Override
+	protected UniverseMap parseXML(XMLStreamReader reader) throws XMLStreamException {
 		HashMapModel<Integer, Race> raceMap = new HashMapModel<Integer, Race>();
-		NodeList children = item.getChildNodes();
-		for (int i = 0; i < children.getLength(); i++) {
-			if (children.item(i).getNodeName().equalsIgnoreCase("Race")) {
-				parseRace(raceMap, children.item(i));
+		// The races are written after the map, so the race of the sectors can be set not until the end
+		ArrayList<ParsedSector> sectors = new ArrayList<ParsedSector>();
+		
+		while (nextTag(reader) == START_ELEMENT) {
+			switch (names.resolve(reader.getLocalName())) {
+				case ElementNames.MAP:
+					parseMap(reader, names, sectors);
+					break;
+				case ElementNames.RACES:
+					parseRaces(reader, names, raceMap);
+					break;
+				default:
+					skipElement(reader);
 			}
 		}
-		return raceMap;
+		return createMap(sectors, raceMap);
 	}
 	
-	private void parseRace(HashMapModel<Integer, Race> raceMap, Node mapNode) {
-		NodeList children = mapNode.getChildNodes();
+	/**
+	 * Decodes the sectors in tasks of {@link #SECTORS_PER_TASK} on the {@link ForkJoinPool}, while the races are parsed by the calling thread. The
+	 * sectors are put into the map in the order of the document, so the result is the same as of the sequential parse.
+	 */
+	private UniverseMap parseParallel(ByteBuffer content, SectorRanges ranges) throws XMLStreamException {
+		ParsedSector[] sectors = new ParsedSector[ranges.getCount()];
+		ForkJoinTask<Void> task = getPool().submit(new DecodeTask(content, ranges, sectors, 0, sectors.length));
 		
-		Integer id = 0;
-		String name = "";
+		HashMapModel<Integer, Race> raceMap = new HashMapModel<Integer, Race>();
+		if (ranges.getRacesStart() >= 0) {
+			XMLStreamReader reader = createReader(slice(content, ranges.getRacesStart(), ranges.getRacesEnd()), "UTF-8");
+			try {
+				nextTag(reader);
+				parseRaces(reader, names, raceMap);
+			} finally {
+				reader.close();
+			}
+		}
 		
-		for (int i = 0; i < children.getLength(); i++) {
-			if (children.item(i).getNodeName().equalsIgnoreCase("Name")) {
-				name = children.item(i).getFirstChild().getNodeValue();
-			} else if (children.item(i).getNodeName().equalsIgnoreCase("ID")) {
-				id = Race.getIDFromRawString(children.item(i).getFirstChild().getNodeValue());
+		try {
+			task.get();
+		} catch (InterruptedException e) {
+			task.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new XMLStreamException("Interrupted");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof CancellationException) {
+				throw (CancellationException) e.getCause();
+			}
+			for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+				if (cause instanceof XMLStreamException) {
+					throw (XMLStreamException) cause;
+				}
 			}
+			throw new XMLStreamException(e.getCause());
 		}
-		raceMap.put(id, new Race(id, name));
+		logger.debug("Decoded " + sectors.length + " sectors in parallel");
+		return createMap(Arrays.asList(sectors), raceMap);
 	}
 	
-	private UniverseMap parseMap(HashMapModel<Integer, Race> raceMap, Node item) {
-		NodeList children = item.getChildNodes();
+	private UniverseMap createMap(List<ParsedSector> sectors, HashMapModel<Integer, Race> raceMap) {
+		long start = System.nanoTime();
 		UniverseMap map = new UniverseMap();
 		map.setRaces(raceMap);
-		for (int i = 0; i < children.getLength(); i++) {
-			if (children.item(i).getNodeName().equalsIgnoreCase("Sector")) {
-				parseSector(raceMap, map, children.item(i));
+		for (ParsedSector parsed : sectors) {
+			if (parsed.raceID != null) {
+				parsed.sector.setRace(raceMap.get(parsed.raceID));
 			}
+			map.putSector(parsed.position, parsed.sector);
 		}
+		addBuildTime(System.nanoTime() - start);
 		return map;
 	}
 	
-	private void parseSector(HashMapModel<Integer, Race> raceMap, UniverseMap map, Node item) {
-		
-		NodeList children = item.getChildNodes();
+	private static InputStream slice(ByteBuffer content, int start, int end) {
+		ByteBuffer slice = content.duplicate();
+		slice.limit(end);
+		slice.position(start);
+		return new ByteBufferInputStream(slice);
+	}
+	
+	private synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(parallelism);
+		}
+		return pool;
+	}
+	
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * @param parallelism Number of threads decoding the sectors, the export is always parsed sequentially if less than 2. Defaults to the number of
+	 *            processors.
+	 */
+	public synchronized void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+	
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+	
+	/**
+	 * @param parallelThreshold Size in bytes from which on the sectors of the export are decoded in parallel, -1 to always parse sequentially
+	 */
+	public void setParallelThreshold(int parallelThreshold) {
+		this.parallelThreshold = parallelThreshold;
+	}
+	
+	private void parseRaces(XMLStreamReader reader, ElementNames names, HashMapModel<Integer, Race> raceMap) throws XMLStreamException {
+		while (nextTag(reader) == START_ELEMENT) {
+			if (names.resolve(reader.getLocalName()) == ElementNames.RACE) {
+				parseRace(reader, names, raceMap);
+			} else {
+				skipElement(reader);
+			}
+		}
+	}
+	
+	private void parseRace(XMLStreamReader reader, ElementNames names, HashMapModel<Integer, Race> raceMap) throws XMLStreamException {
+		int id = 0;
+		String name = "";
 		
+		while (nextTag(reader) == START_ELEMENT) {
+			switch (names.resolve(reader.getLocalName())) {
+				case ElementNames.NAME:
+					name = getStringValueOf(reader);
+					break;
+				case ElementNames.ID:
+					id = Race.parseID(getStringValueOf(reader));
+					break;
+				default:
+					skipElement(reader);
+			}
+		}
+		Race race = values.race(id, name);
+		raceMap.put(race.getId(), race);
+	}
+	
+	private void parseMap(XMLStreamReader reader, ElementNames names, List<ParsedSector> sectors) throws XMLStreamException {
+		while (nextTag(reader) == START_ELEMENT) {
+			if (names.resolve(reader.getLocalName()) == ElementNames.SECTOR) {
+				checkCancelled();
+				sectors.add(parseSector(reader, names));
+			} else {
+				skipElement(reader);
+			}
+		}
+	}
+	
+	private ParsedSector parseSector(XMLStreamReader reader, ElementNames names) throws XMLStreamException {
+		ParsedSector parsed = new ParsedSector();
 		Sector sector = new Sector();
-		GridPos gc = new GridPos();
-		
-		for (int i = 0; i < children.getLength(); i++) {
-			if (children.item(i).getNodeName().equalsIgnoreCase("Name")) {
-				sector.setName(getStringValueOf(children.item(i)));
-			} else if (children.item(i).getNodeName().equalsIgnoreCase("X")) {
-				gc.setGridX(getIntValueOf(children.item(i)));
-			} else if (children.item(i).getNodeName().equalsIgnoreCase("Y")) {
-				gc.setGridY(getIntValueOf(children.item(i)));
-			} else if (children.item(i).getNodeName().equalsIgnoreCase("RaceID")) {
-				Integer raceID = Race.getIDFromRawString(getStringValueOf(children.item(i)));
-				sector.setRace(raceMap.get(raceID));
-			} else if (children.item(i).getNodeName().equalsIgnoreCase("GateConnections")) {
-				parseGateConnections(sector, children.item(i));
-			} else if (children.item(i).getNodeName().equalsIgnoreCase("Stations")) {
-				parseStations(sector, children.item(i));
-			}
-		}
-		map.putSector(gc, sector);
+		int x = -1;
+		int y = -1;
 		
+		while (nextTag(reader) == START_ELEMENT) {
+			switch (names.resolve(reader.getLocalName())) {
+				case ElementNames.NAME:
+					sector.setName(values.string(getStringValueOf(reader)));
+					break;
+				case ElementNames.X:
+					x = getIntValueOf(reader);
+					break;
+				case ElementNames.Y:
+					y = getIntValueOf(reader);
+					break;
+				case ElementNames.RACE_ID:
+					parsed.raceID = ValuePool.integer(Race.parseID(getStringValueOf(reader)));
+					break;
+				case ElementNames.GATE_CONNECTIONS:
+					parseGateConnections(reader, names, sector);
+					break;
+				case ElementNames.STATIONS:
+					parseStations(reader, names, sector);
+					break;
+				default:
+					skipElement(reader);
+			}
+		}
+		parsed.position = values.gridPos(x, y);
+		parsed.sector = sector;
+		return parsed;
 	}
 	
-	private void parseStations(Sector sector, Node item) {
-		NodeList children = item.getChildNodes();
-		
-		for (int i = 0; i < children.getLength(); i++) {
-			SpaceStation station = new SpaceStation();
-			Node child = children.item(i);
-			parseStation(station, child);
-			sector.addSpaceStation(station);
+	private void parseStations(XMLStreamReader reader, ElementNames names, Sector sector) throws XMLStreamException {
+		while (nextTag(reader) == START_ELEMENT) {
+			if (names.resolve(reader.getLocalName()) == ElementNames.STATION) {
+				sector.addSpaceStation(parseStation(reader, names));
+			} else {
+				skipElement(reader);
+			}
+		}
+	}
+	
+	private SpaceStation parseStation(XMLStreamReader reader, ElementNames names) throws XMLStreamException {
+		SpaceStation station = new SpaceStation();
+		while (nextTag(reader) == START_ELEMENT) {
+			switch (names.resolve(reader.getLocalName())) {
+				case ElementNames.NAME:
+					station.setName(values.string(getStringValueOf(reader)));
+					break;
+				case ElementNames.X:
+					station.setPosX(getIntValueOf(reader));
+					break;
+				case ElementNames.Y:
+					station.setPosY(getIntValueOf(reader));
+					break;
+				case ElementNames.Z:
+					station.setPosZ(getIntValueOf(reader));
+					break;
+				case ElementNames.TYPE:
+					station.setType(values.string(getStringValueOf(reader)));
+					break;
+				default:
+					skipElement(reader);
+			}
 		}
+		return station;
 	}
 	
-	private void parseStation(SpaceStation station, Node item) {
-		NodeList children = item.getChildNodes();
-		String clazz = "";
-		for (int i = 0; i < children.getLength(); i++) {
-			Node child = children.item(i);
-			if (child.getNodeName().equalsIgnoreCase("Name")) {
-				station.setName(getStringValueOf(child));
-			} else if (child.getNodeName().equalsIgnoreCase("X")) {
-				station.setPosX(getIntValueOf(child));
-			} else if (child.getNodeName().equalsIgnoreCase("Y")) {
-				station.setPosY(getIntValueOf(child));
-			} else if (child.getNodeName().equalsIgnoreCase("Z")) {
-				station.setPosZ(getIntValueOf(child));
-			} else if (child.getNodeName().equalsIgnoreCase("Type")) {
-				station.setType(getStringValueOf(child));
-			} else if (child.getNodeName().equalsIgnoreCase("StationClass")) {
-				clazz = getStringValueOf(child);
+	private void parseGateConnections(XMLStreamReader reader, ElementNames names, Sector sector) throws XMLStreamException {
+		while (nextTag(reader) == START_ELEMENT) {
+			if (names.resolve(reader.getLocalName()) == ElementNames.SECTOR) {
+				parseGateConnection(reader, names, sector);
+			} else {
+				skipElement(reader);
 			}
 		}
-		if (!station.getName().trim().equals("")) {
-			System.out.println(station.getName() + "\t: " + clazz);
+	}
+	
+	private void parseGateConnection(XMLStreamReader reader, ElementNames names, Sector sector) throws XMLStreamException {
+		String name = "";
+		int x = -1;
+		int y = -1;
+		
+		while (nextTag(reader) == START_ELEMENT) {
+			switch (names.resolve(reader.getLocalName())) {
+				case ElementNames.NAME:
+					name = getStringValueOf(reader);
+					break;
+				case ElementNames.X:
+					x = getIntValueOf(reader);
+					break;
+				case ElementNames.Y:
+					y = getIntValueOf(reader);
+					break;
+				default:
+					skipElement(reader);
+			}
+		}
+		
+		WarpGate wg = null;
+		if (x != -1 || y != -1) {
+			wg = values.warpGate(x, y);
+		}
+		
+		if (name.equalsIgnoreCase("NorthGate")) {
+			sector.setWarpGate(WarpGateConstants.WARPGATE_NORTH, wg);
+		} else if (name.equalsIgnoreCase("SouthGate")) {
+			sector.setWarpGate(WarpGateConstants.WARPGATE_SOUTH, wg);
+		} else if (name.equalsIgnoreCase("EastGate")) {
+			sector.setWarpGate(WarpGateConstants.WARPGATE_EAST, wg);
+		} else if (name.equalsIgnoreCase("WestGate")) {
+			sector.setWarpGate(WarpGateConstants.WARPGATE_WEST, wg);
 		}
 	}
 	
-	private void parseGateConnections(Sector sector, Node item) {
+	/**
+	 * Sector with the position and race ID read from the export, the race is resolved after all races are known.
+	 */
+	private static class ParsedSector {
 		
-		NodeList children = item.getChildNodes();
-		for (int i = 0; i < children.getLength(); i++) {
-			if (children.item(i).getNodeName().equalsIgnoreCase("Sector")) {
-				if (children.item(i).getNodeName().equalsIgnoreCase("Sector")) {
-					String name = "";
-					GridPos gridPos = new GridPos(-1, -1);
-					
-					NodeList sectorNode = children.item(i).getChildNodes();
-					for (int j = 0; j < sectorNode.getLength(); j++) {
-						if (sectorNode.item(j).getNodeName().equalsIgnoreCase("Name")) {
-							name = sectorNode.item(j).getFirstChild().getNodeValue();
-						} else if (sectorNode.item(j).getNodeName().equalsIgnoreCase("X")) {
-							gridPos.setGridX(Integer.parseInt(sectorNode.item(j).getFirstChild().getNodeValue()));
-						} else if (sectorNode.item(j).getNodeName().equalsIgnoreCase("Y")) {
-							gridPos.setGridY(Integer.parseInt(sectorNode.item(j).getFirstChild().getNodeValue()));
-						}
-					}
-					WarpGate wg = null;
-					if (!gridPos.equals(new GridPos())) {
-						wg = new WarpGate(gridPos);
-					}
-					
-					if (name.equalsIgnoreCase("NorthGate")) {
-						sector.setWarpGate(WarpGateConstants.WARPGATE_NORTH, wg);
-					} else if (name.equalsIgnoreCase("SouthGate")) {
-						sector.setWarpGate(WarpGateConstants.WARPGATE_SOUTH, wg);
-					} else if (name.equalsIgnoreCase("EastGate")) {
-						sector.setWarpGate(WarpGateConstants.WARPGATE_EAST, wg);
-					} else if (name.equalsIgnoreCase("WestGate")) {
-						sector.setWarpGate(WarpGateConstants.WARPGATE_WEST, wg);
+		private GridPos position;
+		private Sector sector;
+		private Integer raceID;
+	}
+	
+	private class DecodeTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		private final ByteBuffer content;
+		private final SectorRanges ranges;
+		private final ParsedSector[] sectors;
+		private final int from;
+		private final int to;
+		
+		public DecodeTask(ByteBuffer content, SectorRanges ranges, ParsedSector[] sectors, int from, int to) {
+			this.content = content;
+			this.ranges = ranges;
+			this.sectors = sectors;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from <= SECTORS_PER_TASK) {
+				try {
+					decode();
+				} catch (XMLStreamException e) {
+					throw new IllegalStateException(e);
+				}
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new DecodeTask(content, ranges, sectors, from, middle), new DecodeTask(content, ranges, sectors, middle, to));
+			}
+		}
+		
+		/**
+		 * Reads the sectors from..to as children of a map element, so the sequential code can be used.
+		 */
+		private void decode() throws XMLStreamException {
+			if (from == to) {
+				return;
+			}
+			InputStream in = new SequenceInputStream(new ByteArrayInputStream(MAP_START), new SequenceInputStream(slice(content,
+					ranges.getStart(from), ranges.getEnd(to - 1)), new ByteArrayInputStream(MAP_END)));
+			XMLStreamReader reader = createReader(in, "UTF-8");
+			ElementNames names = new ElementNames();
+			try {
+				nextTag(reader); // Map
+				int index = from;
+				while (nextTag(reader) == START_ELEMENT) {
+					if (index < to && names.resolve(reader.getLocalName()) == ElementNames.SECTOR) {
+						checkCancelled();
+						sectors[index++] = parseSector(reader, names);
+					} else {
+						skipElement(reader);
 					}
-					
 				}
+				if (index != to) {
+					throw new XMLStreamException("Expected " + (to - from) + " sectors at " + ranges.getStart(from) + ", found " + (index - from));
+				}
+			} finally {
+				reader.close();
 			}
 		}
 	}
@@ -0,0 +1,284 @@
+
+package de.ncm.x3.iam.parser.xml;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map.Entry;
+
+import de.ncm.jgoodies.model.HashMapModel;
+import de.ncm.x3.iam.data.universe.GridPos;
+import de.ncm.x3.iam.data.universe.Race;
+import de.ncm.x3.iam.data.universe.Sector;
+import de.ncm.x3.iam.data.universe.SpaceStation;
+import de.ncm.x3.iam.data.universe.UniverseMap;
+import de.ncm.x3.iam.data.universe.WarpGate;
+import de.ncm.x3.iam.parser.ValuePool;
+
+/**
+ * Binary copy of a parsed {@link UniverseMap} together with the length, modification time and checksum of the export it was parsed from.
+ * <p>
+ * Layout (big endian): magic, version, the source information, the string table with all sector, race, station and type names, the races, the
+ * sectors and finally the checksum of everything before. Names are stored as index into the string table. The file is read into the heap: a
+ * mapping would keep it open, and on Windows the next write could not replace it.
+ */
+public class UniverseMapSnapshot {
+	
+	static final int MAGIC = 0x58334d53; // "X3MS"
+	static final short VERSION = 1;
+	private static final int HEADER_LENGTH = 4 + 2 + 8 + 8 + 8;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final int NO_RACE = -1;
+	
+	private final UniverseMap map;
+	private final int sourceLength;
+	private final long sourceModified;
+	private final long sourceChecksum;
+	
+	public UniverseMapSnapshot(UniverseMap map, int sourceLength, long sourceModified, long sourceChecksum) {
+		this.map = map;
+		this.sourceLength = sourceLength;
+		this.sourceModified = sourceModified;
+		this.sourceChecksum = sourceChecksum;
+	}
+	
+	public UniverseMap getMap() {
+		return map;
+	}
+	
+	public int getSourceLength() {
+		return sourceLength;
+	}
+	
+	public long getSourceModified() {
+		return sourceModified;
+	}
+	
+	public long getSourceChecksum() {
+		return sourceChecksum;
+	}
+	
+	/**
+	 * Writes the snapshot to a temporary file first and moves it over the given file afterwards, so a crash never leaves a half written snapshot.
+	 */
+	public void write(File file) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		out.writeLong(sourceLength);
+		out.writeLong(sourceModified);
+		out.writeLong(sourceChecksum);
+		
+		HashMap<String, Integer> strings = new HashMap<String, Integer>();
+		ArrayList<String> table = new ArrayList<String>();
+		if (map.getRaces() != null) {
+			for (Race race : map.getRaces().values()) {
+				index(race.getName(), strings, table);
+			}
+		}
+		for (Sector sector : map.getSectors().values()) {
+			index(sector.getName(), strings, table);
+			if (sector.getRace() != null) {
+				index(sector.getRace().getName(), strings, table);
+			}
+			for (SpaceStation station : sector.getSpaceStations()) {
+				index(station.getName(), strings, table);
+				index(station.getType(), strings, table);
+			}
+		}
+		out.writeInt(table.size());
+		for (String string : table) {
+			byte[] encoded = string.getBytes(UTF8);
+			out.writeInt(encoded.length);
+			out.write(encoded);
+		}
+		
+		if (map.getRaces() == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(map.getRaces().size());
+			for (Entry<Integer, Race> entry : map.getRaces().entrySet()) {
+				out.writeInt(entry.getKey());
+				out.writeInt(strings.get(entry.getValue().getName()));
+			}
+		}
+		
+		out.writeInt(map.getSectors().size());
+		for (Entry<GridPos, Sector> entry : map.getSectors().entrySet()) {
+			Sector sector = entry.getValue();
+			out.writeInt(entry.getKey().getGridX());
+			out.writeInt(entry.getKey().getGridY());
+			out.writeInt(strings.get(sector.getName()));
+			Race race = sector.getRace();
+			if (race == null) {
+				out.writeInt(NO_RACE);
+			} else {
+				out.writeInt(strings.get(race.getName()));
+				out.writeInt(race.getId());
+			}
+			
+			WarpGate[] gates = sector.getWarpGates();
+			int mask = 0;
+			for (int i = 0; i < gates.length; i++) {
+				if (gates[i] != null && gates[i].getTargetGridPos() != null) {
+					mask |= 1 << i;
+				}
+			}
+			out.writeByte(mask);
+			for (int i = 0; i < gates.length; i++) {
+				if ((mask & 1 << i) != 0) {
+					out.writeInt(gates[i].getTargetGridPos().getGridX());
+					out.writeInt(gates[i].getTargetGridPos().getGridY());
+				}
+			}
+			
+			out.writeInt(sector.getSpaceStations().size());
+			for (SpaceStation station : sector.getSpaceStations()) {
+				out.writeInt(strings.get(station.getType()));
+				out.writeInt(strings.get(station.getName()));
+				out.writeInt(station.getPosX());
+				out.writeInt(station.getPosY());
+				out.writeInt(station.getPosZ());
+			}
+		}
+		out.flush();
+		ByteBuffer content = ByteBuffer.wrap(bytes.toByteArray());
+		out.writeLong(XMLParser.checksum(content));
+		out.close();
+		
+		File tmp = new File(file.getPath() + ".tmp");
+		FileOutputStream fileOut = new FileOutputStream(tmp);
+		try {
+			bytes.writeTo(fileOut);
+		} finally {
+			fileOut.close();
+		}
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+	
+	private static void index(String string, HashMap<String, Integer> strings, ArrayList<String> table) {
+		if (!strings.containsKey(string)) {
+			strings.put(string, table.size());
+			table.add(string);
+		}
+	}
+	
+	/**
+	 * Reads the file and decodes the snapshot.
+	 *
+	 * @throws IOException If the file can not be read, is of another version or is corrupt
+	 */
+	public static UniverseMapSnapshot read(File file) throws IOException {
+		return read(file, ValuePool.get());
+	}
+	
+	/**
+	 * Reads a snapshot, taking the values from the given pool.
+	 */
+	public static UniverseMapSnapshot read(File file, ValuePool pool) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			if (channel.size() < HEADER_LENGTH + 8 || channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Invalid snapshot size " + channel.size());
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) == -1) {
+					throw new IOException("Snapshot truncated while reading");
+				}
+			}
+			buffer.flip();
+			return read(buffer, pool);
+		} finally {
+			in.close();
+		}
+	}
+	
+	static UniverseMapSnapshot read(ByteBuffer buffer, ValuePool pool) throws IOException {
+		if (buffer.getInt() != MAGIC) {
+			throw new IOException("Not a snapshot");
+		}
+		short version = buffer.getShort();
+		if (version != VERSION) {
+			throw new IOException("Unsupported snapshot version " + version);
+		}
+		ByteBuffer content = buffer.duplicate();
+		content.position(0);
+		content.limit(buffer.limit() - 8);
+		if (XMLParser.checksum(content) != buffer.getLong(buffer.limit() - 8)) {
+			throw new IOException("Snapshot checksum mismatch");
+		}
+		
+		try {
+			int sourceLength = (int) buffer.getLong();
+			long sourceModified = buffer.getLong();
+			long sourceChecksum = buffer.getLong();
+			
+			String[] table = new String[buffer.getInt()];
+			for (int i = 0; i < table.length; i++) {
+				byte[] encoded = new byte[buffer.getInt()];
+				buffer.get(encoded);
+				table[i] = pool.string(new String(encoded, UTF8));
+			}
+			
+			UniverseMap map = new UniverseMap();
+			int raceCount = buffer.getInt();
+			if (raceCount >= 0) {
+				HashMapModel<Integer, Race> races = new HashMapModel<Integer, Race>();
+				for (int i = 0; i < raceCount; i++) {
+					Race race = pool.race(buffer.getInt(), table[buffer.getInt()]);
+					races.put(race.getId(), race);
+				}
+				map.setRaces(races);
+			}
+			
+			int sectorCount = buffer.getInt();
+			for (int i = 0; i < sectorCount; i++) {
+				GridPos pos = pool.gridPos(buffer.getInt(), buffer.getInt());
+				Sector sector = new Sector();
+				sector.setName(table[buffer.getInt()]);
+				int raceName = buffer.getInt();
+				if (raceName != NO_RACE) {
+					int id = buffer.getInt();
+					Race race = map.getRaces() == null ? null : map.getRaces().get(id);
+					sector.setRace(race != null ? race : pool.race(id, table[raceName]));
+				}
+				
+				int mask = buffer.get();
+				for (byte gate = 0; gate < sector.getWarpGates().length; gate++) {
+					if ((mask & 1 << gate) != 0) {
+						sector.setWarpGate(gate, pool.warpGate(buffer.getInt(), buffer.getInt()));
+					}
+				}
+				
+				int stationCount = buffer.getInt();
+				for (int j = 0; j < stationCount; j++) {
+					String type = table[buffer.getInt()];
+					String name = table[buffer.getInt()];
+					int x = buffer.getInt();
+					int y = buffer.getInt();
+					int z = buffer.getInt();
+					sector.addSpaceStation(new SpaceStation(type, z, y, x, name));
+				}
+				map.putSector(pos, sector);
+			}
+			return new UniverseMapSnapshot(map, sourceLength, sourceModified, sourceChecksum);
+		} catch (RuntimeException e) { // Buffer underflow or index out of the string table
+			throw new IOException("Corrupt snapshot", e);
+		}
+	}
+	
+}
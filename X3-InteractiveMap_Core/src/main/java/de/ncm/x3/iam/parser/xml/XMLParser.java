@@ -3,35 +3,66 @@ package de.ncm.x3.iam.parser.xml;
 
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CancellationException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import org.apache.log4j.Logger;
 import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
 import de.ncm.x3.iam.parser.ParseEvent;
 import de.ncm.x3.iam.parser.Parser;
+import de.ncm.x3.iam.parser.metrics.ParserMetrics;
 
+/**
+ * Base class for the parsers of the XML log files written by the game scripts. Takes care of the file handling and the change detection, the actual
+ * reading of the document is done by the {@link DOMParser} or the {@link StAXParser} engine.
+ * <p>
+ * The game rewrites the log files while they may be read, so a file is only parsed if its size and modification time did not change within
+ * {@link #getSettleTime()} and it ends with the closing root tag. Files with the same content as the last parsed one are skipped.
+ * The file is read through a {@link FileChannel} into a direct buffer, which is kept for the next parse. After a failed
+ * attempt, including a runtime exception of the engine, the file is not touched again before a backoff time, which doubles with every failure up to
+ * {@link #MAX_BACKOFF}.
+ * <p>
+ * Only the newest content is published: a parse is cancelled if the file changes while it runs, either by {@link #checkCancelled()} which the
+ * engines call between the sectors, or at the latest before the result is handed to the listeners. The file is then parsed again at once. As a file
+ * which changes all the time must not starve its listeners, after {@link #MAX_CANCELLATIONS} cancellations in a row the parse runs to the end.
+ */
 public abstract class XMLParser<E> extends Parser {
 	
-	private DocumentBuilder dBuilder;
-	private DocumentBuilderFactory dbFactory;
+	public static final long MIN_BACKOFF = 100;
+	public static final long MAX_BACKOFF = 5000;
+	public static final int MAX_CANCELLATIONS = 3;
+	private static final long OVERTAKEN_CHECK_INTERVAL = 10 * 1000000; // ns
+	private static final byte[] CLOSING_TAG = "</Data>".getBytes();
+	
+	private static Logger logger = Logger.getLogger(XMLParser.class);
 	private long lastModified = -1;
 	private File file;
+	private long settleTime = 20;
+	
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(8192);
+	private long lastChecksum = -1;
+	private int lastLength = -1;
+	
+	private int failures = 0;
+	private long nextAttempt = 0;
+	
+	private volatile boolean cancelRequested = false;
+	private volatile boolean parsing = false;
+	private volatile long nextOvertakenCheck = 0;
+	private long readModified;
+	private long readLength;
+	private int cancellations = 0;
+	private long buildTime;
 	
 	public XMLParser(File logFile) {
 		this.file = logFile;
-		dbFactory = DocumentBuilderFactory.newInstance();
-		try {
-			dBuilder = dbFactory.newDocumentBuilder();
-		} catch (ParserConfigurationException e) {
-			e.printStackTrace();
-		}
 	}
 	
 	public static String getStringValueOf(Node n) {
@@ -60,25 +91,259 @@ public abstract class XMLParser<E> extends Parser {
 	
 	@Override
 	public final void parse() {
+		File file = this.file;
 		long lastModified = file.lastModified();
+		long length = file.length();
+		if (settleTime > 0) {
+			try {
+				Thread.sleep(settleTime);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			if (file.lastModified() != lastModified || file.length() != length) {
+				retry("File is still written");
+				return;
+			}
+		}
+		
+		readModified = lastModified;
+		readLength = length;
+		cancelRequested = false;
+		long start = System.nanoTime();
+		try {
+			readFile(file);
+		} catch (IOException e) {
+			fail(e);
+			return;
+		}
+		if (!isComplete(buffer)) {
+			retry("File is incomplete");
+			return;
+		}
+		
+		int read = buffer.remaining();
+		long checksum = checksum(buffer);
+		getMetrics().recordRead(System.nanoTime() - start, read);
+		if (read == lastLength && checksum == lastChecksum) {
+			getMetrics().skipped();
+			logger.debug("Content of " + file.getName() + " unchanged - skipping");
+			succeed(lastModified);
+			return;
+		}
+		
 		fireParseStartEvent(new ParseEvent(this, null));
-		E ret = null;
 		try {
-			Document doc = dBuilder.parse(file);
-			doc.getDocumentElement().normalize();
-			Element rootNode = doc.getDocumentElement();
-			ret = parseXML(rootNode);
+			buildTime = 0;
+			start = System.nanoTime();
+			E ret;
+			parsing = true;
+			try {
+				ret = parseDocument(buffer);
+			} finally {
+				parsing = false;
+			}
+			getMetrics().recordParse(System.nanoTime() - start - buildTime);
+			if (buildTime > 0) {
+				getMetrics().recordBuild(buildTime);
+			}
+			if (cancellations < MAX_CANCELLATIONS && isOvertaken()) {
+				throw new CancellationException(file.getName() + " changed while parsing");
+			}
+			cancellations = 0;
+			getMetrics().parsed();
+			lastLength = read;
+			lastChecksum = checksum;
+			succeed(lastModified);
+			parsed(ret, read, lastModified, checksum);
 			fireParseEndEvent(new ParseEvent(this, ret));
-			this.lastModified = lastModified;
 		} catch (SAXException e) {
-			e.printStackTrace();
-			
+			fail(e);
+		} catch (XMLStreamException e) {
+			fail(e);
 		} catch (IOException e) {
-			e.printStackTrace();
+			fail(e);
+		} catch (CancellationException e) {
+			cancel(e);
+		} catch (RuntimeException e) {
+			fail(e); // E.g. a missing or malformed value of a half written file
 		}
 		
 	}
 	
+	/**
+	 * Asks a running parse to stop at the next {@link #checkCancelled()}.
+	 */
+	@Override
+	public void cancel() {
+		cancelRequested = true;
+	}
+	
+	/**
+	 * Called by the engines between bigger steps of a parse, may be called from several threads.
+	 * 
+	 * @throws CancellationException If {@link #cancel()} was called or the file changed since it was read
+	 */
+	protected void checkCancelled() {
+		if (!parsing) { // Document not read by parse(), e.g. in a test
+			return;
+		}
+		if (cancellations >= MAX_CANCELLATIONS) {
+			return;
+		}
+		if (cancelRequested) {
+			throw new CancellationException("Parse of " + file.getName() + " cancelled");
+		}
+		long now = System.nanoTime();
+		if (now >= nextOvertakenCheck) {
+			nextOvertakenCheck = now + OVERTAKEN_CHECK_INTERVAL;
+			if (isOvertaken()) {
+				cancelRequested = true; // Stop the other threads of the parse, too
+				throw new CancellationException(file.getName() + " changed while parsing");
+			}
+		}
+	}
+	
+	/**
+	 * @return <code>true</code> if the file was modified since it was read by the running parse
+	 */
+	private boolean isOvertaken() {
+		return file.lastModified() != readModified || file.length() != readLength;
+	}
+	
+	/**
+	 * Reads the whole file into the buffer, which is reused between the parses. Afterwards the buffer is ready to be read from its position to its
+	 * limit.
+	 */
+	private void readFile(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if (size >= buffer.capacity()) {
+				buffer = ByteBuffer.allocateDirect((int) Math.min(Integer.MAX_VALUE, size + size / 2));
+			}
+			buffer.clear();
+			while (channel.read(buffer) != -1) {
+				if (!buffer.hasRemaining()) { // File grew while reading
+					ByteBuffer newBuffer = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+					buffer.flip();
+					newBuffer.put(buffer);
+					buffer = newBuffer;
+				}
+			}
+			buffer.flip();
+		} finally {
+			in.close();
+		}
+	}
+	
+	/**
+	 * Checks if the document ends with the closing root tag, ignoring trailing whitespace.
+	 */
+	static boolean isComplete(ByteBuffer buffer) {
+		int end = buffer.limit();
+		while (end > buffer.position() && buffer.get(end - 1) <= ' ' && buffer.get(end - 1) >= 0) {
+			end--;
+		}
+		int start = end - CLOSING_TAG.length;
+		if (start < buffer.position()) {
+			return false;
+		}
+		for (int i = 0; i < CLOSING_TAG.length; i++) {
+			if (buffer.get(start + i) != CLOSING_TAG[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * 64 bit FNV-1a hash of the content, does not move the position of the buffer.
+	 */
+	static long checksum(ByteBuffer buffer) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = buffer.position(); i < buffer.limit(); i++) {
+			hash ^= buffer.get(i) & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+	
+	/**
+	 * @return Index of the first occurrence of the character from i on, limit if there is none
+	 */
+	static int indexOf(ByteBuffer content, char c, int i, int limit) {
+		while (i < limit && content.get(i) != c) {
+			i++;
+		}
+		return i;
+	}
+	
+	/**
+	 * @return End of the tag name starting at i
+	 */
+	static int scanName(ByteBuffer content, int i, int limit) {
+		while (i < limit) {
+			byte b = content.get(i);
+			if (b == '>' || b == '/' || b <= ' ' && b >= 0) {
+				return i;
+			}
+			i++;
+		}
+		return limit;
+	}
+	
+	/**
+	 * Case insensitive compare of the tag name in the buffer with the given lower case name.
+	 */
+	static boolean matchesName(ByteBuffer content, int start, int end, byte[] name) {
+		if (end - start != name.length) {
+			return false;
+		}
+		for (int i = 0; i < name.length; i++) {
+			byte b = content.get(start + i);
+			if (b >= 'A' && b <= 'Z') {
+				b += 'a' - 'A';
+			}
+			if (b != name[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private void succeed(long lastModified) {
+		this.lastModified = lastModified;
+		failures = 0;
+		nextAttempt = 0;
+	}
+	
+	private void retry(String reason) {
+		getMetrics().retried();
+		long backoff = backoff();
+		logger.debug(reason + ": " + file.getName() + " - retry in " + backoff + " ms");
+	}
+	
+	private void cancel(CancellationException e) {
+		getMetrics().cancelled();
+		cancellations++;
+		logger.debug(e.getMessage() + " - parsing again");
+	}
+	
+	private void fail(Exception e) {
+		getMetrics().failed();
+		long backoff = backoff();
+		logger.warn("Parsing " + file.getName() + " failed - retry in " + backoff + " ms", e);
+	}
+	
+	private long backoff() {
+		long backoff = Math.min(MIN_BACKOFF << Math.min(failures, 16), MAX_BACKOFF);
+		failures++;
+		nextAttempt = System.currentTimeMillis() + backoff;
+		return backoff;
+	}
+	
 	public boolean isModified() {
 		long lastModified = file.lastModified();
 		if (lastModified != this.lastModified) {
@@ -87,18 +352,99 @@ public abstract class XMLParser<E> extends Parser {
 		return false;
 	}
 	
-	protected abstract E parseXML(Element rootElement);
+	/**
+	 * Builds the parsed value out of the document. The buffer holds the whole file from its position to its limit and is reused after this call.
+	 */
+	protected abstract E parseDocument(ByteBuffer content) throws IOException, SAXException, XMLStreamException;
+	
+	/**
+	 * Lets an engine report the part of {@link #parseDocument(ByteBuffer)} spent on building the model out of already parsed values, for the
+	 * {@link ParserMetrics}. Only to be called by the thread of the parse.
+	 */
+	protected void addBuildTime(long nanos) {
+		buildTime += nanos;
+	}
 	
+	/**
+	 * Called after a successful parse, before the listeners are informed. Does nothing by default.
+	 * 
+	 * @param length Length of the parsed file
+	 * @param lastModified Modification time of the parsed file
+	 * @param checksum Checksum of the content as calculated by {@link #checksum(ByteBuffer)}
+	 */
+	protected void parsed(E value, int length, long lastModified, long checksum) {}
+	
+	/**
+	 * Takes over the state of an earlier parse, e.g. from a cache. The file is not parsed again until it is modified, and not at all if its content
+	 * did not change.
+	 * 
+	 * @see #parsed(Object, int, long, long)
+	 */
+	protected void restoreState(int length, long lastModified, long checksum) {
+		this.lastLength = length;
+		this.lastChecksum = checksum;
+		if (file.length() == length) {
+			this.lastModified = lastModified;
+		}
+	}
+	
+	@Override
 	public File getFile() {
 		return file;
 	}
 	
 	public void setFile(File file) {
 		this.file = file;
+		this.lastModified = -1;
+		this.lastLength = -1;
+		this.failures = 0;
+		this.nextAttempt = 0;
+	}
+	
+	public long getSettleTime() {
+		return settleTime;
+	}
+	
+	/**
+	 * @param settleTime Time in ms the size and modification time of the file have to stay the same before it is read, 0 to read it at once
+	 */
+	public void setSettleTime(long settleTime) {
+		this.settleTime = settleTime;
+	}
+	
+	/**
+	 * @return Number of parses skipped as the content did not change
+	 */
+	public long getSkippedCount() {
+		return getMetrics().getSkippedCount();
+	}
+	
+	/**
+	 * @return Number of parses postponed as the file was still written or incomplete
+	 */
+	public long getRetriedCount() {
+		return getMetrics().getRetriedCount();
+	}
+	
+	/**
+	 * @return Number of parses cancelled as the file changed meanwhile or on request
+	 */
+	public long getCancelledCount() {
+		return getMetrics().getCancelledCount();
+	}
+	
+	/**
+	 * @return Number of parses failed with an error
+	 */
+	public long getFailedCount() {
+		return getMetrics().getFailedCount();
 	}
 	
 	@Override
 	public boolean needUpdate(long timeGone) {
+		if (System.currentTimeMillis() < nextAttempt) {
+			return false;
+		}
 		if (!file.exists()) {
 			return false;
 		}
@@ -0,0 +1,68 @@
+package de.ncm.x3.iam.search;
+
+
+import de.ncm.x3.iam.data.universe.GridPos;
+
+/**
+ * A sector, station or race found by the {@link SearchIndex}.
+ */
+public class SearchHit {
+	
+	public static final int KIND_SECTOR = 0;
+	public static final int KIND_STATION = 1;
+	public static final int KIND_RACE = 2;
+	
+	private final int kind;
+	private final String name;
+	private final GridPos gridPos;
+	private final Object value;
+	private final int score;
+	
+	public SearchHit(int kind, String name, GridPos gridPos, Object value, int score) {
+		this.kind = kind;
+		this.name = name;
+		this.gridPos = gridPos;
+		this.value = value;
+		this.score = score;
+	}
+	
+	/**
+	 * @return {@link #KIND_SECTOR}, {@link #KIND_STATION} or {@link #KIND_RACE}
+	 */
+	public int getKind() {
+		return kind;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * @return The sector, or the sector of the station. <code>null</code> for races.
+	 */
+	public GridPos getGridPos() {
+		return gridPos;
+	}
+	
+	/**
+	 * @return The {@link de.ncm.x3.iam.data.universe.Sector}, {@link de.ncm.x3.iam.data.universe.SpaceStation} or
+	 *         {@link de.ncm.x3.iam.data.universe.Race}
+	 */
+	public Object getValue() {
+		return value;
+	}
+	
+	/**
+	 * @return How well the name matches, higher is better: whole name, start of the name, start of a word, anywhere in it, the type of a
+	 *         station and last similar names
+	 */
+	public int getScore() {
+		return score;
+	}
+	
+	@Override
+	public String toString() {
+		return "SearchHit [kind=" + kind + ", name=" + name + ", gridPos=" + gridPos + ", score=" + score + "]";
+	}
+	
+}
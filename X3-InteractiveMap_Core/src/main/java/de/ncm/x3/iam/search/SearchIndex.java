@@ -0,0 +1,473 @@
+package de.ncm.x3.iam.search;
+
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import de.ncm.jgoodies.common.map.MapChangeEvent;
+import de.ncm.jgoodies.common.map.MapChangeListener;
+import de.ncm.jgoodies.model.HashMapModel;
+import de.ncm.x3.iam.data.universe.GridPos;
+import de.ncm.x3.iam.data.universe.Race;
+import de.ncm.x3.iam.data.universe.Sector;
+import de.ncm.x3.iam.data.universe.SpaceStation;
+import de.ncm.x3.iam.data.universe.UniverseMap;
+
+/**
+ * Search over the names of the sectors, stations and races of a {@link UniverseMap}, with the station types as keywords.
+ * <p>
+ * Names are lower cased with everything but letters and digits as blanks, and indexed by their trigrams, padded with a blank at both ends.
+ * A query is split into trigrams the same way, but only padded in front so it matches while it is typed. Names sharing at least half of the
+ * trigrams of the query are ranked by {@link SearchHit#getScore()}, so names with a typo are still found. The first letter of every word is
+ * indexed as well, for queries of one letter.
+ * <p>
+ * The index listens to the sector map, the station lists and names of the sectors and to the races of the map, and only indexes what
+ * changed. Changes through {@link de.ncm.x3.iam.data.universe.SectorMap#clear()} are not noticed.
+ */
+public class SearchIndex {
+	
+	private static final int SCORE_EQUAL = 1000;
+	private static final int SCORE_PREFIX = 800;
+	private static final int SCORE_WORD = 600;
+	private static final int SCORE_CONTAINED = 400;
+	private static final int SCORE_KEYWORD = 350;
+	private static final int SCORE_SIMILAR = 300;
+	
+	private final UniverseMap map;
+	private final ArrayList<Entry> entries = new ArrayList<Entry>();
+	private final IntList freeIds = new IntList();
+	private final HashMap<Long, IntList> postings = new HashMap<Long, IntList>();
+	private final IdentityHashMap<Sector, SectorEntries> sectors = new IdentityHashMap<Sector, SectorEntries>();
+	private final IdentityHashMap<Race, Integer> races = new IdentityHashMap<Race, Integer>();
+	private HashMapModel<Integer, Race> raceMap;
+	private int[] counts = new int[0];
+	private final IntList touched = new IntList();
+	private final SectorMapListener sectorMapListener = new SectorMapListener();
+	private final RaceMapListener raceMapListener = new RaceMapListener();
+	
+	public SearchIndex(UniverseMap map) {
+		this.map = map;
+		synchronized (this) {
+			for (Map.Entry<GridPos, Sector> entry : map.getSectors().entrySet()) {
+				addSector(entry.getKey(), entry.getValue());
+			}
+			setRaceMap(map.getRaces());
+		}
+		map.getSectors().addMapChangeListener(sectorMapListener);
+		map.addPropertyChangeListener(UniverseMap.UNIVERSEMAP_UPDATE, new PropertyChangeListener() {
+			
+			@Override
+			public void propertyChange(PropertyChangeEvent evt) {
+				checkRaceMap();
+			}
+		});
+	}
+	
+	/**
+	 * @return Number of indexed names
+	 */
+	public synchronized int size() {
+		return entries.size() - freeIds.size;
+	}
+	
+	/**
+	 * @return The best <code>limit</code> hits for the query, best first
+	 */
+	public synchronized List<SearchHit> search(String query, int limit) {
+		checkRaceMap();
+		String text = normalize(query);
+		if (text.isEmpty() || limit <= 0) {
+			return Collections.emptyList();
+		}
+		long[] grams = text.length() == 1 ? new long[] { getWordStart(text, 0) } : getGrams(" " + text, null, false);
+		if (counts.length < entries.size()) {
+			counts = new int[entries.size() * 2];
+		}
+		for (long gram : grams) {
+			IntList posting = postings.get(gram);
+			if (posting != null) {
+				for (int i = 0; i < posting.size; i++) {
+					int id = posting.values[i];
+					if (counts[id]++ == 0) {
+						touched.add(id);
+					}
+				}
+			}
+		}
+		// Only the best hits are kept while scoring, a single letter can match most names
+		int needed = (grams.length + 1) / 2;
+		String word = " " + text;
+		int[] bestIds = new int[limit];
+		int[] bestScores = new int[limit];
+		int bestCount = 0;
+		for (int i = 0; i < touched.size; i++) {
+			int id = touched.values[i];
+			int score = counts[id] >= needed ? getScore(entries.get(id), text, word, counts[id], grams.length) : 0;
+			counts[id] = 0;
+			if (score <= 0 || bestCount == limit && !isBetter(id, score, bestIds[limit - 1], bestScores[limit - 1])) {
+				continue;
+			}
+			int j = bestCount < limit ? bestCount++ : limit - 1;
+			while (j > 0 && isBetter(id, score, bestIds[j - 1], bestScores[j - 1])) {
+				bestIds[j] = bestIds[j - 1];
+				bestScores[j] = bestScores[j - 1];
+				j--;
+			}
+			bestIds[j] = id;
+			bestScores[j] = score;
+		}
+		touched.size = 0;
+		ArrayList<SearchHit> hits = new ArrayList<SearchHit>(bestCount);
+		for (int i = 0; i < bestCount; i++) {
+			Entry entry = entries.get(bestIds[i]);
+			hits.add(new SearchHit(entry.kind, entry.name, entry.gridPos, entry.value, bestScores[i]));
+		}
+		return hits;
+	}
+	
+	/**
+	 * Higher score first, then shorter names, then sectors before stations before races, then by name
+	 */
+	private boolean isBetter(int id1, int score1, int id2, int score2) {
+		if (score1 != score2) {
+			return score1 > score2;
+		}
+		Entry e1 = entries.get(id1);
+		Entry e2 = entries.get(id2);
+		if (e1.name.length() != e2.name.length()) {
+			return e1.name.length() < e2.name.length();
+		}
+		if (e1.kind != e2.kind) {
+			return e1.kind < e2.kind;
+		}
+		return e1.name.compareTo(e2.name) < 0;
+	}
+	
+	/**
+	 * @return The name lower cased, with every run of other characters than letters and digits as one blank
+	 */
+	static String normalize(String name) {
+		if (name == null) {
+			return "";
+		}
+		StringBuilder text = new StringBuilder(name.length());
+		boolean blank = true;
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (Character.isLetterOrDigit(c)) {
+				text.append(Character.toLowerCase(c));
+				blank = false;
+			} else if (!blank) {
+				text.append(' ');
+				blank = true;
+			}
+		}
+		if (blank && text.length() > 0) {
+			text.setLength(text.length() - 1);
+		}
+		return text.toString();
+	}
+	
+	/**
+	 * @return The different trigrams of the text, and of the keywords if given
+	 */
+	private static long[] getGrams(String text, String keywords, boolean wordStarts) {
+		HashSet<Long> grams = new HashSet<Long>();
+		addGrams(grams, text, wordStarts);
+		if (keywords != null) {
+			addGrams(grams, keywords, wordStarts);
+		}
+		long[] array = new long[grams.size()];
+		int i = 0;
+		for (Long gram : grams) {
+			array[i++] = gram;
+		}
+		return array;
+	}
+	
+	private static void addGrams(HashSet<Long> grams, String text, boolean wordStarts) {
+		for (int i = 0; i + 3 <= text.length(); i++) {
+			grams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+			if (wordStarts && text.charAt(i) == ' ') {
+				grams.add(getWordStart(text, i + 1));
+			}
+		}
+	}
+	
+	/**
+	 * @return The key of the letter at the index as the start of a word, as a trigram of a blank and the letter with no first character
+	 */
+	private static long getWordStart(String text, int index) {
+		return ((long) ' ' << 16) | text.charAt(index);
+	}
+	
+	/**
+	 * @param word The text with a blank in front
+	 * @return The score of the entry, 0 if it does not match
+	 */
+	private static int getScore(Entry entry, String text, String word, int shared, int queryGrams) {
+		if (entry.text.equals(text)) {
+			return SCORE_EQUAL;
+		} else if (entry.text.startsWith(text)) {
+			return SCORE_PREFIX;
+		} else if (entry.text.contains(word)) {
+			return SCORE_WORD;
+		} else if (entry.text.contains(text)) {
+			return SCORE_CONTAINED;
+		} else if (entry.keywords != null && (entry.keywords.startsWith(text) || entry.keywords.contains(word))) {
+			return SCORE_KEYWORD;
+		}
+		// Similarity of the trigram sets, the name has about one trigram per character
+		return SCORE_SIMILAR * shared / (queryGrams + entry.text.length() - shared);
+	}
+	
+	private int add(int kind, String name, String keywords, GridPos gridPos, Object value) {
+		Entry entry = new Entry(kind, name, keywords, gridPos, value);
+		int id;
+		if (freeIds.size > 0) {
+			id = freeIds.values[--freeIds.size];
+			entries.set(id, entry);
+		} else {
+			id = entries.size();
+			entries.add(entry);
+		}
+		for (long gram : entry.grams) {
+			IntList posting = postings.get(gram);
+			if (posting == null) {
+				posting = new IntList();
+				postings.put(gram, posting);
+			}
+			posting.add(id);
+		}
+		return id;
+	}
+	
+	private void remove(int id) {
+		Entry entry = entries.get(id);
+		for (long gram : entry.grams) {
+			IntList posting = postings.get(gram);
+			posting.remove(id);
+			if (posting.size == 0) {
+				postings.remove(gram);
+			}
+		}
+		entries.set(id, null);
+		freeIds.add(id);
+	}
+	
+	private void addSector(GridPos gridPos, Sector sector) {
+		SectorEntries sectorEntries = new SectorEntries(gridPos, sector);
+		sectors.put(sector, sectorEntries);
+		sectorEntries.addEntries();
+		sector.addPropertyChangeListener(sectorEntries);
+		sector.getSpaceStations().addListDataListener(sectorEntries);
+	}
+	
+	private void removeSector(Sector sector) {
+		SectorEntries sectorEntries = sectors.remove(sector);
+		if (sectorEntries != null) {
+			sectorEntries.removeEntries();
+			sector.removePropertyChangeListener(sectorEntries);
+			sector.getSpaceStations().removeListDataListener(sectorEntries);
+		}
+	}
+	
+	private synchronized void checkRaceMap() {
+		if (map.getRaces() != raceMap) {
+			setRaceMap(map.getRaces());
+		}
+	}
+	
+	private void setRaceMap(HashMapModel<Integer, Race> raceMap) {
+		if (this.raceMap != null) {
+			this.raceMap.removeMapChangeListener(raceMapListener);
+		}
+		for (Integer id : races.values()) {
+			remove(id);
+		}
+		races.clear();
+		this.raceMap = raceMap;
+		if (raceMap != null) {
+			for (Race race : raceMap.values()) {
+				addRace(race);
+			}
+			raceMap.addMapChangeListener(raceMapListener);
+		}
+	}
+	
+	private void addRace(Race race) {
+		if (race != null && !races.containsKey(race)) {
+			races.put(race, add(SearchHit.KIND_RACE, race.getName(), null, null, race));
+		}
+	}
+	
+	private void removeRace(Race race) {
+		Integer id = races.remove(race);
+		if (id != null) {
+			remove(id);
+		}
+	}
+	
+	/**
+	 * A name with its normalized form and trigrams
+	 */
+	private static class Entry {
+		
+		private final int kind;
+		private final String name;
+		private final String text;
+		private final String keywords;
+		private final GridPos gridPos;
+		private final Object value;
+		private final long[] grams;
+		
+		private Entry(int kind, String name, String keywords, GridPos gridPos, Object value) {
+			this.kind = kind;
+			this.name = name == null ? "" : name;
+			this.text = normalize(name);
+			this.keywords = keywords == null ? null : normalize(keywords);
+			this.gridPos = gridPos;
+			this.value = value;
+			this.grams = getGrams(" " + text + " ", this.keywords == null ? null : " " + this.keywords + " ", true);
+		}
+	}
+	
+	/**
+	 * The entries of a sector and its stations, indexed again when the name or the stations of the sector change
+	 */
+	private class SectorEntries implements PropertyChangeListener, ListDataListener {
+		
+		private final GridPos gridPos;
+		private final Sector sector;
+		private int sectorId = -1;
+		private String sectorName;
+		private final IntList stationIds = new IntList();
+		
+		private SectorEntries(GridPos gridPos, Sector sector) {
+			this.gridPos = gridPos;
+			this.sector = sector;
+		}
+		
+		private void addEntries() {
+			sectorName = sector.getName();
+			sectorId = add(SearchHit.KIND_SECTOR, sectorName, null, gridPos, sector);
+			addStations();
+		}
+		
+		private void addStations() {
+			for (SpaceStation station : sector.getSpaceStations()) {
+				stationIds.add(add(SearchHit.KIND_STATION, station.getName(), station.getType(), gridPos, station));
+			}
+		}
+		
+		private void removeEntries() {
+			remove(sectorId);
+			removeStations();
+		}
+		
+		private void removeStations() {
+			for (int i = 0; i < stationIds.size; i++) {
+				remove(stationIds.values[i]);
+			}
+			stationIds.size = 0;
+		}
+		
+		@Override
+		public void propertyChange(PropertyChangeEvent evt) {
+			synchronized (SearchIndex.this) {
+				if (sectors.get(sector) == this && !sector.getName().equals(sectorName)) {
+					remove(sectorId);
+					sectorName = sector.getName();
+					sectorId = add(SearchHit.KIND_SECTOR, sectorName, null, gridPos, sector);
+				}
+			}
+		}
+		
+		@Override
+		public void intervalAdded(ListDataEvent e) {
+			stationsChanged();
+		}
+		
+		@Override
+		public void intervalRemoved(ListDataEvent e) {
+			stationsChanged();
+		}
+		
+		@Override
+		public void contentsChanged(ListDataEvent e) {
+			stationsChanged();
+		}
+		
+		private void stationsChanged() {
+			synchronized (SearchIndex.this) {
+				if (sectors.get(sector) == this) {
+					removeStations();
+					addStations();
+				}
+			}
+		}
+	}
+	
+	private class SectorMapListener implements MapChangeListener {
+		
+		@Override
+		public void contentsChanged(MapChangeEvent e) {
+			synchronized (SearchIndex.this) {
+				if (e.getOldValue() != null) {
+					removeSector((Sector) e.getOldValue());
+				}
+				if (e.getNewValue() != null) {
+					addSector((GridPos) e.getKey(), (Sector) e.getNewValue());
+				}
+			}
+		}
+	}
+	
+	private class RaceMapListener implements MapChangeListener {
+		
+		@Override
+		public void contentsChanged(MapChangeEvent e) {
+			synchronized (SearchIndex.this) {
+				removeRace((Race) e.getOldValue());
+				addRace((Race) e.getNewValue());
+			}
+		}
+	}
+	
+	/**
+	 * Growing int array, removing moves the last value into the gap
+	 */
+	private static class IntList {
+		
+		private int[] values = new int[4];
+		private int size;
+		
+		private void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+		
+		private void remove(int value) {
+			for (int i = 0; i < size; i++) {
+				if (values[i] == value) {
+					values[i] = values[--size];
+					return;
+				}
+			}
+		}
+	}
+	
+}
@@ -2,6 +2,7 @@
 package de.ncm.x3.iam.settings;
 
 
+import java.awt.Color;
 import java.awt.Image;
 import java.awt.Insets;
 import java.awt.image.BufferedImage;
@@ -18,6 +19,7 @@ import javax.imageio.ImageIO;
 
 import org.apache.log4j.Logger;
 
+import de.ncm.x3.iam.util.MipMap;
 import de.ncm.x3.iam.util.PathBuilder;
 
 public class ColorPackageManager {
@@ -34,6 +36,8 @@ public class ColorPackageManager {
 	private HashMap<Integer, BufferedImage> raceSectorImages = new HashMap<Integer, BufferedImage>();
 	private HashMap<Integer, BufferedImage> gateImages = new HashMap<Integer, BufferedImage>();
 	private BufferedImage sectorHighlightImage = null;
+	private HashMap<Integer, MipMap> raceSectorMipMaps = new HashMap<Integer, MipMap>();
+	private MipMap sectorHighlightMipMap = null;
 	private DecimalFormat raceIdFormatter = new DecimalFormat("00");;
 	
 	public static ColorPackageManager get() {
@@ -88,6 +92,8 @@ public class ColorPackageManager {
 		raceSectorImages.clear();
 		gateImages.clear();
 		sectorHighlightImage = null;
+		raceSectorMipMaps.clear();
+		sectorHighlightMipMap = null;
 		
 	}
 	
@@ -126,6 +132,36 @@ public class ColorPackageManager {
 		return image;
 	}
 	
+	/**
+	 * Scaled from the mipmap of the image, so a zoomed map never scales the full image
+	 * 
+	 * @return <code>null</code> if the race has no image
+	 */
+	public Image getSectorImage(Integer id, int width, int height) {
+		MipMap mipMap = getSectorMipMap(id);
+		return mipMap == null ? null : mipMap.getImage(width, height);
+	}
+	
+	/**
+	 * @return The average color of the image of the race, <code>null</code> if it has none
+	 */
+	public Color getSectorColor(Integer id) {
+		MipMap mipMap = getSectorMipMap(id);
+		return mipMap == null ? null : mipMap.getAverageColor();
+	}
+	
+	private MipMap getSectorMipMap(Integer id) {
+		MipMap mipMap = raceSectorMipMaps.get(id);
+		if (mipMap == null) {
+			Image image = getSectorImage(id);
+			if (image != null) {
+				mipMap = new MipMap(image);
+				raceSectorMipMaps.put(id, mipMap);
+			}
+		}
+		return mipMap;
+	}
+	
 	public Image getSectorHighlightImage() {
 		if (sectorHighlightImage == null) {
 			File imageFile = new File(PathBuilder.createPath(getActualColorPackagePath(), "images", "Highlight.png"));
@@ -142,6 +178,16 @@ public class ColorPackageManager {
 		return sectorHighlightImage;
 	}
 	
+	/**
+	 * Like {@link #getSectorImage(Integer, int, int)}
+	 */
+	public Image getSectorHighlightImage(int width, int height) {
+		if (sectorHighlightMipMap == null && getSectorHighlightImage() != null) {
+			sectorHighlightMipMap = new MipMap(getSectorHighlightImage());
+		}
+		return sectorHighlightMipMap == null ? null : sectorHighlightMipMap.getImage(width, height);
+	}
+	
 	public Insets getSectorBackgroundImageOffset() {
 		return new Insets(5, 5, 5, 5);
 	}
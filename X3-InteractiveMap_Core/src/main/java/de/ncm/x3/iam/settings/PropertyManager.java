@@ -25,6 +25,11 @@ public class PropertyManager {
 	public static final String KEY_UNIVERSEMAP_PLAYERPOSITION_LOGFILENAME = "log.parser.xml.actualplayerposition.file";
 	public static final String KEY_LOGPATH = "log.parser.xml.path";
 	public static final String KEY_PARSER_CONTINOUSPARSING_ENABLED = "parser.continuousparsing.enabled";
+	public static final String KEY_PARSER_MODE = "parser.mode";
+	public static final String KEY_PARSER_SNAPSHOT_FILE = "parser.snapshot.file";
+	public static final String KEY_PARSER_PARALLEL_THRESHOLD = "parser.parallel.threshold";
+	public static final String KEY_PARSER_METRICS_LOG_INTERVAL = "parser.metrics.log.interval";
+	public static final String KEY_PARSER_RECORD_FILE = "parser.record.file";
 	public static final String KEY_ACTUAL_COLORPACK = "colorpackage.actual";
 	public static final String KEY_UNIVERSEMAP_AUTOMATICCENTER = "universemap.automaticcenter";
 	
@@ -129,6 +134,46 @@ public class PropertyManager {
 		return new Boolean(getProperty(KEY_PARSER_CONTINOUSPARSING_ENABLED));
 	}
 	
+	public String getParserMode() {
+		return getProperty(KEY_PARSER_MODE);
+	}
+	
+	/**
+	 * @return File the parsed universe map is cached in, relative to the program directory. Empty to disable the cache.
+	 */
+	public String getParserSnapshotFile() {
+		return getProperty(KEY_PARSER_SNAPSHOT_FILE);
+	}
+	
+	/**
+	 * @return Size in bytes from which on the universe export is decoded in parallel, -1 to disable. <code>null</code> if not set.
+	 */
+	public Integer getParserParallelThreshold() {
+		String value = getProperty(KEY_PARSER_PARALLEL_THRESHOLD);
+		if (value == null || value.trim().length() == 0) {
+			return null;
+		}
+		return new Integer(value.trim());
+	}
+	
+	/**
+	 * @return Seconds between two summaries of the parser metrics in the log, 0 if they are not logged
+	 */
+	public int getParserMetricsLogInterval() {
+		String value = getProperty(KEY_PARSER_METRICS_LOG_INTERVAL);
+		if (value == null || value.trim().length() == 0) {
+			return 0;
+		}
+		return Integer.parseInt(value.trim());
+	}
+	
+	/**
+	 * @return Archive every new version of the log files is recorded to, for a replay by the LogPlayer. Empty to disable the recording.
+	 */
+	public String getParserRecordFile() {
+		return getProperty(KEY_PARSER_RECORD_FILE);
+	}
+	
 	public String getActualColorPackage() {
 		return getProperty(KEY_ACTUAL_COLORPACK);
 	}
@@ -149,6 +194,26 @@ public class PropertyManager {
 		setProperty(KEY_PARSER_CONTINOUSPARSING_ENABLED, value);
 	}
 	
+	public void setParserMode(String value) {
+		setProperty(KEY_PARSER_MODE, value);
+	}
+	
+	public void setParserSnapshotFile(String value) {
+		setProperty(KEY_PARSER_SNAPSHOT_FILE, value);
+	}
+	
+	public void setParserParallelThreshold(int value) {
+		setProperty(KEY_PARSER_PARALLEL_THRESHOLD, Integer.toString(value));
+	}
+	
+	public void setParserMetricsLogInterval(int value) {
+		setProperty(KEY_PARSER_METRICS_LOG_INTERVAL, Integer.toString(value));
+	}
+	
+	public void setParserRecordFile(String value) {
+		setProperty(KEY_PARSER_RECORD_FILE, value);
+	}
+	
 	public void setActualColorPackage(String value) {
 		setProperty(KEY_ACTUAL_COLORPACK, value);
 	}
@@ -0,0 +1,85 @@
+package de.ncm.x3.iam.util;
+
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An image and its copies halved again and again down to one pixel, each level scaled from the one before. A size in between is scaled
+ * from the next larger level, which never has more than four times the pixels needed, and the last size asked for is kept.
+ */
+public class MipMap {
+	
+	private final BufferedImage[] levels;
+	private BufferedImage scaled;
+	
+	public MipMap(Image image) {
+		List<BufferedImage> levels = new ArrayList<BufferedImage>();
+		BufferedImage level = scale(image, Math.max(1, image.getWidth(null)), Math.max(1, image.getHeight(null)));
+		levels.add(level);
+		while (level.getWidth() > 1 || level.getHeight() > 1) {
+			level = scale(level, Math.max(1, level.getWidth() / 2), Math.max(1, level.getHeight() / 2));
+			levels.add(level);
+		}
+		this.levels = levels.toArray(new BufferedImage[levels.size()]);
+	}
+	
+	public int getLevelCount() {
+		return levels.length;
+	}
+	
+	/**
+	 * @param level 0 is the image itself
+	 */
+	public BufferedImage getLevel(int level) {
+		return levels[level];
+	}
+	
+	/**
+	 * @return The smallest level at least as large as the size, the image itself if the size is larger
+	 */
+	public BufferedImage getLevel(int width, int height) {
+		for (int i = levels.length - 1; i > 0; i--) {
+			if (levels[i].getWidth() >= width && levels[i].getHeight() >= height) {
+				return levels[i];
+			}
+		}
+		return levels[0];
+	}
+	
+	/**
+	 * @return The image in exactly that size, <code>null</code> if it is empty
+	 */
+	public synchronized BufferedImage getImage(int width, int height) {
+		if (width <= 0 || height <= 0) {
+			return null;
+		}
+		if (scaled == null || scaled.getWidth() != width || scaled.getHeight() != height) {
+			BufferedImage level = getLevel(width, height);
+			scaled = level.getWidth() == width && level.getHeight() == height ? level : scale(level, width, height);
+		}
+		return scaled;
+	}
+	
+	/**
+	 * @return About the mean of all pixels, the one pixel of the last level
+	 */
+	public Color getAverageColor() {
+		return new Color(levels[levels.length - 1].getRGB(0, 0), true);
+	}
+	
+	private static BufferedImage scale(Image image, int width, int height) {
+		BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = scaled.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		g.drawImage(image, 0, 0, width, height, null);
+		g.dispose();
+		return scaled;
+	}
+	
+}
@@ -0,0 +1,161 @@
+package de.ncm.x3.iam.data.universe;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestGateAnalysis implements WarpGateConstants {
+	
+	private Race argon = new Race(1, "Argon");
+	private Race boron = new Race(2, "Boron");
+	private UniverseMap map = new UniverseMap();
+	
+	/**
+	 * Triangle 0/0 1/0 0/1, bridge 1/0 - 2/0, triangle 2/0 3/0 2/1, alone 5/5, pair 7/7 - 8/7.
+	 */
+	@Test
+	public void testSmallNetwork() {
+		putSector(0, 0, argon);
+		putSector(1, 0, argon);
+		putSector(0, 1, argon);
+		putSector(2, 0, boron);
+		putSector(3, 0, argon);
+		putSector(2, 1, boron);
+		putSector(5, 5, argon);
+		putSector(7, 7, argon);
+		putSector(8, 7, argon);
+		connect(0, 0, WARPGATE_EAST, 1, 0);
+		connect(0, 0, WARPGATE_SOUTH, 0, 1);
+		connect(0, 1, WARPGATE_EAST, 1, 0);
+		connect(1, 0, WARPGATE_EAST, 2, 0);
+		connect(2, 0, WARPGATE_EAST, 3, 0);
+		connect(2, 0, WARPGATE_SOUTH, 2, 1);
+		connect(2, 1, WARPGATE_NORTH, 3, 0);
+		connect(7, 7, WARPGATE_EAST, 8, 7);
+		
+		GateAnalysis analysis = map.getGateAnalysis();
+		GateGraph graph = analysis.getGateGraph();
+		assertSame(analysis, map.getGateAnalysis());
+		assertEquals(3, analysis.getComponentCount());
+		int main = analysis.getComponent(graph.indexOf(0, 0));
+		assertEquals(main, analysis.getLargestComponent());
+		assertEquals(6, analysis.getComponentSize(main));
+		assertEquals(main, analysis.getComponent(graph.indexOf(3, 0)));
+		assertFalse(analysis.getComponent(graph.indexOf(5, 5)) == main);
+		assertTrue(analysis.isCutOff(graph.indexOf(8, 7)));
+		assertFalse(analysis.isCutOff(graph.indexOf(2, 1)));
+		
+		assertEquals(new HashSet<GridPos>(Arrays.asList(GridPos.valueOf(1, 0), GridPos.valueOf(2, 0))),
+				new HashSet<GridPos>(analysis.getArticulationPoints()));
+		assertEquals(2, analysis.getBridges().size());
+		assertTrue(analysis.isBridge(graph.indexOf(2, 0), graph.indexOf(1, 0)));
+		assertTrue(analysis.isBridge(graph.indexOf(7, 7), graph.indexOf(8, 7)));
+		assertFalse(analysis.isBridge(graph.indexOf(0, 0), graph.indexOf(1, 0)));
+		assertFalse(analysis.isBridge(graph.indexOf(0, 0), graph.indexOf(3, 0)));
+		
+		assertEquals(3, analysis.getEccentricity(graph.indexOf(0, 0)));
+		assertEquals(2, analysis.getEccentricity(graph.indexOf(1, 0)));
+		assertEquals(0, analysis.getEccentricity(graph.indexOf(5, 5)));
+		assertEquals(3, analysis.getDiameter());
+		assertEquals(1, analysis.getDiameter(analysis.getComponent(graph.indexOf(7, 7))));
+		
+		int[] regions = analysis.getRaceRegions(argon);
+		assertEquals(4, analysis.getRaceRegionCount(argon));
+		assertEquals(regions[graph.indexOf(0, 0)], regions[graph.indexOf(0, 1)]);
+		assertFalse(regions[graph.indexOf(0, 0)] == regions[graph.indexOf(3, 0)]);
+		assertEquals(-1, regions[graph.indexOf(2, 0)]);
+		assertEquals(1, analysis.getRaceRegionCount(boron));
+		assertSame(regions, analysis.getRaceRegions(new Race(1, "Argon")));
+	}
+	
+	@Test
+	public void testCutsAgainstRemoval() {
+		Random random = new Random(9);
+		int size = 12;
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				putSector(x, y, argon);
+			}
+		}
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				if (x + 1 < size && random.nextDouble() < 0.45) {
+					connect(x, y, WARPGATE_EAST, x + 1, y);
+				}
+				if (y + 1 < size && random.nextDouble() < 0.45) {
+					connect(x, y, WARPGATE_SOUTH, x, y + 1);
+				}
+			}
+		}
+		GateAnalysis analysis = map.getGateAnalysis();
+		GateGraph graph = analysis.getGateGraph();
+		int components = countComponents(graph, -1, -1, -1);
+		assertEquals(components, analysis.getComponentCount());
+		int points = 0;
+		for (int sector = 0; sector < graph.getSectorCount(); sector++) {
+			// Without the sector itself there is one component less if it was alone
+			int alone = graph.getDegree(sector) == 0 ? 1 : 0;
+			boolean expected = countComponents(graph, sector, -1, -1) > components - alone;
+			assertEquals(graph.getGridPos(sector).toString(), expected, analysis.isArticulationPoint(sector));
+			points += expected ? 1 : 0;
+			for (int edge = graph.getEdgeStart(sector); edge < graph.getEdgeEnd(sector); edge++) {
+				int target = graph.getEdgeTarget(edge);
+				assertEquals(countComponents(graph, -1, sector, target) > components, analysis.isBridge(sector, target));
+			}
+		}
+		assertTrue(points > 0);
+		assertTrue(analysis.getBridges().size() > 0);
+	}
+	
+	/**
+	 * @return Number of components without the given sector and connection
+	 */
+	private static int countComponents(GateGraph graph, int removed, int from, int to) {
+		int[] marks = new int[graph.getSectorCount()];
+		Arrays.fill(marks, -1);
+		int components = 0;
+		for (int start = 0; start < graph.getSectorCount(); start++) {
+			if (start == removed || marks[start] >= 0) {
+				continue;
+			}
+			marks[start] = components;
+			boolean changed = true;
+			while (changed) {
+				changed = false;
+				for (int sector = 0; sector < graph.getSectorCount(); sector++) {
+					for (int edge = graph.getEdgeStart(sector); edge < graph.getEdgeEnd(sector); edge++) {
+						int target = graph.getEdgeTarget(edge);
+						if (sector == removed || target == removed || sector == from && target == to || sector == to && target == from) {
+							continue;
+						}
+						if (marks[sector] == components && marks[target] < 0 || marks[target] == components && marks[sector] < 0) {
+							marks[sector] = components;
+							marks[target] = components;
+							changed = true;
+						}
+					}
+				}
+			}
+			components++;
+		}
+		return components;
+	}
+	
+	private void putSector(int x, int y, Race race) {
+		map.putSector(GridPos.valueOf(x, y), new Sector(x + "-" + y, race, new WarpGate[WARPGATE_MAX_VALUE + 1]));
+	}
+	
+	private void connect(int x, int y, byte gate, int targetX, int targetY) {
+		map.getSectors().get(x, y).setWarpGate(gate, new WarpGate(GridPos.valueOf(targetX, targetY)));
+		map.getSectors().get(targetX, targetY).setWarpGate((byte) (gate ^ 1), new WarpGate(GridPos.valueOf(x, y)));
+	}
+	
+}
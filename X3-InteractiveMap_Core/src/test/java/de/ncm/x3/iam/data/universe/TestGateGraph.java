@@ -0,0 +1,140 @@
+package de.ncm.x3.iam.data.universe;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import org.junit.Test;
+
+import de.ncm.x3.iam.generator.UniverseGenerator;
+import de.ncm.x3.iam.parser.ParseEvent;
+import de.ncm.x3.iam.parser.ParseListener;
+import de.ncm.x3.iam.parser.xml.UniverseMapParser;
+
+public class TestGateGraph implements WarpGateConstants {
+
+	@Test
+	public void testEdgesFollowGates() throws IOException {
+		UniverseMap map = createMap(4);
+		GateGraph graph = map.getGateGraph();
+
+		assertEquals(map.getSectors().size(), graph.getSectorCount());
+		int edges = 0;
+		for (int sector = 0; sector < graph.getSectorCount(); sector++) {
+			GridPos pos = graph.getGridPos(sector);
+			assertSame(map.getSectors().get(pos), graph.getSector(sector));
+			assertEquals(sector, graph.indexOf(pos));
+			for (int edge = graph.getEdgeStart(sector); edge < graph.getEdgeEnd(sector); edge++) {
+				WarpGate warpGate = graph.getSector(sector).getWarpGate(graph.getEdgeGate(edge));
+				assertEquals(warpGate.getTargetGridPos(), graph.getGridPos(graph.getEdgeTarget(edge)));
+				edges++;
+			}
+		}
+		assertEquals(edges, graph.getEdgeCount());
+		assertEquals(-1, graph.indexOf(1000, 1000));
+	}
+
+	@Test
+	public void testConnectionsAsBefore() throws IOException {
+		UniverseMap map = createMap(5);
+		GateGraph graph = map.getGateGraph();
+
+		// The connections as the map computed them before
+		ArrayList<GateConnection> expected = new ArrayList<GateConnection>();
+		for (Map.Entry<GridPos, Sector> entry : map.getSectors().entrySet()) {
+			for (WarpGate warpGate : entry.getValue().getWarpGates()) {
+				WarpGate self = new WarpGate(entry.getKey());
+				if (warpGate != null && warpGate.exists() && !self.equals(warpGate)) {
+					GateConnection gateCon = new GateConnection(self, warpGate, false);
+					if (!expected.contains(gateCon)) {
+						expected.add(gateCon);
+					}
+				}
+			}
+		}
+
+		assertEquals(expected.size(), graph.getGateConnections().size());
+		assertTrue(new HashSet<GateConnection>(expected).equals(new HashSet<GateConnection>(graph.getGateConnections())));
+		for (GateConnection gateCon : graph.getGateConnections()) {
+			GridPos pos1 = gateCon.getGate1().getTargetGridPos();
+			GridPos pos2 = gateCon.getGate2().getTargetGridPos();
+			assertEquals(pos1.gridX == pos2.gridX || pos1.gridY == pos2.gridY, gateCon.isDirectConnection());
+		}
+	}
+
+	@Test
+	public void testDirectConnection() {
+		HashMap<GridPos, Sector> sectors = new HashMap<GridPos, Sector>();
+		sectors.put(GridPos.valueOf(2, 1), new Sector());
+		sectors.put(GridPos.valueOf(5, 1), new Sector());
+		sectors.put(GridPos.valueOf(0, 3), new Sector());
+		GateGraph graph = new GateGraph(sectors);
+
+		assertTrue(graph.isDirectConnection(GridPos.valueOf(2, 1), GridPos.valueOf(5, 1)));
+		assertTrue(graph.isDirectConnection(GridPos.valueOf(7, 1), GridPos.valueOf(5, 1)));
+		assertTrue(graph.isDirectConnection(GridPos.valueOf(0, 1), GridPos.valueOf(3, 1)));
+		assertFalse(graph.isDirectConnection(GridPos.valueOf(3, 1), GridPos.valueOf(5, 1)));
+		assertFalse(graph.isDirectConnection(GridPos.valueOf(6, 1), GridPos.valueOf(9, 1)));
+		assertFalse(graph.isDirectConnection(GridPos.valueOf(0, 3), GridPos.valueOf(0, 0)));
+		assertTrue(graph.isDirectConnection(GridPos.valueOf(0, 3), GridPos.valueOf(0, 5)));
+		assertFalse(graph.isDirectConnection(GridPos.valueOf(0, 4), GridPos.valueOf(0, 8)));
+		assertTrue(graph.isDirectConnection(GridPos.valueOf(8, 8), GridPos.valueOf(8, 9)));
+		assertFalse(graph.isDirectConnection(GridPos.valueOf(2, 1), GridPos.valueOf(0, 3)));
+		assertFalse(graph.isDirectConnection(GridPos.valueOf(2, 1), GridPos.valueOf(2, 1)));
+	}
+
+	@Test
+	public void testGraphRebuiltAfterChange() throws IOException {
+		UniverseMap map = createMap(6);
+		GateGraph graph = map.getGateGraph();
+		assertSame(graph, map.getGateGraph());
+
+		GridPos pos = graph.getGridPos(0);
+		map.removeSector(pos);
+		assertFalse(graph == map.getGateGraph());
+		assertEquals(-1, map.getGateGraph().indexOf(pos));
+		for (GateConnection gateCon : map.getGateGraph().getGateConnections()) {
+			assertFalse(pos.equals(gateCon.getGate1().getTargetGridPos()));
+			assertFalse(pos.equals(gateCon.getGate2().getTargetGridPos()));
+		}
+	}
+
+	private static UniverseMap createMap(long seed) throws IOException {
+		UniverseGenerator generator = new UniverseGenerator(seed);
+		generator.setWidth(30);
+		generator.setHeight(30);
+		generator.setJumpGateRate(0.1);
+		generator.setStationsPerSector(0);
+		File file = File.createTempFile("log0090", ".txt");
+		try {
+			generator.writeExport(file);
+			final UniverseMap map = new UniverseMap();
+			UniverseMapParser parser = new UniverseMapParser(file);
+			parser.addParseListener(new ParseListener() {
+
+				@Override
+				public void onParseStart(ParseEvent e) {}
+
+				@Override
+				public void onParseEnd(ParseEvent e) {
+					map.update((UniverseMap) e.getParsedValue());
+				}
+			});
+			parser.parse();
+			assertFalse(map.getSectors().isEmpty());
+			return map;
+		} finally {
+			file.delete();
+		}
+	}
+
+}
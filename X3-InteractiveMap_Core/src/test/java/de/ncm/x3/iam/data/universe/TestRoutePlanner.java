@@ -0,0 +1,197 @@
+package de.ncm.x3.iam.data.universe;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestRoutePlanner implements WarpGateConstants {
+	
+	private Race argon = new Race(1, "Argon");
+	private Race xenon = new Race(2, "Xenon");
+	private UniverseMap map;
+	
+	/**
+	 * A ring 0/0 - 1/0 - 2/0 - 2/1 - 1/1 - 0/1 - 0/0 with a Xenon sector at 1/0, a one way gate 3/3 -> 0/0 and 5/5 without gates.
+	 */
+	@Before
+	public void setUp() {
+		map = new UniverseMap();
+		putSector(0, 0, argon);
+		putSector(1, 0, xenon);
+		putSector(2, 0, argon);
+		putSector(2, 1, argon);
+		putSector(1, 1, argon);
+		putSector(0, 1, argon);
+		putSector(3, 3, argon);
+		putSector(5, 5, argon);
+		connect(0, 0, WARPGATE_EAST, 1, 0);
+		connect(1, 0, WARPGATE_EAST, 2, 0);
+		connect(2, 0, WARPGATE_SOUTH, 2, 1);
+		connect(2, 1, WARPGATE_WEST, 1, 1);
+		connect(1, 1, WARPGATE_WEST, 0, 1);
+		connect(0, 1, WARPGATE_NORTH, 0, 0);
+		map.getSectors().get(3, 3).setWarpGate(WARPGATE_NORTH, new WarpGate(GridPos.valueOf(0, 0)));
+	}
+	
+	@Test
+	public void testDistances() {
+		RoutePlanner planner = map.getRoutePlanner();
+		assertTrue(planner.isPrecomputed());
+		assertEquals(0, planner.getDistance(GridPos.valueOf(0, 0), GridPos.valueOf(0, 0)));
+		assertEquals(1, planner.getDistance(GridPos.valueOf(0, 0), GridPos.valueOf(1, 0)));
+		assertEquals(3, planner.getDistance(GridPos.valueOf(0, 0), GridPos.valueOf(2, 1)));
+		assertEquals(2, planner.getDistance(GridPos.valueOf(3, 3), GridPos.valueOf(1, 0)));
+		assertEquals(RoutePlanner.UNREACHABLE, planner.getDistance(GridPos.valueOf(0, 0), GridPos.valueOf(3, 3)));
+		assertEquals(RoutePlanner.UNREACHABLE, planner.getDistance(GridPos.valueOf(0, 0), GridPos.valueOf(5, 5)));
+		assertEquals(RoutePlanner.UNREACHABLE, planner.getDistance(GridPos.valueOf(0, 0), GridPos.valueOf(9, 9)));
+	}
+	
+	@Test
+	public void testRoute() {
+		Route route = map.getRoutePlanner().findRoute(GridPos.valueOf(3, 3), GridPos.valueOf(2, 0));
+		assertEquals(Arrays.asList(GridPos.valueOf(3, 3), GridPos.valueOf(0, 0), GridPos.valueOf(1, 0), GridPos.valueOf(2, 0)), route.getSectors());
+		assertEquals(3, route.getJumps());
+		assertEquals(3, route.getCost());
+		assertNull(map.getRoutePlanner().findRoute(GridPos.valueOf(0, 0), GridPos.valueOf(5, 5)));
+		assertEquals(0, map.getRoutePlanner().findRoute(GridPos.valueOf(5, 5), GridPos.valueOf(5, 5)).getJumps());
+	}
+	
+	@Test
+	public void testAvoidAndCost() {
+		Route route = map.getRoutePlanner().findRoute(GridPos.valueOf(0, 0), GridPos.valueOf(2, 0), RoutePlanner.avoidRaces(Arrays.asList(xenon)));
+		assertEquals(Arrays.asList(GridPos.valueOf(0, 0), GridPos.valueOf(0, 1), GridPos.valueOf(1, 1), GridPos.valueOf(2, 1), GridPos.valueOf(2, 0)),
+				route.getSectors());
+		
+		// The target is entered even if it is avoided
+		route = map.getRoutePlanner().findRoute(GridPos.valueOf(0, 0), GridPos.valueOf(1, 0), RoutePlanner.avoidRaces(Arrays.asList(xenon)));
+		assertEquals(1, route.getJumps());
+		
+		route = map.getRoutePlanner().findRoute(GridPos.valueOf(0, 0), GridPos.valueOf(2, 0), new SectorCost() {
+			
+			@Override
+			public int getCost(Sector sector) {
+				return sector.getRace() == xenon ? 10 : 2;
+			}
+		});
+		assertEquals(4, route.getJumps());
+		assertEquals(8, route.getCost());
+	}
+	
+	@Test
+	public void testAlternatives() {
+		List<Route> routes = map.getRoutePlanner().findRoutes(GridPos.valueOf(0, 0), GridPos.valueOf(2, 1), 5, null);
+		assertEquals(2, routes.size());
+		assertEquals(3, routes.get(0).getJumps());
+		assertEquals(3, routes.get(1).getJumps());
+		assertFalse(routes.get(0).equals(routes.get(1)));
+		
+		routes = map.getRoutePlanner().findRoutes(GridPos.valueOf(0, 0), GridPos.valueOf(2, 0), 5, null);
+		assertEquals(2, routes.size());
+		assertEquals(2, routes.get(0).getJumps());
+		assertEquals(4, routes.get(1).getJumps());
+		assertEquals(routes.get(0), map.getRoutePlanner().findRoute(GridPos.valueOf(0, 0), GridPos.valueOf(2, 0)));
+	}
+	
+	@Test
+	public void testLargeGridAgainstBreadthFirstSearch() {
+		map = new UniverseMap();
+		int size = 20;
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				putSector(x, y, (x * 7 + y * 3) % 5 == 0 ? xenon : argon);
+			}
+		}
+		for (int y = 0; y < size; y++) {
+			for (int x = 0; x < size; x++) {
+				if (x + 1 < size && (x + y) % 3 != 0) {
+					connect(x, y, WARPGATE_EAST, x + 1, y);
+				}
+				if (y + 1 < size && (x * y) % 4 != 1) {
+					connect(x, y, WARPGATE_SOUTH, x, y + 1);
+				}
+			}
+		}
+		RoutePlanner planner = map.getRoutePlanner();
+		GateGraph graph = planner.getGateGraph();
+		for (int source = 0; source < graph.getSectorCount(); source += 37) {
+			HashMap<GridPos, Integer> expected = new HashMap<GridPos, Integer>();
+			ArrayDeque<GridPos> open = new ArrayDeque<GridPos>();
+			expected.put(graph.getGridPos(source), 0);
+			open.add(graph.getGridPos(source));
+			while (!open.isEmpty()) {
+				GridPos pos = open.poll();
+				for (WarpGate warpGate : map.getSectors().get(pos).getWarpGates()) {
+					if (warpGate != null && !expected.containsKey(warpGate.getTargetGridPos())) {
+						expected.put(warpGate.getTargetGridPos(), expected.get(pos) + 1);
+						open.add(warpGate.getTargetGridPos());
+					}
+				}
+			}
+			for (int target = 0; target < graph.getSectorCount(); target++) {
+				Integer jumps = expected.get(graph.getGridPos(target));
+				assertEquals(jumps == null ? RoutePlanner.UNREACHABLE : jumps.intValue(), planner.getDistance(source, target));
+				Route route = planner.findRoute(graph.getGridPos(source), graph.getGridPos(target));
+				if (jumps != null) {
+					assertEquals(jumps.intValue(), route.getJumps());
+					assertRouteFollowsGates(route);
+				}
+			}
+		}
+		
+		List<Route> routes = planner.findRoutes(GridPos.valueOf(0, 0), GridPos.valueOf(size - 1, size - 1), 10, null);
+		assertEquals(10, routes.size());
+		assertEquals(routes.get(0).getJumps(), planner.getDistance(GridPos.valueOf(0, 0), GridPos.valueOf(size - 1, size - 1)));
+		for (int i = 0; i < routes.size(); i++) {
+			assertRouteFollowsGates(routes.get(i));
+			assertEquals(routes.get(i).getJumps(), new HashSet<GridPos>(routes.get(i).getSectors()).size() - 1); // no loops
+			assertEquals(i, routes.indexOf(routes.get(i)));
+			if (i > 0) {
+				assertTrue(routes.get(i - 1).getCost() <= routes.get(i).getCost());
+			}
+		}
+	}
+	
+	@Test
+	public void testPlannerReplacedWithGates() {
+		RoutePlanner planner = map.getRoutePlanner();
+		assertSame(planner, map.getRoutePlanner());
+		map.removeSector(GridPos.valueOf(1, 0));
+		assertFalse(planner == map.getRoutePlanner());
+		assertEquals(4, map.getRoutePlanner().getDistance(GridPos.valueOf(0, 0), GridPos.valueOf(2, 0)));
+	}
+	
+	private void assertRouteFollowsGates(Route route) {
+		for (int i = 1; i < route.getSectors().size(); i++) {
+			boolean gate = false;
+			for (WarpGate warpGate : map.getSectors().get(route.getSectors().get(i - 1)).getWarpGates()) {
+				gate |= warpGate != null && warpGate.getTargetGridPos().equals(route.getSectors().get(i));
+			}
+			assertTrue("No gate in " + route, gate);
+		}
+	}
+	
+	private void putSector(int x, int y, Race race) {
+		map.putSector(GridPos.valueOf(x, y), new Sector(x + "-" + y, race, new WarpGate[WARPGATE_MAX_VALUE + 1]));
+	}
+	
+	private void connect(int x, int y, byte gate, int targetX, int targetY) {
+		Sector sector = map.getSectors().get(x, y);
+		assertNotNull(sector);
+		sector.setWarpGate(gate, new WarpGate(GridPos.valueOf(targetX, targetY)));
+		map.getSectors().get(targetX, targetY).setWarpGate((byte) (gate ^ 1), new WarpGate(GridPos.valueOf(x, y)));
+	}
+	
+}
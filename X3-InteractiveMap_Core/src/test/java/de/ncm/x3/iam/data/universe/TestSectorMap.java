@@ -0,0 +1,116 @@
+package de.ncm.x3.iam.data.universe;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TestSectorMap {
+	
+	@Test
+	public void testGridPosInterned() {
+		assertSame(GridPos.valueOf(3, 4), GridPos.valueOf(3, 4));
+		assertSame(GridPos.valueOf(-5, 1000), GridPos.valueOf(-5, 1000));
+		assertSame(GridPos.NONE, GridPos.valueOf(-1, -1));
+		assertNotSame(GridPos.valueOf(3, 4), new GridPos(3, 4));
+		assertEquals(GridPos.valueOf(3, 4), new GridPos(3, 4));
+		assertEquals(new GridPos(), GridPos.NONE);
+		
+		assertEquals(3L << 32 | 4, GridPos.pack(3, 4));
+		assertEquals(GridPos.pack(-5, -7), GridPos.valueOf(-5, -7).pack());
+		assertFalse(GridPos.pack(-1, 0) == GridPos.pack(0, -1));
+	}
+	
+	@Test
+	public void testDenseAndSparse() {
+		SectorMap map = new SectorMap();
+		Sector near = new Sector();
+		Sector far = new Sector();
+		Sector negative = new Sector();
+		map.put(GridPos.valueOf(2, 3), near);
+		map.put(new GridPos(5000, 7), far);
+		map.put(GridPos.valueOf(-2, 0), negative);
+		
+		assertSame(near, map.get(2, 3));
+		assertSame(far, map.get(5000, 7));
+		assertSame(negative, map.get(-2, 0));
+		assertSame(far, map.get(GridPos.valueOf(5000, 7)));
+		assertNull(map.get(3, 2));
+		assertNull(map.get(7, 5000));
+		assertNull(map.get(1000, 1000));
+		assertTrue(map.contains(2, 3));
+		assertFalse(map.contains(0, 0));
+		assertEquals(3, map.getGridWidth());
+		assertEquals(4, map.getGridHeight());
+		assertEquals(3, map.size());
+	}
+	
+	@Test
+	public void testGrowKeepsSectors() {
+		SectorMap map = new SectorMap();
+		Map<GridPos, Sector> expected = new HashMap<GridPos, Sector>();
+		for (int y = 0; y < 20; y++) {
+			for (int x = 0; x < 20; x++) {
+				GridPos pos = GridPos.valueOf(x * 7 % 20, y * 3 % 20);
+				Sector sector = new Sector();
+				expected.put(pos, sector);
+				map.put(pos, sector);
+			}
+		}
+		for (Map.Entry<GridPos, Sector> entry : expected.entrySet()) {
+			assertSame(entry.getValue(), map.get(entry.getKey().gridX, entry.getKey().gridY));
+		}
+		assertEquals(20, map.getGridWidth());
+		assertEquals(20, map.getGridHeight());
+	}
+	
+	@Test
+	public void testRemoveAndClear() {
+		SectorMap map = new SectorMap();
+		Map<GridPos, Sector> sectors = new HashMap<GridPos, Sector>();
+		for (int i = 0; i < 200; i++) {
+			sectors.put(GridPos.valueOf(1000 + i % 17, -i), new Sector());
+		}
+		sectors.put(GridPos.valueOf(1, 1), new Sector());
+		map.putAll(sectors);
+		
+		for (int i = 0; i < 200; i += 2) {
+			map.remove(GridPos.valueOf(1000 + i % 17, -i));
+		}
+		map.remove(new GridPos(1, 1));
+		for (int i = 0; i < 200; i++) {
+			Sector sector = map.get(1000 + i % 17, -i);
+			if (i % 2 == 0) {
+				assertNull(sector);
+			} else {
+				assertSame(sectors.get(GridPos.valueOf(1000 + i % 17, -i)), sector);
+			}
+		}
+		assertNull(map.get(1, 1));
+		assertEquals(100, map.size());
+		
+		map.clear();
+		assertNull(map.get(1001, -1));
+		assertEquals(0, map.getGridWidth());
+		assertTrue(map.isEmpty());
+	}
+	
+	@Test
+	public void testUniverseMapLookup() {
+		UniverseMap map = new UniverseMap();
+		Sector sector = new Sector();
+		map.putSector(GridPos.valueOf(4, 9), sector);
+		assertSame(sector, map.getSector(4, 9));
+		map.removeSector(GridPos.valueOf(4, 9));
+		assertNull(map.getSector(4, 9));
+	}
+	
+}
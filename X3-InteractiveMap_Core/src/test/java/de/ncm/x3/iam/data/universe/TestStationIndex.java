@@ -0,0 +1,120 @@
+package de.ncm.x3.iam.data.universe;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class TestStationIndex implements WarpGateConstants {
+	
+	private Race argon = new Race(1, "Argon");
+	private UniverseMap map = new UniverseMap();
+	
+	@Test
+	public void testTreeAgainstScan() {
+		Random random = new Random(3);
+		ArrayList<SpaceStation> stations = new ArrayList<SpaceStation>();
+		for (int i = 0; i < 500; i++) {
+			stations.add(new SpaceStation(random.nextInt(3) == 0 ? SpaceStation.TYPE_Dock : SpaceStation.TYPE_FACTORY, random.nextInt(200000) - 100000,
+					random.nextInt(20000) - 10000, random.nextInt(200000) - 100000, "Station " + i));
+		}
+		StationTree tree = new StationTree(stations);
+		assertEquals(500, tree.size());
+		assertEquals(tree.getTypeCount("dock"), tree.getTypeCount(SpaceStation.TYPE_Dock));
+		assertEquals(500, tree.getTypeCount(SpaceStation.TYPE_Dock) + tree.getTypeCount(SpaceStation.TYPE_FACTORY));
+		for (int query = 0; query < 50; query++) {
+			final int x = random.nextInt(300000) - 150000;
+			final int y = random.nextInt(30000) - 15000;
+			final int z = random.nextInt(300000) - 150000;
+			String type = query % 2 == 0 ? SpaceStation.TYPE_Dock : null;
+			List<SpaceStation> expected = new ArrayList<SpaceStation>();
+			for (SpaceStation station : stations) {
+				if (type == null || station.isDock()) {
+					expected.add(station);
+				}
+			}
+			Collections.sort(expected, new Comparator<SpaceStation>() {
+				
+				@Override
+				public int compare(SpaceStation s1, SpaceStation s2) {
+					return Long.valueOf(StationTree.getDistanceSquared(s1, x, y, z)).compareTo(StationTree.getDistanceSquared(s2, x, y, z));
+				}
+			});
+			List<SpaceStation> found = tree.findNearest(x, y, z, type, 5);
+			assertEquals(5, found.size());
+			for (int i = 0; i < 5; i++) {
+				assertEquals(StationTree.getDistanceSquared(expected.get(i), x, y, z), StationTree.getDistanceSquared(found.get(i), x, y, z));
+			}
+		}
+		assertEquals(0, new StationTree(new ArrayList<SpaceStation>()).findNearest(0, 0, 0, null, 5).size());
+		assertEquals(0, tree.findNearest(0, 0, 0, "Shipyard", 5).size());
+	}
+	
+	/**
+	 * A line 0/0 - 1/0 - 2/0 with a one way gate 3/0 -> 2/0
+	 */
+	@Test
+	public void testThroughGates() {
+		Sector start = putSector(0, 0);
+		Sector next = putSector(1, 0);
+		Sector far = putSector(2, 0);
+		Sector oneWay = putSector(3, 0);
+		connect(0, 0, WARPGATE_EAST, 1, 0);
+		connect(1, 0, WARPGATE_EAST, 2, 0);
+		oneWay.setWarpGate(WARPGATE_WEST, new WarpGate(GridPos.valueOf(2, 0)));
+		start.addSpaceStation(new SpaceStation(SpaceStation.TYPE_FACTORY, 0, 0, 100, "Factory"));
+		start.addSpaceStation(new SpaceStation(SpaceStation.TYPE_Dock, 0, 0, 50000, "Far Dock"));
+		next.addSpaceStation(new SpaceStation(SpaceStation.TYPE_Dock, 0, 0, 10, "Next Dock"));
+		far.addSpaceStation(new SpaceStation(SpaceStation.TYPE_Dock, 0, 0, 20, "Far Dock 1"));
+		far.addSpaceStation(new SpaceStation(SpaceStation.TYPE_Dock, 0, 0, 10, "Far Dock 2"));
+		oneWay.addSpaceStation(new SpaceStation(SpaceStation.TYPE_Dock, 0, 0, 0, "Unreachable Dock"));
+		
+		StationIndex index = map.getStationIndex();
+		assertSame(index, map.getStationIndex());
+		List<NearStation> found = index.findNearest(GridPos.valueOf(0, 0), 0, 0, 0, SpaceStation.TYPE_Dock, 3);
+		assertEquals(3, found.size());
+		assertEquals("Far Dock", found.get(0).getStation().getName());
+		assertEquals(0, found.get(0).getJumps());
+		assertEquals(50000, found.get(0).getDistance(), 0);
+		assertEquals("Next Dock", found.get(1).getStation().getName());
+		assertEquals(GridPos.valueOf(1, 0), found.get(1).getGridPos());
+		assertEquals("Far Dock 2", found.get(2).getStation().getName());
+		assertEquals(2, found.get(2).getJumps());
+		assertEquals(4, index.findNearest(GridPos.valueOf(0, 0), 0, 0, 0, SpaceStation.TYPE_Dock, 10).size());
+		assertEquals(0, index.findNearest(GridPos.valueOf(9, 9), 0, 0, 0, null, 10).size());
+		
+		// Changes of the station lists and sectors are taken over
+		start.getSpaceStations().remove(1);
+		next.getSpaceStations().get(0).setPosX(5);
+		next.getSpaceStations().fireContentsChanged(0);
+		next.addSpaceStation(new SpaceStation(SpaceStation.TYPE_Dock, 0, 0, 1, "New Dock"));
+		found = index.findNearest(GridPos.valueOf(0, 0), 0, 0, 0, SpaceStation.TYPE_Dock, 2);
+		assertEquals("New Dock", found.get(0).getStation().getName());
+		assertEquals("Next Dock", found.get(1).getStation().getName());
+		assertEquals(5, found.get(1).getDistance(), 0);
+		
+		map.removeSector(GridPos.valueOf(1, 0));
+		assertTrue(index.findNearest(GridPos.valueOf(0, 0), 0, 0, 0, SpaceStation.TYPE_Dock, 2).isEmpty());
+		assertEquals(1, index.findNearest(start, 0, 0, 0, null, 2).size());
+	}
+	
+	private Sector putSector(int x, int y) {
+		Sector sector = new Sector(x + "-" + y, argon, new WarpGate[WARPGATE_MAX_VALUE + 1]);
+		map.putSector(GridPos.valueOf(x, y), sector);
+		return sector;
+	}
+	
+	private void connect(int x, int y, byte gate, int targetX, int targetY) {
+		map.getSectors().get(x, y).setWarpGate(gate, new WarpGate(GridPos.valueOf(targetX, targetY)));
+		map.getSectors().get(targetX, targetY).setWarpGate((byte) (gate ^ 1), new WarpGate(GridPos.valueOf(x, y)));
+	}
+	
+}
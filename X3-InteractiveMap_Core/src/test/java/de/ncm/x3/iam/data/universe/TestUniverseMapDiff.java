@@ -0,0 +1,156 @@
+package de.ncm.x3.iam.data.universe;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.ncm.jgoodies.common.map.MapChangeEvent;
+import de.ncm.jgoodies.common.map.MapChangeListener;
+import de.ncm.jgoodies.model.HashMapModel;
+
+public class TestUniverseMapDiff {
+	
+	private UniverseMap map;
+	private int mapEvents;
+	private int updateEvents;
+	
+	@Before
+	public void setUp() throws Exception {
+		map = createMap();
+		mapEvents = 0;
+		updateEvents = 0;
+		map.getSectors().addMapChangeListener(new MapChangeListener() {
+			
+			@Override
+			public void contentsChanged(MapChangeEvent e) {
+				mapEvents++;
+			}
+		});
+		map.addPropertyChangeListener(UniverseMap.UNIVERSEMAP_UPDATE, new PropertyChangeListener() {
+			
+			@Override
+			public void propertyChange(PropertyChangeEvent evt) {
+				updateEvents++;
+			}
+		});
+	}
+	
+	@Test
+	public void testUnchangedMap() {
+		Sector sector = map.getSectors().get(new GridPos(0, 0));
+		UniverseMapDiff diff = map.update(createMap());
+		assertTrue(diff.isEmpty());
+		assertEquals(0, mapEvents);
+		assertEquals(0, updateEvents);
+		assertSame(sector, map.getSectors().get(new GridPos(0, 0)));
+	}
+	
+	@Test
+	public void testSectorsAddedAndRemoved() {
+		UniverseMap update = createMap();
+		update.getSectors().remove(new GridPos(1, 0));
+		update.putSector(new GridPos(0, 1), createSector("Three", update.getRaces().get(2)));
+		
+		UniverseMapDiff diff = map.update(update);
+		assertEquals(1, diff.getAddedSectors().size());
+		assertEquals(new GridPos(0, 1), diff.getAddedSectors().get(0));
+		assertEquals(1, diff.getRemovedSectors().size());
+		assertEquals(new GridPos(1, 0), diff.getRemovedSectors().get(0));
+		assertTrue(diff.isGateNetworkChanged());
+		assertEquals(2, mapEvents);
+		assertEquals(1, updateEvents);
+		
+		assertNull(map.getSectors().get(new GridPos(1, 0)));
+		Sector added = map.getSectors().get(new GridPos(0, 1));
+		assertEquals("Three", added.getName());
+		assertSame(map.getRaces().get(2), added.getRace());
+	}
+	
+	@Test
+	public void testSectorChanged() {
+		UniverseMap update = createMap();
+		Sector sector = update.getSectors().get(new GridPos(0, 0));
+		sector.setRace(update.getRaces().get(2));
+		sector.setWarpGate(WarpGateConstants.WARPGATE_EAST, null);
+		sector.getSpaceStations().get(0).setPosX(42);
+		sector.getSpaceStations().remove(1);
+		sector.addSpaceStation(new SpaceStation(SpaceStation.TYPE_FACTORY, 0, 0, 0, "Ore Mine"));
+		
+		Sector base = map.getSectors().get(new GridPos(0, 0));
+		SpaceStation dock = base.getSpaceStations().get(0);
+		UniverseMapDiff diff = map.update(update);
+		
+		assertEquals(1, diff.getChangedSectors().size());
+		SectorDiff sectorDiff = diff.getChangedSectors().get(0);
+		assertSame(base, sectorDiff.getSector());
+		assertFalse(sectorDiff.isNameChanged());
+		assertTrue(sectorDiff.isRaceChanged());
+		assertTrue(sectorDiff.isGateChanged(WarpGateConstants.WARPGATE_EAST));
+		assertFalse(sectorDiff.isGateChanged(WarpGateConstants.WARPGATE_NORTH));
+		assertEquals(1, sectorDiff.getMovedStations().size());
+		assertEquals(1, sectorDiff.getRemovedStations().size());
+		assertEquals(1, sectorDiff.getAddedStations().size());
+		
+		// Applied to the existing instances, the sector map itself did not change
+		assertEquals(0, mapEvents);
+		assertSame(base, map.getSectors().get(new GridPos(0, 0)));
+		assertSame(map.getRaces().get(2), base.getRace());
+		assertNull(base.getWarpGate(WarpGateConstants.WARPGATE_EAST));
+		assertSame(dock, base.getSpaceStations().get(0));
+		assertEquals(42, dock.getPosX());
+		assertEquals(2, base.getSpaceStations().size());
+		assertEquals("Ore Mine", base.getSpaceStations().get(1).getName());
+		
+		assertEquals(1, map.update(createMap()).getChangedSectors().size());
+	}
+	
+	@Test
+	public void testRaceRenamed() {
+		UniverseMap update = createMap();
+		Race renamed = new Race(1, "Argon Federation");
+		update.getRaces().put(1, renamed);
+		update.getSectors().get(new GridPos(0, 0)).setRace(renamed);
+		
+		UniverseMapDiff diff = map.update(update);
+		assertTrue(diff.isRacesChanged());
+		assertEquals(1, diff.getChangedSectors().size());
+		assertEquals("Argon Federation", map.getRaces().get(1).getName());
+		assertSame(map.getRaces().get(1), map.getSectors().get(new GridPos(0, 0)).getRace());
+	}
+	
+	private static UniverseMap createMap() {
+		UniverseMap map = new UniverseMap();
+		HashMapModel<Integer, Race> races = new HashMapModel<Integer, Race>();
+		races.put(1, new Race(1, "Argon"));
+		races.put(2, new Race(2, "Boron"));
+		map.setRaces(races);
+		
+		Sector one = createSector("One", races.get(1));
+		one.setWarpGate(WarpGateConstants.WARPGATE_EAST, new WarpGate(new GridPos(1, 0)));
+		one.addSpaceStation(new SpaceStation(SpaceStation.TYPE_Dock, 1, 2, 3, "Equipment Dock"));
+		one.addSpaceStation(new SpaceStation(SpaceStation.TYPE_FACTORY, 4, 5, 6, "Solar Power Plant"));
+		map.putSector(new GridPos(0, 0), one);
+		
+		Sector two = createSector("Two", races.get(2));
+		two.setWarpGate(WarpGateConstants.WARPGATE_WEST, new WarpGate(new GridPos(0, 0)));
+		map.putSector(new GridPos(1, 0), two);
+		return map;
+	}
+	
+	private static Sector createSector(String name, Race race) {
+		Sector sector = new Sector();
+		sector.setName(name);
+		sector.setRace(race);
+		return sector;
+	}
+	
+}
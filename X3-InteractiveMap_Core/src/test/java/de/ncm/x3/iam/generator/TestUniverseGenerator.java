@@ -0,0 +1,177 @@
+package de.ncm.x3.iam.generator;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.ncm.x3.iam.data.ActualPlayerInfo;
+import de.ncm.x3.iam.data.universe.GridPos;
+import de.ncm.x3.iam.data.universe.Sector;
+import de.ncm.x3.iam.data.universe.UniverseMap;
+import de.ncm.x3.iam.data.universe.WarpGate;
+import de.ncm.x3.iam.data.universe.WarpGateConstants;
+import de.ncm.x3.iam.parser.ParseEvent;
+import de.ncm.x3.iam.parser.ParseListener;
+import de.ncm.x3.iam.parser.Parser;
+import de.ncm.x3.iam.parser.xml.ActualPlayerPositionParser;
+import de.ncm.x3.iam.parser.xml.UniverseMapParser;
+
+public class TestUniverseGenerator {
+	
+	private File file;
+	
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("log0090", ".txt");
+		file.deleteOnExit();
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		file.delete();
+	}
+	
+	@Test
+	public void testSameSeedSameUniverse() {
+		assertEquals(new UniverseGenerator(7).createExport(), new UniverseGenerator(7).createExport());
+		assertFalse(new UniverseGenerator(7).createExport().equals(new UniverseGenerator(8).createExport()));
+	}
+	
+	@Test
+	public void testExportIsParsed() throws IOException {
+		UniverseGenerator generator = new UniverseGenerator(1);
+		generator.setWidth(30);
+		generator.setHeight(20);
+		generator.setSectorDensity(0.5);
+		generator.setRaceCount(14);
+		generator.setStationsPerSector(5);
+		generator.writeExport(file);
+		UniverseMap map = (UniverseMap) parse(new UniverseMapParser(file));
+		
+		assertEquals(300, generator.getSectorCount());
+		assertEquals(300, map.getSectors().size());
+		assertEquals(14, map.getRaces().size());
+		assertEquals("Race 14", map.getRaces().get(14).getName());
+		int stations = 0;
+		for (Sector sector : map.getSectors().values()) {
+			assertNotNull(sector.getRace());
+			stations += sector.getSpaceStations().size();
+		}
+		assertTrue(stations > 300 * 3 && stations < 300 * 7);
+	}
+	
+	@Test
+	public void testGatesAreSymmetricAndConnected() throws IOException {
+		UniverseGenerator generator = new UniverseGenerator(2);
+		generator.setWidth(40);
+		generator.setHeight(40);
+		generator.setSectorDensity(0.3);
+		generator.setGateDensity(0.2);
+		generator.setJumpGateRate(0.05);
+		generator.setStationsPerSector(0);
+		generator.writeExport(file);
+		UniverseMap map = (UniverseMap) parse(new UniverseMapParser(file));
+		
+		for (GridPos pos : map.getSectors().keySet()) {
+			for (byte gate = 0; gate <= WarpGateConstants.WARPGATE_MAX_VALUE; gate++) {
+				WarpGate warpGate = map.getSectors().get(pos).getWarpGate(gate);
+				if (warpGate != null && warpGate.exists()) {
+					Sector target = map.getSectors().get(warpGate.getTargetGridPos());
+					assertNotNull("Gate of " + pos + " leads to no sector", target);
+					WarpGate back = target.getWarpGate((byte) (gate ^ 1));
+					assertNotNull(back);
+					assertEquals(pos, back.getTargetGridPos());
+				}
+			}
+		}
+		
+		assertEquals(map.getSectors().size(), countReached(generator));
+		for (long seed = 0; seed < 200; seed++) {
+			UniverseGenerator defaults = new UniverseGenerator(seed);
+			assertEquals("Seed " + seed, defaults.getSectorCount(), countReached(defaults));
+		}
+	}
+	
+	@Test
+	public void testWalkFollowsGates() throws IOException {
+		UniverseGenerator generator = new UniverseGenerator(3);
+		generator.setStationsPerSector(0);
+		PlayerWalk walk = generator.createWalk(3);
+		walk.setJumpRate(1);
+		int x = walk.getX();
+		int y = walk.getY();
+		assertTrue(generator.hasSector(x, y));
+		int moves = 0;
+		for (int i = 0; i < 100; i++) {
+			walk.writeNext(file);
+			ActualPlayerInfo info = (ActualPlayerInfo) parse(new ActualPlayerPositionParser(file));
+			assertEquals(new GridPos(walk.getX(), walk.getY()), info.getSectorPosition());
+			if (walk.getX() != x || walk.getY() != y) {
+				boolean throughGate = false;
+				for (byte gate = 0; gate <= WarpGateConstants.WARPGATE_MAX_VALUE; gate++) {
+					throughGate |= generator.getGateTarget(x, y, gate) == walk.getY() * generator.getWidth() + walk.getX();
+				}
+				assertTrue("No gate from " + x + "-" + y + " to " + walk.getX() + "-" + walk.getY(), throughGate);
+				moves++;
+			}
+			x = walk.getX();
+			y = walk.getY();
+		}
+		assertTrue(moves > 50);
+	}
+	
+	/**
+	 * @return Number of sectors reached through the gates from the first one
+	 */
+	private static int countReached(UniverseGenerator generator) {
+		Set<GridPos> reached = new HashSet<GridPos>();
+		ArrayDeque<GridPos> open = new ArrayDeque<GridPos>();
+		for (int cell = 0; open.isEmpty() && cell < generator.getWidth() * generator.getHeight(); cell++) {
+			if (generator.hasSector(cell % generator.getWidth(), cell / generator.getWidth())) {
+				open.add(new GridPos(cell % generator.getWidth(), cell / generator.getWidth()));
+			}
+		}
+		while (!open.isEmpty()) {
+			GridPos pos = open.poll();
+			if (reached.add(pos)) {
+				for (byte gate = 0; gate <= WarpGateConstants.WARPGATE_MAX_VALUE; gate++) {
+					int target = generator.getGateTarget(pos.getGridX(), pos.getGridY(), gate);
+					if (target >= 0) {
+						open.add(new GridPos(target % generator.getWidth(), target / generator.getWidth()));
+					}
+				}
+			}
+		}
+		return reached.size();
+	}
+	
+	private static Object parse(Parser parser) {
+		final Object[] ret = new Object[1];
+		parser.addParseListener(new ParseListener() {
+			
+			@Override
+			public void onParseStart(ParseEvent e) {}
+			
+			@Override
+			public void onParseEnd(ParseEvent e) {
+				ret[0] = e.getParsedValue();
+			}
+		});
+		parser.parse();
+		assertNotNull(ret[0]);
+		return ret[0];
+	}
+	
+}
@@ -0,0 +1,166 @@
+package de.ncm.x3.iam.parser;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestParserControl {
+	
+	private File directory;
+	private FileParser universeParser;
+	private FileParser positionParser;
+	private ParserControl control;
+	
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("logs", "");
+		directory.delete();
+		directory.mkdir();
+		universeParser = new FileParser(write(new File(directory, "log00903.txt"), 0));
+		positionParser = new FileParser(write(new File(directory, "log00902.txt"), 0));
+		control = new ParserControl(ParserControl.MODE_WATCH, universeParser, positionParser);
+		control.startParsing();
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		control.stopParsing();
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+	
+	@Test(timeout = 10000)
+	public void testOnlyChangedFileIsParsed() throws Exception {
+		write(positionParser.getFile(), 10000);
+		while (positionParser.parsed == 0) {
+			Thread.sleep(10);
+		}
+		write(positionParser.getFile(), 20000);
+		while (positionParser.parsed == 1) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, universeParser.parsed);
+	}
+	
+	@Test(timeout = 10000)
+	public void testFileCreatedAfterStart() throws Exception {
+		FileParser parser = new FileParser(new File(directory, "created.txt"));
+		control.stopParsing();
+		control.addParser(parser);
+		control.startParsing();
+		
+		write(parser.getFile(), 10000);
+		while (parser.parsed == 0) {
+			Thread.sleep(10);
+		}
+	}
+	
+	@Test(timeout = 10000)
+	public void testPositionNotDelayedByUniverseParse() throws Exception {
+		universeParser.parseTime = 3000;
+		write(universeParser.getFile(), 10000);
+		while (universeParser.parsed == 0) {
+			Thread.sleep(10);
+		}
+		
+		long start = System.currentTimeMillis();
+		write(positionParser.getFile(), 10000);
+		while (positionParser.parsed == 0) {
+			Thread.sleep(10);
+		}
+		long latency = System.currentTimeMillis() - start;
+		assertTrue("Universe still parsing", universeParser.parsing);
+		assertTrue("Position parsed after " + latency + " ms", latency < 1000);
+	}
+	
+	@Test(timeout = 10000)
+	public void testStopInterruptsParse() throws Exception {
+		universeParser.parseTime = 60000;
+		write(universeParser.getFile(), 10000);
+		while (!universeParser.parsing) {
+			Thread.sleep(10);
+		}
+		long start = System.currentTimeMillis();
+		control.stopParsing();
+		assertFalse(universeParser.parsing);
+		assertTrue(System.currentTimeMillis() - start < ParserControl.STOP_TIMEOUT);
+	}
+	
+	@Test(timeout = 10000)
+	public void testFailedParseIsRetried() throws Exception {
+		positionParser.failures = 1;
+		write(positionParser.getFile(), 10000);
+		while (positionParser.parsed < 2) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, positionParser.failures);
+	}
+	
+	private static File write(File file, long modifiedOffset) throws IOException {
+		FileWriter out = new FileWriter(file);
+		try {
+			out.write("<Data/>");
+		} finally {
+			out.close();
+		}
+		// Some file systems only store whole seconds
+		file.setLastModified(System.currentTimeMillis() + modifiedOffset);
+		return file;
+	}
+	
+	private static class FileParser extends Parser {
+		
+		private final File file;
+		private long lastModified;
+		private volatile int parsed = 0;
+		private volatile boolean parsing = false;
+		private volatile long parseTime = 0;
+		private volatile int failures = 0;
+		
+		public FileParser(File file) {
+			this.file = file;
+			this.lastModified = file.lastModified();
+		}
+		
+		@Override
+		public void parse() {
+			if (failures > 0) {
+				parsed++;
+				failures--;
+				throw new IllegalStateException("Half written file"); // Not parsed, so still needs an update
+			}
+			lastModified = file.lastModified();
+			parsing = true;
+			parsed++;
+			try {
+				Thread.sleep(parseTime); // A large file
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				parsing = false;
+			}
+		}
+		
+		@Override
+		public boolean needUpdate(long timeGone) {
+			return file.lastModified() != lastModified;
+		}
+		
+		@Override
+		public File getFile() {
+			return file;
+		}
+	}
+	
+}
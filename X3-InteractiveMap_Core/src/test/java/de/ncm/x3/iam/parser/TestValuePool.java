@@ -0,0 +1,51 @@
+package de.ncm.x3.iam.parser;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+import de.ncm.x3.iam.data.universe.GridPos;
+import de.ncm.x3.iam.data.universe.Race;
+
+public class TestValuePool {
+	
+	@Test
+	public void testStrings() {
+		ValuePool pool = new ValuePool();
+		pool.setMaxStrings(2);
+		String argon = pool.string(new String("Argon Prime"));
+		assertSame(argon, pool.string(new String("Argon Prime")));
+		pool.string("Home of Light");
+		String full = new String("Ministry of Finance");
+		assertSame("Table is full", full, pool.string(full));
+		assertEquals(2, pool.getStringCount());
+	}
+	
+	@Test
+	public void testRaces() {
+		ValuePool pool = new ValuePool();
+		Race argon = pool.race(1, "Argon");
+		assertSame(argon, pool.race(1, new String("Argon")));
+		assertSame(ValuePool.integer(1), argon.getId());
+		Race renamed = pool.race(1, "Argon Federation");
+		assertNotSame(argon, renamed);
+		assertSame(renamed, pool.race(1, "Argon Federation"));
+		assertSame(ValuePool.integer(4000), ValuePool.integer(4000));
+	}
+	
+	@Test
+	public void testGrid() {
+		ValuePool pool = new ValuePool();
+		assertSame(pool.gridPos(3, 4), pool.gridPos(3, 4));
+		assertSame(pool.gridPos(-1, -1), pool.gridPos(-1, -1));
+		assertSame(pool.gridPos(1000, -5), pool.gridPos(1000, -5));
+		assertEquals(new GridPos(1000, -5), pool.gridPos(1000, -5));
+		assertSame(pool.gridPos(3, 4), pool.warpGate(3, 4).getTargetGridPos());
+		assertSame(pool.warpGate(3, 4), pool.warpGate(3, 4));
+		assertSame(pool.warpGate(300, 4), pool.warpGate(300, 4));
+	}
+	
+}
@@ -0,0 +1,50 @@
+package de.ncm.x3.iam.parser.metrics;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class TestHistogram {
+	
+	@Test
+	public void testBuckets() {
+		for (long value = 0; value < 100000; value++) {
+			int index = Histogram.index(value);
+			assertTrue(Histogram.lowest(index) <= value);
+			assertTrue(value < Histogram.lowest(index) + Histogram.width(index));
+			assertTrue("Precision", index < Histogram.SUB_BUCKETS || Histogram.width(index) * 32 <= Histogram.lowest(index));
+		}
+		assertEquals(Histogram.index(Histogram.SUB_BUCKETS - 1) + 1, Histogram.index(Histogram.SUB_BUCKETS));
+		int last = Histogram.index(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, Histogram.lowest(last) + Histogram.width(last) - 1);
+	}
+	
+	@Test
+	public void testPercentiles() {
+		Histogram histogram = new Histogram();
+		for (int i = 1; i <= 1000; i++) {
+			histogram.record(i);
+		}
+		HistogramSnapshot snapshot = histogram.getSnapshot();
+		assertEquals(1000L, snapshot.getCount());
+		assertEquals(1L, snapshot.getMin());
+		assertEquals(1000L, snapshot.getMax());
+		assertEquals(500.5, snapshot.getMean(), 0.001);
+		assertEquals(500, snapshot.getP50(), 500 / 32);
+		assertEquals(900, snapshot.getP90(), 900 / 32);
+		assertEquals(990, snapshot.getP99(), 990 / 32);
+		assertEquals(1000L, histogram.getValueAtPercentile(100));
+	}
+	
+	@Test
+	public void testEmpty() {
+		Histogram histogram = new Histogram();
+		assertEquals(0L, histogram.getValueAtPercentile(50));
+		assertEquals(0L, histogram.getSnapshot().getMax());
+		histogram.record(-5);
+		assertEquals(0L, histogram.getSnapshot().getMin());
+	}
+	
+}
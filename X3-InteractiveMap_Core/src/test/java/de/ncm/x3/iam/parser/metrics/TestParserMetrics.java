@@ -0,0 +1,86 @@
+package de.ncm.x3.iam.parser.metrics;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.Test;
+
+import de.ncm.x3.iam.parser.ParseEvent;
+import de.ncm.x3.iam.parser.ParseListener;
+import de.ncm.x3.iam.parser.Parser;
+
+public class TestParserMetrics {
+	
+	@Test
+	public void testJMX() throws Exception {
+		ParserMetrics metrics = new ParserMetrics();
+		metrics.parsed();
+		metrics.recordRead(2000000, 4096);
+		metrics.recordModel(10, 20, 3);
+		ObjectName name = metrics.register("Test");
+		assertNotNull(name);
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			assertEquals(1L, server.getAttribute(name, "ParsedCount"));
+			assertEquals(4096L, server.getAttribute(name, "BytesRead"));
+			assertEquals(10, server.getAttribute(name, "SectorCount"));
+			CompositeData readTime = (CompositeData) server.getAttribute(name, "ReadTime");
+			assertEquals(1L, readTime.get("count"));
+			assertEquals(2000L, readTime.get("max"));
+			
+			assertNotNull("Registered again", new ParserMetrics().register("Test"));
+		} finally {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+		}
+	}
+	
+	@Test
+	public void testDispatchAndRun() {
+		Parser parser = new Parser() {
+			
+			@Override
+			public void parse() {
+				fireParseEndEvent(new ParseEvent(this, "value"));
+			}
+			
+			@Override
+			public boolean needUpdate(long timeGone) {
+				return true;
+			}
+		};
+		parser.addParseListener(new ParseListener() {
+			
+			@Override
+			public void onParseStart(ParseEvent e) {}
+			
+			@Override
+			public void onParseEnd(ParseEvent e) {
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		parser.parse();
+		parser.getMetrics().recordRun(1000000);
+		parser.parse();
+		parser.getMetrics().recordRun(1000000);
+		
+		ParserMetrics metrics = parser.getMetrics();
+		assertEquals(2L, metrics.getDispatchTime().getCount());
+		assertTrue(metrics.getDispatchTime().getMin() >= 5000);
+		assertEquals(2L, metrics.getRunTime().getCount());
+		assertEquals(1L, metrics.getRunInterval().getCount());
+		assertTrue(metrics.getSummary().startsWith("parsed=0"));
+	}
+	
+}
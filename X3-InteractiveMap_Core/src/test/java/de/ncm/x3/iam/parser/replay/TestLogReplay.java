@@ -0,0 +1,175 @@
+package de.ncm.x3.iam.parser.replay;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestLogReplay {
+	
+	private File directory;
+	private File archiveFile;
+	
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("replay").toFile();
+		archiveFile = new File(directory, "session.x3log");
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		for (File file : directory.listFiles()) {
+			file.delete();
+		}
+		directory.delete();
+	}
+	
+	@Test
+	public void testArchive() throws IOException {
+		byte[] large = new byte[100000];
+		Arrays.fill(large, (byte) 'x');
+		LogArchive archive = new LogArchive(archiveFile);
+		archive.append(new LogRecord(1000, "log00902.txt", "<Data/>".getBytes()));
+		archive.append(new LogRecord(2000, "log00903.txt", large));
+		archive.close();
+		assertTrue("Records are compressed", archiveFile.length() < 2000);
+		
+		// Continued later
+		archive = new LogArchive(archiveFile);
+		archive.append(new LogRecord(3000, "log00902.txt", new byte[0]));
+		archive.close();
+		
+		LogArchive.Reader reader = new LogArchive(archiveFile).openReader();
+		try {
+			LogRecord record = reader.next();
+			assertEquals(1000L, record.getTime());
+			assertEquals("log00902.txt", record.getName());
+			assertEquals("<Data/>", new String(record.getContent()));
+			assertTrue(Arrays.equals(large, reader.next().getContent()));
+			assertEquals(0, reader.next().getContent().length);
+			assertNull(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+	
+	@Test
+	public void testTruncatedArchive() throws IOException {
+		LogArchive archive = new LogArchive(archiveFile);
+		archive.append(new LogRecord(1000, "a", "first".getBytes()));
+		archive.append(new LogRecord(2000, "a", "second".getBytes()));
+		archive.close();
+		RandomAccessFile file = new RandomAccessFile(archiveFile, "rw");
+		file.setLength(file.length() - 3);
+		file.close();
+		
+		LogArchive.Reader reader = new LogArchive(archiveFile).openReader();
+		try {
+			assertEquals("first", new String(reader.next().getContent()));
+			assertNull(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+	
+	@Test
+	public void testTruncatedArchiveIsContinued() throws IOException {
+		LogArchive archive = new LogArchive(archiveFile);
+		archive.append(new LogRecord(1000, "a", "first".getBytes()));
+		archive.append(new LogRecord(2000, "a", "second".getBytes()));
+		archive.close();
+		RandomAccessFile file = new RandomAccessFile(archiveFile, "rw");
+		file.setLength(file.length() - 3);
+		file.close();
+		
+		archive = new LogArchive(archiveFile);
+		archive.append(new LogRecord(3000, "a", "third".getBytes()));
+		archive.append(new LogRecord(4000, "a", "fourth".getBytes()));
+		archive.close();
+		
+		LogArchive.Reader reader = new LogArchive(archiveFile).openReader();
+		try {
+			assertEquals("first", new String(reader.next().getContent()));
+			assertEquals("third", new String(reader.next().getContent()));
+			assertEquals("fourth", new String(reader.next().getContent()));
+			assertNull(reader.next());
+		} finally {
+			reader.close();
+		}
+	}
+	
+	@Test(expected = IOException.class)
+	public void testNoArchive() throws IOException {
+		write(archiveFile, "<Data/>");
+		new LogArchive(archiveFile).openReader();
+	}
+	
+	@Test
+	public void testRecordAndPlay() throws IOException, InterruptedException {
+		File log = new File(directory, "log00902.txt");
+		LogRecorder recorder = new LogRecorder(archiveFile);
+		recorder.setFiles(Arrays.asList(log, new File(directory, "log00903.txt")));
+		assertEquals(0, recorder.poll());
+		write(log, "1");
+		assertEquals(1, recorder.poll());
+		assertEquals("Unchanged file", 0, recorder.poll());
+		write(log, "22");
+		assertEquals(1, recorder.poll());
+		write(log, "333");
+		assertEquals(1, recorder.poll());
+		assertEquals(3L, recorder.getRecordedCount());
+		recorder.stop();
+		
+		File target = Files.createTempDirectory(directory.toPath(), "target").toFile();
+		try {
+			LogPlayer player = new LogPlayer(archiveFile, target);
+			player.setSpeed(LogPlayer.MAXIMUM_SPEED);
+			assertEquals(3L, player.play());
+			assertEquals("333", new String(Files.readAllBytes(new File(target, "log00902.txt").toPath())));
+			assertEquals(1, target.list().length);
+		} finally {
+			for (File file : target.listFiles()) {
+				file.delete();
+			}
+			target.delete();
+		}
+	}
+	
+	@Test
+	public void testPlayKeepsPace() throws IOException, InterruptedException {
+		LogArchive archive = new LogArchive(archiveFile);
+		archive.append(new LogRecord(10000, "a", "1".getBytes()));
+		archive.append(new LogRecord(10400, "a", "2".getBytes()));
+		archive.close();
+		File target = new File(directory, "a");
+		
+		LogPlayer player = new LogPlayer(archiveFile, directory);
+		player.setSpeed(2);
+		long start = System.currentTimeMillis();
+		player.play();
+		long time = System.currentTimeMillis() - start;
+		assertTrue("Played in " + time + " ms", time >= 200);
+		assertEquals("2", new String(Files.readAllBytes(target.toPath())));
+	}
+	
+	private static void write(File file, String content) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes());
+		} finally {
+			out.close();
+		}
+	}
+	
+}
@@ -0,0 +1,97 @@
+package de.ncm.x3.iam.parser.xml;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.ncm.x3.iam.data.ActualPlayerInfo;
+import de.ncm.x3.iam.data.universe.GridPos;
+import de.ncm.x3.iam.parser.ParseEvent;
+import de.ncm.x3.iam.parser.ParseListener;
+import de.ncm.x3.iam.parser.Parser;
+
+public class TestActualPlayerPositionParser {
+	
+	private File file;
+	
+	@Before
+	public void setUp() throws Exception {
+		file = new File(getClass().getResource("/log00902.txt").toURI());
+	}
+	
+	@Test
+	public void testParseFixture() {
+		ActualPlayerInfo info = parse(new ActualPlayerPositionParser(file));
+		assertEquals(new GridPos(5, 3), info.getSectorPosition());
+		assertEquals("Discoverer & Co", info.getShipName());
+		assertEquals(-12345, info.getX());
+		assertEquals(678, info.getY());
+		assertEquals(9000, info.getZ());
+		
+		ActualPlayerInfo expected = parse(new ActualPlayerPositionDOMParser(file));
+		assertEquals(expected.getSectorPosition(), info.getSectorPosition());
+		assertEquals(expected.getShipName(), info.getShipName());
+		assertEquals(expected.getX(), info.getX());
+		assertEquals(expected.getY(), info.getY());
+		assertEquals(expected.getZ(), info.getZ());
+	}
+	
+	@Test
+	public void testFreshInfoSharesEqualValues() throws IOException {
+		ActualPlayerPositionParser parser = new ActualPlayerPositionParser(file);
+		ActualPlayerInfo info = parser.parseDocument(position("Argon Prime", 1, 1, "Mercury", 10));
+		GridPos sector = info.getSectorPosition();
+		String shipName = info.getShipName();
+		
+		ActualPlayerInfo next = parser.parseDocument(position("Argon Prime", 1, 1, "Mercury", 20));
+		assertNotSame(info, next); // The published one is never changed
+		assertEquals(10, info.getX());
+		assertSame(sector, next.getSectorPosition());
+		assertSame(shipName, next.getShipName());
+		assertEquals(20, next.getX());
+		
+		next = parser.parseDocument(position("Home of Light", 2, 1, "Nova", 30));
+		assertNotSame(sector, next.getSectorPosition());
+		assertEquals(new GridPos(1, 1), sector);
+		assertEquals(new GridPos(2, 1), next.getSectorPosition());
+		assertEquals("Nova", next.getShipName());
+	}
+	
+	@Test(expected = IOException.class)
+	public void testInvalidNumber() throws IOException {
+		new ActualPlayerPositionParser(file).parseDocument(ByteBuffer.wrap("<Data><Sector><X>1a</X></Sector></Data>".getBytes()));
+	}
+	
+	private static ByteBuffer position(String sectorName, int sectorX, int sectorY, String shipName, int x) {
+		String content = "<?xml version=\"1.0\"?><Data><Sector><Name>" + sectorName + "</Name><X>" + sectorX + "</X><Y>" + sectorY
+				+ "</Y></Sector><Ship><Name>" + shipName + "</Name><X>" + x + "</X><Y>0</Y><Z>0</Z></Ship></Data>";
+		return ByteBuffer.wrap(content.getBytes());
+	}
+	
+	private static ActualPlayerInfo parse(Parser parser) {
+		final ActualPlayerInfo[] ret = new ActualPlayerInfo[1];
+		parser.addParseListener(new ParseListener() {
+			
+			@Override
+			public void onParseStart(ParseEvent e) {}
+			
+			@Override
+			public void onParseEnd(ParseEvent e) {
+				ret[0] = (ActualPlayerInfo) e.getParsedValue();
+			}
+		});
+		parser.parse();
+		assertNotNull(ret[0]);
+		return ret[0];
+	}
+	
+}
@@ -0,0 +1,241 @@
+package de.ncm.x3.iam.parser.xml;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.util.Map.Entry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.ncm.x3.iam.data.universe.GridPos;
+import de.ncm.x3.iam.data.universe.Race;
+import de.ncm.x3.iam.data.universe.Sector;
+import de.ncm.x3.iam.data.universe.SpaceStation;
+import de.ncm.x3.iam.data.universe.UniverseMap;
+import de.ncm.x3.iam.data.universe.WarpGate;
+import de.ncm.x3.iam.data.universe.WarpGateConstants;
+import de.ncm.x3.iam.generator.UniverseGenerator;
+import de.ncm.x3.iam.parser.ParseEvent;
+import de.ncm.x3.iam.parser.ParseListener;
+import de.ncm.x3.iam.parser.Parser;
+import de.ncm.x3.iam.parser.ValuePool;
+
+public class TestUniverseMapParser {
+
+	private File largeFile;
+
+	@Before
+	public void setUp() throws Exception {
+		largeFile = File.createTempFile("log00903", ".txt");
+		largeFile.deleteOnExit();
+		UniverseGenerator generator = new UniverseGenerator(50);
+		generator.setWidth(50);
+		generator.setHeight(50);
+		generator.setSectorDensity(1);
+		generator.setStationsPerSector(10);
+		generator.writeExport(largeFile);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		largeFile.delete();
+	}
+
+	@Test
+	public void testParseFixture() throws URISyntaxException {
+		File file = new File(getClass().getResource("/log00903.txt").toURI());
+		UniverseMap map = parse(new UniverseMapParser(file));
+
+		assertEquals(2, map.getRaces().size());
+		assertEquals("Boron", map.getRaces().get(2).getName());
+		assertEquals(3, map.getSectors().size());
+
+		Sector argonPrime = map.getSectors().get(new GridPos(1, 1));
+		assertEquals("Argon Prime", argonPrime.getName());
+		assertEquals("Argon", argonPrime.getRace().getName());
+		assertEquals(new GridPos(1, 0), argonPrime.getWarpGate(WarpGateConstants.WARPGATE_NORTH).getTargetGridPos());
+		assertNull(argonPrime.getWarpGate(WarpGateConstants.WARPGATE_SOUTH));
+		assertEquals(new GridPos(2, 1), argonPrime.getWarpGate(WarpGateConstants.WARPGATE_EAST).getTargetGridPos());
+		assertEquals(3, argonPrime.getSpaceStations().size());
+		SpaceStation dock = argonPrime.getSpaceStations().get(0);
+		assertEquals("Argon Equipment Dock", dock.getName());
+		assertTrue(dock.isDock());
+		assertEquals(-300, dock.getPosY());
+
+		Sector ministry = map.getSectors().get(new GridPos(2, 1));
+		assertEquals("Boron", ministry.getRace().getName());
+		assertEquals(0, ministry.getSpaceStations().size());
+
+		assertEquivalent(parse(new UniverseMapDOMParser(file)), map);
+	}
+
+	@Test
+	public void testLargeUniverseEquivalentToDOM() {
+		// Warm up both parsers, so the comparison is not dominated by class loading
+		parse(new UniverseMapDOMParser(largeFile));
+		parse(createParser(largeFile, -1));
+
+		// Sequential, only the allocations of the calling thread are measured
+		long[] dom = new long[1];
+		UniverseMap domMap = measure(new UniverseMapDOMParser(largeFile), dom);
+		long[] stax = new long[1];
+		UniverseMap staxMap = measure(createParser(largeFile, -1), stax);
+
+		assertEquals(2500, staxMap.getSectors().size());
+		assertEquivalent(domMap, staxMap);
+		if (dom[0] >= 0 && stax[0] >= 0) {
+			assertTrue("Streaming parser should allocate less than the DOM parser", stax[0] < dom[0]);
+		}
+	}
+
+	@Test
+	public void testParallelEquivalentToSequential() throws URISyntaxException {
+		File file = new File(getClass().getResource("/log00903.txt").toURI());
+		assertEquivalent(parse(createParser(file, -1)), parse(createParser(file, 0)));
+
+		UniverseMap sequential = parse(createParser(largeFile, -1));
+		UniverseMap parallel = parse(createParser(largeFile, 0));
+		assertEquals(2500, parallel.getSectors().size());
+		assertEquivalent(sequential, parallel);
+	}
+
+	@Test
+	public void testValuesSharedAcrossParses() throws URISyntaxException {
+		File file = new File(getClass().getResource("/log00903.txt").toURI());
+		UniverseMapParser parser = new UniverseMapParser(file);
+		parser.setValuePool(new ValuePool());
+		UniverseMap first = parse(parser);
+		UniverseMapParser next = new UniverseMapParser(file);
+		next.setValuePool(parser.getValuePool());
+		UniverseMap second = parse(next);
+
+		for (Entry<GridPos, Sector> entry : first.getSectors().entrySet()) {
+			Sector sector = second.getSectors().get(entry.getKey());
+			assertNotSame(entry.getValue(), sector);
+			assertSame(entry.getValue().getName(), sector.getName());
+			assertSame(entry.getValue().getRace(), sector.getRace());
+			for (byte gate = 0; gate <= WarpGateConstants.WARPGATE_MAX_VALUE; gate++) {
+				assertSame(entry.getValue().getWarpGate(gate), sector.getWarpGate(gate));
+			}
+			for (int i = 0; i < sector.getSpaceStations().size(); i++) {
+				assertSame(entry.getValue().getSpaceStations().get(i).getName(), sector.getSpaceStations().get(i).getName());
+				assertSame(entry.getValue().getSpaceStations().get(i).getType(), sector.getSpaceStations().get(i).getType());
+			}
+		}
+		for (GridPos pos : second.getSectors().keySet()) {
+			assertSame(parser.getValuePool().gridPos(pos.getGridX(), pos.getGridY()), pos);
+		}
+		assertSame(first.getRaces().get(2), second.getRaces().get(2));
+	}
+
+	@Test
+	public void testSectorRanges() throws IOException {
+		String export = "<?xml version=\"1.0\"?><Data><Map><Sector><Name>A</Name><GateConnections><Sector><Name>NorthGate</Name></Sector>"
+				+ "</GateConnections></Sector> <Other/><sector/></Map><Races><Race/></Races></Data>";
+		ByteBuffer content = ByteBuffer.wrap(export.getBytes());
+		SectorRanges ranges = SectorRanges.scan(content);
+		assertEquals(2, ranges.getCount());
+		assertEquals(export.indexOf("<Sector>"), ranges.getStart(0));
+		assertEquals(export.indexOf(" <Other/>"), ranges.getEnd(0));
+		assertEquals("<sector/>", export.substring(ranges.getStart(1), ranges.getEnd(1)));
+		assertEquals("<Races><Race/></Races>", export.substring(ranges.getRacesStart(), ranges.getRacesEnd()));
+
+		assertNull("Comments are not supported", SectorRanges.scan(ByteBuffer.wrap("<Data><!-- <Map> --></Data>".getBytes())));
+		assertNull(SectorRanges.scan(ByteBuffer.wrap("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><Data/>".getBytes())));
+	}
+
+	private static UniverseMapParser createParser(File file, int parallelThreshold) {
+		UniverseMapParser parser = new UniverseMapParser(file);
+		parser.setParallelThreshold(parallelThreshold);
+		parser.setParallelism(2);
+		return parser;
+	}
+
+	private static void assertEquivalent(UniverseMap expected, UniverseMap actual) {
+		assertEquals(expected.getRaces().size(), actual.getRaces().size());
+		for (Entry<Integer, Race> entry : expected.getRaces().entrySet()) {
+			Race race = actual.getRaces().get(entry.getKey());
+			assertNotNull(race);
+			assertEquals(entry.getValue().getId(), race.getId());
+			assertEquals(entry.getValue().getName(), race.getName());
+		}
+
+		assertEquals(expected.getSectors().keySet(), actual.getSectors().keySet());
+		for (Entry<GridPos, Sector> entry : expected.getSectors().entrySet()) {
+			Sector e = entry.getValue();
+			Sector a = actual.getSectors().get(entry.getKey());
+			assertEquals(e.getName(), a.getName());
+			if (e.getRace() == null) {
+				assertNull(a.getRace());
+			} else {
+				assertEquals(e.getRace().getId(), a.getRace().getId());
+			}
+			for (byte i = 0; i < 4; i++) {
+				WarpGate eGate = e.getWarpGate(i);
+				WarpGate aGate = a.getWarpGate(i);
+				if (eGate == null) {
+					assertNull(aGate);
+				} else {
+					assertEquals(eGate.getTargetGridPos(), aGate.getTargetGridPos());
+				}
+			}
+			assertEquals(e.getSpaceStations().size(), a.getSpaceStations().size());
+			for (int i = 0; i < e.getSpaceStations().size(); i++) {
+				SpaceStation eStation = e.getSpaceStations().get(i);
+				SpaceStation aStation = a.getSpaceStations().get(i);
+				assertEquals(eStation.getName(), aStation.getName());
+				assertEquals(eStation.getType(), aStation.getType());
+				assertEquals(eStation.getPosX(), aStation.getPosX());
+				assertEquals(eStation.getPosY(), aStation.getPosY());
+				assertEquals(eStation.getPosZ(), aStation.getPosZ());
+			}
+		}
+	}
+
+	/**
+	 * Parses with the given parser and stores the bytes allocated by the current thread (-1 if unsupported) in the result array.
+	 */
+	private static UniverseMap measure(Parser parser, long[] result) {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		com.sun.management.ThreadMXBean sunBean = null;
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			sunBean = (com.sun.management.ThreadMXBean) bean;
+		}
+		long threadId = Thread.currentThread().getId();
+		long allocated = sunBean != null ? sunBean.getThreadAllocatedBytes(threadId) : -1;
+		UniverseMap map = parse(parser);
+		result[0] = sunBean != null && allocated >= 0 ? sunBean.getThreadAllocatedBytes(threadId) - allocated : -1;
+		return map;
+	}
+
+	private static UniverseMap parse(Parser parser) {
+		final UniverseMap[] ret = new UniverseMap[1];
+		parser.addParseListener(new ParseListener() {
+
+			@Override
+			public void onParseStart(ParseEvent e) {}
+
+			@Override
+			public void onParseEnd(ParseEvent e) {
+				ret[0] = (UniverseMap) e.getParsedValue();
+			}
+		});
+		parser.parse();
+		assertNotNull(ret[0]);
+		return ret[0];
+	}
+
+}
@@ -0,0 +1,148 @@
+package de.ncm.x3.iam.parser.xml;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.ncm.x3.iam.data.universe.GridPos;
+import de.ncm.x3.iam.data.universe.Sector;
+import de.ncm.x3.iam.data.universe.UniverseMap;
+import de.ncm.x3.iam.data.universe.UniverseMapDiff;
+import de.ncm.x3.iam.parser.ParseEvent;
+import de.ncm.x3.iam.parser.ParseListener;
+
+public class TestUniverseMapSnapshot {
+	
+	private File logFile;
+	private File snapshotFile;
+	private UniverseMap parsed;
+	private int parseCount;
+	
+	@Before
+	public void setUp() throws Exception {
+		logFile = File.createTempFile("log00903", ".txt");
+		snapshotFile = File.createTempFile("universemap", ".snapshot");
+		snapshotFile.delete();
+		File fixture = new File(getClass().getResource("/log00903.txt").toURI());
+		Files.copy(fixture.toPath(), logFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		parsed = null;
+		parseCount = 0;
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		logFile.delete();
+		snapshotFile.delete();
+	}
+	
+	@Test
+	public void testWriteAndRead() throws IOException {
+		UniverseMapParser parser = createParser();
+		parser.parse();
+		assertNotNull(parsed);
+		assertTrue(snapshotFile.exists());
+		
+		UniverseMapSnapshot snapshot = UniverseMapSnapshot.read(snapshotFile);
+		assertEquals(logFile.length(), (long) snapshot.getSourceLength());
+		assertEquals(logFile.lastModified(), snapshot.getSourceModified());
+		UniverseMap map = snapshot.getMap();
+		assertTrue(UniverseMapDiff.compare(parsed, map).isEmpty());
+		for (Sector sector : map.getSectors().values()) {
+			if (sector.getRace() != null) {
+				assertSame(map.getRaces().get(sector.getRace().getId()), sector.getRace());
+			}
+		}
+	}
+	
+	@Test
+	public void testRestoreSkipsUnchangedExport() {
+		createParser().parse();
+		UniverseMap expected = parsed;
+		
+		UniverseMapParser parser = createParser();
+		parser.restore();
+		assertEquals(2, parseCount);
+		assertTrue(UniverseMapDiff.compare(expected, parsed).isEmpty());
+		assertFalse("Export unchanged", parser.needUpdate(0));
+		
+		// Only touched, so it is read but not parsed
+		logFile.setLastModified(logFile.lastModified() + 2000);
+		assertTrue(parser.needUpdate(0));
+		parser.parse();
+		assertEquals(2, parseCount);
+		assertEquals(1L, parser.getSkippedCount());
+		
+		parser.restore();
+		assertEquals("Restored only once", 2, parseCount);
+	}
+	
+	@Test
+	public void testCorruptSnapshot() throws IOException {
+		createParser().parse();
+		RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw");
+		try {
+			file.seek(file.length() / 2);
+			int b = file.read();
+			file.seek(file.length() / 2);
+			file.write(b ^ 0xff);
+		} finally {
+			file.close();
+		}
+		try {
+			UniverseMapSnapshot.read(snapshotFile);
+			fail("Checksum not verified");
+		} catch (IOException e) {
+			// Expected
+		}
+		
+		UniverseMapParser parser = createParser();
+		parser.restore();
+		assertEquals("Corrupt snapshot is ignored", 1, parseCount);
+		assertTrue(parser.needUpdate(0));
+	}
+	
+	@Test
+	public void testMapWithoutRaces() throws IOException {
+		UniverseMap map = new UniverseMap();
+		Sector sector = new Sector();
+		sector.setName("Unknown Sector");
+		map.putSector(new GridPos(3, 4), sector);
+		new UniverseMapSnapshot(map, 0, 0, 0).write(snapshotFile);
+		UniverseMap read = UniverseMapSnapshot.read(snapshotFile).getMap();
+		assertEquals(null, read.getRaces());
+		assertEquals("Unknown Sector", read.getSectorName(new GridPos(3, 4)));
+	}
+	
+	private UniverseMapParser createParser() {
+		UniverseMapParser parser = new UniverseMapParser(logFile);
+		parser.setSettleTime(0);
+		parser.setSnapshotFile(snapshotFile);
+		parser.addParseListener(new ParseListener() {
+			
+			@Override
+			public void onParseStart(ParseEvent e) {}
+			
+			@Override
+			public void onParseEnd(ParseEvent e) {
+				parsed = (UniverseMap) e.getParsedValue();
+				parseCount++;
+			}
+		});
+		return parser;
+	}
+	
+}
@@ -0,0 +1,231 @@
+package de.ncm.x3.iam.parser.xml;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+import de.ncm.x3.iam.parser.ParseEvent;
+import de.ncm.x3.iam.parser.ParseListener;
+import de.ncm.x3.iam.parser.metrics.ParserMetrics;
+
+public class TestXMLParser {
+	
+	private File file;
+	private NameParser parser;
+	private int parsed;
+	
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("log00902", ".txt");
+		parser = new NameParser(file);
+		parser.setSettleTime(0);
+		parsed = 0;
+		parser.addParseListener(new ParseListener() {
+			
+			@Override
+			public void onParseStart(ParseEvent e) {}
+			
+			@Override
+			public void onParseEnd(ParseEvent e) {
+				parsed++;
+			}
+		});
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		file.delete();
+	}
+	
+	@Test
+	public void testIsComplete() {
+		assertTrue(XMLParser.isComplete(ByteBuffer.wrap("<Data></Data>".getBytes())));
+		assertTrue(XMLParser.isComplete(ByteBuffer.wrap("<Data></Data>\r\n ".getBytes())));
+		assertFalse(XMLParser.isComplete(ByteBuffer.wrap("<Data></Data>".getBytes(), 0, 12)));
+		assertFalse(XMLParser.isComplete(ByteBuffer.wrap("<Data><Name>a</Name>".getBytes())));
+		assertFalse(XMLParser.isComplete(ByteBuffer.wrap(new byte[0])));
+	}
+	
+	@Test
+	public void testIncompleteFileIsRetried() throws Exception {
+		write("<Data><Name>Argon Prime</Na", 1000);
+		assertTrue(parser.needUpdate(0));
+		parser.parse();
+		assertEquals(0, parsed);
+		assertEquals(1L, parser.getRetriedCount());
+		assertFalse("Backoff", parser.needUpdate(0));
+		
+		write("<Data><Name>Argon Prime</Name></Data>", 2000);
+		Thread.sleep(XMLParser.MIN_BACKOFF + 10);
+		assertTrue(parser.needUpdate(0));
+		parser.parse();
+		assertEquals(1, parsed);
+		assertEquals("Argon Prime", parser.name);
+		assertFalse(parser.needUpdate(0));
+	}
+	
+	@Test
+	public void testUnchangedContentIsSkipped() throws Exception {
+		write("<Data><Name>Argon Prime</Name></Data>", 1000);
+		parser.parse();
+		write("<Data><Name>Argon Prime</Name></Data>", 2000);
+		assertTrue(parser.needUpdate(0));
+		parser.parse();
+		assertEquals(1, parsed);
+		assertEquals(1L, parser.getSkippedCount());
+		assertFalse(parser.needUpdate(0));
+	}
+	
+	@Test
+	public void testBrokenFileBacksOff() throws Exception {
+		write("<Data><Name>Argon Prime</Data>", 1000);
+		parser.parse();
+		assertEquals(1L, parser.getFailedCount());
+		Thread.sleep(XMLParser.MIN_BACKOFF + 10);
+		parser.parse();
+		assertEquals(2L, parser.getFailedCount());
+		Thread.sleep(XMLParser.MIN_BACKOFF + 10);
+		assertFalse("Second backoff is longer", parser.needUpdate(0));
+		assertEquals(0, parsed);
+	}
+	
+	@Test
+	public void testRuntimeExceptionBacksOff() throws Exception {
+		write("<Data><Name/></Data>", 1000);
+		parser.parse();
+		assertEquals(1L, parser.getFailedCount());
+		assertFalse("Backoff", parser.needUpdate(0));
+		
+		write("<Data><Name>Argon Prime</Name></Data>", 2000);
+		Thread.sleep(XMLParser.MIN_BACKOFF + 10);
+		parser.parse();
+		assertEquals(1, parsed);
+		assertEquals("Argon Prime", parser.name);
+	}
+	
+	@Test
+	public void testMetrics() throws Exception {
+		write("<Data><Name>Argon Prime</Name></Data>", 1000);
+		parser.parse();
+		write("<Data><Name>Argon Prime</Name></Data>", 2000);
+		parser.parse();
+		
+		ParserMetrics metrics = parser.getMetrics();
+		assertEquals(1L, metrics.getParsedCount());
+		assertEquals(1L, metrics.getSkippedCount());
+		assertEquals(2L, metrics.getReadTime().getCount());
+		assertEquals(2L * file.length(), metrics.getBytesRead());
+		assertEquals(1L, metrics.getParseTime().getCount());
+		assertEquals("DOM engine reports the build", 1L, metrics.getBuildTime().getCount());
+		assertEquals(1L, metrics.getDispatchTime().getCount());
+	}
+	
+	@Test
+	public void testChangedFileCancelsParse() throws Exception {
+		write("<Data><Name>Argon Prime</Name></Data>", 1000);
+		parser.during = new Runnable() {
+			
+			@Override
+			public void run() {
+				try {
+					write("<Data><Name>Home of Light</Name></Data>", 2000);
+				} catch (IOException e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		};
+		parser.parse();
+		assertEquals("Stale result dropped", 0, parsed);
+		assertEquals(1L, parser.getCancelledCount());
+		assertTrue("Parsed again at once", parser.needUpdate(0));
+		
+		parser.during = null;
+		parser.parse();
+		assertEquals(1, parsed);
+		assertEquals("Home of Light", parser.name);
+		assertFalse(parser.needUpdate(0));
+	}
+	
+	@Test
+	public void testCancel() throws Exception {
+		write("<Data><Name>Argon Prime</Name></Data>", 1000);
+		parser.during = new Runnable() {
+			
+			@Override
+			public void run() {
+				parser.cancel();
+			}
+		};
+		parser.parse();
+		assertEquals(0, parsed);
+		assertEquals(1L, parser.getCancelledCount());
+		
+		parser.during = null;
+		parser.parse();
+		assertEquals(1, parsed);
+	}
+	
+	@Test
+	public void testPermanentChangesDoNotStarve() throws Exception {
+		write("<Data><Name>Argon Prime</Name></Data>", 1000);
+		parser.during = new Runnable() {
+			
+			private int offset = 1000;
+			
+			@Override
+			public void run() {
+				offset += 1000;
+				file.setLastModified(System.currentTimeMillis() + offset);
+			}
+		};
+		for (int i = 0; i < XMLParser.MAX_CANCELLATIONS; i++) {
+			parser.parse();
+		}
+		assertEquals(0, parsed);
+		assertEquals((long) XMLParser.MAX_CANCELLATIONS, parser.getCancelledCount());
+		parser.parse();
+		assertEquals(1, parsed);
+	}
+	
+	private void write(String content, long modifiedOffset) throws IOException {
+		FileWriter out = new FileWriter(file);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+		file.setLastModified(System.currentTimeMillis() + modifiedOffset);
+	}
+	
+	private static class NameParser extends DOMParser<String> {
+		
+		private String name;
+		private Runnable during;
+		
+		public NameParser(File logFile) {
+			super(logFile);
+		}
+		
+		@Override
+		protected String parseXML(Element rootElement) {
+			if (during != null) {
+				during.run();
+			}
+			checkCancelled();
+			name = getStringValueOf(rootElement.getElementsByTagName("Name").item(0));
+			return name;
+		}
+	}
+	
+}
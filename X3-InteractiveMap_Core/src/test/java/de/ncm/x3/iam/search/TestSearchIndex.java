@@ -0,0 +1,109 @@
+package de.ncm.x3.iam.search;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.ncm.jgoodies.model.HashMapModel;
+import de.ncm.x3.iam.data.universe.GridPos;
+import de.ncm.x3.iam.data.universe.Race;
+import de.ncm.x3.iam.data.universe.Sector;
+import de.ncm.x3.iam.data.universe.SpaceStation;
+import de.ncm.x3.iam.data.universe.UniverseMap;
+import de.ncm.x3.iam.data.universe.WarpGate;
+
+public class TestSearchIndex {
+	
+	private UniverseMap map;
+	private Race argon = new Race(1, "Argon");
+	private Race boron = new Race(2, "Boron");
+	
+	@Before
+	public void setUp() {
+		map = new UniverseMap();
+		HashMapModel<Integer, Race> races = new HashMapModel<Integer, Race>();
+		races.put(1, argon);
+		races.put(2, boron);
+		map.setRaces(races);
+		Sector prime = putSector(0, 0, "Argon Prime", argon);
+		prime.addSpaceStation(new SpaceStation(SpaceStation.TYPE_Dock, 0, 0, 0, "Equipment Dock"));
+		prime.addSpaceStation(new SpaceStation(SpaceStation.TYPE_FACTORY, 0, 0, 0, "Solar Power Plant"));
+		putSector(1, 0, "Home of Light", argon);
+		putSector(2, 0, "Kingdom End", boron).addSpaceStation(new SpaceStation(SpaceStation.TYPE_FACTORY, 0, 0, 0, "BoFu Chemical Lab"));
+	}
+	
+	@Test
+	public void testRanking() {
+		SearchIndex index = new SearchIndex(map);
+		assertEquals(8, index.size());
+		
+		List<SearchHit> hits = index.search("argon", 10);
+		assertEquals("Argon", hits.get(0).getName());
+		assertEquals(SearchHit.KIND_RACE, hits.get(0).getKind());
+		assertEquals("Argon Prime", hits.get(1).getName());
+		assertEquals(GridPos.valueOf(0, 0), hits.get(1).getGridPos());
+		assertEquals(2, hits.size());
+		
+		// As typed, with a typo and by the station type
+		assertEquals("Home of Light", index.search("h", 10).get(0).getName());
+		assertEquals("Home of Light", index.search("ho", 10).get(0).getName());
+		assertEquals("Home of Light", index.search("light", 10).get(0).getName());
+		assertEquals("Argon Prime", index.search("argn prim", 10).get(0).getName());
+		hits = index.search("dock", 10);
+		assertEquals(1, hits.size());
+		assertEquals(SearchHit.KIND_STATION, hits.get(0).getKind());
+		hits = index.search("FACTORY", 10);
+		assertEquals(2, hits.size());
+		assertTrue(hits.get(0).getScore() == hits.get(1).getScore());
+		assertEquals(1, index.search("power plant", 10).size());
+		
+		assertEquals(0, index.search("", 10).size());
+		assertEquals(0, index.search("xenon", 10).size());
+		assertEquals(1, index.search("o", 1).size());
+	}
+	
+	@Test
+	public void testChangesAreIndexed() {
+		SearchIndex index = new SearchIndex(map);
+		Sector kingdomEnd = map.getSectors().get(2, 0);
+		kingdomEnd.addSpaceStation(new SpaceStation(SpaceStation.TYPE_Dock, 0, 0, 0, "Boron Trading Station"));
+		assertEquals(GridPos.valueOf(2, 0), index.search("trading", 10).get(0).getGridPos());
+		
+		kingdomEnd.getSpaceStations().remove(0);
+		assertEquals(0, index.search("chemical", 10).size());
+		kingdomEnd.setName("Kingdom's End");
+		assertEquals("Kingdom's End", index.search("kingdom", 10).get(0).getName());
+		assertEquals(0, index.search("kingdom end", 10).size() - 1);
+		
+		map.removeSector(GridPos.valueOf(2, 0));
+		assertEquals(0, index.search("trading", 10).size());
+		assertEquals(0, index.search("kingdom", 10).size());
+		putSector(3, 0, "Menelaus' Frontier", boron);
+		assertEquals(GridPos.valueOf(3, 0), index.search("menelaus", 10).get(0).getGridPos());
+		
+		map.getRaces().put(3, new Race(3, "Split"));
+		map.getRaces().remove(2);
+		assertEquals(1, index.search("split", 10).size());
+		assertEquals(0, index.search("boron", 10).size());
+		
+		HashMapModel<Integer, Race> races = new HashMapModel<Integer, Race>();
+		races.put(4, new Race(4, "Paranid"));
+		map.setRaces(races);
+		assertSame(races.get(4), index.search("paranid", 10).get(0).getValue());
+		assertEquals(0, index.search("split", 10).size());
+		assertEquals(6, index.size());
+	}
+	
+	private Sector putSector(int x, int y, String name, Race race) {
+		Sector sector = new Sector(name, race, new WarpGate[4]);
+		map.putSector(GridPos.valueOf(x, y), sector);
+		return sector;
+	}
+	
+}
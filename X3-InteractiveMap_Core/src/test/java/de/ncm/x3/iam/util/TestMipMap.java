@@ -0,0 +1,55 @@
+package de.ncm.x3.iam.util;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+import org.junit.Test;
+
+public class TestMipMap {
+	
+	@Test
+	public void testLevels() {
+		MipMap mipMap = new MipMap(new BufferedImage(100, 40, BufferedImage.TYPE_INT_ARGB));
+		assertEquals(7, mipMap.getLevelCount()); // 100, 50, 25, 12, 6, 3, 1 wide
+		assertEquals(50, mipMap.getLevel(1).getWidth());
+		assertEquals(20, mipMap.getLevel(1).getHeight());
+		assertEquals(1, mipMap.getLevel(6).getWidth());
+		assertEquals(1, mipMap.getLevel(6).getHeight());
+		
+		assertSame(mipMap.getLevel(2), mipMap.getLevel(20, 10));
+		assertSame(mipMap.getLevel(1), mipMap.getLevel(26, 10));
+		assertSame(mipMap.getLevel(0), mipMap.getLevel(200, 10));
+	}
+	
+	@Test
+	public void testImage() {
+		MipMap mipMap = new MipMap(new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB));
+		BufferedImage image = mipMap.getImage(30, 20);
+		assertEquals(30, image.getWidth());
+		assertEquals(20, image.getHeight());
+		assertSame(image, mipMap.getImage(30, 20));
+		assertSame(mipMap.getLevel(1), mipMap.getImage(32, 32));
+		assertNull(mipMap.getImage(0, 20));
+	}
+	
+	@Test
+	public void testAverageColor() {
+		BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+		for (int x = 0; x < 16; x++) {
+			for (int y = 0; y < 16; y++) {
+				image.setRGB(x, y, x < 8 ? Color.RED.getRGB() : Color.BLUE.getRGB());
+			}
+		}
+		Color color = new MipMap(image).getAverageColor();
+		assertEquals(128, color.getRed(), 2);
+		assertEquals(0, color.getGreen());
+		assertEquals(128, color.getBlue(), 2);
+		assertEquals(255, color.getAlpha());
+	}
+	
+}
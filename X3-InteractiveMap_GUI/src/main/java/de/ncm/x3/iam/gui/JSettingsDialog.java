@@ -24,6 +24,7 @@ import com.jgoodies.forms.layout.FormLayout;
 import com.jgoodies.forms.layout.RowSpec;
 
 import de.ncm.x3.iam.gui.component.verify.JTextFieldFileInputVerifier;
+import de.ncm.x3.iam.parser.ParserFactory;
 import de.ncm.x3.iam.settings.PropertyManager;
 import de.ncm.x3.iam.util.PathBuilder;
 
@@ -122,6 +123,7 @@ public class JSettingsDialog extends JDialog {
 				if (!error) {
 					PropertyManager.get().setLogPath(txtLogpath.getText());
 					PropertyManager.get().setGameFolder(txtGamePath.getText());
+					ParserFactory.updateXMLParserPath();
 					dispose();
 				}
 			}
@@ -19,9 +19,11 @@ import javax.swing.WindowConstants;
 import org.apache.log4j.Logger;
 
 import de.ncm.x3.iam.gui.component.JMenuSeperator;
+import de.ncm.x3.iam.gui.component.JSearchPanel;
 import de.ncm.x3.iam.gui.component.JUniverseTree;
 import de.ncm.x3.iam.gui.component.universe.JUniverseMap;
 import de.ncm.x3.iam.gui.component.universe.JUniverseMapScrollContainer;
+import de.ncm.x3.iam.search.SearchIndex;
 import de.ncm.x3.iam.settings.PropertyManager;
 
 public class Mainframe extends JFrame {
@@ -44,10 +46,15 @@ public class Mainframe extends JFrame {
 	private JMenuItem mntmSettings;
 	private JCheckBoxMenuItem mntmCenterMapAutomatically;
 	private JMenuItem mntmCenterMapOn;
+	private JMenu mnMapTint;
+	private JCheckBoxMenuItem chckbxmntmCanvasRendering;
+	private JMenu mnZoom;
 	private JMenuItem mntmAbout;
 	private JScrollPane scrollPane;
 	private JUniverseTree tree;
 	private JSplitPane splitPane;
+	private JPanel treePanel;
+	private JSearchPanel searchPanel;
 	
 	/**
 	 * Create the frame
@@ -73,9 +80,15 @@ public class Mainframe extends JFrame {
 		scrollPane = new JScrollPane(tree);
 		
 		jUniverseMap = new JUniverseMap();
+		tree.setUniverseMap(jUniverseMap.getUniverseMap());
 		jUniverseMapScrollContainer = new JUniverseMapScrollContainer(jUniverseMap, tree);
 		
-		splitPane = ComponentFactory.createHorizontalJSplitPane(scrollPane, jUniverseMapScrollContainer, (int) (getWidth() * 0.2));
+		searchPanel = new JSearchPanel(new SearchIndex(jUniverseMap.getUniverseMap()), jUniverseMapScrollContainer);
+		treePanel = new JPanel(new BorderLayout(0, 2));
+		treePanel.add(searchPanel, BorderLayout.NORTH);
+		treePanel.add(scrollPane, BorderLayout.CENTER);
+		
+		splitPane = ComponentFactory.createHorizontalJSplitPane(treePanel, jUniverseMapScrollContainer, (int) (getWidth() * 0.2));
 		contentPane.add(splitPane, BorderLayout.CENTER);
 		
 		logger.info("GUI created");
@@ -96,6 +109,9 @@ public class Mainframe extends JFrame {
 		mnView = MenuFactory.createMenuView(); //$NON-NLS-1$
 		mntmCenterMapAutomatically = MenuFactory.createMenuItemCenterMapAutomatically(); //$NON-NLS-1$
 		mntmCenterMapOn = MenuFactory.createMenuItemCenterMap(this); //$NON-NLS-1$
+		mnMapTint = MenuFactory.createMenuMapTint(this); //$NON-NLS-1$
+		chckbxmntmCanvasRendering = MenuFactory.createMenuItemCanvasRendering(this); //$NON-NLS-1$
+		mnZoom = MenuFactory.createMenuZoom(this); //$NON-NLS-1$
 		mnHelp = MenuFactory.createMenuHelp(); //$NON-NLS-1
 		mntmAbout = MenuFactory.createMenuItemAbout(); //$NON-NLS-1$
 		
@@ -118,6 +134,12 @@ public class Mainframe extends JFrame {
 			mnView.add(mntmCenterMapAutomatically);
 			
 			mnView.add(mntmCenterMapOn);
+			
+			mnView.add(mnMapTint);
+			
+			mnView.add(mnZoom);
+			
+			mnView.add(chckbxmntmCanvasRendering);
 		}
 		menuBar.add(mnHelp);
 		{
@@ -165,6 +187,10 @@ public class Mainframe extends JFrame {
 		return jUniverseMap;
 	}
 	
+	public JSearchPanel getSearchPanel() {
+		return searchPanel;
+	}
+	
 	public JUniverseMapScrollContainer getJUniverseMapScrollContainer() {
 		return jUniverseMapScrollContainer;
 	}
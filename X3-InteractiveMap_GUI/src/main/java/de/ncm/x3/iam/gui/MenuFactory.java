@@ -10,6 +10,7 @@ import java.awt.event.ItemListener;
 import java.awt.event.KeyEvent;
 import java.io.File;
 
+import javax.swing.ButtonGroup;
 import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
@@ -22,6 +23,7 @@ import org.apache.log4j.Logger;
 
 import de.ncm.x3.iam.data.ScriptManager;
 import de.ncm.x3.iam.gui.component.JMenuSeperator;
+import de.ncm.x3.iam.gui.component.universe.JUniverseMap;
 import de.ncm.x3.iam.parser.ParserControl;
 import de.ncm.x3.iam.settings.PropertyManager;
 
@@ -236,6 +238,92 @@ public final class MenuFactory {
 		return menuItem;
 	}
 	
+	/**
+	 * @wbp.factory
+	 * @wbp.factory.parameter.source mf The Mainframe
+	 */
+	public static JMenu createMenuMapTint(final Mainframe mf) {
+		JMenu menu = MenuFactory.createJMenu("Mainframe.mnMapTint.text");
+		String[] messageKeys = { "Mainframe.rdbtnmntmTintNone.text", "Mainframe.rdbtnmntmTintComponents.text",
+				"Mainframe.rdbtnmntmTintChokepoints.text" };
+		int[] tints = { JUniverseMap.TINT_NONE, JUniverseMap.TINT_COMPONENTS, JUniverseMap.TINT_CHOKEPOINTS };
+		ButtonGroup group = new ButtonGroup();
+		for (int i = 0; i < tints.length; i++) {
+			final int tint = tints[i];
+			JRadioButtonMenuItem menuItem = MenuFactory.createJRadioButtonMenuItem(messageKeys[i]);
+			menuItem.setSelected(tint == JUniverseMap.TINT_NONE);
+			menuItem.addActionListener(new ActionListener() {
+				
+				@Override
+				public void actionPerformed(ActionEvent e) {
+					mf.getJUniverseMap().setTint(tint);
+				}
+			});
+			group.add(menuItem);
+			menu.add(menuItem);
+		}
+		return menu;
+	}
+	
+	/**
+	 * @wbp.factory
+	 * @wbp.factory.parameter.source mf The Mainframe
+	 */
+	public static JMenu createMenuZoom(final Mainframe mf) {
+		JMenu menu = MenuFactory.createJMenu("Mainframe.mnZoom.text");
+		
+		JMenuItem zoomIn = MenuFactory.createJMenuItem("Mainframe.mntmZoomIn.text");
+		zoomIn.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_PLUS, ActionEvent.CTRL_MASK));
+		zoomIn.addActionListener(new ActionListener() {
+			
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				mf.getJUniverseMapScrollContainer().zoomIn();
+			}
+		});
+		menu.add(zoomIn);
+		
+		JMenuItem zoomOut = MenuFactory.createJMenuItem("Mainframe.mntmZoomOut.text");
+		zoomOut.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_MINUS, ActionEvent.CTRL_MASK));
+		zoomOut.addActionListener(new ActionListener() {
+			
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				mf.getJUniverseMapScrollContainer().zoomOut();
+			}
+		});
+		menu.add(zoomOut);
+		
+		JMenuItem resetZoom = MenuFactory.createJMenuItem("Mainframe.mntmResetZoom.text");
+		resetZoom.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_0, ActionEvent.CTRL_MASK));
+		resetZoom.addActionListener(new ActionListener() {
+			
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				mf.getJUniverseMapScrollContainer().resetZoom();
+			}
+		});
+		menu.add(resetZoom);
+		return menu;
+	}
+	
+	/**
+	 * @wbp.factory
+	 * @wbp.factory.parameter.source mf The Mainframe
+	 */
+	public static JCheckBoxMenuItem createMenuItemCanvasRendering(final Mainframe mf) {
+		final JCheckBoxMenuItem menuItem = MenuFactory.createJCheckBoxMenuItem("Mainframe.chckbxmntmCanvasRendering.text");
+		menuItem.setSelected(true); // The map paints on the canvas until it is switched, it does not exist yet
+		menuItem.addActionListener(new ActionListener() {
+			
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				mf.getJUniverseMap().setRenderMode(menuItem.isSelected() ? JUniverseMap.RENDER_CANVAS : JUniverseMap.RENDER_COMPONENTS);
+			}
+		});
+		return menuItem;
+	}
+	
 	/**
 	 * @wbp.factory
 	 */
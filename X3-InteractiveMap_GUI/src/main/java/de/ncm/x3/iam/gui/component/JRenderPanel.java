@@ -27,7 +27,6 @@ public abstract class JRenderPanel extends JPanel {
 	@Override
 	protected void paintComponent(Graphics g) {
 		g2d = (Graphics2D) g;
-		getParent().repaint(getX(), getY(), getWidth(), getHeight());
 		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 		paintView(g2d);
 	}
@@ -0,0 +1,172 @@
+package de.ncm.x3.iam.gui.component;
+
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.DefaultListModel;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+import de.ncm.x3.iam.data.universe.SpaceStation;
+import de.ncm.x3.iam.gui.ComponentFactory;
+import de.ncm.x3.iam.gui.Messages;
+import de.ncm.x3.iam.gui.component.universe.JUniverseMapScrollContainer;
+import de.ncm.x3.iam.search.SearchHit;
+import de.ncm.x3.iam.search.SearchIndex;
+
+/**
+ * Search field above the universe tree. The hits are listed while typing, choosing one centers the map on its sector.
+ */
+public class JSearchPanel extends JPanel {
+	
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 3816284521693528177L;
+	private static final int MAX_HITS = 20;
+	private static final int VISIBLE_HITS = 8;
+	
+	private final SearchIndex searchIndex;
+	private final JUniverseMapScrollContainer scrollContainer;
+	private final JTextField searchField = new JTextField();
+	private final DefaultListModel<SearchHit> hitModel = new DefaultListModel<SearchHit>();
+	private final JList<SearchHit> hitList = new JList<SearchHit>(hitModel);
+	private final JScrollPane hitScrollPane = new JScrollPane(hitList);
+	
+	public JSearchPanel(SearchIndex searchIndex, JUniverseMapScrollContainer scrollContainer) {
+		super(new BorderLayout(4, 2));
+		this.searchIndex = searchIndex;
+		this.scrollContainer = scrollContainer;
+		
+		add(ComponentFactory.createJLabel("JSearchPanel.lblSearch.text"), BorderLayout.WEST);
+		add(searchField, BorderLayout.CENTER);
+		add(hitScrollPane, BorderLayout.SOUTH);
+		hitScrollPane.setVisible(false);
+		hitList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		hitList.setVisibleRowCount(VISIBLE_HITS);
+		hitList.setCellRenderer(new HitRenderer());
+		
+		searchField.getDocument().addDocumentListener(new DocumentListener() {
+			
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				search();
+			}
+			
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				search();
+			}
+			
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+				search();
+			}
+		});
+		searchField.addActionListener(new ActionListener() {
+			
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				showHit(hitList.getSelectedIndex() < 0 ? 0 : hitList.getSelectedIndex());
+			}
+		});
+		searchField.addKeyListener(new KeyAdapter() {
+			
+			@Override
+			public void keyPressed(KeyEvent e) {
+				int index = hitList.getSelectedIndex();
+				if (e.getKeyCode() == KeyEvent.VK_DOWN && index + 1 < hitModel.size()) {
+					selectHit(index + 1);
+				} else if (e.getKeyCode() == KeyEvent.VK_UP && index > 0) {
+					selectHit(index - 1);
+				} else if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+					searchField.setText("");
+				}
+			}
+		});
+		hitList.addMouseListener(new MouseAdapter() {
+			
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				showHit(hitList.locationToIndex(e.getPoint()));
+			}
+		});
+	}
+	
+	public JTextField getSearchField() {
+		return searchField;
+	}
+	
+	public JList<SearchHit> getHitList() {
+		return hitList;
+	}
+	
+	private void search() {
+		hitModel.clear();
+		for (SearchHit hit : searchIndex.search(searchField.getText(), MAX_HITS)) {
+			hitModel.addElement(hit);
+		}
+		if (hitScrollPane.isVisible() != !hitModel.isEmpty()) {
+			hitScrollPane.setVisible(!hitModel.isEmpty());
+			revalidate();
+		}
+	}
+	
+	private void selectHit(int index) {
+		hitList.setSelectedIndex(index);
+		hitList.ensureIndexIsVisible(index);
+	}
+	
+	/**
+	 * Centers the map on the sector of the hit, races have no sector
+	 */
+	private void showHit(int index) {
+		if (index < 0 || index >= hitModel.size()) {
+			return;
+		}
+		selectHit(index);
+		SearchHit hit = hitModel.get(index);
+		if (hit.getGridPos() != null) {
+			scrollContainer.centerViewOnSector(hit.getGridPos());
+		}
+	}
+	
+	private static class HitRenderer extends DefaultListCellRenderer {
+		
+		/**
+		 *
+		 */
+		private static final long serialVersionUID = -2051986214874936512L;
+		
+		@Override
+		public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+			JLabel label = (JLabel) super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+			SearchHit hit = (SearchHit) value;
+			String kind;
+			if (hit.getKind() == SearchHit.KIND_SECTOR) {
+				kind = Messages.getString("JSearchPanel.kind.sector");
+			} else if (hit.getKind() == SearchHit.KIND_STATION) {
+				kind = ((SpaceStation) hit.getValue()).getType();
+			} else {
+				kind = Messages.getString("JSearchPanel.kind.race");
+			}
+			label.setText(hit.getName() + " (" + kind + ")");
+			return label;
+		}
+	}
+	
+}
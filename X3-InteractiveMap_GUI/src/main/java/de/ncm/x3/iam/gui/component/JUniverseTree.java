@@ -3,8 +3,15 @@ package de.ncm.x3.iam.gui.component;
 
 
 import java.awt.EventQueue;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.TreeSet;
 
 import javax.swing.JTree;
@@ -19,10 +26,13 @@ import javax.swing.tree.TreePath;
 import javax.swing.tree.TreeSelectionModel;
 
 import de.ncm.x3.iam.data.ActualPlayerInfo;
+import de.ncm.x3.iam.data.universe.GateAnalysis;
 import de.ncm.x3.iam.data.universe.GridPos;
 import de.ncm.x3.iam.data.universe.Sector;
+import de.ncm.x3.iam.data.universe.SectorDiff;
 import de.ncm.x3.iam.data.universe.SpaceStation;
 import de.ncm.x3.iam.data.universe.UniverseMap;
+import de.ncm.x3.iam.data.universe.UniverseMapDiff;
 import de.ncm.x3.iam.data.universe.WarpGate;
 import de.ncm.x3.iam.data.universe.WarpGateConstants;
 import de.ncm.x3.iam.parser.ParseEvent;
@@ -34,7 +44,9 @@ public class JUniverseTree extends JTree {
 	private static final long serialVersionUID = 4593574589859462379L;
 	
 	private UniverseMap universeMap;
+	private HashMap<GridPos, DefaultMutableTreeNode> sectorNodes = new HashMap<GridPos, DefaultMutableTreeNode>();
 	private TSListener treeListener = new TSListener();
+	private UMListener universeMapListener = new UMListener();
 	
 	public JUniverseTree() {
 		super(new DefaultTreeModel(new DefaultMutableTreeNode("Universe")));
@@ -50,12 +62,25 @@ public class JUniverseTree extends JTree {
 		String label = super.convertValueToText(value, selected, expanded, leaf, row, hasFocus);
 		
 		if (value instanceof DefaultMutableTreeNode) {
-			value = ((DefaultMutableTreeNode) value).getUserObject();
+			DefaultMutableTreeNode node = (DefaultMutableTreeNode) value;
+			value = node.getUserObject();
 			// TODO: Localise
 			if (value instanceof UniverseMap) {
 				label = "Universe";
+				GateAnalysis analysis = universeMap.getGateAnalysis();
+				if (analysis.getComponentCount() > 0) {
+					label += " (" + analysis.getComponentCount() + " regions, diameter " + analysis.getDiameter() + ")";
+				}
 			} else if (value instanceof Sector) {
 				label = ((Sector) value).getName();
+				GateAnalysis analysis = universeMap.getGateAnalysis();
+				int sector = analysis.getGateGraph().indexOf((Sector) value);
+				if (sector >= 0 && analysis.isArticulationPoint(sector)) {
+					label += " (chokepoint)";
+				}
+				if (sector >= 0 && analysis.isCutOff(sector)) {
+					label += " (cut off)";
+				}
 			} else if (value instanceof WarpGate[]) {
 				label = "WarpGates";
 			} else if (value instanceof Object[] && ((Object[]) value).length == 2) {
@@ -73,6 +98,9 @@ public class JUniverseTree extends JTree {
 				}
 				if (gate != null) {
 					label += universeMap.getSectorName(gate.getTargetGridPos());
+					if (isBridge(node, gate)) {
+						label += " (bridge)";
+					}
 				}
 				
 			} else if (value instanceof List) {
@@ -89,63 +117,172 @@ public class JUniverseTree extends JTree {
 		return label;
 	}
 	
+	/**
+	 * @param gateNode Node of the gate, below the WarpGates node of its sector
+	 */
+	private boolean isBridge(DefaultMutableTreeNode gateNode, WarpGate gate) {
+		if (gateNode.getParent() == null || gateNode.getParent().getParent() == null) {
+			return false;
+		}
+		Object sector = ((DefaultMutableTreeNode) gateNode.getParent().getParent()).getUserObject();
+		if (!(sector instanceof Sector)) {
+			return false;
+		}
+		GateAnalysis analysis = universeMap.getGateAnalysis();
+		int from = analysis.getGateGraph().indexOf((Sector) sector);
+		int to = analysis.getGateGraph().indexOf(gate.getTargetGridPos());
+		return from >= 0 && to >= 0 && analysis.isBridge(from, to);
+	}
+	
+	/**
+	 * Shows the given map and follows its updates, see {@link UniverseMap#update(UniverseMap)}.
+	 */
+	public void setUniverseMap(UniverseMap universeMap) {
+		if (this.universeMap != null) {
+			this.universeMap.removePropertyChangeListener(universeMapListener);
+		}
+		universeMap.addPropertyChangeListener(universeMapListener);
+		universeMapChanged(universeMap);
+	}
+	
 	protected void universeMapChanged(UniverseMap universeMap) {
 		this.universeMap = universeMap;
 		DefaultMutableTreeNode universeNode = new DefaultMutableTreeNode(universeMap);
+		sectorNodes.clear();
 		// Start Sector Sorting
-		TreeSet<Sector> sectors = new TreeSet<Sector>();
-		
-		for (GridPos gp : universeMap.getSectors().keySet()) {
-			sectors.add(universeMap.getSectors().get(gp));
-		}
+		ArrayList<Map.Entry<GridPos, Sector>> sectors = new ArrayList<Map.Entry<GridPos, Sector>>(universeMap.getSectors().entrySet());
+		Collections.sort(sectors, new Comparator<Map.Entry<GridPos, Sector>>() {
+			
+			@Override
+			public int compare(Map.Entry<GridPos, Sector> o1, Map.Entry<GridPos, Sector> o2) {
+				return o1.getValue().compareTo(o2.getValue());
+			}
+		});
 		// End Sector Sorting
 		
-		for (Sector sector : sectors) {
-			DefaultMutableTreeNode sectorNode = new DefaultMutableTreeNode(sector);
+		for (Map.Entry<GridPos, Sector> entry : sectors) {
+			DefaultMutableTreeNode sectorNode = new DefaultMutableTreeNode(entry.getValue());
+			addSectorChildren(sectorNode, entry.getValue());
 			universeNode.add(sectorNode);
-			DefaultMutableTreeNode warpGateNode = new DefaultMutableTreeNode(sector.getWarpGates());
-			sectorNode.add(warpGateNode);
-			
-			if (sector.getWarpGates()[WarpGateConstants.WARPGATE_NORTH] != null) {
-				warpGateNode.add(new DefaultMutableTreeNode(new Object[] { sector.getWarpGates()[WarpGateConstants.WARPGATE_NORTH],
-						WarpGateConstants.WARPGATE_NORTH }, false));
+			sectorNodes.put(entry.getKey(), sectorNode);
+		}
+		getModelCasted().setRoot(universeNode);
+		
+	}
+	
+	/**
+	 * Updates only the nodes of the sectors in the diff.
+	 */
+	protected void universeMapChanged(UniverseMapDiff diff) {
+		DefaultTreeModel model = getModelCasted();
+		for (GridPos gridPos : diff.getRemovedSectors()) {
+			DefaultMutableTreeNode sectorNode = sectorNodes.remove(gridPos);
+			if (sectorNode != null) {
+				model.removeNodeFromParent(sectorNode);
 			}
-			if (sector.getWarpGates()[WarpGateConstants.WARPGATE_EAST] != null) {
-				warpGateNode.add(new DefaultMutableTreeNode(new Object[] { sector.getWarpGates()[WarpGateConstants.WARPGATE_EAST],
-						WarpGateConstants.WARPGATE_EAST }, false));
+		}
+		for (SectorDiff sectorDiff : diff.getChangedSectors()) {
+			DefaultMutableTreeNode sectorNode = sectorNodes.get(sectorDiff.getGridPos());
+			if (sectorNode == null) {
+				continue;
 			}
-			if (sector.getWarpGates()[WarpGateConstants.WARPGATE_SOUTH] != null) {
-				warpGateNode.add(new DefaultMutableTreeNode(new Object[] { sector.getWarpGates()[WarpGateConstants.WARPGATE_SOUTH],
-						WarpGateConstants.WARPGATE_SOUTH }, false));
+			if (sectorDiff.isNameChanged()) {
+				model.removeNodeFromParent(sectorNode);
+				insertSectorNode(sectorNode);
 			}
-			if (sector.getWarpGates()[WarpGateConstants.WARPGATE_WEST] != null) {
-				warpGateNode.add(new DefaultMutableTreeNode(new Object[] { sector.getWarpGates()[WarpGateConstants.WARPGATE_WEST],
-						WarpGateConstants.WARPGATE_WEST }, false));
+			if (sectorDiff.isGatesChanged() || sectorDiff.isStationsChanged()) {
+				sectorNode.removeAllChildren();
+				addSectorChildren(sectorNode, sectorDiff.getSector());
+				model.nodeStructureChanged(sectorNode);
 			}
-			
-			DefaultMutableTreeNode stationsNode = new DefaultMutableTreeNode(sector.getSpaceStations());
-			sectorNode.add(stationsNode);
-			
-			TreeSet<SpaceStation> docks = new TreeSet<SpaceStation>();
-			TreeSet<SpaceStation> factories = new TreeSet<SpaceStation>();
-			
-			for (SpaceStation station : sector.getSpaceStations()) { // Sort Factories
-				if (station.isFactory()) {
-					factories.add(station);
-				} else if (station.isDock()) {
-					docks.add(station);
+		}
+		for (GridPos gridPos : diff.getAddedSectors()) {
+			Sector sector = universeMap.getSectors().get(gridPos);
+			DefaultMutableTreeNode sectorNode = new DefaultMutableTreeNode(sector);
+			addSectorChildren(sectorNode, sector);
+			sectorNodes.put(gridPos, sectorNode);
+			insertSectorNode(sectorNode);
+		}
+		if (diff.isGateNetworkChanged()) {
+			gateNetworkChanged();
+		}
+	}
+	
+	/**
+	 * Updates the labels showing the analysis of the gate network.
+	 */
+	private void gateNetworkChanged() {
+		DefaultTreeModel model = getModelCasted();
+		DefaultMutableTreeNode universeNode = (DefaultMutableTreeNode) model.getRoot();
+		model.nodeChanged(universeNode);
+		for (DefaultMutableTreeNode sectorNode : sectorNodes.values()) {
+			model.nodeChanged(sectorNode);
+			if (sectorNode.getChildCount() > 0) {
+				TreeNode warpGateNode = sectorNode.getChildAt(0);
+				for (int i = 0; i < warpGateNode.getChildCount(); i++) {
+					model.nodeChanged(warpGateNode.getChildAt(i));
 				}
 			}
-			for (SpaceStation station : docks) {
-				stationsNode.add(new DefaultMutableTreeNode(station, false));
-			}
-			for (SpaceStation station : factories) {
-				stationsNode.add(new DefaultMutableTreeNode(station, false));
+		}
+	}
+	
+	private void insertSectorNode(DefaultMutableTreeNode sectorNode) {
+		DefaultMutableTreeNode universeNode = (DefaultMutableTreeNode) getModelCasted().getRoot();
+		Sector sector = (Sector) sectorNode.getUserObject();
+		int low = 0;
+		int high = universeNode.getChildCount();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			Sector other = (Sector) ((DefaultMutableTreeNode) universeNode.getChildAt(mid)).getUserObject();
+			if (other.compareTo(sector) <= 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
 			}
-			
 		}
-		getModelCasted().setRoot(universeNode);
+		getModelCasted().insertNodeInto(sectorNode, universeNode, low);
+	}
+	
+	private void addSectorChildren(DefaultMutableTreeNode sectorNode, Sector sector) {
+		DefaultMutableTreeNode warpGateNode = new DefaultMutableTreeNode(sector.getWarpGates());
+		sectorNode.add(warpGateNode);
 		
+		if (sector.getWarpGates()[WarpGateConstants.WARPGATE_NORTH] != null) {
+			warpGateNode.add(new DefaultMutableTreeNode(new Object[] { sector.getWarpGates()[WarpGateConstants.WARPGATE_NORTH],
+					WarpGateConstants.WARPGATE_NORTH }, false));
+		}
+		if (sector.getWarpGates()[WarpGateConstants.WARPGATE_EAST] != null) {
+			warpGateNode.add(new DefaultMutableTreeNode(new Object[] { sector.getWarpGates()[WarpGateConstants.WARPGATE_EAST],
+					WarpGateConstants.WARPGATE_EAST }, false));
+		}
+		if (sector.getWarpGates()[WarpGateConstants.WARPGATE_SOUTH] != null) {
+			warpGateNode.add(new DefaultMutableTreeNode(new Object[] { sector.getWarpGates()[WarpGateConstants.WARPGATE_SOUTH],
+					WarpGateConstants.WARPGATE_SOUTH }, false));
+		}
+		if (sector.getWarpGates()[WarpGateConstants.WARPGATE_WEST] != null) {
+			warpGateNode.add(new DefaultMutableTreeNode(new Object[] { sector.getWarpGates()[WarpGateConstants.WARPGATE_WEST],
+					WarpGateConstants.WARPGATE_WEST }, false));
+		}
+		
+		DefaultMutableTreeNode stationsNode = new DefaultMutableTreeNode(sector.getSpaceStations());
+		sectorNode.add(stationsNode);
+		
+		TreeSet<SpaceStation> docks = new TreeSet<SpaceStation>();
+		TreeSet<SpaceStation> factories = new TreeSet<SpaceStation>();
+		
+		for (SpaceStation station : sector.getSpaceStations()) { // Sort Factories
+			if (station.isFactory()) {
+				factories.add(station);
+			} else if (station.isDock()) {
+				docks.add(station);
+			}
+		}
+		for (SpaceStation station : docks) {
+			stationsNode.add(new DefaultMutableTreeNode(station, false));
+		}
+		for (SpaceStation station : factories) {
+			stationsNode.add(new DefaultMutableTreeNode(station, false));
+		}
 	}
 	
 	public void expandAll(JTree tree, TreePath parent, boolean expand) {
@@ -212,16 +349,7 @@ public class JUniverseTree extends JTree {
 		
 		@Override
 		public void onParseEnd(final ParseEvent e) {
-			if (e.getParsedValue() instanceof UniverseMap) {
-				EventQueue.invokeLater(new Runnable() {
-					
-					@Override
-					public void run() {
-						JUniverseTree.this.universeMapChanged((UniverseMap) e.getParsedValue());
-						
-					}
-				});
-			} else if (e.getParsedValue() instanceof ActualPlayerInfo) {
+			if (e.getParsedValue() instanceof ActualPlayerInfo) {
 				EventQueue.invokeLater(new Runnable() {
 					
 					@Override
@@ -235,6 +363,16 @@ public class JUniverseTree extends JTree {
 		}
 	}
 	
+	private class UMListener implements PropertyChangeListener {
+		
+		@Override
+		public void propertyChange(PropertyChangeEvent evt) {
+			if (UniverseMap.UNIVERSEMAP_UPDATE.equals(evt.getPropertyName())) {
+				universeMapChanged((UniverseMapDiff) evt.getNewValue());
+			}
+		}
+	}
+	
 	private class TSListener implements TreeSelectionListener, TreeExpansionListener {
 		
 		@Override
@@ -45,6 +45,7 @@ public class JSector extends JRenderPanel implements WarpGateConstants {
 	
 	public JSector(Sector s) {
 		super(new BorderLayout());
+		setOpaque(false); // The map shines through the round corners, Swing paints it first
 		this.setSector(s);
 		setHighlighted(false);
 		this.setBorder(new EmptyBorder(5, 5, 5, 5));
@@ -81,12 +82,14 @@ public class JSector extends JRenderPanel implements WarpGateConstants {
 			return;
 		}
 		
-		if (isHighlighted()) {
-			g.drawImage(sectorHighlightImage, 0, 0, getWidth(), getHeight(), this);
+		// Taken from the mipmaps in the size of the sector, the full images are not scaled on every paint
+		if (isHighlighted() && sectorHighlightImage != null) {
+			g.drawImage(ColorPackageManager.get().getSectorHighlightImage(getWidth(), getHeight()), 0, 0, this);
 		}
-		g.drawImage(sectorBackgroundImage, sectorBackgroundImageOffset.left, sectorBackgroundImageOffset.top, getWidth()
+		g.drawImage(ColorPackageManager.get().getSectorImage(sector.getRace().getId(), getWidth()
 				- (sectorBackgroundImageOffset.right + sectorBackgroundImageOffset.left), getHeight()
-				- (sectorBackgroundImageOffset.bottom + sectorBackgroundImageOffset.top), this);
+				- (sectorBackgroundImageOffset.bottom + sectorBackgroundImageOffset.top)), sectorBackgroundImageOffset.left,
+				sectorBackgroundImageOffset.top, this);
 		
 	}
 	
@@ -170,7 +173,7 @@ public class JSector extends JRenderPanel implements WarpGateConstants {
 				label.setHorizontalAlignment(SwingConstants.LEFT);
 				label.setVerticalAlignment(SwingConstants.CENTER);
 				break;
-		
+			
 		}
 		
 		return label;
@@ -7,21 +7,37 @@ import java.awt.Color;
 import java.awt.Component;
 import java.awt.EventQueue;
 import java.awt.Graphics2D;
+import java.awt.Insets;
 import java.awt.Point;
-import java.util.ArrayList;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.SwingUtilities;
+import javax.swing.ToolTipManager;
 
 import org.apache.log4j.Logger;
 
 import de.ncm.x3.iam.data.ActualPlayerInfo;
+import de.ncm.x3.iam.data.universe.GateAnalysis;
 import de.ncm.x3.iam.data.universe.GateConnection;
+import de.ncm.x3.iam.data.universe.GateGraph;
 import de.ncm.x3.iam.data.universe.GridPos;
+import de.ncm.x3.iam.data.universe.Route;
 import de.ncm.x3.iam.data.universe.Sector;
+import de.ncm.x3.iam.data.universe.SectorDiff;
 import de.ncm.x3.iam.data.universe.UniverseMap;
+import de.ncm.x3.iam.data.universe.UniverseMapDiff;
 import de.ncm.x3.iam.data.universe.WarpGate;
 import de.ncm.x3.iam.data.universe.WarpGateConstants;
 import de.ncm.x3.iam.gui.component.JRenderPanel;
 import de.ncm.x3.iam.gui.layout.UniverseLayout;
+import de.ncm.x3.iam.gui.util.DirtyRegion;
+import de.ncm.x3.iam.gui.util.LatestValueDispatcher;
 import de.ncm.x3.iam.parser.ParseEvent;
 import de.ncm.x3.iam.parser.ParseListener;
 import de.ncm.x3.iam.parser.ParserFactory;
@@ -32,14 +48,39 @@ import de.ncm.x3.iam.settings.ColorPackageManager;
 public class JUniverseMap extends JRenderPanel {
 	
 	private static final Logger logger = Logger.getLogger(JUniverseMap.class);
+	public static final int TINT_NONE = 0;
+	public static final int TINT_COMPONENTS = 1;
+	public static final int TINT_CHOKEPOINTS = 2;
+	public static final int RENDER_COMPONENTS = 0;
+	public static final int RENDER_CANVAS = 1;
+	private static final int TINT_BORDER = 8; // Both shrink with the sectors when zoomed out, never grow
+	private static final int LINE_MARGIN = 8; // Half of the widest stroke
+	private static final int MAX_TILES = 256; // 64 MB
+	private static final Color CHOKEPOINT_COLOR = new Color(255, 60, 0, 170);
 	private ActualPlayerInfo actualPlayerInfo = new ActualPlayerInfo();
-	private UniverseMap universeMap;
+	private UniverseMap universeMap = new UniverseMap(); // Long-lived, parsed maps are merged in
 	private HashMap<GridPos, JSector> jUniverseMap = new HashMap<GridPos, JSector>();
-	private ArrayList<GateConnection> gateConnections = new ArrayList<GateConnection>();
-	private boolean updatingGateCalculations = false;
+	private GridPos routeTarget;
+	private Route route;
+	private int tint = TINT_NONE;
+	private int renderMode = RENDER_COMPONENTS;
+	private final UniverseLayout layout;
+	private final SectorRenderer sectorRenderer = new SectorRenderer(this);
+	private final CanvasMouseListener canvasMouseListener = new CanvasMouseListener();
+	private final MapTileCache tileCache = new MapTileCache(new MapTileCache.TilePainter() {
+		
+		@Override
+		public void paintTile(Graphics2D g) {
+			paintLayers(g);
+		}
+	}, MAX_TILES);
+	private MapPaintIndex paintIndex;
+	private final DirtyRegion dirtyRegion = new DirtyRegion(this);
+	private HashSet<Rectangle> gateLineBounds = new HashSet<Rectangle>(); // Covering the gate connections of the last update
 	
 	public JUniverseMap() {
 		super(new UniverseLayout());
+		layout = (UniverseLayout) getLayout();
 		PListener pListener = new PListener();
 		ParserFactory.getUniverseMapParser().addParseListener(pListener);
 		ParserFactory.getActualPlayerPositionParser().addParseListener(pListener);
@@ -55,24 +96,279 @@ public class JUniverseMap extends JRenderPanel {
 						sec.reloadImages();
 					}
 				}
-				
+				sectorRenderer.reloadImages();
+				invalidateAll();
 			}
 		});
-		
+		setRenderMode(RENDER_CANVAS);
 	}
 	
+	/**
+	 * Copies the cached tiles, only the ones which are missing or changed are painted by {@link #paintLayers(Graphics2D)}
+	 */
 	@Override
 	public void paintView(Graphics2D g) {
+		Rectangle area = g.getClipBounds();
+		if (area == null) {
+			area = new Rectangle(0, 0, getWidth(), getHeight());
+		}
+		tileCache.paint(g, area, layout.getScale(), getGraphicsConfiguration());
+	}
+	
+	public void paintLayers(Graphics2D g) {
 		g.setColor(getBackground());
 		g.fillRect(0, 0, getWidth(), getHeight());
 		
+		drawTint(g);
 		drawGateConnections(g);
+		if (tint == TINT_CHOKEPOINTS) {
+			drawBridges(g);
+		}
+		drawRoute(g);
+		if (renderMode == RENDER_CANVAS) {
+			drawSectors(g);
+		}
+	}
+	
+	/**
+	 * @param renderMode {@link #RENDER_CANVAS} paints all sectors in {@link #paintView(Graphics2D)}, {@link #RENDER_COMPONENTS} adds a
+	 *            {@link JSector} for each of them
+	 */
+	public void setRenderMode(int renderMode) {
+		if (this.renderMode == renderMode) {
+			return;
+		}
+		this.renderMode = renderMode;
+		if (renderMode == RENDER_CANVAS) {
+			removeAll();
+			jUniverseMap.clear();
+			addMouseListener(canvasMouseListener);
+			addMouseMotionListener(canvasMouseListener);
+			ToolTipManager.sharedInstance().registerComponent(this);
+		} else {
+			ToolTipManager.sharedInstance().unregisterComponent(this);
+			removeMouseListener(canvasMouseListener);
+			removeMouseMotionListener(canvasMouseListener);
+			for (GridPos gridPos : universeMap.getSectors().keySet()) {
+				addJSector(gridPos);
+			}
+		}
+		invalidateAll();
+		revalidate();
+	}
+	
+	public int getRenderMode() {
+		return renderMode;
+	}
+	
+	/**
+	 * Zooms the map. The tiles of the other scales stay cached, so zooming back only copies them.
+	 * 
+	 * @param scale 1 for the original size of the sectors, kept between {@link UniverseLayout#MIN_SCALE} and
+	 *            {@link UniverseLayout#MAX_SCALE}
+	 */
+	public void setScale(double scale) {
+		if (scale == layout.getScale()) {
+			return;
+		}
+		layout.setScale(scale);
+		gateLineBounds = getGateLineBounds();
+		revalidate();
+		repaint();
+	}
+	
+	public double getScale() {
+		return layout.getScale();
+	}
+	
+	/**
+	 * @return How much of a sector is painted at the actual scale, one of the <code>LOD_</code> constants of {@link SectorRenderer}
+	 */
+	public int getLod() {
+		sectorRenderer.setSize(layout.getSectorWidth(), layout.getSectorHeight());
+		return sectorRenderer.getLod();
+	}
+	
+	public void drawSectors(Graphics2D g) {
+		sectorRenderer.setSize(layout.getSectorWidth(), layout.getSectorHeight());
+		GridPos player = actualPlayerInfo.getSectorPosition();
+		for (GridPos gridPos : getPaintIndex().getSectors(g.getClipBounds())) {
+			sectorRenderer.paintSector(g, universeMap.getSectors().get(gridPos), layout.getPixelX(gridPos.gridX), layout.getPixelY(gridPos.gridY),
+					gridPos.equals(player));
+		}
+	}
+	
+	/**
+	 * @return Finds what is painted into the clip of a paint, built again after the sectors or the gate network changed
+	 */
+	private MapPaintIndex getPaintIndex() {
+		if (paintIndex == null || !paintIndex.isValidFor(layout)) {
+			paintIndex = new MapPaintIndex(universeMap, layout, TINT_BORDER, LINE_MARGIN);
+		}
+		return paintIndex;
+	}
+	
+	/**
+	 * @return The sector painted at the point, <code>null</code> if there is none
+	 */
+	public GridPos getSectorAt(int x, int y) {
+		int gridX = layout.getGridX(x);
+		int gridY = layout.getGridY(y);
+		if (gridX < 0 || gridY < 0 || universeMap.getSector(gridX, gridY) == null) {
+			return null;
+		}
+		return GridPos.valueOf(gridX, gridY);
+	}
+	
+	@Override
+	public String getToolTipText(MouseEvent e) {
+		GridPos gridPos = renderMode == RENDER_CANVAS ? getSectorAt(e.getX(), e.getY()) : null;
+		if (gridPos == null) {
+			return super.getToolTipText(e);
+		}
+		sectorRenderer.setSize(layout.getSectorWidth(), layout.getSectorHeight());
+		return sectorRenderer.getToolTipText(universeMap.getSectors().get(gridPos), e.getX() - layout.getPixelX(gridPos.gridX), e.getY()
+				- layout.getPixelY(gridPos.gridY));
+	}
+	
+	public MapTileCache getTileCache() {
+		return tileCache;
+	}
+	
+	/**
+	 * @return The areas of the map waiting to be painted again
+	 */
+	public DirtyRegion getDirtyRegion() {
+		return dirtyRegion;
+	}
+	
+	/**
+	 * The name or the race of the sector changed, it is painted again
+	 */
+	public void sectorChanged(GridPos gridPos) {
+		invalidateSector(gridPos);
+	}
+	
+	/**
+	 * The sector was highlighted or is not anymore, it is painted again together with its gate connections, which start at other points
+	 * then
+	 */
+	public void highlightChanged(GridPos gridPos) {
+		invalidateSector(gridPos);
+		invalidateGateLines(gridPos);
+	}
+	
+	/**
+	 * The gates of the sector changed, it is painted again together with the gate connections which were added or removed. The gate
+	 * network of the map has to contain the change already.
+	 */
+	public void gatesChanged(GridPos gridPos) {
+		invalidateSector(gridPos);
+		gateNetworkChanged();
+	}
+	
+	private void gateNetworkChanged() {
+		paintIndex = null;
+		updateGateLines();
+		if (tint != TINT_NONE) {
+			invalidateAll(); // Regions and chokepoints are a property of the whole network
+		}
+	}
+	
+	/**
+	 * The tiles of the area are painted again and its repaint is requested, merged with the other areas changed at the same time
+	 */
+	private void invalidate(Rectangle area) {
+		tileCache.invalidate(area, layout.getScale());
+		dirtyRegion.add(area);
+	}
+	
+	private void invalidateAll() {
+		tileCache.invalidateAll();
+		repaint();
+	}
+	
+	/**
+	 * Invalidates the tiles of the sector and its tint
+	 */
+	private void invalidateSector(GridPos gridPos) {
+		Rectangle bounds = getSectorBounds(gridPos);
+		bounds.grow(TINT_BORDER, TINT_BORDER);
+		invalidate(bounds);
+	}
+	
+	/**
+	 * Invalidates the tiles of the gate connections whose line is drawn to a different point when the highlight of the sector changes
+	 */
+	private void invalidateGateLines(GridPos gridPos) {
+		for (GateConnection gateCon : universeMap.getGateGraph().getGateConnections()) {
+			GridPos gridPos1 = gateCon.getGate1().getTargetGridPos();
+			GridPos gridPos2 = gateCon.getGate2().getTargetGridPos();
+			if (gridPos.equals(gridPos1) || gridPos.equals(gridPos2)) {
+				invalidate(getLineBounds(gridPos1, gridPos2));
+			}
+		}
+	}
+	
+	/**
+	 * Invalidates the tiles of the gate connections which were added or removed since the last update
+	 */
+	private void updateGateLines() {
+		HashSet<Rectangle> newBounds = getGateLineBounds();
+		for (Rectangle bounds : newBounds) {
+			if (!gateLineBounds.contains(bounds)) {
+				invalidate(bounds);
+			}
+		}
+		for (Rectangle bounds : gateLineBounds) {
+			if (!newBounds.contains(bounds)) {
+				invalidate(bounds);
+			}
+		}
+		gateLineBounds = newBounds;
+	}
+	
+	private HashSet<Rectangle> getGateLineBounds() {
+		HashSet<Rectangle> bounds = new HashSet<Rectangle>();
+		for (GateConnection gateCon : universeMap.getGateGraph().getGateConnections()) {
+			bounds.add(getLineBounds(gateCon.getGate1().getTargetGridPos(), gateCon.getGate2().getTargetGridPos()));
+		}
+		return bounds;
+	}
+	
+	private void invalidateRoute(Route route) {
+		if (route == null) {
+			return;
+		}
+		GridPos last = null;
+		for (GridPos gridPos : route.getSectors()) {
+			if (last != null) {
+				invalidate(getLineBounds(last, gridPos));
+			}
+			last = gridPos;
+		}
+	}
+	
+	/**
+	 * @return Covers every line between the two sectors, wherever at the sectors it starts
+	 */
+	private Rectangle getLineBounds(GridPos gridPos1, GridPos gridPos2) {
+		Rectangle bounds = getSectorBounds(gridPos1).union(getSectorBounds(gridPos2));
+		bounds.grow(LINE_MARGIN, LINE_MARGIN);
+		return bounds;
+	}
+	
+	private Rectangle getSectorBounds(GridPos gridPos) {
+		return new Rectangle(layout.getPixelX(gridPos.gridX), layout.getPixelY(gridPos.gridY), layout.getSectorWidth(),
+				layout.getSectorHeight());
 	}
 	
 	public void setActualPlayerInfo(final ActualPlayerInfo actualPlayerInfo) {
 		if (!this.actualPlayerInfo.getSectorPosition().equals(actualPlayerInfo.getSectorPosition())) {
 			GridPos oldSector = this.actualPlayerInfo.getSectorPosition();
 			GridPos newSector = actualPlayerInfo.getSectorPosition();
+			highlightChanged(oldSector);
+			highlightChanged(newSector);
 			JSector oldJSector = jUniverseMap.get(oldSector);
 			if (oldJSector != null) {
 				oldJSector.setHighlighted(false);
@@ -81,7 +377,7 @@ public class JUniverseMap extends JRenderPanel {
 			JSector newJSector = jUniverseMap.get(newSector);
 			if (newJSector != null) {
 				newJSector.setHighlighted(true);
-			} else if (universeMap.getSectors().get(newSector) != null) {
+			} else if (renderMode == RENDER_COMPONENTS && universeMap.getSectors().get(newSector) != null) {
 				EventQueue.invokeLater(new Runnable() {
 					
 					@Override
@@ -92,84 +388,100 @@ public class JUniverseMap extends JRenderPanel {
 				});
 			}
 			this.actualPlayerInfo.setSectorPosition(actualPlayerInfo.getSectorPosition());
+			updateRoute();
 		}
 		
 	}
 	
+	/**
+	 * Merges the given map into the displayed one. Only the components of sectors which really changed are touched, on the canvas the
+	 * sectors are simply painted again.
+	 */
 	public void setUniverseMap(UniverseMap map) {
-		removeAllUnnecessarySectors(map.getSectors());
-		logger.info("Adding new Sectors");
-		this.universeMap = map;
-		for (GridPos gridPos : map.getSectors().keySet()) {
-			Sector sector = map.getSectors().get(gridPos);
-			
-			JSector jSec;
-			if (jUniverseMap.containsKey(gridPos)) {
-				jSec = jUniverseMap.get(gridPos);
-				jSec.setSector(sector);
-			} else {
-				
-				jSec = new JSector(sector);
-				
-				add(jSec, gridPos);
-				jUniverseMap.put(gridPos, jSec);
+		UniverseMapDiff diff = universeMap.update(map);
+		if (diff.isEmpty()) {
+			logger.debug("UniverseMap unchanged");
+			return;
+		}
+		logger.info("Updating Sectors: " + diff);
+		for (GridPos gridPos : diff.getRemovedSectors()) {
+			sectorChanged(gridPos);
+			JSector jSec = jUniverseMap.remove(gridPos);
+			if (jSec != null) {
+				remove(jSec);
 			}
-			
-			if (gridPos.equals(actualPlayerInfo.getSectorPosition())) {
-				jSec.setHighlighted(true);
+		}
+		for (SectorDiff sectorDiff : diff.getChangedSectors()) {
+			if (sectorDiff.isNameChanged() || sectorDiff.isRaceChanged() || sectorDiff.isGatesChanged()) {
+				sectorChanged(sectorDiff.getGridPos());
+				if (renderMode == RENDER_COMPONENTS) {
+					jUniverseMap.get(sectorDiff.getGridPos()).setSector(sectorDiff.getSector());
+				}
 			}
 		}
-		calculateGateConnections();
-		validate();
-		repaint();
+		for (GridPos gridPos : diff.getAddedSectors()) {
+			layout.extend(gridPos);
+			sectorChanged(gridPos);
+			if (renderMode == RENDER_COMPONENTS) {
+				addJSector(gridPos);
+			}
+		}
+		if (!diff.getAddedSectors().isEmpty() || !diff.getRemovedSectors().isEmpty()) {
+			paintIndex = null;
+		}
+		if (diff.isGateNetworkChanged()) {
+			gateNetworkChanged();
+			universeMap.getRoutePlanner(); // distances are computed once per gate network
+			updateRoute();
+		}
+		validate(); // Only the changed areas are painted again, see the dirty region
 		if (getParent() != null) {
 			getParent().validate();
 		}
-		logger.info("New Sectors added");
+		logger.info("Sectors updated");
 		
 	}
 	
-	private void removeAllUnnecessarySectors(HashMap<GridPos, Sector> sectors) {
-		ArrayList<GridPos> removeList = new ArrayList<GridPos>();
-		for (GridPos gp : jUniverseMap.keySet()) {
-			if (!sectors.containsKey(gp)) {
-				remove(jUniverseMap.get(gp));
-				removeList.add(gp);
-			}
-		}
-		for (GridPos gp : removeList) {
-			jUniverseMap.remove(gp);
-		}
+	private void addJSector(GridPos gridPos) {
+		JSector jSec = new JSector(universeMap.getSectors().get(gridPos));
+		jSec.addMouseListener(new RouteTargetListener(gridPos));
+		add(jSec, gridPos);
+		jUniverseMap.put(gridPos, jSec);
 		
+		if (gridPos.equals(actualPlayerInfo.getSectorPosition())) {
+			jSec.setHighlighted(true);
+		}
 	}
 	
+	/**
+	 * Maps and positions parsed while the last ones still wait for the EDT replace them, so a stale map is never merged.
+	 */
 	private class PListener implements ParseListener {
 		
+		private final LatestValueDispatcher<UniverseMap> mapDispatcher = new LatestValueDispatcher<UniverseMap>() {
+			
+			@Override
+			protected void process(UniverseMap map) {
+				setUniverseMap(map);
+			}
+		};
+		private final LatestValueDispatcher<ActualPlayerInfo> positionDispatcher = new LatestValueDispatcher<ActualPlayerInfo>() {
+			
+			@Override
+			protected void process(ActualPlayerInfo actualPlayerInfo) {
+				setActualPlayerInfo(actualPlayerInfo);
+			}
+		};
+		
 		@Override
 		public void onParseStart(ParseEvent e) {}
 		
 		@Override
 		public void onParseEnd(ParseEvent e) {
 			if (e.getParsedValue() instanceof UniverseMap) {
-				final UniverseMap map = (UniverseMap) e.getParsedValue();
-				
-				EventQueue.invokeLater(new Runnable() {
-					
-					@Override
-					public void run() {
-						setUniverseMap(map);
-					}
-				});
+				mapDispatcher.submit((UniverseMap) e.getParsedValue());
 			} else if (e.getParsedValue() instanceof ActualPlayerInfo) {
-				final ActualPlayerInfo actualPlayerInfo = (ActualPlayerInfo) e.getParsedValue();
-				EventQueue.invokeLater(new Runnable() {
-					
-					@Override
-					public void run() {
-						setActualPlayerInfo(actualPlayerInfo);
-					}
-				});
-				
+				positionDispatcher.submit((ActualPlayerInfo) e.getParsedValue());
 			} else {
 				logger.debug("ParseEvent not covered by JUniverseMap");
 			}
@@ -178,99 +490,267 @@ public class JUniverseMap extends JRenderPanel {
 		
 	}
 	
+	/**
+	 * Selects the sector a click on it plans the route to, a second click on it removes the route.
+	 */
+	private class RouteTargetListener extends MouseAdapter {
+		
+		private final GridPos gridPos;
+		
+		public RouteTargetListener(GridPos gridPos) {
+			this.gridPos = gridPos;
+		}
+		
+		@Override
+		public void mouseClicked(MouseEvent e) {
+			setRouteTarget(gridPos.equals(routeTarget) ? null : gridPos);
+		}
+		
+	}
+	
+	/**
+	 * Hit-tests the canvas instead of a listener on every sector. Presses and drags are passed on to the viewport, which scrolls the map.
+	 */
+	private class CanvasMouseListener extends MouseAdapter {
+		
+		@Override
+		public void mouseClicked(MouseEvent e) {
+			GridPos gridPos = getSectorAt(e.getX(), e.getY());
+			if (gridPos != null) {
+				setRouteTarget(gridPos.equals(routeTarget) ? null : gridPos);
+			}
+		}
+		
+		@Override
+		public void mousePressed(MouseEvent e) {
+			forward(e);
+		}
+		
+		@Override
+		public void mouseReleased(MouseEvent e) {
+			forward(e);
+		}
+		
+		@Override
+		public void mouseDragged(MouseEvent e) {
+			forward(e);
+		}
+		
+		@Override
+		public void mouseEntered(MouseEvent e) {
+			forward(e);
+		}
+		
+		@Override
+		public void mouseExited(MouseEvent e) {
+			forward(e);
+		}
+		
+		private void forward(MouseEvent e) {
+			if (getParent() != null) {
+				getParent().dispatchEvent(SwingUtilities.convertMouseEvent(JUniverseMap.this, e, getParent()));
+			}
+		}
+		
+	}
+	
 	public ActualPlayerInfo getActualPlayerInfo() {
 		return actualPlayerInfo;
 	}
 	
-	public void calculateGateConnections() {
-		updatingGateCalculations = true;
-		gateConnections.clear();
-		HashMap<GridPos, Sector> sectors = universeMap.getSectors();
-		for (GridPos pos : sectors.keySet()) {
-			Sector sec = sectors.get(pos);
-			for (WarpGate wg : sec.getWarpGates()) {
-				WarpGate newWg = new WarpGate(pos);
-				if (newWg != null && wg != null) {
-					if (!newWg.equals(wg)) { // sector connected with itself -> nothing to paint
-						GateConnection gateCon = new GateConnection(newWg, wg, isDirectConnection(newWg.getTargetGridPos(), wg.getTargetGridPos()));
-						if (!gateConnections.contains(gateCon)) {
-							gateConnections.add(gateCon);
-						}
-					}
-				}
-			}
+	/**
+	 * Shows the route from the sector of the player to the given one, which is kept up to date while the player flies and the gates change.
+	 * 
+	 * @param routeTarget <code>null</code> to remove the route
+	 */
+	public void setRouteTarget(GridPos routeTarget) {
+		this.routeTarget = routeTarget;
+		updateRoute();
+	}
+	
+	public GridPos getRouteTarget() {
+		return routeTarget;
+	}
+	
+	/**
+	 * @return The route shown, <code>null</code> if there is none
+	 */
+	public Route getRoute() {
+		return route;
+	}
+	
+	private void updateRoute() {
+		Route newRoute = null;
+		if (routeTarget != null) {
+			newRoute = universeMap.getRoutePlanner().findRoute(actualPlayerInfo.getSectorPosition(), routeTarget);
+		}
+		if (newRoute == null ? route != null : !newRoute.equals(route)) {
+			invalidateRoute(route);
+			invalidateRoute(newRoute);
+			route = newRoute;
 		}
-		updatingGateCalculations = false;
+	}
+	
+	/**
+	 * @return The gate network of the displayed map, shared with the analyses
+	 */
+	public GateGraph getGateGraph() {
+		return universeMap.getGateGraph();
 	}
 	
 	public void drawGateConnections(Graphics2D g) {
-		while (updatingGateCalculations) {
-		} // wait until calculations are done
+		List<GateConnection> gateConnections = getPaintIndex().getGateConnections(g.getClipBounds());
 		
 		// Connection which is not a Line parallel to X- or Y-Axe
-		g.setStroke(new BasicStroke(5, BasicStroke.CAP_ROUND, BasicStroke.JOIN_MITER));
+		g.setStroke(new BasicStroke(scaled(5), BasicStroke.CAP_ROUND, BasicStroke.JOIN_MITER));
 		g.setColor(Color.CYAN);
 		for (GateConnection gateCon : gateConnections) {
 			if (!gateCon.isDirectConnection()) {
 				GridPos gridPos1 = gateCon.getGate2().getTargetGridPos();// WarpGate of sector 2 has sector 1 as target
 				GridPos gridPos2 = gateCon.getGate1().getTargetGridPos();
 				
-				JSector jSec1 = jUniverseMap.get(gridPos1);
-				JSector jSec2 = jUniverseMap.get(gridPos2);
-				
-				int x1 = jSec1.getX();
-				int y1 = jSec1.getY();
-				int x2 = jSec2.getX();
-				int y2 = jSec2.getY();
-				
-				Point pixelPos1 = calculatePixelPosOfLine(x1, y1, jSec1, gateCon.getGate1());
-				Point pixelPos2 = calculatePixelPosOfLine(x2, y2, jSec2, gateCon.getGate2());
+				Point pixelPos1 = calculatePixelPosOfLine(gridPos1, gateCon.getGate1());
+				Point pixelPos2 = calculatePixelPosOfLine(gridPos2, gateCon.getGate2());
 				
 				g.drawLine(pixelPos1.x, pixelPos1.y, pixelPos2.x, pixelPos2.y);
 			}
 		}
 		
 		// Normal Connection (on one Axe)
-		g.setStroke(new BasicStroke(10));
+		g.setStroke(new BasicStroke(scaled(10)));
 		g.setColor(Color.WHITE);
 		for (GateConnection gateCon : gateConnections) {
 			if (gateCon.isDirectConnection()) {
-				JSector jSec1 = jUniverseMap.get(gateCon.getGate1().getTargetGridPos());
-				JSector jSec2 = jUniverseMap.get(gateCon.getGate2().getTargetGridPos());
-				g.drawLine(jSec1.getX() + jSec1.getWidth() / 2, jSec1.getY() + jSec1.getHeight() / 2, jSec2.getX() + jSec2.getWidth() / 2,
-						jSec2.getY() + jSec2.getHeight() / 2);
-				
+				drawCenterLine(g, gateCon.getGate1().getTargetGridPos(), gateCon.getGate2().getTargetGridPos());
 			}
 		}
 		
 	}
 	
-	private Point calculatePixelPosOfLine(int x, int y, JSector jSec, WarpGate gateToCheck) {
-		Sector sec = jSec.getSector();
+	/**
+	 * @param tint One of the <code>TINT_</code> constants: the sectors are tinted by their connected region, or the chokepoints of the gate
+	 *            network and its bridges are marked
+	 */
+	public void setTint(int tint) {
+		this.tint = tint;
+		invalidateAll();
+	}
+	
+	public int getTint() {
+		return tint;
+	}
+	
+	public void drawTint(Graphics2D g) {
+		if (tint == TINT_NONE) {
+			return;
+		}
+		GateAnalysis analysis = universeMap.getGateAnalysis();
+		for (GridPos gridPos : getPaintIndex().getSectors(g.getClipBounds())) {
+			int sector = analysis.getGateGraph().indexOf(gridPos);
+			if (sector < 0) {
+				continue;
+			}
+			Color color = null;
+			if (tint == TINT_COMPONENTS) {
+				int component = analysis.getComponent(sector);
+				Color hue = Color.getHSBColor(component * 0.618034f % 1, 0.8f, 0.9f);
+				color = new Color(hue.getRed(), hue.getGreen(), hue.getBlue(), component == analysis.getLargestComponent() ? 90 : 170);
+			} else if (tint == TINT_CHOKEPOINTS && analysis.isArticulationPoint(sector)) {
+				color = CHOKEPOINT_COLOR;
+			}
+			if (color != null) {
+				Rectangle bounds = getSectorBounds(gridPos);
+				g.setColor(color);
+				int border = (int) scaled(TINT_BORDER);
+				g.fillRoundRect(bounds.x - border, bounds.y - border, bounds.width + 2 * border, bounds.height + 2 * border, 4 * border,
+						4 * border);
+			}
+		}
+	}
+	
+	public void drawBridges(Graphics2D g) {
+		g.setStroke(new BasicStroke(scaled(6), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+		g.setColor(CHOKEPOINT_COLOR);
+		for (GateConnection gateCon : universeMap.getGateAnalysis().getBridges()) {
+			drawCenterLine(g, gateCon.getGate1().getTargetGridPos(), gateCon.getGate2().getTargetGridPos());
+		}
+	}
+	
+	public void drawRoute(Graphics2D g) {
+		if (route == null) {
+			return;
+		}
+		g.setStroke(new BasicStroke(scaled(14), BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+		g.setColor(Color.ORANGE);
+		GridPos last = null;
+		for (GridPos gridPos : route.getSectors()) {
+			if (last != null) {
+				drawCenterLine(g, last, gridPos);
+			}
+			last = gridPos;
+		}
+	}
+	
+	/**
+	 * @return The width of a line or border at the scale of the map, at least one pixel and never wider than at the original size
+	 */
+	private float scaled(int width) {
+		return (float) Math.max(1, Math.round(width * Math.min(1, layout.getScale())));
+	}
+	
+	/**
+	 * Lines outside the clip are skipped, bridges and routes are not in the {@link MapPaintIndex}
+	 */
+	private void drawCenterLine(Graphics2D g, GridPos gridPos1, GridPos gridPos2) {
+		int halfWidth = layout.getSectorWidth() / 2;
+		int halfHeight = layout.getSectorHeight() / 2;
+		int x1 = layout.getPixelX(gridPos1.gridX) + halfWidth;
+		int y1 = layout.getPixelY(gridPos1.gridY) + halfHeight;
+		int x2 = layout.getPixelX(gridPos2.gridX) + halfWidth;
+		int y2 = layout.getPixelY(gridPos2.gridY) + halfHeight;
+		Rectangle clip = g.getClipBounds();
+		if (clip != null) {
+			Rectangle bounds = new Rectangle(x1, y1, 0, 0);
+			bounds.add(x2, y2);
+			bounds.grow(LINE_MARGIN, LINE_MARGIN);
+			if (!clip.intersects(bounds)) {
+				return;
+			}
+		}
+		g.drawLine(x1, y1, x2, y2);
+	}
+	
+	private Point calculatePixelPosOfLine(GridPos gridPos, WarpGate gateToCheck) {
+		Sector sec = universeMap.getSectors().get(gridPos);
+		Rectangle bounds = getSectorBounds(gridPos);
+		Insets offset = ColorPackageManager.get().getSectorBackgroundImageOffset();
+		boolean highlighted = gridPos.equals(actualPlayerInfo.getSectorPosition());
+		int x = bounds.x;
+		int y = bounds.y;
 		if (sec.isWarpgate(WarpGateConstants.WARPGATE_NORTH, gateToCheck)) {
-			x += jSec.getWidth() / 2;
-			if (!jSec.isHighlighted()) {
-				y += jSec.getSectorBackgroundImageOffset().top;
+			x += bounds.width / 2;
+			if (!highlighted) {
+				y += offset.top;
 			}
 			
 		} else if (sec.isWarpgate(WarpGateConstants.WARPGATE_EAST, gateToCheck)) {
-			x += jSec.getWidth();
-			y += jSec.getHeight() / 2;
-			if (!jSec.isHighlighted()) {
-				x -= jSec.getSectorBackgroundImageOffset().right;
+			x += bounds.width;
+			y += bounds.height / 2;
+			if (!highlighted) {
+				x -= offset.right;
 			}
 			
 		} else if (sec.isWarpgate(WarpGateConstants.WARPGATE_SOUTH, gateToCheck)) {
-			x += jSec.getWidth() / 2;
-			y += jSec.getHeight();
-			if (!jSec.isHighlighted()) {
-				y -= jSec.getSectorBackgroundImageOffset().bottom;
+			x += bounds.width / 2;
+			y += bounds.height;
+			if (!highlighted) {
+				y -= offset.bottom;
 			}
 			
 		} else if (sec.isWarpgate(WarpGateConstants.WARPGATE_WEST, gateToCheck)) {
-			y += jSec.getHeight() / 2;
-			if (!jSec.isHighlighted()) {
-				x += jSec.getSectorBackgroundImageOffset().left;
+			y += bounds.height / 2;
+			if (!highlighted) {
+				x += offset.left;
 			}
 		}
 		
@@ -278,34 +758,7 @@ public class JUniverseMap extends JRenderPanel {
 	}
 	
 	public boolean isDirectConnection(GridPos sector1, GridPos sector2) {
-		int dx = sector1.gridX - sector2.gridX;
-		int dy = sector1.gridY - sector2.gridY;
-		
-		if (dx == 0 && Math.abs(dy) == 1 || dy == 0 && Math.abs(dx) == 1) {
-			return true;
-		}
-		
-		if (dy == 0) {
-			int minX = Math.min(sector1.gridX, sector2.gridX);
-			int maxX = Math.max(sector1.gridX, sector2.gridX);
-			for (int i = minX; i < maxX; i++) {
-				if (universeMap.getSectors().get(new GridPos(i, sector1.gridY)) != null) {
-					return true;
-				}
-			}
-		}
-		
-		if (dx == 0) {
-			int minY = Math.min(sector1.gridY, sector2.gridY);
-			int maxY = Math.max(sector1.gridY, sector2.gridY);
-			for (int i = minY; i < maxY; i++) {
-				if (universeMap.getSectors().get(new GridPos(sector1.gridX, i)) != null) {
-					return true;
-				}
-			}
-		}
-		
-		return false;
+		return universeMap.getGateGraph().isDirectConnection(sector1, sector2);
 	}
 	
 	public UniverseMap getUniverseMap() {
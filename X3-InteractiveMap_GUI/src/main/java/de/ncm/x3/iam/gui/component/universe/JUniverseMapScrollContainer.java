@@ -2,17 +2,26 @@
 package de.ncm.x3.iam.gui.component.universe;
 
 
-import java.awt.EventQueue;
 import java.awt.Point;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
 
+import javax.swing.AbstractAction;
+import javax.swing.InputMap;
 import javax.swing.JScrollPane;
 import javax.swing.JViewport;
+import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
 
 import de.ncm.x3.iam.data.ActualPlayerInfo;
 import de.ncm.x3.iam.data.universe.GridPos;
 import de.ncm.x3.iam.gui.component.JUniverseTree;
 import de.ncm.x3.iam.gui.layout.UniverseLayout;
 import de.ncm.x3.iam.gui.listener.universe.HandScrollListener;
+import de.ncm.x3.iam.gui.util.LatestValueDispatcher;
 import de.ncm.x3.iam.parser.ParseEvent;
 import de.ncm.x3.iam.parser.ParseListener;
 import de.ncm.x3.iam.parser.ParserFactory;
@@ -20,6 +29,7 @@ import de.ncm.x3.iam.settings.PropertyManager;
 
 public class JUniverseMapScrollContainer extends JScrollPane {
 	
+	public static final double ZOOM_STEP = 1.25;
 	private JUniverseMap map;
 	private JUniverseTree tree;
 	
@@ -34,6 +44,17 @@ public class JUniverseMapScrollContainer extends JScrollPane {
 		getViewport().addMouseMotionListener(scrollListener);
 		getViewport().addMouseListener(scrollListener);
 		
+		// The wheel zooms instead of scrolling, the map is moved by hand
+		setWheelScrollingEnabled(false);
+		map.addMouseWheelListener(new MouseWheelListener() {
+			
+			@Override
+			public void mouseWheelMoved(MouseWheelEvent e) {
+				zoom(Math.pow(ZOOM_STEP, -e.getWheelRotation()), SwingUtilities.convertPoint(e.getComponent(), e.getPoint(), getViewport()));
+			}
+		});
+		addZoomKeys();
+		
 		PListener pListener = new PListener();
 		// ParserFactory.getUniverseMapParser().addParseListener(pListener);
 		ParserFactory.getActualPlayerPositionParser().addParseListener(pListener);
@@ -56,6 +77,79 @@ public class JUniverseMapScrollContainer extends JScrollPane {
 		tree.selectSector(map.getUniverseMap().getSectors().get(gridpos));
 	}
 	
+	/**
+	 * The keys of the zoom menu items for other keyboards and the number pad
+	 */
+	private void addZoomKeys() {
+		InputMap inputMap = getInputMap(WHEN_IN_FOCUSED_WINDOW);
+		inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_EQUALS, InputEvent.CTRL_MASK), "zoomIn");
+		inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_ADD, InputEvent.CTRL_MASK), "zoomIn");
+		inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_SUBTRACT, InputEvent.CTRL_MASK), "zoomOut");
+		getActionMap().put("zoomIn", new AbstractAction() {
+			
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				zoomIn();
+			}
+		});
+		getActionMap().put("zoomOut", new AbstractAction() {
+			
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				zoomOut();
+			}
+		});
+	}
+	
+	/**
+	 * Zooms in one step at the mouse cursor, or at the center if the cursor is not over the map
+	 */
+	public void zoomIn() {
+		zoom(ZOOM_STEP, getViewport().getMousePosition());
+	}
+	
+	public void zoomOut() {
+		zoom(1 / ZOOM_STEP, getViewport().getMousePosition());
+	}
+	
+	/**
+	 * Back to the original size of the sectors, at the center of the view
+	 */
+	public void resetZoom() {
+		setScale(1.0, null);
+	}
+	
+	public void zoom(double factor, Point anchor) {
+		setScale(map.getScale() * factor, anchor);
+	}
+	
+	/**
+	 * Zooms the map so the point of the map at the anchor stays under it
+	 * 
+	 * @param anchor Relative to the viewport, <code>null</code> for its center
+	 */
+	public void setScale(double scale, Point anchor) {
+		JViewport vp = getViewport();
+		if (anchor == null) {
+			anchor = new Point(vp.getWidth() / 2, vp.getHeight() / 2);
+		}
+		double oldScale = map.getScale();
+		map.setScale(scale);
+		double factor = map.getScale() / oldScale;
+		if (factor == 1) {
+			return;
+		}
+		Point view = vp.getViewPosition();
+		map.setSize(map.getPreferredSize()); // The viewport only moves as far as the map reaches
+		int x = (int) Math.round((view.x + anchor.x) * factor) - anchor.x;
+		int y = (int) Math.round((view.y + anchor.y) * factor) - anchor.y;
+		setViewPosition(new Point(Math.min(x, map.getWidth() - vp.getWidth()), Math.min(y, map.getHeight() - vp.getHeight())));
+	}
+	
 	public Point getViewPosition() {
 		return getViewport().getViewPosition();
 	}
@@ -72,6 +166,14 @@ public class JUniverseMapScrollContainer extends JScrollPane {
 	
 	private class PListener implements ParseListener {
 		
+		private final LatestValueDispatcher<ActualPlayerInfo> centerDispatcher = new LatestValueDispatcher<ActualPlayerInfo>() {
+			
+			@Override
+			protected void process(ActualPlayerInfo playerInfo) {
+				centerViewOnSector(playerInfo.getSectorPosition());
+			}
+		};
+		
 		@Override
 		public void onParseStart(ParseEvent e) {
 			
@@ -82,15 +184,7 @@ public class JUniverseMapScrollContainer extends JScrollPane {
 			if (new Boolean(PropertyManager.get().getAutomaticCenterEnabled())) {
 				
 				if (e.getParsedValue() instanceof ActualPlayerInfo) {
-					final ActualPlayerInfo playerInfo = (ActualPlayerInfo) e.getParsedValue();
-					EventQueue.invokeLater(new Runnable() {
-						
-						@Override
-						public void run() {
-							centerViewOnSector(playerInfo.getSectorPosition());
-						}
-					});
-					
+					centerDispatcher.submit((ActualPlayerInfo) e.getParsedValue());
 				}
 			}
 			
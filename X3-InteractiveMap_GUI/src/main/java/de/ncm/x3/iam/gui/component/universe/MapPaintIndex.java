@@ -0,0 +1,230 @@
+package de.ncm.x3.iam.gui.component.universe;
+
+
+import java.awt.Rectangle;
+import java.awt.geom.Line2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.ncm.x3.iam.data.universe.GateConnection;
+import de.ncm.x3.iam.data.universe.GridPos;
+import de.ncm.x3.iam.data.universe.UniverseMap;
+import de.ncm.x3.iam.gui.layout.UniverseLayout;
+
+/**
+ * The sectors and gate connections of the map in square buckets of pixel space, so painting an area only visits what can be seen in
+ * it. Built for one layout and gate network, {@link #isValidFor(UniverseLayout)} tells when the layout changed.
+ */
+public class MapPaintIndex {
+	
+	public static final int BUCKET_SIZE = 512;
+	
+	private final double scale;
+	private final int sectorWidth;
+	private final int sectorHeight;
+	private final int columns;
+	private final int rows;
+	private final GridPos[] sectors;
+	private final GateConnection[] gateConnections;
+	
+	// Buckets as offsets into one array each, the bucket b holds the entries from start[b] to start[b + 1]
+	private final int[] sectorStart;
+	private final int[] sectorEntries;
+	private final int[] gateStart;
+	private final int[] gateEntries;
+	
+	// A sector or connection lying in several buckets is only returned once per query
+	private final int[] sectorQuery;
+	private final int[] gateQuery;
+	private int query = 0;
+	
+	/**
+	 * @param margin The sectors are painted that much larger than they are, for example by the tint
+	 * @param lineMargin Half of the widest line drawn between sectors
+	 */
+	public MapPaintIndex(UniverseMap map, UniverseLayout layout, int margin, int lineMargin) {
+		scale = layout.getScale();
+		sectorWidth = layout.getSectorWidth();
+		sectorHeight = layout.getSectorHeight();
+		sectors = map.getSectors().keySet().toArray(new GridPos[map.getSectors().size()]);
+		List<GateConnection> connections = map.getGateGraph().getGateConnections();
+		gateConnections = connections.toArray(new GateConnection[connections.size()]);
+		
+		int width = 1;
+		int height = 1;
+		for (GridPos gridPos : sectors) {
+			width = Math.max(width, layout.getPixelX(gridPos.gridX) + sectorWidth + margin);
+			height = Math.max(height, layout.getPixelY(gridPos.gridY) + sectorHeight + margin);
+		}
+		columns = (width - 1) / BUCKET_SIZE + 1;
+		rows = (height - 1) / BUCKET_SIZE + 1;
+		
+		Rectangle[] sectorBounds = new Rectangle[sectors.length];
+		for (int i = 0; i < sectors.length; i++) {
+			sectorBounds[i] = new Rectangle(layout.getPixelX(sectors[i].gridX) - margin, layout.getPixelY(sectors[i].gridY) - margin, sectorWidth
+					+ 2 * margin, sectorHeight + 2 * margin);
+		}
+		int[] sectorCount = new int[columns * rows + 1];
+		addRectangles(sectorBounds, sectorCount, null, null);
+		sectorStart = toStarts(sectorCount);
+		sectorEntries = new int[sectorStart[columns * rows]];
+		addRectangles(sectorBounds, sectorCount, sectorStart, sectorEntries);
+		
+		/*
+		 * A line starts somewhere in its sector, so it is at most half the diagonal of a sector away from the line between the centers of
+		 * the two sectors
+		 */
+		int reach = (int) Math.ceil(Math.hypot(sectorWidth, sectorHeight) / 2) + lineMargin;
+		Line2D.Double[] lines = new Line2D.Double[gateConnections.length];
+		for (int i = 0; i < gateConnections.length; i++) {
+			GridPos gridPos1 = gateConnections[i].getGate1().getTargetGridPos();
+			GridPos gridPos2 = gateConnections[i].getGate2().getTargetGridPos();
+			lines[i] = new Line2D.Double(layout.getPixelX(gridPos1.gridX) + sectorWidth / 2, layout.getPixelY(gridPos1.gridY) + sectorHeight / 2,
+					layout.getPixelX(gridPos2.gridX) + sectorWidth / 2, layout.getPixelY(gridPos2.gridY) + sectorHeight / 2);
+		}
+		int[] gateCount = new int[columns * rows + 1];
+		addLines(lines, reach, gateCount, null, null);
+		gateStart = toStarts(gateCount);
+		gateEntries = new int[gateStart[columns * rows]];
+		addLines(lines, reach, gateCount, gateStart, gateEntries);
+		
+		sectorQuery = new int[sectors.length];
+		gateQuery = new int[gateConnections.length];
+	}
+	
+	/**
+	 * Counts the entries of the buckets when entries is <code>null</code>, fills them else
+	 */
+	private void addRectangles(Rectangle[] bounds, int[] count, int[] start, int[] entries) {
+		if (entries != null) {
+			System.arraycopy(start, 0, count, 0, count.length);
+		}
+		for (int i = 0; i < bounds.length; i++) {
+			Rectangle r = bounds[i];
+			for (int row = bucketOf(r.y, rows); row <= bucketOf(r.y + r.height - 1, rows); row++) {
+				for (int column = bucketOf(r.x, columns); column <= bucketOf(r.x + r.width - 1, columns); column++) {
+					add(row * columns + column, i, count, entries);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Like {@link #addRectangles(Rectangle[], int[], int[], int[])}, a line is only put into the buckets it passes within reach
+	 */
+	private void addLines(Line2D.Double[] lines, int reach, int[] count, int[] start, int[] entries) {
+		if (entries != null) {
+			System.arraycopy(start, 0, count, 0, count.length);
+		}
+		Rectangle bucket = new Rectangle();
+		for (int i = 0; i < lines.length; i++) {
+			Rectangle r = lines[i].getBounds();
+			r.grow(reach, reach);
+			for (int row = bucketOf(r.y, rows); row <= bucketOf(r.y + r.height - 1, rows); row++) {
+				for (int column = bucketOf(r.x, columns); column <= bucketOf(r.x + r.width - 1, columns); column++) {
+					bucket.setBounds(column * BUCKET_SIZE - reach, row * BUCKET_SIZE - reach, BUCKET_SIZE + 2 * reach, BUCKET_SIZE + 2 * reach);
+					if (lines[i].intersects(bucket)) {
+						add(row * columns + column, i, count, entries);
+					}
+				}
+			}
+		}
+	}
+	
+	private static void add(int bucket, int entry, int[] count, int[] entries) {
+		if (entries == null) {
+			count[bucket]++;
+		} else {
+			entries[count[bucket]++] = entry;
+		}
+	}
+	
+	private static int[] toStarts(int[] count) {
+		int[] start = new int[count.length];
+		for (int i = 1; i < count.length; i++) {
+			start[i] = start[i - 1] + count[i - 1];
+		}
+		return start;
+	}
+	
+	private static int bucketOf(int pixel, int buckets) {
+		return Math.max(0, Math.min(buckets - 1, (int) Math.floor((double) pixel / BUCKET_SIZE)));
+	}
+	
+	/**
+	 * @return <code>false</code> if the sectors are placed differently by the layout now
+	 */
+	public boolean isValidFor(UniverseLayout layout) {
+		return scale == layout.getScale() && sectorWidth == layout.getSectorWidth() && sectorHeight == layout.getSectorHeight();
+	}
+	
+	/**
+	 * @param area <code>null</code> for the whole map
+	 * @return The sectors painted into the area, and maybe a few more around it
+	 */
+	public List<GridPos> getSectors(Rectangle area) {
+		List<GridPos> result = new ArrayList<GridPos>();
+		if (area == null) {
+			for (GridPos gridPos : sectors) {
+				result.add(gridPos);
+			}
+			return result;
+		}
+		query++;
+		for (int bucket : getBuckets(area)) {
+			for (int i = sectorStart[bucket]; i < sectorStart[bucket + 1]; i++) {
+				int sector = sectorEntries[i];
+				if (sectorQuery[sector] != query) {
+					sectorQuery[sector] = query;
+					result.add(sectors[sector]);
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * @param area <code>null</code> for the whole map
+	 * @return The gate connections drawn through the area, and maybe a few more around it
+	 */
+	public List<GateConnection> getGateConnections(Rectangle area) {
+		List<GateConnection> result = new ArrayList<GateConnection>();
+		if (area == null) {
+			for (GateConnection gateCon : gateConnections) {
+				result.add(gateCon);
+			}
+			return result;
+		}
+		query++;
+		for (int bucket : getBuckets(area)) {
+			for (int i = gateStart[bucket]; i < gateStart[bucket + 1]; i++) {
+				int gateCon = gateEntries[i];
+				if (gateQuery[gateCon] != query) {
+					gateQuery[gateCon] = query;
+					result.add(gateConnections[gateCon]);
+				}
+			}
+		}
+		return result;
+	}
+	
+	private int[] getBuckets(Rectangle area) {
+		if (area.isEmpty() || area.x >= columns * BUCKET_SIZE || area.y >= rows * BUCKET_SIZE || area.x + area.width <= 0
+				|| area.y + area.height <= 0) {
+			return new int[0];
+		}
+		int firstColumn = bucketOf(area.x, columns);
+		int lastColumn = bucketOf(area.x + area.width - 1, columns);
+		int firstRow = bucketOf(area.y, rows);
+		int lastRow = bucketOf(area.y + area.height - 1, rows);
+		int[] buckets = new int[(lastColumn - firstColumn + 1) * (lastRow - firstRow + 1)];
+		int i = 0;
+		for (int row = firstRow; row <= lastRow; row++) {
+			for (int column = firstColumn; column <= lastColumn; column++) {
+				buckets[i++] = row * columns + column;
+			}
+		}
+		return buckets;
+	}
+	
+}
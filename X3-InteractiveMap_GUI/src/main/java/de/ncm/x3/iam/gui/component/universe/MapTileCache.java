@@ -0,0 +1,226 @@
+package de.ncm.x3.iam.gui.component.universe;
+
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the painted map in square tiles, so scrolling only copies images and only the tiles whose content changed are painted again.
+ * Tiles are {@link VolatileImage}s where the screen supports them and {@link BufferedImage}s otherwise, keyed by the zoom level and their
+ * position. The least recently used tiles are dropped once more than the given number of tiles is cached.
+ */
+public class MapTileCache {
+	
+	public static final int TILE_SIZE = 256;
+	
+	/**
+	 * Paints the layers of the map which are cached
+	 */
+	public interface TilePainter {
+		
+		/**
+		 * @param g Translated to the map and clipped to the tile
+		 */
+		public void paintTile(Graphics2D g);
+	}
+	
+	private final TilePainter painter;
+	private final int maxTiles;
+	private final LinkedHashMap<TileKey, Tile> tiles;
+	private int paintedTiles = 0;
+	
+	/**
+	 * @param maxTiles A tile holds <code>TILE_SIZE * TILE_SIZE * 4</code> bytes
+	 */
+	public MapTileCache(TilePainter painter, final int maxTiles) {
+		this.painter = painter;
+		this.maxTiles = maxTiles;
+		this.tiles = new LinkedHashMap<TileKey, Tile>(16, 0.75f, true) {
+			
+			private static final long serialVersionUID = -6118373702493946232L;
+			
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<TileKey, Tile> eldest) {
+				if (size() > maxTiles) {
+					eldest.getValue().flush();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * Copies the tiles covering the area to g, missing and invalid tiles are painted first
+	 *
+	 * @param gc <code>null</code> if the component is not shown, the tiles are {@link BufferedImage}s then
+	 */
+	public void paint(Graphics2D g, Rectangle area, double zoom, GraphicsConfiguration gc) {
+		int firstX = tileOf(area.x);
+		int firstY = tileOf(area.y);
+		int lastX = tileOf(area.x + area.width - 1);
+		int lastY = tileOf(area.y + area.height - 1);
+		for (int tileY = firstY; tileY <= lastY; tileY++) {
+			for (int tileX = firstX; tileX <= lastX; tileX++) {
+				TileKey key = new TileKey(zoom, tileX, tileY);
+				Tile tile = tiles.get(key);
+				if (tile == null) {
+					tile = new Tile(tileX * TILE_SIZE, tileY * TILE_SIZE);
+					tiles.put(key, tile);
+				}
+				tile.paint(g, gc);
+			}
+		}
+	}
+	
+	private static int tileOf(int pixel) {
+		return (int) Math.floor((double) pixel / TILE_SIZE);
+	}
+	
+	/**
+	 * Marks the tiles of the area as invalid. Tiles of other zoom levels are dropped, the area is not known in their coordinates.
+	 */
+	public void invalidate(Rectangle area, double zoom) {
+		Iterator<Map.Entry<TileKey, Tile>> it = tiles.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<TileKey, Tile> entry = it.next();
+			if (entry.getKey().zoom != zoom) {
+				entry.getValue().flush();
+				it.remove();
+			} else if (entry.getValue().bounds.intersects(area)) {
+				entry.getValue().valid = false;
+			}
+		}
+	}
+	
+	public void invalidateAll() {
+		for (Tile tile : tiles.values()) {
+			tile.flush();
+		}
+		tiles.clear();
+	}
+	
+	/**
+	 * @return The number of tiles cached
+	 */
+	public int size() {
+		return tiles.size();
+	}
+	
+	public int getMaxTiles() {
+		return maxTiles;
+	}
+	
+	/**
+	 * @return How often a tile was painted, not copied, since the cache was created
+	 */
+	public int getPaintedTiles() {
+		return paintedTiles;
+	}
+	
+	private class Tile {
+		
+		private final Rectangle bounds;
+		private Image image;
+		private boolean valid = false;
+		
+		public Tile(int x, int y) {
+			bounds = new Rectangle(x, y, TILE_SIZE, TILE_SIZE);
+		}
+		
+		public void paint(Graphics2D g, GraphicsConfiguration gc) {
+			if (gc == null) {
+				if (!(image instanceof BufferedImage)) {
+					flush();
+					image = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+				}
+				if (!valid) {
+					render();
+				}
+				g.drawImage(image, bounds.x, bounds.y, null);
+				return;
+			}
+			
+			if (!(image instanceof VolatileImage)) {
+				flush();
+				image = gc.createCompatibleVolatileImage(TILE_SIZE, TILE_SIZE, Transparency.OPAQUE);
+			}
+			VolatileImage volatileImage = (VolatileImage) image;
+			do {
+				int state = volatileImage.validate(gc);
+				if (state == VolatileImage.IMAGE_INCOMPATIBLE) {
+					volatileImage.flush();
+					volatileImage = gc.createCompatibleVolatileImage(TILE_SIZE, TILE_SIZE, Transparency.OPAQUE);
+					image = volatileImage;
+					valid = false;
+				} else if (state == VolatileImage.IMAGE_RESTORED) {
+					valid = false;
+				}
+				if (!valid) {
+					render();
+				}
+				g.drawImage(volatileImage, bounds.x, bounds.y, null);
+			} while (volatileImage.contentsLost());
+		}
+		
+		private void render() {
+			Graphics2D tileGraphics = (Graphics2D) image.getGraphics();
+			try {
+				tileGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+				tileGraphics.translate(-bounds.x, -bounds.y);
+				tileGraphics.clipRect(bounds.x, bounds.y, bounds.width, bounds.height);
+				painter.paintTile(tileGraphics);
+			} finally {
+				tileGraphics.dispose();
+			}
+			valid = true;
+			paintedTiles++;
+		}
+		
+		public void flush() {
+			if (image != null) {
+				image.flush();
+				image = null;
+			}
+			valid = false;
+		}
+	}
+	
+	private static class TileKey {
+		
+		private final double zoom;
+		private final int x;
+		private final int y;
+		
+		public TileKey(double zoom, int x, int y) {
+			this.zoom = zoom;
+			this.x = x;
+			this.y = y;
+		}
+		
+		@Override
+		public int hashCode() {
+			long bits = Double.doubleToLongBits(zoom);
+			return ((int) (bits ^ (bits >>> 32)) * 31 + x) * 31 + y;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof TileKey)) {
+				return false;
+			}
+			TileKey other = (TileKey) obj;
+			return zoom == other.zoom && x == other.x && y == other.y;
+		}
+	}
+	
+}
@@ -0,0 +1,366 @@
+package de.ncm.x3.iam.gui.component.universe;
+
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Insets;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.swing.JComponent;
+import javax.swing.UIManager;
+
+import de.ncm.x3.iam.data.universe.Sector;
+import de.ncm.x3.iam.data.universe.SpaceStation;
+import de.ncm.x3.iam.data.universe.WarpGate;
+import de.ncm.x3.iam.data.universe.WarpGateConstants;
+import de.ncm.x3.iam.settings.ColorPackageManager;
+
+/**
+ * Paints sectors the way a {@link JSector} looks, without a component for each of them: one renderer paints every sector onto the
+ * {@link JUniverseMap}. The images scaled to the size of a sector and the wrapped lines of the sector names are cached, so painting a
+ * sector only copies pixels and draws strings. How much is painted depends on the size of the sectors, see the <code>LOD_</code>
+ * constants.
+ */
+public class SectorRenderer implements WarpGateConstants {
+	
+	/** Too small for text, a sector is a block in the color of its race */
+	public static final int LOD_BLOCKS = 0;
+	/** Images, gate letters and names like a {@link JSector} */
+	public static final int LOD_NAMES = 1;
+	/** The stations are marked in the sector too */
+	public static final int LOD_STATIONS = 2;
+	private static final int NAMES_WIDTH = 80; // The smallest sectors with names
+	private static final int STATIONS_WIDTH = 220;
+	private static final int STATION_SIZE = 6;
+	private static final Color HIGHLIGHT_COLOR = Color.WHITE;
+	private static final Color UNKNOWN_COLOR = Color.GRAY;
+	private static final Color DOCK_COLOR = new Color(0, 200, 255);
+	private static final Color FACTORY_COLOR = new Color(255, 200, 0);
+	private static final Color STATION_COLOR = Color.LIGHT_GRAY;
+	private static final String[] GATE_LETTERS = { "N", "S", "E", "W" };
+	private static final int GATE_BORDER = 3; // Like the EmptyBorder of the labels of a JSector
+	private static final int NAME_BORDER = 2;
+	private static final Color GATE_COLOR = Color.BLACK;
+	
+	private final JComponent owner;
+	private final Font nameFont;
+	private final Font gateFont;
+	private final Color nameColor;
+	private final HashMap<Integer, Image> sectorImages = new HashMap<Integer, Image>();
+	private final HashMap<Integer, Color> sectorColors = new HashMap<Integer, Color>();
+	private final HashMap<String, NameLayout> nameLayouts = new HashMap<String, NameLayout>();
+	private Image highlightImage;
+	private boolean highlightImageLoaded = false;
+	private Insets offset;
+	private int width = -1;
+	private int height = -1;
+	private int lod = LOD_NAMES;
+	
+	// Positions relative to the sector, computed once per size
+	private final Rectangle[] gateBounds = new Rectangle[WARPGATE_MAX_VALUE + 1];
+	private final int[] gateX = new int[WARPGATE_MAX_VALUE + 1];
+	private final int[] gateY = new int[WARPGATE_MAX_VALUE + 1];
+	private Rectangle nameBounds;
+	
+	/**
+	 * @param owner The component the sectors are painted on, it measures the fonts
+	 */
+	public SectorRenderer(JComponent owner) {
+		this.owner = owner;
+		Font font = UIManager.getFont("Label.font");
+		if (font == null) {
+			font = owner.getFont();
+		}
+		nameFont = new Font(font.getName(), Font.BOLD, font.getSize());
+		gateFont = new Font(font.getName(), Font.BOLD, font.getSize() + 2);
+		Color color = UIManager.getColor("Label.foreground");
+		nameColor = color == null ? Color.BLACK : color;
+	}
+	
+	/**
+	 * Paints the sector with its upper left corner at x, y in the size last given to {@link #setSize(int, int)}
+	 */
+	public void paintSector(Graphics2D g, Sector sector, int x, int y, boolean highlighted) {
+		if (lod == LOD_BLOCKS) {
+			paintBlock(g, sector, x, y, highlighted);
+			return;
+		}
+		Image image = getSectorImage(sector.getRace().getId());
+		if (image == null) {
+			paintUnknown(g, x, y);
+		} else {
+			if (highlighted && getHighlightImage() != null) {
+				g.drawImage(getHighlightImage(), x, y, owner);
+			}
+			g.drawImage(image, x + offset.left, y + offset.top, owner);
+		}
+		if (lod == LOD_STATIONS) {
+			paintStations(g, sector, x, y);
+		}
+		
+		g.setFont(gateFont);
+		g.setColor(GATE_COLOR);
+		for (byte i = 0; i <= WARPGATE_MAX_VALUE; i++) {
+			WarpGate gate = sector.getWarpGate(i);
+			if (gate != null && gate.exists()) {
+				g.drawString(GATE_LETTERS[i], x + gateX[i], y + gateY[i]);
+			}
+		}
+		
+		NameLayout name = getNameLayout(sector.getName());
+		g.setFont(nameFont);
+		g.setColor(nameColor);
+		Shape clip = null;
+		if (name.overflows) {
+			clip = g.getClip();
+			g.clipRect(x + nameBounds.x, y + nameBounds.y, nameBounds.width, nameBounds.height);
+		}
+		int lineY = y + name.y;
+		for (int i = 0; i < name.lines.length; i++) {
+			g.drawString(name.lines[i], x + name.x[i], lineY);
+			lineY += name.lineHeight;
+		}
+		if (clip != null) {
+			g.setClip(clip);
+		}
+	}
+	
+	private void paintBlock(Graphics2D g, Sector sector, int x, int y, boolean highlighted) {
+		int border = 0;
+		if (highlighted) {
+			g.setColor(HIGHLIGHT_COLOR);
+			g.fillRect(x, y, width, height);
+			border = Math.max(1, width / 8);
+		}
+		g.setColor(getSectorColor(sector.getRace().getId()));
+		g.fillRect(x + border, y + border, width - 2 * border, height - 2 * border);
+	}
+	
+	/**
+	 * Marks the stations in the middle of the sector, where the name is written over them
+	 */
+	private void paintStations(Graphics2D g, Sector sector, int x, int y) {
+		int extent = getExtent(sector);
+		for (SpaceStation station : sector.getSpaceStations()) {
+			Point p = getStationPosition(station, extent);
+			g.setColor(station.isDock() ? DOCK_COLOR : station.isFactory() ? FACTORY_COLOR : STATION_COLOR);
+			g.fillOval(x + p.x - STATION_SIZE / 2, y + p.y - STATION_SIZE / 2, STATION_SIZE, STATION_SIZE);
+		}
+	}
+	
+	/**
+	 * @return The largest distance of a station from the center of the sector on the X or the Z axis
+	 */
+	private static int getExtent(Sector sector) {
+		int extent = 1;
+		for (SpaceStation station : sector.getSpaceStations()) {
+			extent = Math.max(extent, Math.max(Math.abs(station.getPosX()), Math.abs(station.getPosZ())));
+		}
+		return extent;
+	}
+	
+	/**
+	 * The game maps a sector on its X and Z axes, Z pointing north
+	 * 
+	 * @return Relative to the upper left corner of the sector
+	 */
+	private Point getStationPosition(SpaceStation station, int extent) {
+		return new Point(nameBounds.x + (int) ((station.getPosX() + extent) / (2.0 * extent) * nameBounds.width), nameBounds.y
+				+ (int) ((extent - station.getPosZ()) / (2.0 * extent) * nameBounds.height));
+	}
+	
+	private void paintUnknown(Graphics2D g, int x, int y) {
+		Shape clip = g.getClip();
+		g.clipRect(x, y, width, height);
+		g.setColor(Color.white);
+		int stringheight = 10;
+		for (int i = 0; i < (height / stringheight); i++) {
+			g.drawString("? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ? ", x, y + i * stringheight);
+		}
+		g.setClip(clip);
+	}
+	
+	/**
+	 * @param x Relative to the upper left corner of the sector
+	 * @param y Relative to the upper left corner of the sector
+	 * @return The target of the gate at the position or the race of the sector, like the labels of a {@link JSector}. The name of the
+	 *         sector when it is too small for it, the name of a station at its marker.
+	 */
+	public String getToolTipText(Sector sector, int x, int y) {
+		if (lod == LOD_BLOCKS) {
+			return sector.getName();
+		}
+		if (lod == LOD_STATIONS) {
+			int extent = getExtent(sector);
+			for (SpaceStation station : sector.getSpaceStations()) {
+				if (getStationPosition(station, extent).distance(x, y) <= STATION_SIZE) {
+					return station.getName();
+				}
+			}
+		}
+		for (byte i = 0; i <= WARPGATE_MAX_VALUE; i++) {
+			WarpGate gate = sector.getWarpGate(i);
+			if (gate != null && gate.exists() && gateBounds[i].contains(x, y)) {
+				return "TargetSector: " + gate.getTargetGridPos();
+			}
+		}
+		if (nameBounds.contains(x, y)) {
+			return sector.getRace().getName();
+		}
+		return null;
+	}
+	
+	/**
+	 * Sets the size of the sectors, the caches are dropped when it changes
+	 */
+	public void setSize(int width, int height) {
+		if (width == this.width && height == this.height) {
+			return;
+		}
+		this.width = width;
+		this.height = height;
+		lod = width < NAMES_WIDTH ? LOD_BLOCKS : width < STATIONS_WIDTH ? LOD_NAMES : LOD_STATIONS;
+		sectorImages.clear();
+		nameLayouts.clear();
+		highlightImage = null;
+		highlightImageLoaded = false;
+		offset = ColorPackageManager.get().getSectorBackgroundImageOffset();
+		layoutGates();
+	}
+	
+	/**
+	 * @return One of the <code>LOD_</code> constants, chosen by the size of the sectors
+	 */
+	public int getLod() {
+		return lod;
+	}
+	
+	/**
+	 * Drops the images after the color package changed
+	 */
+	public void reloadImages() {
+		sectorColors.clear();
+		int width = this.width;
+		int height = this.height;
+		this.width = -1;
+		setSize(width, height);
+	}
+	
+	/**
+	 * Places the letters of the gates and the name like the BorderLayout of a {@link JSector} places its labels
+	 */
+	private void layoutGates() {
+		FontMetrics gateMetrics = owner.getFontMetrics(gateFont);
+		int innerWidth = width - offset.left - offset.right;
+		int labelHeight = gateMetrics.getHeight() + 2 * GATE_BORDER;
+		int westWidth = gateMetrics.stringWidth(GATE_LETTERS[WARPGATE_WEST]) + 2 * GATE_BORDER;
+		int eastWidth = gateMetrics.stringWidth(GATE_LETTERS[WARPGATE_EAST]) + 2 * GATE_BORDER;
+		int centerY = offset.top + labelHeight;
+		int centerHeight = height - offset.top - offset.bottom - 2 * labelHeight;
+		
+		gateBounds[WARPGATE_NORTH] = new Rectangle(offset.left, offset.top, innerWidth, labelHeight);
+		gateBounds[WARPGATE_SOUTH] = new Rectangle(offset.left, height - offset.bottom - labelHeight, innerWidth, labelHeight);
+		gateBounds[WARPGATE_WEST] = new Rectangle(offset.left, centerY, westWidth, centerHeight);
+		gateBounds[WARPGATE_EAST] = new Rectangle(width - offset.right - eastWidth, centerY, eastWidth, centerHeight);
+		for (byte i = 0; i <= WARPGATE_MAX_VALUE; i++) {
+			Rectangle bounds = gateBounds[i];
+			gateX[i] = bounds.x + (bounds.width - gateMetrics.stringWidth(GATE_LETTERS[i])) / 2;
+			gateY[i] = bounds.y + (bounds.height - gateMetrics.getHeight()) / 2 + gateMetrics.getAscent();
+		}
+		gateX[WARPGATE_WEST] = gateBounds[WARPGATE_WEST].x + GATE_BORDER;
+		gateX[WARPGATE_EAST] = gateBounds[WARPGATE_EAST].x + GATE_BORDER;
+		
+		nameBounds = new Rectangle(offset.left + westWidth + NAME_BORDER, centerY + NAME_BORDER, innerWidth - westWidth - eastWidth - 2
+				* NAME_BORDER, centerHeight - 2 * NAME_BORDER);
+	}
+	
+	private Image getSectorImage(Integer raceId) {
+		if (!sectorImages.containsKey(raceId)) { // Missing images are remembered too
+			sectorImages.put(raceId, ColorPackageManager.get().getSectorImage(raceId, width - offset.left - offset.right, height - offset.top
+					- offset.bottom));
+		}
+		return sectorImages.get(raceId);
+	}
+	
+	private Image getHighlightImage() {
+		if (!highlightImageLoaded) {
+			highlightImage = ColorPackageManager.get().getSectorHighlightImage(width, height);
+			highlightImageLoaded = true;
+		}
+		return highlightImage;
+	}
+	
+	private Color getSectorColor(Integer raceId) {
+		Color color = sectorColors.get(raceId);
+		if (color == null) {
+			color = ColorPackageManager.get().getSectorColor(raceId);
+			if (color == null) {
+				color = UNKNOWN_COLOR;
+			}
+			sectorColors.put(raceId, color);
+		}
+		return color;
+	}
+	
+	/**
+	 * Sector names are shared by the sectors with the same name and only wrapped again when the size changes
+	 */
+	private NameLayout getNameLayout(String name) {
+		NameLayout layout = nameLayouts.get(name);
+		if (layout == null) {
+			layout = new NameLayout(name == null ? "" : name, owner.getFontMetrics(nameFont), nameBounds);
+			nameLayouts.put(name, layout);
+		}
+		return layout;
+	}
+	
+	/**
+	 * The lines of a centered name, wrapped at the spaces like the HTML label of a {@link JSector}
+	 */
+	private static class NameLayout {
+		
+		private final String[] lines;
+		private final int[] x;
+		private final int y;
+		private final int lineHeight;
+		private final boolean overflows;
+		
+		public NameLayout(String name, FontMetrics metrics, Rectangle bounds) {
+			List<String> wrapped = new ArrayList<String>();
+			String line = null;
+			for (String word : name.trim().split("\\s+")) {
+				if (line == null) {
+					line = word;
+				} else if (metrics.stringWidth(line + " " + word) <= bounds.width) {
+					line += " " + word;
+				} else {
+					wrapped.add(line);
+					line = word;
+				}
+			}
+			wrapped.add(line);
+			
+			lines = wrapped.toArray(new String[wrapped.size()]);
+			x = new int[lines.length];
+			lineHeight = metrics.getHeight();
+			boolean tooWide = false;
+			for (int i = 0; i < lines.length; i++) {
+				int lineWidth = metrics.stringWidth(lines[i]);
+				x[i] = bounds.x + (bounds.width - lineWidth) / 2;
+				tooWide |= lineWidth > bounds.width;
+			}
+			int textHeight = lines.length * lineHeight;
+			y = bounds.y + (bounds.height - textHeight) / 2 + metrics.getAscent();
+			overflows = tooWide || textHeight > bounds.height;
+		}
+	}
+	
+}
@@ -14,14 +14,16 @@ import de.ncm.x3.iam.data.universe.GridPos;
 
 public class UniverseLayout implements LayoutManager2 {
 	
+	public static final double MIN_SCALE = 0.1;
+	public static final double MAX_SCALE = 4.0;
 	private static final Logger logger = Logger.getLogger(UniverseLayout.class);
 	protected HashMap<GridPos, Component> sectors = new HashMap<GridPos, Component>();
 	private double scale = 1.0;
 	private Dimension sectorSize = new Dimension(110, 110);
 	private int xSpace = 30;
 	private int ySpace = 30;
-	private int maxX = 0;
-	private int maxY = 0;
+	private int maxGridX = -1; // Kept in grid units, so the size follows the scale
+	private int maxGridY = -1;
 	
 	public UniverseLayout() {
 		super();
@@ -45,6 +47,8 @@ public class UniverseLayout implements LayoutManager2 {
 	}
 	
 	public Dimension getSize() {
+		int maxX = maxGridX < 0 ? 0 : getPixelX(maxGridX);
+		int maxY = maxGridY < 0 ? 0 : getPixelY(maxGridY);
 		return new Dimension(maxX + 2 * getSectorWidth(), maxY + 2 * getSectorHeight());
 	}
 	
@@ -92,8 +96,8 @@ public class UniverseLayout implements LayoutManager2 {
 			int x = getPixelX(gridPos.gridX);
 			int y = getPixelY(gridPos.gridY);
 			
-			this.maxX = Math.max(maxX, x);
-			this.maxY = Math.max(maxY, y);
+			this.maxGridX = Math.max(maxGridX, gridPos.gridX);
+			this.maxGridY = Math.max(maxGridY, gridPos.gridY);
 			
 			comp.setLocation(x, y);
 			// logger.debug("Location of Component '" + comp + "'\t:" + comp.getLocation());
@@ -101,12 +105,55 @@ public class UniverseLayout implements LayoutManager2 {
 		}
 	}
 	
+	/**
+	 * Makes room for a sector which is painted by the container itself instead of being one of its components
+	 */
+	public void extend(GridPos gridPos) {
+		this.maxGridX = Math.max(maxGridX, gridPos.gridX);
+		this.maxGridY = Math.max(maxGridY, gridPos.gridY);
+	}
+	
+	/**
+	 * Inverse of {@link #getPixelX(int)}
+	 * 
+	 * @return The column of the sector at the pixel, -1 if the pixel lies between two sectors
+	 */
+	public int getGridX(int pixelX) {
+		int gridX = (int) Math.floor((pixelX / scale - xSpace) / (xSpace + sectorSize.width));
+		int left = getPixelX(gridX);
+		return gridX >= 0 && pixelX >= left && pixelX < left + getSectorWidth() ? gridX : -1;
+	}
+	
+	/**
+	 * Inverse of {@link #getPixelY(int)}
+	 * 
+	 * @return The row of the sector at the pixel, -1 if the pixel lies between two sectors
+	 */
+	public int getGridY(int pixelY) {
+		int gridY = (int) Math.floor((pixelY / scale - ySpace) / (ySpace + sectorSize.height));
+		int top = getPixelY(gridY);
+		return gridY >= 0 && pixelY >= top && pixelY < top + getSectorHeight() ? gridY : -1;
+	}
+	
 	public int getPixelX(int gridX) {
-		return (int) (((gridX + 1) * xSpace + gridX * getSectorWidth()) * scale);
+		return (int) (((gridX + 1) * xSpace + gridX * sectorSize.width) * scale); // Unscaled sizes, scaled once
 	}
 	
 	public int getPixelY(int gridY) {
-		return (int) (((gridY + 1) * ySpace + gridY * getSectorHeight()) * scale);
+		return (int) (((gridY + 1) * ySpace + gridY * sectorSize.height) * scale);
+	}
+	
+	public double getScale() {
+		return scale;
+	}
+	
+	/**
+	 * Zooms the sectors and the space between them, the container has to be laid out again
+	 * 
+	 * @param scale Kept between {@link #MIN_SCALE} and {@link #MAX_SCALE}
+	 */
+	public void setScale(double scale) {
+		this.scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
 	}
 	
 	public int getSectorWidth() {
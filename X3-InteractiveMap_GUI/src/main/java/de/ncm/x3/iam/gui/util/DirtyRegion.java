@@ -0,0 +1,97 @@
+package de.ncm.x3.iam.gui.util;
+
+
+import java.awt.EventQueue;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JComponent;
+
+/**
+ * Collects the areas of a component which have to be painted again until the event dispatch thread gets to it, and then asks for one
+ * repaint per area. Overlapping areas, and areas whose union would hardly be larger than the two of them, are merged first. Areas may be
+ * added on any thread, the repaints are always requested on the event dispatch thread.
+ */
+public class DirtyRegion {
+	
+	private final JComponent component;
+	private final List<Rectangle> areas = new ArrayList<Rectangle>();
+	private boolean scheduled = false;
+	private int repaints = 0;
+	private final Runnable flush = new Runnable() {
+		
+		@Override
+		public void run() {
+			flush();
+		}
+	};
+	
+	public DirtyRegion(JComponent component) {
+		this.component = component;
+	}
+	
+	/**
+	 * The repaint is requested later on the event dispatch thread, together with the areas added until then
+	 */
+	public synchronized void add(Rectangle area) {
+		if (area.isEmpty()) {
+			return;
+		}
+		Rectangle merged = new Rectangle(area);
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int i = 0; i < areas.size(); i++) {
+				Rectangle other = areas.get(i);
+				Rectangle union = merged.union(other);
+				if (merged.intersects(other) || area(union) <= area(merged) + area(other)) {
+					merged = union;
+					areas.remove(i);
+					changed = true;
+					break;
+				}
+			}
+		}
+		areas.add(merged);
+		if (!scheduled) {
+			scheduled = true;
+			EventQueue.invokeLater(flush);
+		}
+	}
+	
+	private static long area(Rectangle r) {
+		return (long) r.width * r.height;
+	}
+	
+	/**
+	 * Requests the repaints of the collected areas now
+	 */
+	public void flush() {
+		List<Rectangle> flushed;
+		synchronized (this) {
+			scheduled = false;
+			flushed = new ArrayList<Rectangle>(areas);
+			areas.clear();
+			repaints += flushed.size();
+		}
+		for (Rectangle area : flushed) {
+			component.repaint(area);
+		}
+	}
+	
+	/**
+	 * @return The areas waiting for their repaint
+	 */
+	public synchronized List<Rectangle> getAreas() {
+		return new ArrayList<Rectangle>(areas);
+	}
+	
+	/**
+	 * @return How many repaints were requested since the region was created
+	 */
+	public synchronized int getRepaints() {
+		return repaints;
+	}
+	
+}
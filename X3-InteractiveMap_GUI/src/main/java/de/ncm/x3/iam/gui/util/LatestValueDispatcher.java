@@ -0,0 +1,37 @@
+
+package de.ncm.x3.iam.gui.util;
+
+
+import java.awt.EventQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands values from other threads to the event dispatch thread. Values which arrive while the last one still waits for the EDT replace it, so only
+ * the newest value is processed and a slow consumer never works through a queue of outdated ones.
+ */
+public abstract class LatestValueDispatcher<T> {
+	
+	private final AtomicReference<T> pending = new AtomicReference<T>();
+	private final Runnable dispatch = new Runnable() {
+		
+		@Override
+		public void run() {
+			T value = pending.getAndSet(null);
+			if (value != null) {
+				process(value);
+			}
+		}
+	};
+	
+	public void submit(T value) {
+		if (pending.getAndSet(value) == null) {
+			EventQueue.invokeLater(dispatch);
+		}
+	}
+	
+	/**
+	 * Called on the event dispatch thread with the newest value.
+	 */
+	protected abstract void process(T value);
+	
+}
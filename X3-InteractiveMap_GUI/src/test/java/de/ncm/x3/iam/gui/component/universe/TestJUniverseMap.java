@@ -2,16 +2,34 @@
 package de.ncm.x3.iam.gui.component.universe;
 
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.awt.EventQueue;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
 import java.util.HashMap;
 
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.RepaintManager;
+
 import org.junit.Before;
 import org.junit.Test;
 
+import de.ncm.x3.iam.data.ActualPlayerInfo;
 import de.ncm.x3.iam.data.universe.GridPos;
+import de.ncm.x3.iam.data.universe.Race;
 import de.ncm.x3.iam.data.universe.Sector;
+import de.ncm.x3.iam.data.universe.SpaceStation;
 import de.ncm.x3.iam.data.universe.UniverseMap;
+import de.ncm.x3.iam.data.universe.WarpGate;
+import de.ncm.x3.iam.data.universe.WarpGateConstants;
+import de.ncm.x3.iam.gui.layout.UniverseLayout;
 
 public class TestJUniverseMap {
 	
@@ -23,25 +41,30 @@ public class TestJUniverseMap {
 	private GridPos s5;
 	
 	@Before
-	public void setupBefore() {
-		jUniverseMap = new JUniverseMap();
-		
-		s1 = new GridPos(1, 1);
-		s2 = new GridPos(2, 1);
-		s3 = new GridPos(3, 1);
-		s4 = new GridPos(1, 2);
-		s5 = new GridPos(3, 2);
-		
-		HashMap<GridPos, Sector> sectors = new HashMap<GridPos, Sector>();
-		sectors.put(s1, new Sector());
-		sectors.put(s2, new Sector());
-		sectors.put(s3, new Sector());
-		sectors.put(s4, new Sector());
-		sectors.put(s5, new Sector());
-		UniverseMap umap = new UniverseMap();
-		
-		jUniverseMap.setUniverseMap(umap);
-		
+	public void setupBefore() throws Throwable {
+		onEventDispatchThread(new Runnable() {
+			
+			@Override
+			public void run() {
+				jUniverseMap = new JUniverseMap();
+				
+				s1 = new GridPos(1, 1);
+				s2 = new GridPos(2, 1);
+				s3 = new GridPos(3, 1);
+				s4 = new GridPos(1, 2);
+				s5 = new GridPos(3, 2);
+				
+				HashMap<GridPos, Sector> sectors = new HashMap<GridPos, Sector>();
+				sectors.put(s1, new Sector());
+				sectors.put(s2, new Sector());
+				sectors.put(s3, new Sector());
+				sectors.put(s4, new Sector());
+				sectors.put(s5, new Sector());
+				UniverseMap umap = new UniverseMap();
+				
+				jUniverseMap.setUniverseMap(umap);
+			}
+		});
 	}
 	
 	@Test
@@ -65,4 +88,293 @@ public class TestJUniverseMap {
 		assertTrue(jUniverseMap.isDirectConnection(s5, s3));
 		
 	}
+	
+	@Test
+	public void testRouteFollowsPlayer() throws Throwable {
+		onEventDispatchThread(new Runnable() {
+			
+			@Override
+			public void run() {
+				UniverseMap umap = new UniverseMap();
+				Race race = new Race(1, "Argon");
+				for (GridPos pos : new GridPos[] { s1, s2, s3, s5 }) {
+					umap.putSector(pos, new Sector(pos.toString(), race, new WarpGate[WarpGateConstants.WARPGATE_MAX_VALUE + 1]));
+				}
+				connect(umap, s1, WarpGateConstants.WARPGATE_EAST, s2);
+				connect(umap, s2, WarpGateConstants.WARPGATE_EAST, s3);
+				connect(umap, s3, WarpGateConstants.WARPGATE_SOUTH, s5);
+				jUniverseMap.setUniverseMap(umap);
+				
+				ActualPlayerInfo player = new ActualPlayerInfo();
+				player.setSectorPosition(s1);
+				jUniverseMap.setActualPlayerInfo(player);
+				jUniverseMap.setRouteTarget(s5);
+				assertEquals(3, jUniverseMap.getRoute().getJumps());
+				
+				player = new ActualPlayerInfo();
+				player.setSectorPosition(s3);
+				jUniverseMap.setActualPlayerInfo(player);
+				assertEquals(1, jUniverseMap.getRoute().getJumps());
+				
+				jUniverseMap.setRouteTarget(null);
+				assertNull(jUniverseMap.getRoute());
+			}
+		});
+	}
+	
+	@Test
+	public void testCanvasHitTesting() throws Throwable {
+		onEventDispatchThread(new Runnable() {
+			
+			@Override
+			public void run() {
+				UniverseMap umap = new UniverseMap();
+				Race race = new Race(1, "Argon");
+				for (GridPos pos : new GridPos[] { s1, s2, s3, s5 }) {
+					umap.putSector(pos, new Sector(pos.toString(), race, new WarpGate[WarpGateConstants.WARPGATE_MAX_VALUE + 1]));
+				}
+				connect(umap, s1, WarpGateConstants.WARPGATE_EAST, s2);
+				jUniverseMap.setUniverseMap(umap);
+				ActualPlayerInfo player = new ActualPlayerInfo();
+				player.setSectorPosition(s1);
+				jUniverseMap.setActualPlayerInfo(player);
+				assertEquals(JUniverseMap.RENDER_CANVAS, jUniverseMap.getRenderMode());
+				assertEquals(0, jUniverseMap.getComponentCount());
+				
+				UniverseLayout layout = (UniverseLayout) jUniverseMap.getLayout();
+				int x = layout.getPixelX(s1.gridX);
+				int y = layout.getPixelY(s1.gridY);
+				int centerX = x + layout.getSectorWidth() / 2;
+				int centerY = y + layout.getSectorHeight() / 2;
+				assertEquals(s1, jUniverseMap.getSectorAt(centerX, centerY));
+				assertEquals(s1, jUniverseMap.getSectorAt(x, y));
+				assertNull(jUniverseMap.getSectorAt(x - 1, centerY));
+				assertNull(jUniverseMap.getSectorAt(centerX, layout.getPixelY(s4.gridY) + 1)); // No sector there
+				assertEquals("Argon", jUniverseMap.getToolTipText(mouseEvent(MouseEvent.MOUSE_MOVED, centerX, centerY)));
+				assertEquals("TargetSector: " + s2, jUniverseMap.getToolTipText(mouseEvent(MouseEvent.MOUSE_MOVED, x + layout.getSectorWidth() - 8,
+						centerY)));
+				
+				jUniverseMap.dispatchEvent(mouseEvent(MouseEvent.MOUSE_CLICKED, layout.getPixelX(s2.gridX) + 1, centerY));
+				assertEquals(s2, jUniverseMap.getRouteTarget());
+				
+				jUniverseMap.setSize(jUniverseMap.getPreferredSize());
+				BufferedImage image = new BufferedImage(jUniverseMap.getWidth(), jUniverseMap.getHeight(), BufferedImage.TYPE_INT_ARGB);
+				Graphics2D g = image.createGraphics();
+				jUniverseMap.paintView(g);
+				g.dispose();
+				
+				jUniverseMap.setRenderMode(JUniverseMap.RENDER_COMPONENTS);
+				assertEquals(4, jUniverseMap.getComponentCount());
+				jUniverseMap.doLayout();
+				JSector jSector = (JSector) jUniverseMap.getComponentAt(centerX, centerY);
+				assertTrue(jSector.isHighlighted());
+				jUniverseMap.setRenderMode(JUniverseMap.RENDER_CANVAS);
+				assertEquals(0, jUniverseMap.getComponentCount());
+			}
+		});
+	}
+	
+	@Test
+	public void testOnlyChangedTilesArePainted() throws Throwable {
+		onEventDispatchThread(new Runnable() {
+			
+			@Override
+			public void run() {
+				UniverseMap umap = new UniverseMap();
+				Race race = new Race(1, "Argon");
+				for (int x = 0; x < 8; x++) {
+					for (int y = 0; y < 8; y++) {
+						umap.putSector(new GridPos(x, y), new Sector(x + "/" + y, race, new WarpGate[WarpGateConstants.WARPGATE_MAX_VALUE + 1]));
+					}
+				}
+				jUniverseMap.setUniverseMap(umap);
+				jUniverseMap.setSize(jUniverseMap.getPreferredSize());
+				BufferedImage image = new BufferedImage(jUniverseMap.getWidth(), jUniverseMap.getHeight(), BufferedImage.TYPE_INT_RGB);
+				Graphics2D g = image.createGraphics();
+				MapTileCache tileCache = jUniverseMap.getTileCache();
+				
+				jUniverseMap.paintView(g);
+				int tiles = tileCache.getPaintedTiles();
+				assertEquals(tileCache.size(), tiles);
+				jUniverseMap.paintView(g);
+				assertEquals(tiles, tileCache.getPaintedTiles());
+				
+				ActualPlayerInfo player = new ActualPlayerInfo();
+				player.setSectorPosition(new GridPos(0, 0));
+				jUniverseMap.setActualPlayerInfo(player);
+				jUniverseMap.paintView(g);
+				assertTrue(tileCache.getPaintedTiles() - tiles <= 4);
+				assertTrue(tileCache.getPaintedTiles() - tiles < tileCache.size());
+				g.dispose();
+			}
+		});
+	}
+	
+	@Test
+	public void testIdleMapDoesNotRepaint() throws Throwable {
+		final UniverseMap umap = new UniverseMap();
+		Race race = new Race(1, "Argon");
+		for (GridPos pos : new GridPos[] { s1, s2, s3, s5 }) {
+			umap.putSector(pos, new Sector(pos.toString(), race, new WarpGate[WarpGateConstants.WARPGATE_MAX_VALUE + 1]));
+		}
+		connect(umap, s2, WarpGateConstants.WARPGATE_EAST, s3);
+		onEventDispatchThread(new Runnable() {
+			
+			@Override
+			public void run() {
+				jUniverseMap.setUniverseMap(umap);
+				ActualPlayerInfo player = new ActualPlayerInfo();
+				player.setSectorPosition(s1);
+				jUniverseMap.setActualPlayerInfo(player);
+			}
+		});
+		JViewport viewport = new JViewport();
+		viewport.setView(jUniverseMap);
+		viewport.setSize(jUniverseMap.getPreferredSize());
+		jUniverseMap.setSize(jUniverseMap.getPreferredSize());
+		BufferedImage image = new BufferedImage(jUniverseMap.getWidth(), jUniverseMap.getHeight(), BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		
+		final int[] repaints = new int[1];
+		RepaintManager previous = RepaintManager.currentManager(jUniverseMap);
+		RepaintManager.setCurrentManager(new RepaintManager() {
+			
+			@Override
+			public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+				repaints[0]++;
+			}
+		});
+		try {
+			for (int renderMode : new int[] { JUniverseMap.RENDER_COMPONENTS, JUniverseMap.RENDER_CANVAS }) {
+				jUniverseMap.setRenderMode(renderMode);
+				jUniverseMap.validate();
+				viewport.paint(g);
+				EventQueue.invokeAndWait(new Runnable() {
+					
+					@Override
+					public void run() {
+						// Everything requested until now is flushed
+					}
+				});
+				
+				repaints[0] = 0;
+				long end = System.currentTimeMillis() + 500;
+				while (System.currentTimeMillis() < end) {
+					viewport.paint(g); // As if something was moved over the map
+					Thread.sleep(50);
+				}
+				EventQueue.invokeAndWait(new Runnable() {
+					
+					@Override
+					public void run() {
+					}
+				});
+				assertEquals(0, repaints[0]);
+			}
+			
+			// Both sectors and the gate connection of s2 are repainted when the player moves, merged where they overlap
+			EventQueue.invokeAndWait(new Runnable() {
+				
+				@Override
+				public void run() {
+					ActualPlayerInfo player = new ActualPlayerInfo();
+					player.setSectorPosition(s2);
+					jUniverseMap.setActualPlayerInfo(player);
+					assertEquals(2, jUniverseMap.getDirtyRegion().getAreas().size());
+				}
+			});
+			EventQueue.invokeAndWait(new Runnable() {
+				
+				@Override
+				public void run() {
+				}
+			});
+			assertEquals(2, repaints[0]);
+			assertEquals(0, jUniverseMap.getDirtyRegion().getAreas().size());
+		} finally {
+			RepaintManager.setCurrentManager(previous);
+			g.dispose();
+		}
+	}
+	
+	@Test
+	public void testZoomKeepsTheSectorUnderTheCursor() throws Throwable {
+		onEventDispatchThread(new Runnable() {
+			
+			@Override
+			public void run() {
+				UniverseMap umap = new UniverseMap();
+				Race race = new Race(1, "Argon");
+				for (int x = 0; x < 20; x++) {
+					for (int y = 0; y < 20; y++) {
+						umap.putSector(new GridPos(x, y), new Sector(x + "/" + y, race, new WarpGate[WarpGateConstants.WARPGATE_MAX_VALUE + 1]));
+					}
+				}
+				GridPos center = new GridPos(5, 5);
+				umap.getSectors().get(center).addSpaceStation(new SpaceStation(SpaceStation.TYPE_Dock, 0, 0, 0, "Argon Equipment Dock"));
+				jUniverseMap.setUniverseMap(umap);
+				JUniverseMapScrollContainer container = new JUniverseMapScrollContainer(jUniverseMap, null);
+				container.setSize(800, 600);
+				container.doLayout();
+				jUniverseMap.setSize(jUniverseMap.getPreferredSize());
+				UniverseLayout layout = (UniverseLayout) jUniverseMap.getLayout();
+				
+				Point anchor = new Point(100, 50);
+				container.setViewPosition(new Point(centerX(layout, center) - anchor.x, centerY(layout, center) - anchor.y));
+				container.zoom(JUniverseMapScrollContainer.ZOOM_STEP, anchor);
+				assertEquals(JUniverseMapScrollContainer.ZOOM_STEP, jUniverseMap.getScale(), 0.001);
+				Point view = container.getViewPosition();
+				assertTrue(Math.abs(centerX(layout, center) - (view.x + anchor.x)) <= 1);
+				assertTrue(Math.abs(centerY(layout, center) - (view.y + anchor.y)) <= 1);
+				assertEquals(jUniverseMap.getPreferredSize(), jUniverseMap.getSize());
+				
+				BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+				Graphics2D g = image.createGraphics();
+				container.setScale(0.01, anchor);
+				assertEquals(UniverseLayout.MIN_SCALE, jUniverseMap.getScale(), 0.001);
+				assertEquals(SectorRenderer.LOD_BLOCKS, jUniverseMap.getLod());
+				jUniverseMap.paintLayers(g);
+				assertEquals("5/5", jUniverseMap.getToolTipText(mouseEvent(MouseEvent.MOUSE_MOVED, centerX(layout, center), centerY(layout, center))));
+				
+				container.resetZoom();
+				assertEquals(1.0, jUniverseMap.getScale(), 0.001);
+				assertEquals(SectorRenderer.LOD_NAMES, jUniverseMap.getLod());
+				
+				container.setScale(3, anchor);
+				assertEquals(SectorRenderer.LOD_STATIONS, jUniverseMap.getLod());
+				jUniverseMap.paintLayers(g);
+				assertEquals("Argon Equipment Dock", jUniverseMap.getToolTipText(mouseEvent(MouseEvent.MOUSE_MOVED, centerX(layout, center), centerY(
+						layout, center))));
+				g.dispose();
+			}
+		});
+	}
+	
+	/**
+	 * Runs a part of a test which builds or changes the map on the event dispatch thread, where Swing expects it
+	 */
+	private static void onEventDispatchThread(Runnable runnable) throws Throwable {
+		try {
+			EventQueue.invokeAndWait(runnable);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+	
+	private static int centerX(UniverseLayout layout, GridPos gridPos) {
+		return layout.getPixelX(gridPos.gridX) + layout.getSectorWidth() / 2;
+	}
+	
+	private static int centerY(UniverseLayout layout, GridPos gridPos) {
+		return layout.getPixelY(gridPos.gridY) + layout.getSectorHeight() / 2;
+	}
+	
+	private MouseEvent mouseEvent(int id, int x, int y) {
+		return new MouseEvent(jUniverseMap, id, System.currentTimeMillis(), 0, x, y, 1, false);
+	}
+	
+	private static void connect(UniverseMap umap, GridPos pos, byte gate, GridPos target) {
+		umap.getSectors().get(pos).setWarpGate(gate, new WarpGate(target));
+		umap.getSectors().get(target).setWarpGate((byte) (gate ^ 1), new WarpGate(pos));
+	}
 }
@@ -0,0 +1,78 @@
+package de.ncm.x3.iam.gui.component.universe;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Rectangle;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import de.ncm.x3.iam.data.universe.GateConnection;
+import de.ncm.x3.iam.data.universe.GridPos;
+import de.ncm.x3.iam.data.universe.Race;
+import de.ncm.x3.iam.data.universe.Sector;
+import de.ncm.x3.iam.data.universe.UniverseMap;
+import de.ncm.x3.iam.data.universe.WarpGate;
+import de.ncm.x3.iam.data.universe.WarpGateConstants;
+import de.ncm.x3.iam.gui.layout.UniverseLayout;
+
+public class TestMapPaintIndex {
+	
+	private UniverseMap map;
+	private UniverseLayout layout = new UniverseLayout();
+	private MapPaintIndex index;
+	
+	@Before
+	public void setUp() {
+		map = new UniverseMap();
+		Race race = new Race(1, "Argon");
+		for (int x = 0; x < 10; x++) {
+			for (int y = 0; y < 10; y++) {
+				map.putSector(new GridPos(x, y), new Sector(x + "/" + y, race, new WarpGate[WarpGateConstants.WARPGATE_MAX_VALUE + 1]));
+			}
+		}
+		connect(new GridPos(0, 0), WarpGateConstants.WARPGATE_EAST, new GridPos(1, 0));
+		connect(new GridPos(0, 0), WarpGateConstants.WARPGATE_NORTH, new GridPos(9, 9)); // Across the whole map
+		index = new MapPaintIndex(map, layout, 8, 8);
+	}
+	
+	@Test
+	public void testSectors() {
+		assertEquals(100, index.getSectors(null).size());
+		List<GridPos> sectors = index.getSectors(new Rectangle(layout.getPixelX(0), layout.getPixelY(0), 10, 10));
+		assertTrue(sectors.contains(new GridPos(0, 0)));
+		assertEquals(16, sectors.size());
+		for (GridPos gridPos : sectors) {
+			assertTrue(gridPos.gridX < 4 && gridPos.gridY < 4); // Only the first bucket
+		}
+		sectors = index.getSectors(new Rectangle(0, 0, 2000, 2000));
+		assertEquals(100, sectors.size());
+		assertEquals(0, index.getSectors(new Rectangle(-100, -100, 50, 50)).size());
+		assertEquals(0, index.getSectors(new Rectangle(5000, 0, 50, 50)).size());
+		assertTrue(index.isValidFor(layout));
+	}
+	
+	@Test
+	public void testGateConnections() {
+		assertEquals(2, index.getGateConnections(null).size());
+		assertEquals(2, index.getGateConnections(new Rectangle(layout.getPixelX(0), layout.getPixelY(0), 10, 10)).size());
+		
+		// The middle of the jump gate line, far from the direct connection
+		int middle = (layout.getPixelX(0) + layout.getPixelX(9) + layout.getSectorWidth()) / 2;
+		List<GateConnection> connections = index.getGateConnections(new Rectangle(middle, middle, 5, 5));
+		assertEquals(1, connections.size());
+		assertTrue(!connections.get(0).isDirectConnection());
+		
+		// Inside the bounds of the jump gate line, but far from it
+		assertEquals(0, index.getGateConnections(new Rectangle(layout.getPixelX(9), layout.getPixelY(0), 10, 10)).size());
+	}
+	
+	private void connect(GridPos pos, byte gate, GridPos target) {
+		map.getSectors().get(pos).setWarpGate(gate, new WarpGate(target));
+		map.getSectors().get(target).setWarpGate((byte) (gate ^ 1), new WarpGate(pos));
+	}
+	
+}
@@ -0,0 +1,85 @@
+package de.ncm.x3.iam.gui.component.universe;
+
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestMapTileCache {
+	
+	private static final int TILE = MapTileCache.TILE_SIZE;
+	
+	private MapTileCache cache;
+	private Graphics2D g;
+	private BufferedImage image;
+	
+	@Before
+	public void setUp() {
+		cache = new MapTileCache(new MapTileCache.TilePainter() {
+			
+			@Override
+			public void paintTile(Graphics2D g) {
+				g.setColor(Color.RED);
+				g.fillRect(0, 0, 4 * TILE, 4 * TILE);
+			}
+		}, 8);
+		image = new BufferedImage(4 * TILE, 4 * TILE, BufferedImage.TYPE_INT_RGB);
+		g = image.createGraphics();
+	}
+	
+	@Test
+	public void testScrollingCopiesTiles() {
+		cache.paint(g, new Rectangle(0, 0, 2 * TILE, 2 * TILE), 1.0, null);
+		assertEquals(4, cache.getPaintedTiles());
+		assertEquals(Color.RED.getRGB(), image.getRGB(TILE + 1, TILE + 1));
+		
+		cache.paint(g, new Rectangle(0, 0, 2 * TILE, 2 * TILE), 1.0, null);
+		assertEquals(4, cache.getPaintedTiles());
+		cache.paint(g, new Rectangle(TILE / 2, 0, 2 * TILE, 2 * TILE), 1.0, null); // One more column
+		assertEquals(6, cache.getPaintedTiles());
+		assertEquals(6, cache.size());
+	}
+	
+	@Test
+	public void testInvalidate() {
+		Rectangle view = new Rectangle(0, 0, 2 * TILE, 2 * TILE);
+		cache.paint(g, view, 1.0, null);
+		cache.invalidate(new Rectangle(TILE + 10, 10, 5, 5), 1.0);
+		cache.paint(g, view, 1.0, null);
+		assertEquals(5, cache.getPaintedTiles());
+		cache.invalidate(new Rectangle(TILE - 5, TILE - 5, 10, 10), 1.0);
+		cache.paint(g, view, 1.0, null);
+		assertEquals(9, cache.getPaintedTiles());
+		
+		cache.paint(g, view, 2.0, null); // Another zoom level has its own tiles
+		assertEquals(13, cache.getPaintedTiles());
+		assertEquals(8, cache.size());
+		cache.invalidate(new Rectangle(0, 0, 1, 1), 2.0);
+		assertEquals(4, cache.size());
+		
+		cache.invalidateAll();
+		assertEquals(0, cache.size());
+	}
+	
+	@Test
+	public void testLeastRecentlyUsedAreEvicted() {
+		cache.paint(g, new Rectangle(0, 0, 4 * TILE, 2 * TILE), 1.0, null);
+		assertEquals(8, cache.size());
+		cache.paint(g, new Rectangle(0, 0, TILE, TILE), 1.0, null);
+		cache.paint(g, new Rectangle(0, 2 * TILE, TILE, TILE), 1.0, null);
+		assertEquals(8, cache.size());
+		assertEquals(9, cache.getPaintedTiles());
+		
+		cache.paint(g, new Rectangle(0, 0, TILE, TILE), 1.0, null); // Was used last, still there
+		assertEquals(9, cache.getPaintedTiles());
+		cache.paint(g, new Rectangle(TILE, 0, TILE, TILE), 1.0, null); // Was the eldest
+		assertEquals(10, cache.getPaintedTiles());
+	}
+	
+}
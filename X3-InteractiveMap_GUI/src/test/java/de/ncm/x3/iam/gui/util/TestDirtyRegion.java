@@ -0,0 +1,87 @@
+package de.ncm.x3.iam.gui.util;
+
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.EventQueue;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.JPanel;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestDirtyRegion {
+	
+	private final List<Rectangle> repainted = new ArrayList<Rectangle>();
+	private DirtyRegion dirtyRegion;
+	
+	@Before
+	public void setUp() {
+		dirtyRegion = new DirtyRegion(new JPanel() {
+			
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			public void repaint(Rectangle r) {
+				repainted.add(r);
+			}
+		});
+	}
+	
+	@Test
+	public void testMerge() throws Exception {
+		// On the event dispatch thread, so the areas are not flushed in between
+		EventQueue.invokeAndWait(new Runnable() {
+			
+			@Override
+			public void run() {
+				dirtyRegion.add(new Rectangle(0, 0, 100, 100));
+				dirtyRegion.add(new Rectangle(50, 50, 100, 100)); // Overlaps
+				assertEquals(1, dirtyRegion.getAreas().size());
+				assertEquals(new Rectangle(0, 0, 150, 150), dirtyRegion.getAreas().get(0));
+				
+				dirtyRegion.add(new Rectangle(150, 0, 10, 150)); // Touches, the union is not larger than both
+				assertEquals(new Rectangle(0, 0, 160, 150), dirtyRegion.getAreas().get(0));
+				
+				dirtyRegion.add(new Rectangle(1000, 1000, 10, 10)); // Far away
+				assertEquals(2, dirtyRegion.getAreas().size());
+				dirtyRegion.add(new Rectangle(5, 5, 0, 10)); // Empty
+				assertEquals(2, dirtyRegion.getAreas().size());
+				
+				dirtyRegion.add(new Rectangle(100, 100, 950, 950)); // Joins both
+				assertEquals(1, dirtyRegion.getAreas().size());
+				assertEquals(new Rectangle(0, 0, 1050, 1050), dirtyRegion.getAreas().get(0));
+			}
+		});
+	}
+	
+	@Test
+	public void testOneRepaintPerArea() throws Exception {
+		EventQueue.invokeAndWait(new Runnable() {
+			
+			@Override
+			public void run() {
+				for (int i = 0; i < 100; i++) {
+					dirtyRegion.add(new Rectangle(i, 0, 10, 10));
+				}
+				dirtyRegion.add(new Rectangle(500, 500, 10, 10));
+				assertTrue(repainted.isEmpty());
+			}
+		});
+		EventQueue.invokeAndWait(new Runnable() {
+			
+			@Override
+			public void run() {
+			}
+		});
+		assertEquals(2, repainted.size());
+		assertEquals(2, dirtyRegion.getRepaints());
+		assertTrue(repainted.contains(new Rectangle(0, 0, 109, 10)));
+		assertEquals(0, dirtyRegion.getAreas().size());
+	}
+	
+}